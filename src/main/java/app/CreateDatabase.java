@@ -1,14 +1,20 @@
 package app;
 
+import static kcls_manager.database.DBConstants.ARCHIVE_DATE_FIELD;
+import static kcls_manager.database.DBConstants.ATTRIBUTES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.ATTR_KEY_FIELD;
+import static kcls_manager.database.DBConstants.ATTR_TYPE_FIELD;
 import static kcls_manager.database.DBConstants.AUTHORS_ID_FIELD;
 import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
 import static kcls_manager.database.DBConstants.AUTHOR_FIELD;
 import static kcls_manager.database.DBConstants.CHECK_DATE_FIELD;
 import static kcls_manager.database.DBConstants.CHECK_QPOS_FIELD;
+import static kcls_manager.database.DBConstants.COMMENTS_ARCHIVE_TABLE_NAME;
 import static kcls_manager.database.DBConstants.COMMENTS_ID_FIELD;
 import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
 import static kcls_manager.database.DBConstants.CREATION_DATE_FIELD;
 import static kcls_manager.database.DBConstants.CURRENT_COUNT_FIELD;
+import static kcls_manager.database.DBConstants.DATE_VALUE_FIELD;
 import static kcls_manager.database.DBConstants.DB_URL;
 import static kcls_manager.database.DBConstants.ITEM_ID_FIELD;
 import static kcls_manager.database.DBConstants.LABEL_FIELD;
@@ -20,16 +26,33 @@ import static kcls_manager.database.DBConstants.LIST_TITLE_FIELD;
 import static kcls_manager.database.DBConstants.LIST_TYPE_FIELD;
 import static kcls_manager.database.DBConstants.MEDIA_TYPE_FIELD;
 import static kcls_manager.database.DBConstants.MODIFICATION_DATE_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_AUTHOR_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_KEY_LENGTH;
+import static kcls_manager.database.DBConstants.NATURAL_MEDIA_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_MEDIA_LENGTH;
+import static kcls_manager.database.DBConstants.NATURAL_TITLE_FIELD;
+import static kcls_manager.database.DBConstants.NUMBER_VALUE_FIELD;
+import static kcls_manager.database.DBConstants.PREVIEW_FIELD;
+import static kcls_manager.database.DBConstants.PREVIEW_LENGTH;
+import static kcls_manager.database.DBConstants.QPOS_FIELD;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_ID_FIELD;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_TABLE_NAME;
 import static kcls_manager.database.DBConstants.RANK_FIELD;
 import static kcls_manager.database.DBConstants.RATING_FIELD;
+import static kcls_manager.database.DBConstants.READY_DATE_FIELD;
 import static kcls_manager.database.DBConstants.RECKON_DATE_FIELD;
 import static kcls_manager.database.DBConstants.RECKON_QPOS_FIELD;
+import static kcls_manager.database.DBConstants.SAMPLE_DATE_FIELD;
 import static kcls_manager.database.DBConstants.SOURCE_FIELD;
+import static kcls_manager.database.DBConstants.STRING_VALUE_FIELD;
 import static kcls_manager.database.DBConstants.TEST_DB_URL;
 import static kcls_manager.database.DBConstants.TEXT_FIELD;
+import static kcls_manager.database.DBConstants.TEXT_LENGTH_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
 import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
 import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
 import static kcls_manager.database.DBConstants.TITLE_FIELD;
+import static kcls_manager.database.DBConstants.VERSION_FIELD;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -75,14 +98,22 @@ public class CreateDatabase
         + RANK_FIELD + " int, "
         + SOURCE_FIELD + " varchar( 255 ), "
         + LAST_COUNT_FIELD + " int, "
-        + CURRENT_COUNT_FIELD + " int, "
+        + CURRENT_COUNT_FIELD + " int NOT NULL DEFAULT 0, "
         + LISTS_ID_FIELD + " int, "
         + CREATION_DATE_FIELD + " date, "
         + MODIFICATION_DATE_FIELD + " date, "
+        + VERSION_FIELD + " int NOT NULL DEFAULT 0, "
+        + NATURAL_AUTHOR_FIELD 
+            + " varchar( " + NATURAL_KEY_LENGTH + " ) NOT NULL, "
         + "FOREIGN KEY(" + LISTS_ID_FIELD + ") REFERENCES " 
             + LISTS_TABLE_NAME + "(" + LISTS_ID_FIELD + ")"
     + " )";
 
+    /** Authors are uniquely identified by their normalized names */
+    public static final String  createAuthorsNaturalKeySQL =
+    "CREATE UNIQUE INDEX " + AUTHORS_TABLE_NAME + "_NATURAL_IDX ON "
+        + AUTHORS_TABLE_NAME + " ( " + NATURAL_AUTHOR_FIELD + " )";
+
     /** Create titles table SQL */
     public static final String  createTitlesTableSQL =
     "CREATE TABLE " + TITLES_TABLE_NAME + " ( "
@@ -100,27 +131,239 @@ public class CreateDatabase
         + CREATION_DATE_FIELD + " date, "
         + MODIFICATION_DATE_FIELD + " date, "
         + RECKON_DATE_FIELD + " date, "
-        + CHECK_DATE_FIELD + " date "
+        + CHECK_DATE_FIELD + " date, "
+        + READY_DATE_FIELD + " date, "
+        + VERSION_FIELD + " int NOT NULL DEFAULT 0, "
+        + NATURAL_TITLE_FIELD 
+            + " varchar( " + NATURAL_KEY_LENGTH + " ) NOT NULL, "
+        + NATURAL_MEDIA_FIELD 
+            + " varchar( " + NATURAL_MEDIA_LENGTH + " ) NOT NULL "
 //        + "FOREIGN KEY(" + AUTHORS_ID_FIELD + ") REFERENCES " 
 //            + AUTHORS_TABLE_NAME + "(" + AUTHORS_ID_FIELD + "),"
 //        + "FOREIGN KEY(" + LISTS_ID_FIELD + ") REFERENCES " 
 //            + LISTS_TABLE_NAME + "(" + LISTS_ID_FIELD + ")"
     + " )";
 
-    /** Create comments table SQL */
+    /** Index titles by author */
+    public static final String  createTitlesAuthorIndexSQL =
+    "CREATE INDEX " + TITLES_TABLE_NAME + "_AUTHOR_IDX ON "
+        + TITLES_TABLE_NAME + " ( " + AUTHORS_ID_FIELD + " )";
+
+    /** 
+     * Titles are uniquely identified by their normalized text,
+     * author and normalized media type
+     */
+    public static final String  createTitlesNaturalKeySQL =
+    "CREATE UNIQUE INDEX " + TITLES_TABLE_NAME + "_NATURAL_IDX ON "
+        + TITLES_TABLE_NAME + " ( " 
+        + NATURAL_TITLE_FIELD + ", " 
+        + AUTHORS_ID_FIELD + ", " 
+        + NATURAL_MEDIA_FIELD + " )";
+
+    /** Index titles by list, for the list queries */
+    public static final String  createTitlesListIndexSQL =
+    "CREATE INDEX " + TITLES_TABLE_NAME + "_LIST_IDX ON "
+        + TITLES_TABLE_NAME + " ( " + LISTS_ID_FIELD + " )";
+
+    /** 
+     * Create titles archive table SQL.
+     * The archive has the same columns as the titles table,
+     * plus the date on which each title was archived;
+     * row IDs are copied from the titles table, not generated.
+     */
+    public static final String  createTitlesArchiveTableSQL =
+    "CREATE TABLE " + TITLES_ARCHIVE_TABLE_NAME + " ( "
+        + TITLES_ID_FIELD + " int PRIMARY KEY, "
+        + TITLE_FIELD + " varchar( 255 ) NOT NULL, "
+        + AUTHORS_ID_FIELD + " int, "
+        + LISTS_ID_FIELD + " int, "
+        + MEDIA_TYPE_FIELD + " varchar( 127 ), "
+        + CHECK_QPOS_FIELD + " int, "
+        + RECKON_QPOS_FIELD + " int, "
+        + RANK_FIELD + " int, "
+        + RATING_FIELD + " int, "
+        + SOURCE_FIELD + " varchar( 127 ), "
+        + CREATION_DATE_FIELD + " date, "
+        + MODIFICATION_DATE_FIELD + " date, "
+        + RECKON_DATE_FIELD + " date, "
+        + CHECK_DATE_FIELD + " date, "
+        + READY_DATE_FIELD + " date, "
+        + VERSION_FIELD + " int NOT NULL DEFAULT 0, "
+        + ARCHIVE_DATE_FIELD + " date "
+    + " )";
+
+    /** Index archived titles by list */
+    public static final String  createTitlesArchiveListIndexSQL =
+    "CREATE INDEX " + TITLES_ARCHIVE_TABLE_NAME + "_LIST_IDX ON "
+        + TITLES_ARCHIVE_TABLE_NAME + " ( " + LISTS_ID_FIELD + " )";
+
+    /** Index archived titles by author */
+    public static final String  createTitlesArchiveAuthorIndexSQL =
+    "CREATE INDEX " + TITLES_ARCHIVE_TABLE_NAME + "_AUTHOR_IDX ON "
+        + TITLES_ARCHIVE_TABLE_NAME + " ( " + AUTHORS_ID_FIELD + " )";
+
+    /*
+     * The following triggers maintain the current count of each author
+     * as the number of titles that refer to the author.
+     * Derby triggers may contain only a single statement,
+     * so a change of author requires two triggers:
+     * one to decrement the old author's count,
+     * and one to increment the new author's count.
+     * Triggers do not change the version of the author row.
+     */
+    /** Increment author's current count when a title is inserted */
+    public static final String  createTitleInsertTriggerSQL =
+    "CREATE TRIGGER " + TITLES_TABLE_NAME + "_INSERT_COUNT"
+        + " AFTER INSERT ON " + TITLES_TABLE_NAME
+        + " REFERENCING NEW AS NEW_ROW FOR EACH ROW"
+        + getCountDeltaSQL( "NEW_ROW", "+" );
+
+    /** Decrement author's current count when a title is deleted */
+    public static final String  createTitleDeleteTriggerSQL =
+    "CREATE TRIGGER " + TITLES_TABLE_NAME + "_DELETE_COUNT"
+        + " AFTER DELETE ON " + TITLES_TABLE_NAME
+        + " REFERENCING OLD AS OLD_ROW FOR EACH ROW"
+        + getCountDeltaSQL( "OLD_ROW", "-" );
+
+    /** 
+     * Decrement old author's current count when 
+     * a title's author is changed
+     */
+    public static final String  createTitleUpdateOldTriggerSQL =
+    "CREATE TRIGGER " + TITLES_TABLE_NAME + "_UPDATE_OLD_COUNT"
+        + " AFTER UPDATE OF " + AUTHORS_ID_FIELD 
+        + " ON " + TITLES_TABLE_NAME
+        + " REFERENCING OLD AS OLD_ROW FOR EACH ROW"
+        + getCountDeltaSQL( "OLD_ROW", "-" );
+
+    /** 
+     * Increment new author's current count when 
+     * a title's author is changed
+     */
+    public static final String  createTitleUpdateNewTriggerSQL =
+    "CREATE TRIGGER " + TITLES_TABLE_NAME + "_UPDATE_NEW_COUNT"
+        + " AFTER UPDATE OF " + AUTHORS_ID_FIELD 
+        + " ON " + TITLES_TABLE_NAME
+        + " REFERENCING NEW AS NEW_ROW FOR EACH ROW"
+        + getCountDeltaSQL( "NEW_ROW", "+" );
+
+    /*
+     * Archived titles still count toward their authors' current counts;
+     * moving a title to the archive decrements the count
+     * (via the titles delete trigger), then increments it again.
+     */
+    /** Increment author's current count when a title is archived */
+    public static final String  createArchiveInsertTriggerSQL =
+    "CREATE TRIGGER " + TITLES_ARCHIVE_TABLE_NAME + "_INSERT_COUNT"
+        + " AFTER INSERT ON " + TITLES_ARCHIVE_TABLE_NAME
+        + " REFERENCING NEW AS NEW_ROW FOR EACH ROW"
+        + getCountDeltaSQL( "NEW_ROW", "+" );
+
+    /** Decrement author's current count when an archived title is deleted */
+    public static final String  createArchiveDeleteTriggerSQL =
+    "CREATE TRIGGER " + TITLES_ARCHIVE_TABLE_NAME + "_DELETE_COUNT"
+        + " AFTER DELETE ON " + TITLES_ARCHIVE_TABLE_NAME
+        + " REFERENCING OLD AS OLD_ROW FOR EACH ROW"
+        + getCountDeltaSQL( "OLD_ROW", "-" );
+
+    /** 
+     * Create comments table SQL.
+     * The full text of a comment is stored as a CLOB;
+     * the leading characters are duplicated in the preview column
+     * so that lists of comments can be displayed
+     * without reading the CLOB.
+     */
     public static final String  createCommentsTableSQL =
     "CREATE TABLE " + COMMENTS_TABLE_NAME + " ( "
         + COMMENTS_ID_FIELD + " int PRIMARY KEY GENERATED ALWAYS AS IDENTITY"
             + "(START WITH 1, INCREMENT BY 1), "
-        + TEXT_FIELD + " varchar( 1023 ),"
+        + PREVIEW_FIELD + " varchar( " + PREVIEW_LENGTH + " ),"
+        + TEXT_FIELD + " clob,"
+        + TEXT_LENGTH_FIELD + " int NOT NULL DEFAULT 0, "
         + ITEM_ID_FIELD + " int, "
-        + LIST_TYPE_FIELD + " int "
+        + LIST_TYPE_FIELD + " int, "
+        + VERSION_FIELD + " int NOT NULL DEFAULT 0 "
 //        + "FOREIGN KEY(" + AUTHORS_ID_FIELD + ") REFERENCES " 
 //            + AUTHORS_TABLE_NAME + "(" + AUTHORS_ID_FIELD + "), "
 //        + "FOREIGN KEY(" + TITLES_ID_FIELD + ") REFERENCES " 
 //            + TITLES_TABLE_NAME + "(" + TITLES_ID_FIELD + ")"
     + " )";
 
+    /** 
+     * Create comments archive table SQL.
+     * The archive has the same columns as the comments table;
+     * row IDs are copied from the comments table, not generated.
+     */
+    public static final String  createCommentsArchiveTableSQL =
+    "CREATE TABLE " + COMMENTS_ARCHIVE_TABLE_NAME + " ( "
+        + COMMENTS_ID_FIELD + " int PRIMARY KEY, "
+        + PREVIEW_FIELD + " varchar( " + PREVIEW_LENGTH + " ),"
+        + TEXT_FIELD + " clob,"
+        + TEXT_LENGTH_FIELD + " int NOT NULL DEFAULT 0, "
+        + ITEM_ID_FIELD + " int, "
+        + LIST_TYPE_FIELD + " int, "
+        + VERSION_FIELD + " int NOT NULL DEFAULT 0 "
+    + " )";
+
+    /** Index archived comments by item */
+    public static final String  createCommentsArchiveIndexSQL =
+    "CREATE INDEX " + COMMENTS_ARCHIVE_TABLE_NAME + "_ITEM_IDX ON "
+        + COMMENTS_ARCHIVE_TABLE_NAME 
+        + " ( " + LIST_TYPE_FIELD + ", " + ITEM_ID_FIELD + " )";
+
+    /** 
+     * Create attributes table SQL.
+     * Each row holds one attribute of one title or author;
+     * the attribute type determines which value column is used.
+     * The primary key supports reading all attributes of an item,
+     * or of a set of items.
+     */
+    public static final String  createAttributesTableSQL =
+    "CREATE TABLE " + ATTRIBUTES_TABLE_NAME + " ( "
+        + LIST_TYPE_FIELD + " int NOT NULL, "
+        + ITEM_ID_FIELD + " int NOT NULL, "
+        + ATTR_KEY_FIELD + " varchar( 127 ) NOT NULL, "
+        + ATTR_TYPE_FIELD + " char( 1 ) NOT NULL, "
+        + STRING_VALUE_FIELD + " varchar( 255 ), "
+        + NUMBER_VALUE_FIELD + " bigint, "
+        + DATE_VALUE_FIELD + " date, "
+        + "PRIMARY KEY ( " + LIST_TYPE_FIELD + ", " + ITEM_ID_FIELD + ", " 
+            + ATTR_KEY_FIELD + " )"
+    + " )";
+
+    /** Index string attributes by key and value */
+    public static final String  createAttributesStringIndexSQL =
+    "CREATE INDEX " + ATTRIBUTES_TABLE_NAME + "_STRING_IDX ON "
+        + ATTRIBUTES_TABLE_NAME + " ( " + ATTR_KEY_FIELD + ", " 
+        + STRING_VALUE_FIELD + ", " + LIST_TYPE_FIELD + " )";
+
+    /** Index integer attributes by key and value */
+    public static final String  createAttributesNumberIndexSQL =
+    "CREATE INDEX " + ATTRIBUTES_TABLE_NAME + "_NUMBER_IDX ON "
+        + ATTRIBUTES_TABLE_NAME + " ( " + ATTR_KEY_FIELD + ", " 
+        + NUMBER_VALUE_FIELD + ", " + LIST_TYPE_FIELD + " )";
+
+    /** Index date attributes by key and value */
+    public static final String  createAttributesDateIndexSQL =
+    "CREATE INDEX " + ATTRIBUTES_TABLE_NAME + "_DATE_IDX ON "
+        + ATTRIBUTES_TABLE_NAME + " ( " + ATTR_KEY_FIELD + ", " 
+        + DATE_VALUE_FIELD + ", " + LIST_TYPE_FIELD + " )";
+
+    /** Create queue position history table SQL */
+    public static final String  createQPosHistoryTableSQL =
+    "CREATE TABLE " + QPOS_HISTORY_TABLE_NAME + " ( "
+        + QPOS_HISTORY_ID_FIELD + " int PRIMARY KEY GENERATED ALWAYS AS IDENTITY"
+            + "(START WITH 1, INCREMENT BY 1), "
+        + TITLES_ID_FIELD + " int NOT NULL, "
+        + SAMPLE_DATE_FIELD + " date NOT NULL, "
+        + QPOS_FIELD + " int NOT NULL "
+    + " )";
+
+    /** Index queue position history by title */
+    public static final String  createQPosHistoryIndexSQL =
+    "CREATE INDEX " + QPOS_HISTORY_TABLE_NAME + "_TITLE_IDX ON "
+        + QPOS_HISTORY_TABLE_NAME + " ( " + TITLES_ID_FIELD + " )";
+
     /** URL for database creation */
     public final String connectionPoint;
     
@@ -173,11 +416,35 @@ public class CreateDatabase
             statement.execute(createListsTableSQL);
             logger.info("Created table lists");
             statement.execute(createAuthorsTableSQL);
+            statement.execute(createAuthorsNaturalKeySQL);
             logger.info("Created table authors");
             statement.execute(createTitlesTableSQL);
+            statement.execute(createTitlesAuthorIndexSQL);
+            statement.execute(createTitlesListIndexSQL);
+            statement.execute(createTitlesNaturalKeySQL);
+            statement.execute(createTitleInsertTriggerSQL);
+            statement.execute(createTitleDeleteTriggerSQL);
+            statement.execute(createTitleUpdateOldTriggerSQL);
+            statement.execute(createTitleUpdateNewTriggerSQL);
             logger.info("Created table titles");
             statement.execute(createCommentsTableSQL);
             logger.info("Created table comments");
+            statement.execute(createAttributesTableSQL);
+            statement.execute(createAttributesStringIndexSQL);
+            statement.execute(createAttributesNumberIndexSQL);
+            statement.execute(createAttributesDateIndexSQL);
+            logger.info("Created table attributes");
+            statement.execute(createTitlesArchiveTableSQL);
+            statement.execute(createTitlesArchiveListIndexSQL);
+            statement.execute(createTitlesArchiveAuthorIndexSQL);
+            statement.execute(createArchiveInsertTriggerSQL);
+            statement.execute(createArchiveDeleteTriggerSQL);
+            statement.execute(createCommentsArchiveTableSQL);
+            statement.execute(createCommentsArchiveIndexSQL);
+            logger.info("Created archive tables");
+            statement.execute(createQPosHistoryTableSQL);
+            statement.execute(createQPosHistoryIndexSQL);
+            logger.info("Created table qpos_history");
 
             conn.commit();
             logger.info("Changes committed");
@@ -192,13 +459,35 @@ public class CreateDatabase
         logger.info( "Application complete" );
     }
     
+    /**
+     * Gets the body of a trigger that adjusts the current count
+     * of the author referred to by a title row.
+     * 
+     * @param rowName   the correlation name of the title row,
+     *                  e.g. NEW_ROW
+     * @param operator  "+" to increment the count, "-" to decrement it
+     * 
+     * @return  the body of the trigger
+     */
+    private static String getCountDeltaSQL( String rowName, String operator )
+    {
+        String  sql =
+            " UPDATE " + AUTHORS_TABLE_NAME + " SET "
+            + CURRENT_COUNT_FIELD + " = " 
+            + CURRENT_COUNT_FIELD + " " + operator + " 1"
+            + " WHERE " + AUTHORS_ID_FIELD + " = " 
+            + rowName + "." + AUTHORS_ID_FIELD;
+        return sql;
+    }
+    
     /**
      * Shutdown the Derby embedded driver.
      * Implemented as a separate method because shutting down the
      * driver causes an exception to be thrown, and the exception has
      * to be examined to determine if shutdown completed successfully.
+     * Also used by UpgradeDatabase.
      */
-    private void shutdown()
+    static void shutdown()
     {
         // Surely these constants are declared somewhere in the
         // Derby distribution, but I can't find them.
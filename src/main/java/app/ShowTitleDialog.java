@@ -4,19 +4,129 @@ import static kcls_manager.database.DBConstants.DB_URL;
 import static kcls_manager.main.Constants.TITLE_TYPE;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
 
 import kcls_manager.components.TitleDialog;
 import kcls_manager.database.DBServer;
+import kcls_manager.database.ListSnapshot;
 import kcls_manager.main.DataManager;
 import kcls_manager.main.KCLSList;
+import kcls_manager.main.Title;
 import kcls_manager.main.TitleContentProvider;
 
+/**
+ * Displays the first list of titles.
+ * If a snapshot was written when the database was last shut down
+ * the list is populated from the snapshot,
+ * and displayed while the DBServer boots in the background;
+ * once the boot is complete the list is reloaded from the database,
+ * unless the snapshot is current.
+ *
+ * @author jstra
+ *
+ * @see DBServer#readSnapshot(String)
+ * @see DataManager#startDBServerAsync(String, String, String)
+ */
 public class ShowTitleDialog
 {
-    private static final DBServer   dbServer    = 
-        DataManager.getDBServer( DB_URL );
-    
+    private static final String loggerName  = ShowTitleDialog.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
     public static void main(String[] args)
+    {
+        // boot the database in the background while Swing loads
+        Optional<ListSnapshot>      snapshot    =
+            DBServer.readSnapshot( DB_URL );
+        CompletableFuture<DBServer> boot        =
+            DataManager.startDBServerAsync( DB_URL, "", "" );
+        UIManager.getLookAndFeelDefaults();
+
+        Optional<String>        listName    =
+            snapshot.map( TitleContentProvider::getAllListNames )
+                .flatMap( l -> l.stream().findFirst() );
+        CompletableFuture<Void> refresh     =
+            CompletableFuture.completedFuture( null );
+        TitleDialog             dialog;
+        if ( listName.isPresent() )
+        {
+            ListSnapshot            snap        = snapshot.get();
+            String                  name        = listName.get();
+            TitleContentProvider    provider    =
+                new TitleContentProvider( snap, name );
+            TitleDialog             snapDialog  = new TitleDialog( provider );
+            refresh = boot.thenAccept( server ->
+                refreshIfStale( server, snap, name, provider, snapDialog )
+            ).exceptionally( exc -> {
+                logger.log( Level.WARNING, "refresh failed", exc );
+                return null;
+            });
+            dialog = snapDialog;
+        }
+        else
+        {
+            DBServer        dbServer    = DataManager.getDBServer();
+            String          titleList   = getFirstTitleList( dbServer );
+            TitleContentProvider    provider    =
+                new TitleContentProvider( dbServer, titleList );
+            dialog = new TitleDialog( provider );
+        }
+        int                     status      = dialog.showDialog( true );
+        System.out.println( status );
+        dialog.dispose();
+        refresh.join();
+        DataManager.closeConnection();
+    }
+
+    /**
+     * Reloads the titles displayed by a dialog
+     * from the database accessed by a given DBServer,
+     * if the snapshot the dialog was populated from
+     * is no longer current.
+     * The dialog is refreshed on the event dispatch thread.
+     *
+     * @param dbServer  the given DBServer
+     * @param snapshot  the snapshot the dialog was populated from
+     * @param listName  the name of the list displayed by the dialog
+     * @param provider  the dialog's content provider
+     * @param dialog    the dialog
+     */
+    private static void refreshIfStale(
+        DBServer dbServer,
+        ListSnapshot snapshot,
+        String listName,
+        TitleContentProvider provider,
+        TitleDialog dialog
+    )
+    {
+        if ( dbServer.isSnapshotCurrent( snapshot ) )
+        {
+            logger.info( "snapshot is current" );
+            return;
+        }
+        List<Title> titles      =
+            TitleContentProvider.getTitlesForList( dbServer, listName );
+        SwingUtilities.invokeLater( () -> {
+            provider.setTitles( titles );
+            dialog.refresh();
+        });
+        logger.info( "snapshot out of date; reloaded " + listName );
+    }
+
+    /**
+     * Gets the name of the first list of titles in the database
+     * accessed by a given DBServer.
+     *
+     * @param dbServer  the given DBServer
+     *
+     * @return the name of the first list of titles
+     */
+    private static String getFirstTitleList( DBServer dbServer )
     {
         List<KCLSList>  allLists    = dbServer.getAllLists();
         if ( allLists == null || allLists.size() == 0 )
@@ -31,12 +141,6 @@ public class ShowTitleDialog
         }
         if ( titleList == null )
             throw new IllegalStateException( "no title list found" );
-        String                  listName    = titleList.getDialogTitle();
-        TitleContentProvider    provider    = new TitleContentProvider( listName );
-        TitleDialog             dialog      = new TitleDialog( provider );
-        int                     status      = dialog.showDialog( true );
-        System.out.println( status );
-        dialog.dispose();
+        return titleList.getDialogTitle();
     }
-
 }
@@ -0,0 +1,228 @@
+package app;
+
+import static kcls_manager.database.DBConstants.DB_URL;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.table.DefaultTableModel;
+
+import kcls_manager.components.TitleDialog;
+import kcls_manager.database.DBServer;
+import kcls_manager.database.ListSnapshot;
+import kcls_manager.main.DataManager;
+import kcls_manager.main.KCLSException;
+import kcls_manager.main.TitleContentProvider;
+
+/**
+ * Measures the startup path of the application,
+ * from entry into <em>main</em> to the first visible list of titles.
+ * The path is broken into phases:
+ * <ol>
+ * <li>starting the DBServer (booting Derby and connecting);</li>
+ * <li>initializing Swing (look and feel, and the table classes);</li>
+ * <li>retrieving the names of all title lists;</li>
+ * <li>loading the first title list into a content provider;</li>
+ * <li>building the dialog that displays the list,
+ *     and waiting for it to open on the event dispatch thread.</li>
+ * </ol>
+ * The last phase is skipped in a headless environment.
+ * The elapsed time of each phase is written to stdout,
+ * followed by the number of prepared statements
+ * that were actually prepared along the way.
+ *
+ * With <em>--async</em> the DBServer is booted in the background
+ * while Swing is initialized, as an application should do at launch;
+ * the first phase then only measures the time spent waiting
+ * for the boot to complete after Swing has been initialized.
+ *
+ * With <em>--snapshot</em> the first list is populated from the
+ * snapshot written when the database was last shut down,
+ * and displayed while the DBServer boots in the background;
+ * once the boot is complete the snapshot is validated.
+ *
+ * Usage: StartupBenchmark [--async] [--snapshot] [dbURL]
+ *
+ * @author jstra
+ *
+ * @see DataManager#startDBServer(String, String, String)
+ * @see DataManager#startDBServerAsync(String, String, String)
+ */
+public class StartupBenchmark
+{
+    /** Format of a single line of the report */
+    private static final String reportFormat    = "%-24s %8.1f ms%n";
+
+    /** Command line option to boot the DBServer in the background */
+    private static final String asyncOption     = "--async";
+
+    /**
+     * Command line option to display the first list from the snapshot
+     * while the DBServer is booted in the background;
+     * implies <em>--async</em>
+     */
+    private static final String snapshotOption  = "--snapshot";
+
+    /** Time of entry into main, in nanoseconds */
+    private static long         mainStart;
+
+    /** Time of the end of the most recent phase, in nanoseconds */
+    private static long         lastMark;
+
+    public static void main( String[] args ) throws Exception
+    {
+        mainStart = System.nanoTime();
+        lastMark = mainStart;
+
+        long    jvmStart    =
+            ManagementFactory.getRuntimeMXBean().getStartTime();
+        double  jvmMillis   = System.currentTimeMillis() - jvmStart;
+        System.out.printf( reportFormat, "JVM start to main", jvmMillis );
+
+        List<String>    options     = new ArrayList<>();
+        String          dbURL       = DB_URL;
+        for ( String arg : args )
+            if ( arg.startsWith( "--" ) )
+                options.add( arg );
+            else
+                dbURL = arg;
+        boolean         useSnapshot = options.contains( snapshotOption );
+        boolean         async       =
+            useSnapshot || options.contains( asyncOption );
+
+        Optional<ListSnapshot>  snapshot    = Optional.empty();
+        Optional<String>        listName    = Optional.empty();
+        if ( useSnapshot )
+        {
+            snapshot = DBServer.readSnapshot( dbURL );
+            listName = 
+                snapshot.map( TitleContentProvider::getAllListNames )
+                    .flatMap( l -> l.stream().findFirst() );
+            mark( "read snapshot" );
+            if ( !listName.isPresent() )
+                System.out.println( "no snapshot lists; using database" );
+        }
+
+        DBServer                    dbServer    = null;
+        CompletableFuture<DBServer> boot        = null;
+        if ( async )
+        {
+            boot = DataManager.startDBServerAsync( dbURL, "", "" );
+            SwingUtilities.invokeAndWait( StartupBenchmark::initSwing );
+            mark( "init Swing" );
+        }
+        else
+        {
+            dbServer = DataManager.startDBServer( dbURL, "", "" );
+            mark( "start DBServer" );
+            SwingUtilities.invokeAndWait( StartupBenchmark::initSwing );
+            mark( "init Swing" );
+        }
+
+        TitleContentProvider    provider    = null;
+        if ( listName.isPresent() )
+        {
+            provider = 
+                new TitleContentProvider( snapshot.get(), listName.get() );
+            mark( "load first list" );
+            showDialog( provider );
+            dbServer = boot.join();
+            mark( "wait for DBServer" );
+            boolean current     = dbServer.isSnapshotCurrent( snapshot.get() );
+            System.out.println( "snapshot current: " + current );
+        }
+        else
+        {
+            if ( async )
+            {
+                dbServer = boot.join();
+                mark( "wait for DBServer" );
+            }
+            List<String>    listNames   =
+                TitleContentProvider.getAllListNames( dbServer );
+            mark( "get list names" );
+            if ( listNames.isEmpty() )
+                throw new KCLSException( "no title lists found" );
+
+            provider = new TitleContentProvider( dbServer, listNames.get( 0 ) );
+            mark( "load first list" );
+            showDialog( provider );
+        }
+
+        double  total   = (System.nanoTime() - mainStart) / 1e6;
+        System.out.printf( reportFormat, "total from main", total );
+        int     prepared    = dbServer.getDiagnostics().getLazyPreparedCount();
+        System.out.println( "statements prepared: " + prepared );
+
+        DataManager.closeConnection();
+        System.exit( 0 );
+    }
+
+    /**
+     * Builds a TitleDialog for a given content provider on the
+     * event dispatch thread, and waits until it has been opened.
+     * The dialog is disposed as soon as it opens.
+     * Does nothing in a headless environment.
+     *
+     * @param provider  the given content provider
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void showDialog( TitleContentProvider provider )
+        throws InterruptedException
+    {
+        if ( GraphicsEnvironment.isHeadless() )
+        {
+            System.out.println( "headless; dialog not displayed" );
+            return;
+        }
+        CountDownLatch  opened  = new CountDownLatch( 1 );
+        SwingUtilities.invokeLater( () -> {
+            TitleDialog dialog  = new TitleDialog( provider );
+            dialog.addWindowListener( new WindowAdapter() {
+                @Override
+                public void windowOpened( WindowEvent evt )
+                {
+                    opened.countDown();
+                    SwingUtilities.invokeLater( dialog::dispose );
+                }
+            });
+            dialog.showDialog( true );
+        });
+        opened.await();
+        mark( "first visible list" );
+    }
+
+    /**
+     * Initializes Swing, as far as possible without data:
+     * loads the look and feel and the table classes.
+     * Safe to use in a headless environment.
+     */
+    private static void initSwing()
+    {
+        UIManager.getLookAndFeelDefaults();
+        new JTable( new DefaultTableModel() );
+    }
+
+    /**
+     * Reports the elapsed time since the end of the previous phase.
+     *
+     * @param phase the name of the phase just completed
+     */
+    private static void mark( String phase )
+    {
+        long    now     = System.nanoTime();
+        System.out.printf( reportFormat, phase, (now - lastMark) / 1e6 );
+        lastMark = now;
+    }
+}
@@ -0,0 +1,834 @@
+package app;
+
+import static kcls_manager.database.DBConstants.ATTRIBUTES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.AUTHORS_ID_FIELD;
+import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.AUTHOR_FIELD;
+import static kcls_manager.database.DBConstants.COMMENTS_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.COMMENTS_ID_FIELD;
+import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.CURRENT_COUNT_FIELD;
+import static kcls_manager.database.DBConstants.DB_URL;
+import static kcls_manager.database.DBConstants.LISTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.MEDIA_TYPE_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_AUTHOR_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_KEY_LENGTH;
+import static kcls_manager.database.DBConstants.NATURAL_MEDIA_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_MEDIA_LENGTH;
+import static kcls_manager.database.DBConstants.NATURAL_TITLE_FIELD;
+import static kcls_manager.database.DBConstants.PREVIEW_FIELD;
+import static kcls_manager.database.DBConstants.PREVIEW_LENGTH;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_TABLE_NAME;
+import static kcls_manager.database.DBConstants.READY_DATE_FIELD;
+import static kcls_manager.database.DBConstants.TEST_DB_URL;
+import static kcls_manager.database.DBConstants.TEXT_FIELD;
+import static kcls_manager.database.DBConstants.TEXT_LENGTH_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLE_FIELD;
+import static kcls_manager.database.DBConstants.VERSION_FIELD;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kcls_manager.database.CommentsTable;
+import kcls_manager.database.Table;
+
+/**
+ * Upgrades a KCLS database created by an earlier version
+ * of CreateDatabase to the current schema;
+ * this program needs to be executed <em>once</em> for each
+ * existing database, before the database is used by the
+ * current version of the application.
+ * Executing it again is harmless:
+ * each step is taken only if the database needs it,
+ * as determined from the database metadata.
+ * <p>
+ * The steps are:
+ * <ul>
+ * <li>columns missing from existing tables are added,
+ *     with defaults;</li>
+ * <li>the text of each comment is copied into a CLOB column,
+ *     along with its preview and length;</li>
+ * <li>the natural keys of authors and titles are computed
+ *     from their names, and duplicates are made distinct,
+ *     before the unique natural key indexes are created;</li>
+ * <li>missing tables, indexes and triggers are created;
+ *     if the triggers that maintain the current count of each
+ *     author were missing, the current counts are recomputed;</li>
+ * <li>the database state table and its change count triggers,
+ *     used by an earlier version to validate list snapshots,
+ *     are dropped.</li>
+ * </ul>
+ * A duplicate natural key is made distinct by appending a tab
+ * and the row ID of the duplicate row.
+ * Normalization replaces tabs, so such a key never matches
+ * the key of any other row;
+ * the duplicate can no longer be found by name.
+ * Each duplicate is logged, so that it can be merged or renamed
+ * by hand.
+ * <p>
+ * All changes are made in a single transaction;
+ * if any step fails the database is left unchanged.
+ *
+ * @author jstra
+ *
+ * @see CreateDatabase
+ */
+public class UpgradeDatabase
+{
+    private static final String loggerName  = UpgradeDatabase.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** Separates a duplicate natural key from its row ID */
+    private static final String duplicateSeparator  = "\t";
+
+    /**
+     * Tables added since the first version of the database,
+     * each followed by the SQL to create the table and its indexes.
+     */
+    private static final String[][] newTables   =
+    {
+        {
+            TITLES_ARCHIVE_TABLE_NAME,
+            CreateDatabase.createTitlesArchiveTableSQL,
+            CreateDatabase.createTitlesArchiveListIndexSQL,
+            CreateDatabase.createTitlesArchiveAuthorIndexSQL,
+        },
+        {
+            COMMENTS_ARCHIVE_TABLE_NAME,
+            CreateDatabase.createCommentsArchiveTableSQL,
+            CreateDatabase.createCommentsArchiveIndexSQL,
+        },
+        {
+            ATTRIBUTES_TABLE_NAME,
+            CreateDatabase.createAttributesTableSQL,
+            CreateDatabase.createAttributesStringIndexSQL,
+            CreateDatabase.createAttributesNumberIndexSQL,
+            CreateDatabase.createAttributesDateIndexSQL,
+        },
+        {
+            QPOS_HISTORY_TABLE_NAME,
+            CreateDatabase.createQPosHistoryTableSQL,
+            CreateDatabase.createQPosHistoryIndexSQL,
+        },
+    };
+
+    /**
+     * Indexes of the TITLES table added since the first version
+     * of the database, other than the natural key index,
+     * each given as its name and the SQL to create it.
+     */
+    private static final String[][] newTitlesIndexes    =
+    {
+        {
+            TITLES_TABLE_NAME + "_AUTHOR_IDX",
+            CreateDatabase.createTitlesAuthorIndexSQL,
+        },
+        {
+            TITLES_TABLE_NAME + "_LIST_IDX",
+            CreateDatabase.createTitlesListIndexSQL,
+        },
+    };
+
+    /**
+     * The triggers that maintain the current count of each author,
+     * each given as its name and the SQL to create it.
+     */
+    private static final String[][] countTriggers   =
+    {
+        {
+            TITLES_TABLE_NAME + "_INSERT_COUNT",
+            CreateDatabase.createTitleInsertTriggerSQL,
+        },
+        {
+            TITLES_TABLE_NAME + "_DELETE_COUNT",
+            CreateDatabase.createTitleDeleteTriggerSQL,
+        },
+        {
+            TITLES_TABLE_NAME + "_UPDATE_OLD_COUNT",
+            CreateDatabase.createTitleUpdateOldTriggerSQL,
+        },
+        {
+            TITLES_TABLE_NAME + "_UPDATE_NEW_COUNT",
+            CreateDatabase.createTitleUpdateNewTriggerSQL,
+        },
+        {
+            TITLES_ARCHIVE_TABLE_NAME + "_INSERT_COUNT",
+            CreateDatabase.createArchiveInsertTriggerSQL,
+        },
+        {
+            TITLES_ARCHIVE_TABLE_NAME + "_DELETE_COUNT",
+            CreateDatabase.createArchiveDeleteTriggerSQL,
+        },
+    };
+
+    /**
+     * The database state table of an earlier version of the database;
+     * its change count, maintained by a trigger on each of
+     * the changeCountTables for each of the changeCountEvents,
+     * has been replaced by a state stamp computed from the tables.
+     */
+    private static final String     dbStateTable    = "DB_STATE";
+
+    /** Tables whose changes were counted in the database state table */
+    private static final String[]   changeCountTables   =
+    {
+        LISTS_TABLE_NAME,
+        AUTHORS_TABLE_NAME,
+        TITLES_TABLE_NAME,
+        COMMENTS_TABLE_NAME,
+        ATTRIBUTES_TABLE_NAME,
+    };
+
+    /** The kinds of change counted in the database state table */
+    private static final String[]   changeCountEvents   =
+    {
+        "INSERT", "UPDATE", "DELETE"
+    };
+
+    /** Gets the names of all triggers in the database */
+    private static final String getTriggerNamesSQL  =
+        "SELECT TRIGGERNAME FROM SYS.SYSTRIGGERS";
+
+    /**
+     * Recomputes the current count of every author
+     * from the TITLES and TITLES_ARCHIVE tables.
+     */
+    private static final String rebuildCurrentCountsSQL  =
+        "UPDATE " + AUTHORS_TABLE_NAME + " SET "
+        + CURRENT_COUNT_FIELD + " = "
+        + "( SELECT COUNT(*) FROM " + TITLES_TABLE_NAME
+        + " WHERE " + TITLES_TABLE_NAME + "." + AUTHORS_ID_FIELD
+        + " = " + AUTHORS_TABLE_NAME + "." + AUTHORS_ID_FIELD + " )"
+        + " + ( SELECT COUNT(*) FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + TITLES_ARCHIVE_TABLE_NAME + "." + AUTHORS_ID_FIELD
+        + " = " + AUTHORS_TABLE_NAME + "." + AUTHORS_ID_FIELD + " )";
+
+    /**
+     * Initiate application.
+     *
+     * @param args  Command line arguments;
+     *              "true" to upgrade the test database
+     */
+    public static void main(String[] args)
+    {
+        boolean isTest  = false;
+        if ( args.length > 0 )
+            isTest = Boolean.parseBoolean( args[0] );
+        new UpgradeDatabase( isTest );
+    }
+
+    /**
+     * Constructor and workhorse.
+     * Upgrade database and shutdown.
+     *
+     * @param isTest    true to upgrade the test database
+     */
+    public UpgradeDatabase( boolean isTest )
+    {
+        String  connectionPoint = isTest ? TEST_DB_URL : DB_URL;
+        logger.info( "commencing upgrade of: " + connectionPoint );
+        try ( Connection conn = DriverManager.getConnection( connectionPoint ) )
+        {
+            logger.info( "connection established" );
+
+            // Don't commit changes until everything executes to completion
+            conn.setAutoCommit( false );
+            try
+            {
+                int changes = upgrade( conn );
+                conn.commit();
+                logger.info( changes + " changes committed" );
+            }
+            catch ( SQLException exc )
+            {
+                conn.rollback();
+                throw exc;
+            }
+        }
+        catch ( SQLException exc )
+        {
+            logger.log( Level.SEVERE, "SQL error; nothing upgraded", exc );
+        }
+        CreateDatabase.shutdown();
+        logger.info( "Application complete" );
+    }
+
+    /**
+     * Upgrades the database open on a given connection
+     * to the current schema.
+     * The caller is responsible for committing the changes,
+     * or rolling them back if an exception is thrown.
+     *
+     * @param conn  the given connection; autocommit must be off
+     *
+     * @return  the number of changes made;
+     *          0 if the database is already up to date
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public static int upgrade( Connection conn ) throws SQLException
+    {
+        int changes = 0;
+        try ( Statement statement = conn.createStatement() )
+        {
+            String  intZero = "int NOT NULL DEFAULT 0";
+            changes +=
+                addColumn( conn, TITLES_TABLE_NAME, READY_DATE_FIELD, "date" );
+            changes +=
+                addColumn( conn, AUTHORS_TABLE_NAME, VERSION_FIELD, intZero );
+            changes +=
+                addColumn( conn, TITLES_TABLE_NAME, VERSION_FIELD, intZero );
+            changes +=
+                addColumn( conn, COMMENTS_TABLE_NAME, VERSION_FIELD, intZero );
+            changes += requireCurrentCount( conn );
+            changes += convertCommentText( conn, COMMENTS_TABLE_NAME );
+            changes += createNaturalAuthorKey( conn );
+            changes += createNaturalTitleKey( conn );
+
+            for ( String[] index : newTitlesIndexes )
+            {
+                if ( !hasIndex( conn, TITLES_TABLE_NAME, index[0] ) )
+                {
+                    execute( statement, index[1] );
+                    ++changes;
+                }
+            }
+            for ( String[] table : newTables )
+            {
+                if ( !hasTable( conn, table[0] ) )
+                {
+                    for ( int inx = 1 ; inx < table.length ; ++inx )
+                        execute( statement, table[inx] );
+                    ++changes;
+                }
+            }
+            changes += convertCommentText( conn, COMMENTS_ARCHIVE_TABLE_NAME );
+
+            Set<String> triggers    = new HashSet<>();
+            try ( ResultSet rSet =
+                    statement.executeQuery( getTriggerNamesSQL ) )
+            {
+                while ( rSet.next() )
+                    triggers.add( rSet.getString( 1 ) );
+            }
+            int     created = 0;
+            for ( String[] trigger : countTriggers )
+            {
+                if ( !triggers.contains( trigger[0] ) )
+                {
+                    execute( statement, trigger[1] );
+                    ++created;
+                }
+            }
+            if ( created > 0 )
+            {
+                int count   =
+                    statement.executeUpdate( rebuildCurrentCountsSQL );
+                logger.info( count + " author counts rebuilt" );
+            }
+            changes += created;
+
+            for ( String table : changeCountTables )
+                for ( String event : changeCountEvents )
+                {
+                    String  name    = table + "_" + event + "_CHANGE";
+                    if ( triggers.contains( name ) )
+                    {
+                        execute( statement, "DROP TRIGGER " + name );
+                        ++changes;
+                    }
+                }
+            if ( hasTable( conn, dbStateTable ) )
+            {
+                execute( statement, "DROP TABLE " + dbStateTable );
+                ++changes;
+            }
+        }
+        logger.info( changes + " changes made" );
+        return changes;
+    }
+
+    /**
+     * Adds a column to a given table,
+     * if the table exists but does not have the column.
+     *
+     * @param conn          the connection to the database
+     * @param table         the name of the given table
+     * @param column        the name of the column
+     * @param definition    the data type of the column,
+     *                      followed by any constraints and default
+     *
+     * @return  1 if the column was added, otherwise 0
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static int addColumn(
+        Connection  conn,
+        String      table,
+        String      column,
+        String      definition
+    ) throws SQLException
+    {
+        if ( !hasTable( conn, table )
+             || getColumnType( conn, table, column ) != null )
+            return 0;
+
+        try ( Statement statement = conn.createStatement() )
+        {
+            execute(
+                statement,
+                "ALTER TABLE " + table
+                + " ADD COLUMN " + column + " " + definition
+            );
+        }
+        return 1;
+    }
+
+    /**
+     * Makes the current count of each author non-null,
+     * with a default of 0, if it is not already;
+     * in the first version of the database the current count
+     * was maintained by the application, and could be null.
+     *
+     * @param conn  the connection to the database
+     *
+     * @return  1 if the current count was changed, otherwise 0
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static int requireCurrentCount( Connection conn )
+        throws SQLException
+    {
+        DatabaseMetaData    meta        = conn.getMetaData();
+        boolean             nullable    = false;
+        try ( ResultSet rSet =
+                meta.getColumns(
+                    null,
+                    conn.getSchema(),
+                    toIdentifier( AUTHORS_TABLE_NAME ),
+                    toIdentifier( CURRENT_COUNT_FIELD )
+                )
+            )
+        {
+            if ( rSet.next() )
+                nullable = "YES".equals( rSet.getString( "IS_NULLABLE" ) );
+        }
+        if ( !nullable )
+            return 0;
+
+        String  alter   =
+            "ALTER TABLE " + AUTHORS_TABLE_NAME
+            + " ALTER COLUMN " + CURRENT_COUNT_FIELD;
+        try ( Statement statement = conn.createStatement() )
+        {
+            execute(
+                statement,
+                "UPDATE " + AUTHORS_TABLE_NAME
+                + " SET " + CURRENT_COUNT_FIELD + " = 0"
+                + " WHERE " + CURRENT_COUNT_FIELD + " IS NULL"
+            );
+            execute( statement, alter + " NOT NULL" );
+            execute( statement, alter + " DEFAULT 0" );
+        }
+        return 1;
+    }
+
+    /**
+     * Converts the text column of a given table of comments
+     * to a CLOB, if the table exists and the column is not already
+     * a CLOB;
+     * the preview and length of each comment are set from its text.
+     * Derby cannot change the type of a column,
+     * so the existing column is renamed, a CLOB column is added,
+     * the text of each comment is copied,
+     * and the renamed column is dropped.
+     *
+     * @param conn  the connection to the database
+     * @param table the name of the given table
+     *
+     * @return  the number of changes made
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static int convertCommentText( Connection conn, String table )
+        throws SQLException
+    {
+        int     changes = 0;
+        String  type    = getColumnType( conn, table, TEXT_FIELD );
+        if ( type == null || type.equals( "CLOB" ) )
+            return changes;
+
+        changes +=
+            addColumn(
+                conn,
+                table,
+                PREVIEW_FIELD,
+                "varchar( " + PREVIEW_LENGTH + " )"
+            );
+        changes +=
+            addColumn(
+                conn,
+                table,
+                TEXT_LENGTH_FIELD,
+                "int NOT NULL DEFAULT 0"
+            );
+
+        String  oldText     =
+            TEXT_FIELD + "_" + type.toLowerCase( Locale.ROOT );
+        String  selectSQL   =
+            "SELECT " + COMMENTS_ID_FIELD + ", " + oldText
+            + " FROM " + table;
+        String  updateSQL   =
+            "UPDATE " + table + " SET "
+            + PREVIEW_FIELD + " = ?, "
+            + TEXT_FIELD + " = ?, "
+            + TEXT_LENGTH_FIELD + " = ?"
+            + " WHERE " + COMMENTS_ID_FIELD + " = ?";
+        try ( Statement statement = conn.createStatement() )
+        {
+            execute(
+                statement,
+                "RENAME COLUMN " + table + "." + TEXT_FIELD
+                + " TO " + oldText
+            );
+            execute(
+                statement,
+                "ALTER TABLE " + table
+                + " ADD COLUMN " + TEXT_FIELD + " clob"
+            );
+
+            // prepared after the columns change, so that it sees the clob
+            try ( PreparedStatement update =
+                    conn.prepareStatement( updateSQL );
+                  ResultSet rSet = statement.executeQuery( selectSQL )
+                )
+            {
+                while ( rSet.next() )
+                {
+                    String  text    = rSet.getString( 2 );
+                    update.setString( 1, CommentsTable.getPreview( text ) );
+                    update.setString( 2, text );
+                    update.setInt( 3, text == null ? 0 : text.length() );
+                    update.setInt( 4, rSet.getInt( 1 ) );
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+            execute(
+                statement,
+                "ALTER TABLE " + table + " DROP COLUMN " + oldText
+            );
+        }
+        logger.info( "converted comment text in " + table );
+        return changes + 1;
+    }
+
+    /**
+     * Creates the natural key of the AUTHORS table,
+     * if its unique index does not already exist.
+     * The natural key column is added if necessary,
+     * and the natural key of every author is computed from its name;
+     * duplicates are made distinct before the index is created.
+     *
+     * @param conn  the connection to the database
+     *
+     * @return  the number of changes made
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static int createNaturalAuthorKey( Connection conn )
+        throws SQLException
+    {
+        int     changes = 0;
+        String  index   = AUTHORS_TABLE_NAME + "_NATURAL_IDX";
+        if ( hasIndex( conn, AUTHORS_TABLE_NAME, index ) )
+            return changes;
+
+        changes +=
+            addColumn(
+                conn,
+                AUTHORS_TABLE_NAME,
+                NATURAL_AUTHOR_FIELD,
+                "varchar( " + NATURAL_KEY_LENGTH + " ) NOT NULL DEFAULT ''"
+            );
+
+        String      selectSQL   =
+            "SELECT " + AUTHORS_ID_FIELD + ", " + AUTHOR_FIELD
+            + " FROM " + AUTHORS_TABLE_NAME
+            + " ORDER BY " + AUTHORS_ID_FIELD;
+        String      updateSQL   =
+            "UPDATE " + AUTHORS_TABLE_NAME
+            + " SET " + NATURAL_AUTHOR_FIELD + " = ?"
+            + " WHERE " + AUTHORS_ID_FIELD + " = ?";
+        Set<String> keys        = new HashSet<>();
+        try ( Statement statement = conn.createStatement();
+              PreparedStatement update = conn.prepareStatement( updateSQL );
+              ResultSet rSet = statement.executeQuery( selectSQL )
+            )
+        {
+            while ( rSet.next() )
+            {
+                int     ident   = rSet.getInt( 1 );
+                String  name    = rSet.getString( 2 );
+                String  key     = Table.normalize( name );
+                if ( !keys.add( key ) )
+                {
+                    logger.warning(
+                        "duplicate author " + ident + ": " + name
+                    );
+                    key = getDistinctKey( key, ident, NATURAL_KEY_LENGTH );
+                }
+                update.setString( 1, key );
+                update.setInt( 2, ident );
+                update.addBatch();
+            }
+            update.executeBatch();
+            execute( statement, CreateDatabase.createAuthorsNaturalKeySQL );
+        }
+        return changes + 1;
+    }
+
+    /**
+     * Creates the natural key of the TITLES table,
+     * if its unique index does not already exist.
+     * The natural key columns are added if necessary,
+     * and the natural key of every title is computed from its
+     * text, author and media type;
+     * duplicates are made distinct before the index is created.
+     *
+     * @param conn  the connection to the database
+     *
+     * @return  the number of changes made
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static int createNaturalTitleKey( Connection conn )
+        throws SQLException
+    {
+        int     changes = 0;
+        String  index   = TITLES_TABLE_NAME + "_NATURAL_IDX";
+        if ( hasIndex( conn, TITLES_TABLE_NAME, index ) )
+            return changes;
+
+        changes +=
+            addColumn(
+                conn,
+                TITLES_TABLE_NAME,
+                NATURAL_TITLE_FIELD,
+                "varchar( " + NATURAL_KEY_LENGTH + " ) NOT NULL DEFAULT ''"
+            );
+        changes +=
+            addColumn(
+                conn,
+                TITLES_TABLE_NAME,
+                NATURAL_MEDIA_FIELD,
+                "varchar( " + NATURAL_MEDIA_LENGTH + " ) NOT NULL DEFAULT ''"
+            );
+
+        String      selectSQL   =
+            "SELECT " + TITLES_ID_FIELD + ", "
+            + TITLE_FIELD + ", "
+            + AUTHORS_ID_FIELD + ", "
+            + MEDIA_TYPE_FIELD
+            + " FROM " + TITLES_TABLE_NAME
+            + " ORDER BY " + TITLES_ID_FIELD;
+        String      updateSQL   =
+            "UPDATE " + TITLES_TABLE_NAME + " SET "
+            + NATURAL_TITLE_FIELD + " = ?, "
+            + NATURAL_MEDIA_FIELD + " = ?"
+            + " WHERE " + TITLES_ID_FIELD + " = ?";
+        Set<String> keys        = new HashSet<>();
+        try ( Statement statement = conn.createStatement();
+              PreparedStatement update = conn.prepareStatement( updateSQL );
+              ResultSet rSet = statement.executeQuery( selectSQL )
+            )
+        {
+            while ( rSet.next() )
+            {
+                int     ident       = rSet.getInt( 1 );
+                String  text        = rSet.getString( 2 );
+                Object  authorID    = rSet.getObject( 3 );
+                String  natTitle    = Table.normalize( text );
+                String  natMedia    =
+                    Table.normalize(
+                        rSet.getString( 4 ),
+                        NATURAL_MEDIA_LENGTH
+                    );
+                String  key         =
+                    natTitle + "\n" + authorID + "\n" + natMedia;
+                if ( !keys.add( key ) )
+                {
+                    logger.warning(
+                        "duplicate title " + ident + ": " + text
+                    );
+                    natTitle =
+                        getDistinctKey( natTitle, ident, NATURAL_KEY_LENGTH );
+                }
+                update.setString( 1, natTitle );
+                update.setString( 2, natMedia );
+                update.setInt( 3, ident );
+                update.addBatch();
+            }
+            update.executeBatch();
+            execute( statement, CreateDatabase.createTitlesNaturalKeySQL );
+        }
+        return changes + 1;
+    }
+
+    /**
+     * Makes a duplicate natural key distinct
+     * by appending the row ID of its row.
+     *
+     * @param key       the duplicate natural key
+     * @param ident     the row ID of the row with the duplicate key
+     * @param maxLength the maximum length of the natural key
+     *
+     * @return  a natural key that cannot be the same as any other
+     *
+     * @see #duplicateSeparator
+     */
+    private static String getDistinctKey( String key, int ident, int maxLength )
+    {
+        String  suffix  = duplicateSeparator + ident;
+        return Table.normalize( key, maxLength - suffix.length() ) + suffix;
+    }
+
+    /**
+     * Indicates whether a given table exists.
+     *
+     * @param conn  the connection to the database
+     * @param table the name of the given table
+     *
+     * @return  true if the given table exists
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static boolean hasTable( Connection conn, String table )
+        throws SQLException
+    {
+        DatabaseMetaData    meta    = conn.getMetaData();
+        try ( ResultSet rSet =
+                meta.getTables(
+                    null,
+                    conn.getSchema(),
+                    toIdentifier( table ),
+                    null
+                )
+            )
+        {
+            return rSet.next();
+        }
+    }
+
+    /**
+     * Gets the data type of a given column of a given table,
+     * for example "VARCHAR" or "CLOB".
+     *
+     * @param conn      the connection to the database
+     * @param table     the name of the given table
+     * @param column    the name of the given column
+     *
+     * @return  the data type of the given column;
+     *          null if the table does not exist,
+     *          or does not have the given column
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static String
+    getColumnType( Connection conn, String table, String column )
+        throws SQLException
+    {
+        DatabaseMetaData    meta    = conn.getMetaData();
+        String              type    = null;
+        try ( ResultSet rSet =
+                meta.getColumns(
+                    null,
+                    conn.getSchema(),
+                    toIdentifier( table ),
+                    toIdentifier( column )
+                )
+            )
+        {
+            if ( rSet.next() )
+                type = rSet.getString( "TYPE_NAME" );
+        }
+        return type;
+    }
+
+    /**
+     * Indicates whether a given table has a given index.
+     *
+     * @param conn  the connection to the database
+     * @param table the name of the given table
+     * @param index the name of the given index
+     *
+     * @return  true if the given table has the given index
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static boolean
+    hasIndex( Connection conn, String table, String index )
+        throws SQLException
+    {
+        DatabaseMetaData    meta    = conn.getMetaData();
+        boolean             found   = false;
+        try ( ResultSet rSet =
+                meta.getIndexInfo(
+                    null,
+                    conn.getSchema(),
+                    toIdentifier( table ),
+                    false,
+                    true
+                )
+            )
+        {
+            while ( !found && rSet.next() )
+                found = toIdentifier( index ).equals(
+                    rSet.getString( "INDEX_NAME" )
+                );
+        }
+        return found;
+    }
+
+    /**
+     * Converts a given table or column name to the form
+     * in which Derby records unquoted identifiers:
+     * upper case.
+     *
+     * @param name  the given name
+     *
+     * @return  the given name in upper case
+     */
+    private static String toIdentifier( String name )
+    {
+        return name.toUpperCase( Locale.ROOT );
+    }
+
+    /**
+     * Logs and executes a given SQL statement.
+     *
+     * @param statement the statement used to execute the SQL
+     * @param sql       the given SQL
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static void execute( Statement statement, String sql )
+        throws SQLException
+    {
+        logger.info( sql );
+        statement.execute( sql );
+    }
+}
@@ -18,6 +18,7 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 import javax.swing.BorderFactory;
@@ -44,6 +45,7 @@ import javax.swing.table.TableModel;
 import javax.swing.text.Document;
 
 import kcls_manager.main.Comment;
+import kcls_manager.main.DataManager;
 import kcls_manager.main.LibraryItem;
 import kcls_manager.main.Title;
 
@@ -76,6 +78,8 @@ public class CommentEditor extends JDialog
     private final int       textColumn      = 0;
     /** The "hidden" column that contains the source Comment object. */
     private final int       dataColumn      = columnHeadings.length - 1;
+    /** Appended to the preview of a comment whose text is not loaded. */
+    private final String    ellipsis        = "\u2026";
     
     // Buttons at the bottom of the dialog that control
     // insert/delete etc.. They're global so that some of them
@@ -101,6 +105,14 @@ public class CommentEditor extends JDialog
     /** Status on exit: OKAY or CANCEL */
     private int     selection       = 0;
     
+    /** 
+     * Loads the full text of a comment 
+     * of which only a preview has been loaded;
+     * invoked when the comment is selected for editing.
+     */
+    private Consumer<Comment>   textLoader  =
+        c -> DataManager.getDBServer().loadCommentText( c );
+    
     /**
      * Dialog for editing attributes 
      * (key/value pairs of Strings).
@@ -187,9 +199,14 @@ public class CommentEditor extends JDialog
 
             // Add comment text to first column of table;
             // add comment to second ("hidden") column.
+            // If only a preview of the text has been loaded
+            // the preview is displayed; the full text is loaded
+            // if the comment is selected.
             for ( Comment comment : item.getComments() )
             {
                 String      text    = comment.getText();
+                if ( !comment.isTextLoaded() )
+                    text += ellipsis;
                 Object[]    row     = { text, new Comment( comment ) };
                 tableModel.addRow( row );
             }
@@ -219,12 +236,26 @@ public class CommentEditor extends JDialog
         {
             String  text    = (String)model.getValueAt( row, textColumn );
             Comment comment = (Comment)model.getValueAt( row, dataColumn );
-            comment.setText( text );
+            if ( comment.isTextLoaded() )
+                comment.setText( text );
             tempCollection.add( comment );
         }
         return tempCollection;
     }
     
+    /**
+     * Sets the object used to load the full text of a comment
+     * when only a preview of its text has been loaded.
+     * By default the text is loaded from the database.
+     * 
+     * @param textLoader    the object used to load the full text
+     *                      of a comment
+     */
+    public void setTextLoader( Consumer<Comment> textLoader )
+    {
+        this.textLoader = textLoader;
+    }
+    
     /**
      * Gets the value of the last selection to dismiss the dialog
      * (OK or CANCEL).
@@ -258,7 +289,9 @@ public class CommentEditor extends JDialog
         {
             String  text    = (String)tableModel.getValueAt( row, textColumn );
             Comment comment = (Comment)tableModel.getValueAt( row, dataColumn );
-            comment.setText( text );
+            // a comment never selected keeps its unloaded text
+            if ( comment.isTextLoaded() )
+                comment.setText( text );
         }
         
         selection = OKAY;
@@ -337,6 +370,7 @@ public class CommentEditor extends JDialog
 //                selectedRow = -1;
             if ( selectedRow >= 0 )
             {
+                loadText( selectedRow );
                 String  text    = 
                     (String)tableModel.getValueAt( selectedRow, textColumn );
                 textArea.setText( text );
@@ -346,6 +380,23 @@ public class CommentEditor extends JDialog
         }
     }
     
+    /**
+     * Loads the full text of the comment in a given row,
+     * if only a preview has been loaded,
+     * and replaces the preview in the table with the full text.
+     * 
+     * @param row   the given row
+     */
+    private void loadText( int row )
+    {
+        Comment comment = (Comment)tableModel.getValueAt( row, dataColumn );
+        if ( !comment.isTextLoaded() )
+        {
+            textLoader.accept( comment );
+            tableModel.setValueAt( comment.getText(), row, textColumn );
+        }
+    }
+    
     /**
      * Delete the selected row from the table.
      */
@@ -70,9 +70,7 @@ public class TitleDialog extends JDialog
         listModel = table.getSelectionModel();
         listModel.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
         
-        Iterator<Object[]>  iter    = contentProvider.iterator();
-        while ( iter.hasNext() )
-            tableModel.addRow( iter.next() );
+        loadRows();
         
         // Build the GUI
         setDefaultCloseOperation( JDialog.DO_NOTHING_ON_CLOSE );
@@ -100,6 +98,29 @@ public class TitleDialog extends JDialog
         return 0;
     }
     
+    /**
+     * Reloads the table from the content provider,
+     * for example after the provider's titles have been replaced.
+     * Must be called on the event dispatch thread.
+     * 
+     * @see TitleContentProvider#setTitles(java.util.Collection)
+     */
+    public void refresh()
+    {
+        tableModel.setRowCount( 0 );
+        loadRows();
+    }
+    
+    /**
+     * Adds a row to the table for each title in the content provider.
+     */
+    private void loadRows()
+    {
+        Iterator<Object[]>  iter    = contentProvider.iterator();
+        while ( iter.hasNext() )
+            tableModel.addRow( iter.next() );
+    }
+    
     private void addRow()
     {
         Title   title   = new Title();
@@ -0,0 +1,700 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.DBConstants.ATTRIBUTES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.ATTR_KEY_FIELD;
+import static kcls_manager.database.DBConstants.ATTR_TYPE_FIELD;
+import static kcls_manager.database.DBConstants.AUTHORS_ID_FIELD;
+import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.DATE_VALUE_FIELD;
+import static kcls_manager.database.DBConstants.ITEM_ID_FIELD;
+import static kcls_manager.database.DBConstants.LISTS_ID_FIELD;
+import static kcls_manager.database.DBConstants.LIST_TYPE_FIELD;
+import static kcls_manager.database.DBConstants.NUMBER_VALUE_FIELD;
+import static kcls_manager.database.DBConstants.STRING_VALUE_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import kcls_manager.main.KCLSException;
+import kcls_manager.main.LibraryItem;
+import kcls_manager.main.Title;
+
+/**
+ * Provides database support for the ATTRIBUTES table,
+ * a typed key/value store of extended metadata for titles and authors,
+ * such as format, branch or hold expiry.
+ * Each row holds one attribute of one item,
+ * keyed by item type, item ID and attribute name;
+ * string, integer and date values are kept in separate columns,
+ * each indexed by attribute name and value,
+ * so that the items with a given attribute value
+ * can be found without a table scan.
+ * <p>
+ * Attributes are always read for a set of items at a time:
+ * a whole list, a whole table, or a chunk of row IDs,
+ * so loading them costs a fixed number of queries
+ * however many items are loaded.
+ * This class should only be used inside the database package.
+ *
+ * @author jstra
+ *
+ * @see LibraryItem#getAttributes()
+ */
+public class AttributesTable extends Table
+{
+    private static final String loggerName  =
+        AttributesTable.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** Attribute type of a string value. */
+    private static final String stringType  = "S";
+
+    /** Attribute type of an integer value. */
+    private static final String numberType  = "N";
+
+    /** Attribute type of a date value. */
+    private static final String dateType    = "D";
+
+    /** Inserts an attribute. */
+    private static final String insertAttributeSQL  =
+        "INSERT INTO " + ATTRIBUTES_TABLE_NAME + " ( "
+        + LIST_TYPE_FIELD + ", "
+        + ITEM_ID_FIELD + ", "
+        + ATTR_KEY_FIELD + ", "
+        + ATTR_TYPE_FIELD + ", "
+        + STRING_VALUE_FIELD + ", "
+        + NUMBER_VALUE_FIELD + ", "
+        + DATE_VALUE_FIELD
+        + " ) VALUES ( ?, ?, ?, ?, ?, ?, ? )";
+
+    /** Selects all attributes of a given item. */
+    private static final String getItemAttributesSQL    =
+        "SELECT * FROM " + ATTRIBUTES_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = ?"
+        + " AND " + ITEM_ID_FIELD + " = ?";
+    private final PreparedStatement getItemAttributesPStatement;
+
+    /** Selects all attributes of a given type of item. */
+    private static final String getAllAttributesSQL     =
+        "SELECT * FROM " + ATTRIBUTES_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = ?";
+    private final PreparedStatement getAllAttributesPStatement;
+
+    /** Selects all attributes of the titles in a given list. */
+    private static final String getTitleListAttributesSQL   =
+        "SELECT A.* FROM " + ATTRIBUTES_TABLE_NAME + " A"
+        + " JOIN " + TITLES_TABLE_NAME + " T"
+        + " ON T." + TITLES_ID_FIELD + " = A." + ITEM_ID_FIELD
+        + " WHERE A." + LIST_TYPE_FIELD + " = " + TITLE_TYPE
+        + " AND T." + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement getTitleListAttributesPStatement;
+
+    /** Selects all attributes of the authors in a given list. */
+    private static final String getAuthorListAttributesSQL  =
+        "SELECT A.* FROM " + ATTRIBUTES_TABLE_NAME + " A"
+        + " JOIN " + AUTHORS_TABLE_NAME + " T"
+        + " ON T." + AUTHORS_ID_FIELD + " = A." + ITEM_ID_FIELD
+        + " WHERE A." + LIST_TYPE_FIELD + " = " + AUTHOR_TYPE
+        + " AND T." + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement getAuthorListAttributesPStatement;
+
+    /**
+     * Selects all attributes of the titles in a given range of row IDs;
+     * used by parallel scans, on a connection from the scan pool.
+     */
+    private static final String getTitleRangeAttributesSQL  =
+        "SELECT * FROM " + ATTRIBUTES_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = " + TITLE_TYPE
+        + " AND " + ITEM_ID_FIELD + " BETWEEN ? AND ?";
+
+    /**
+     * Prefix for deleting all attributes of a set of items;
+     * must be completed with an IN list.
+     */
+    private static final String deleteItemsAttributesSQL    =
+        "DELETE FROM " + ATTRIBUTES_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = ?"
+        + " AND " + ITEM_ID_FIELD + " IN ";
+
+    /** Deletes all attributes of the titles in a given list. */
+    private static final String deleteTitleListAttributesSQL    =
+        "DELETE FROM " + ATTRIBUTES_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = " + TITLE_TYPE
+        + " AND " + ITEM_ID_FIELD + " IN ( SELECT " + TITLES_ID_FIELD
+        + " FROM " + TITLES_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ? )";
+    private final PreparedStatement deleteTitleListAttributesPStatement;
+
+    /** Deletes all attributes of the authors in a given list. */
+    private static final String deleteAuthorListAttributesSQL   =
+        "DELETE FROM " + ATTRIBUTES_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = " + AUTHOR_TYPE
+        + " AND " + ITEM_ID_FIELD + " IN ( SELECT " + AUTHORS_ID_FIELD
+        + " FROM " + AUTHORS_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ? )";
+    private final PreparedStatement deleteAuthorListAttributesPStatement;
+
+    /** Deletes all attributes of the archived titles in a given list. */
+    private static final String deleteArchivedListAttributesSQL =
+        "DELETE FROM " + ATTRIBUTES_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = " + TITLE_TYPE
+        + " AND " + ITEM_ID_FIELD + " IN ( SELECT " + TITLES_ID_FIELD
+        + " FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ? )";
+    private final PreparedStatement deleteArchivedListAttributesPStatement;
+
+    /** The DBServer instance that owns this object. */
+    private final DBServer  dbServer;
+
+    /**
+     * Constructor.
+     *
+     * @param server    the DBServer instance that owns this object
+     */
+    public AttributesTable( DBServer server )
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+
+        dbServer = server;
+
+        getItemAttributesPStatement =
+            server.getLazyPreparedStatement( getItemAttributesSQL, noGenKeys );
+        getAllAttributesPStatement =
+            server.getLazyPreparedStatement( getAllAttributesSQL, noGenKeys );
+        getTitleListAttributesPStatement =
+            server.getLazyPreparedStatement(
+                getTitleListAttributesSQL,
+                noGenKeys
+            );
+        getAuthorListAttributesPStatement =
+            server.getLazyPreparedStatement(
+                getAuthorListAttributesSQL,
+                noGenKeys
+            );
+        deleteTitleListAttributesPStatement =
+            server.getLazyPreparedStatement(
+                deleteTitleListAttributesSQL,
+                noGenKeys
+            );
+        deleteAuthorListAttributesPStatement =
+            server.getLazyPreparedStatement(
+                deleteAuthorListAttributesSQL,
+                noGenKeys
+            );
+        deleteArchivedListAttributesPStatement =
+            server.getLazyPreparedStatement(
+                deleteArchivedListAttributesSQL,
+                noGenKeys
+            );
+    }
+
+    /**
+     * Inserts all attributes of a set of items,
+     * in a single batched statement.
+     * The items must have row IDs, and no attributes in the database.
+     *
+     * @param itemType  the type of the items, TITLE_TYPE or AUTHOR_TYPE
+     * @param items     the items
+     *
+     * @return the number of attributes inserted
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int insertAttributes(
+        int itemType,
+        Collection<? extends LibraryItem> items
+    ) throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+
+        int                 count       = 0;
+        PreparedStatement   statement   =
+            dbServer.getPreparedStatement( insertAttributeSQL, noGenKeys );
+        try
+        {
+            for ( LibraryItem item : items )
+            {
+                int ident   = item.getIdent().getAsInt();
+                for ( Map.Entry<String, Object> entry :
+                    item.getAttributes().entrySet() )
+                {
+                    cvtAttributeToRow(
+                        itemType,
+                        ident,
+                        entry.getKey(),
+                        entry.getValue(),
+                        statement
+                    );
+                    statement.addBatch();
+                    ++count;
+                }
+            }
+            if ( count > 0 )
+                statement.executeBatch();
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        logger.info( count + " attributes inserted" );
+        return count;
+    }
+
+    /**
+     * Replaces all attributes of a set of items
+     * with the attributes the items currently hold.
+     * The items must have row IDs.
+     * Items whose attributes were not loaded are skipped,
+     * so that their stored attributes are kept.
+     *
+     * @param itemType  the type of the items, TITLE_TYPE or AUTHOR_TYPE
+     * @param items     the items
+     *
+     * @return the number of attributes inserted
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int replaceAttributes(
+        int itemType,
+        Collection<? extends LibraryItem> items
+    ) throws SQLException
+    {
+        List<LibraryItem>   loaded  = new ArrayList<>();
+        List<Integer>       idents  = new ArrayList<>();
+        for ( LibraryItem item : items )
+            if ( item.isAttributesLoaded() )
+            {
+                loaded.add( item );
+                idents.add( item.getIdent().getAsInt() );
+            }
+        deleteAttributesFor( itemType, idents );
+        return insertAttributes( itemType, loaded );
+    }
+
+    /**
+     * Deletes all attributes of a set of items.
+     *
+     * @param itemType  the type of the items, TITLE_TYPE or AUTHOR_TYPE
+     * @param idents    the row IDs of the items
+     *
+     * @return the number of attributes deleted
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteAttributesFor( int itemType, List<Integer> idents )
+        throws SQLException
+    {
+        Object[]    leading = { itemType };
+        int         count   =
+            executeForEachChunk(
+                dbServer,
+                deleteItemsAttributesSQL,
+                leading,
+                idents
+            );
+        logger.info( count + " attributes deleted" );
+        return count;
+    }
+
+    /**
+     * Deletes all attributes of the items in a given list.
+     * Must be executed before the items themselves are deleted.
+     *
+     * @param itemType  the type of the list, TITLE_TYPE or AUTHOR_TYPE
+     * @param listID    the row ID of the given list
+     *
+     * @return the number of attributes deleted
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteAttributesForList( int itemType, int listID )
+        throws SQLException
+    {
+        PreparedStatement   statement   =
+            itemType == TITLE_TYPE ? deleteTitleListAttributesPStatement
+                : deleteAuthorListAttributesPStatement;
+        statement.setInt( 1, listID );
+        return statement.executeUpdate();
+    }
+
+    /**
+     * Deletes all attributes of the archived titles in a given list.
+     * Must be executed before the archived titles themselves are deleted.
+     *
+     * @param listID    the row ID of the given list
+     *
+     * @return the number of attributes deleted
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteAttributesForArchivedList( int listID )
+        throws SQLException
+    {
+        deleteArchivedListAttributesPStatement.setInt( 1, listID );
+        return deleteArchivedListAttributesPStatement.executeUpdate();
+    }
+
+    /**
+     * Reads the attributes of a given item,
+     * and sets them in the item.
+     * The item must have a row ID.
+     *
+     * @param itemType  the type of the item, TITLE_TYPE or AUTHOR_TYPE
+     * @param item      the given item
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public void getAttributesFor( int itemType, LibraryItem item )
+        throws SQLException
+    {
+        getItemAttributesPStatement.setInt( 1, itemType );
+        getItemAttributesPStatement.setInt( 2, item.getIdent().getAsInt() );
+        try ( ResultSet rSet = getItemAttributesPStatement.executeQuery() )
+        {
+            attach( getAttributes( rSet ), Collections.singletonList( item ) );
+        }
+    }
+
+    /**
+     * Reads the attributes of a set of items with a single query
+     * for each Table.MAX_IN_LIST_SIZE items,
+     * and sets them in the items.
+     * Items without row IDs are ignored.
+     *
+     * @param itemType  the type of the items, TITLE_TYPE or AUTHOR_TYPE
+     * @param items     the items
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public void getAttributesFor(
+        int itemType,
+        Collection<? extends LibraryItem> items
+    ) throws SQLException
+    {
+        List<Integer>   idents  = new ArrayList<>();
+        for ( LibraryItem item : items )
+            item.getIdent().ifPresent( idents::add );
+        String                  prefix  =
+            "SELECT * FROM " + ATTRIBUTES_TABLE_NAME
+            + " WHERE " + LIST_TYPE_FIELD + " = " + itemType
+            + " AND " + ITEM_ID_FIELD + " IN ";
+        List<AttributeRow>      rows    =
+            queryForEachChunk( dbServer, prefix, idents, AttributeRow::new );
+        attach( group( rows ), items );
+    }
+
+    /**
+     * Reads the attributes of all items in a given list
+     * with a single query, and sets them in the given items.
+     *
+     * @param itemType  the type of the list, TITLE_TYPE or AUTHOR_TYPE
+     * @param listID    the row ID of the given list
+     * @param items     the items in the given list
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public void getAttributesForList(
+        int itemType,
+        int listID,
+        Collection<? extends LibraryItem> items
+    ) throws SQLException
+    {
+        PreparedStatement   statement   =
+            itemType == TITLE_TYPE ? getTitleListAttributesPStatement
+                : getAuthorListAttributesPStatement;
+        statement.setInt( 1, listID );
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            attach( getAttributes( rSet ), items );
+        }
+    }
+
+    /**
+     * Reads the attributes of all items of a given type
+     * with a single query, and sets them in the given items.
+     *
+     * @param itemType  the type of the items, TITLE_TYPE or AUTHOR_TYPE
+     * @param items     all items of the given type
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public void getAllAttributes(
+        int itemType,
+        Collection<? extends LibraryItem> items
+    ) throws SQLException
+    {
+        getAllAttributesPStatement.setInt( 1, itemType );
+        try ( ResultSet rSet = getAllAttributesPStatement.executeQuery() )
+        {
+            attach( getAttributes( rSet ), items );
+        }
+    }
+
+    /**
+     * Reads the attributes of all titles whose row IDs fall
+     * in a given range, using a given connection
+     * rather than the DBServer's connection,
+     * and sets them in the given titles.
+     *
+     * @param conn      the given connection
+     * @param fromIdent the lowest title row ID in the range
+     * @param toIdent   the highest title row ID in the range
+     * @param titles    the titles in the given range
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public static void getAttributesForTitleRange(
+        Connection  conn,
+        int         fromIdent,
+        int         toIdent,
+        List<Title> titles
+    ) throws SQLException
+    {
+        try ( PreparedStatement statement =
+                conn.prepareStatement( getTitleRangeAttributesSQL ) )
+        {
+            statement.setInt( 1, fromIdent );
+            statement.setInt( 2, toIdent );
+            try ( ResultSet rSet = statement.executeQuery() )
+            {
+                attach( getAttributes( rSet ), titles );
+            }
+        }
+    }
+
+    /**
+     * Gets the SQL condition that selects attributes
+     * with a given name and value; the condition has two parameters,
+     * to be bound with <em>bindKeyValue</em>.
+     *
+     * @param prefix    the correlation name of the ATTRIBUTES table,
+     *                  followed by a period; may be empty
+     * @param value     the given value
+     *
+     * @return  the SQL condition
+     *
+     * @throws KCLSException if the value is not of a supported type
+     *
+     * @see #bindKeyValue(PreparedStatement, int, String, Object)
+     */
+    public static String getKeyValueCondition( String prefix, Object value )
+    {
+        return prefix + ATTR_KEY_FIELD + " = ?"
+            + " AND " + prefix + getValueField( value ) + " = ?";
+    }
+
+    /**
+     * Binds the parameters of a condition obtained from
+     * <em>getKeyValueCondition</em>.
+     *
+     * @param statement the statement that contains the condition
+     * @param index     the index of the first parameter of the condition
+     * @param key       the attribute name
+     * @param value     the attribute value
+     *
+     * @throws SQLException if a SQL error occurs
+     *
+     * @see #getKeyValueCondition(String, Object)
+     */
+    public static void bindKeyValue(
+        PreparedStatement   statement,
+        int                 index,
+        String              key,
+        Object              value
+    ) throws SQLException
+    {
+        statement.setString( index, key );
+        Object  dbValue = value;
+        if ( value instanceof Integer )
+            dbValue = ((Integer)value).longValue();
+        else if ( value instanceof LocalDate )
+            dbValue = Date.valueOf( (LocalDate)value );
+        statement.setObject( index + 1, dbValue );
+    }
+
+    /**
+     * Gets the name of the column that holds a given attribute value.
+     *
+     * @param value the given value
+     *
+     * @return the name of the column that holds the given value
+     *
+     * @throws KCLSException if the value is not of a supported type
+     */
+    private static String getValueField( Object value )
+    {
+        String  field   = null;
+        if ( value instanceof String )
+            field = STRING_VALUE_FIELD;
+        else if ( value instanceof Long || value instanceof Integer )
+            field = NUMBER_VALUE_FIELD;
+        else if ( value instanceof LocalDate )
+            field = DATE_VALUE_FIELD;
+        else
+        {
+            String  message =
+                "Unsupported attribute value: " + value;
+            logger.severe( message );
+            throw new KCLSException( message );
+        }
+        return field;
+    }
+
+    /**
+     * Populates the insert statement with a given attribute.
+     *
+     * @param itemType  the type of the item that owns the attribute
+     * @param ident     the row ID of the item that owns the attribute
+     * @param key       the name of the attribute
+     * @param value     the value of the attribute
+     * @param statement the statement to populate
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static void cvtAttributeToRow(
+        int                 itemType,
+        int                 ident,
+        String              key,
+        Object              value,
+        PreparedStatement   statement
+    ) throws SQLException
+    {
+        int inx = 1;
+        statement.setInt( inx++, itemType );
+        statement.setInt( inx++, ident );
+        statement.setString( inx++, key );
+        if ( value instanceof Long )
+        {
+            statement.setString( inx++, numberType );
+            statement.setNull( inx++, Types.VARCHAR );
+            statement.setLong( inx++, (Long)value );
+            statement.setNull( inx++, Types.DATE );
+        }
+        else if ( value instanceof LocalDate )
+        {
+            statement.setString( inx++, dateType );
+            statement.setNull( inx++, Types.VARCHAR );
+            statement.setNull( inx++, Types.BIGINT );
+            statement.setDate( inx++, Date.valueOf( (LocalDate)value ) );
+        }
+        else
+        {
+            statement.setString( inx++, stringType );
+            statement.setString( inx++, (String)value );
+            statement.setNull( inx++, Types.BIGINT );
+            statement.setNull( inx++, Types.DATE );
+        }
+    }
+
+    /**
+     * Reads all rows of a given result set,
+     * grouping the attributes by item.
+     *
+     * @param rSet  the given result set
+     *
+     * @return  a map from item row ID to the attributes of that item;
+     *          items without attributes do not appear in the map
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static Map<Integer, Map<String, Object>>
+    getAttributes( ResultSet rSet ) throws SQLException
+    {
+        List<AttributeRow>  rows    = new ArrayList<>();
+        while ( rSet.next() )
+            rows.add( new AttributeRow( rSet ) );
+        return group( rows );
+    }
+
+    /**
+     * Groups a list of attribute rows by item.
+     *
+     * @param rows  the list of attribute rows
+     *
+     * @return  a map from item row ID to the attributes of that item
+     */
+    private static Map<Integer, Map<String, Object>>
+    group( List<AttributeRow> rows )
+    {
+        Map<Integer, Map<String, Object>>   attributes  = new HashMap<>();
+        for ( AttributeRow row : rows )
+            attributes.computeIfAbsent( row.itemID, k -> new TreeMap<>() )
+                .put( row.key, row.value );
+        return attributes;
+    }
+
+    /**
+     * Sets the attributes of a set of items from a map of attributes
+     * keyed by item row ID.
+     * Items that do not appear in the map are given no attributes;
+     * items without row IDs are ignored.
+     *
+     * @param attributes    the map of attributes
+     * @param items         the items
+     */
+    private static void attach(
+        Map<Integer, Map<String, Object>> attributes,
+        Collection<? extends LibraryItem> items
+    )
+    {
+        for ( LibraryItem item : items )
+            item.getIdent().ifPresent( i ->
+                item.setAttributes(
+                    attributes.getOrDefault( i, Collections.emptyMap() )
+                )
+            );
+    }
+
+    /**
+     * A single row of the ATTRIBUTES table.
+     */
+    private static class AttributeRow
+    {
+        /** The row ID of the item that owns the attribute. */
+        private final int       itemID;
+        /** The name of the attribute. */
+        private final String    key;
+        /** The value of the attribute. */
+        private final Object    value;
+
+        /**
+         * Constructor.
+         * Reads the current row of a given result set.
+         *
+         * @param rSet  the given result set
+         *
+         * @throws SQLException if a SQL error occurs
+         */
+        AttributeRow( ResultSet rSet ) throws SQLException
+        {
+            itemID = rSet.getInt( ITEM_ID_FIELD );
+            key = rSet.getString( ATTR_KEY_FIELD );
+            String  type    = rSet.getString( ATTR_TYPE_FIELD );
+            if ( numberType.equals( type ) )
+                value = rSet.getLong( NUMBER_VALUE_FIELD );
+            else if ( dateType.equals( type ) )
+                value = rSet.getDate( DATE_VALUE_FIELD ).toLocalDate();
+            else
+                value = rSet.getString( STRING_VALUE_FIELD );
+        }
+    }
+}
@@ -8,9 +8,13 @@ import static kcls_manager.database.DBConstants.CURRENT_COUNT_FIELD;
 import static kcls_manager.database.DBConstants.LAST_COUNT_FIELD;
 import static kcls_manager.database.DBConstants.LISTS_ID_FIELD;
 import static kcls_manager.database.DBConstants.MODIFICATION_DATE_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_AUTHOR_FIELD;
 import static kcls_manager.database.DBConstants.RANK_FIELD;
 import static kcls_manager.database.DBConstants.RATING_FIELD;
 import static kcls_manager.database.DBConstants.SOURCE_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.VERSION_FIELD;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -18,12 +22,19 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.OptionalInt;
 import java.util.logging.Logger;
 
+import kcls_manager.database.UpsertResult.Outcome;
 import kcls_manager.main.Author;
+import kcls_manager.main.ConcurrentUpdateException;
 import kcls_manager.main.KCLSException;
 import kcls_manager.main.KCLSList;
 
@@ -38,7 +49,11 @@ public class AuthorsTable extends Table
     private static final String loggerName  = AuthorsTable.class.getName();
     private static final Logger logger      = Logger.getLogger( loggerName );
 
-    /** Inserts a single author into the AUTHORS table */
+    /** 
+     * Inserts a single author into the AUTHORS table.
+     * The current count is maintained by the database,
+     * and defaults to 0.
+     */
     private final String    insertAuthorSQL   = 
         "INSERT INTO " + AUTHORS_TABLE_NAME + "("
         + AUTHOR_FIELD + ", "
@@ -46,15 +61,20 @@ public class AuthorsTable extends Table
         + RANK_FIELD + ", "
         + SOURCE_FIELD + ", "
         + LAST_COUNT_FIELD + ", "
-        + CURRENT_COUNT_FIELD + ", "
         + LISTS_ID_FIELD + ", "
         + CREATION_DATE_FIELD + ", "
-        + MODIFICATION_DATE_FIELD
+        + MODIFICATION_DATE_FIELD + ", "
+        + NATURAL_AUTHOR_FIELD
     + " )"
     + "VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ? )";
     private final PreparedStatement insertAuthorPStatement;
     
-    /** Update a row in the AUTHORS database */
+    /** 
+     * Update a row in the AUTHORS database,
+     * provided it has not been modified since it was read.
+     * The current count is maintained by the database,
+     * and is not updated.
+     */
     private final String updateAuthorSQL    =
       "UPDATE " + AUTHORS_TABLE_NAME + " SET "    
       + AUTHOR_FIELD + " = ?, "
@@ -62,24 +82,99 @@ public class AuthorsTable extends Table
       + RANK_FIELD + " = ?, "
       + SOURCE_FIELD + " = ?, "
       + LAST_COUNT_FIELD + " = ?, "
-      + CURRENT_COUNT_FIELD + " = ?, "
       + LISTS_ID_FIELD + " = ?, "
       + CREATION_DATE_FIELD + " = ?, "
-      + MODIFICATION_DATE_FIELD  + " = ? "
-    + "WHERE " + AUTHORS_ID_FIELD + " = ?";
+      + MODIFICATION_DATE_FIELD  + " = ?, "
+      + NATURAL_AUTHOR_FIELD  + " = ?, "
+      + VERSION_FIELD + " = " + VERSION_FIELD + " + 1 "
+    + "WHERE " + AUTHORS_ID_FIELD + " = ? "
+      + "AND " + VERSION_FIELD + " = ?";
     private final PreparedStatement updateAuthorPStatement;
     
+    /** 
+     * Inserts an author into the AUTHORS table,
+     * or updates the author with the same natural key.
+     * A matching author is only updated 
+     * (and its version incremented) if its data differ;
+     * its creation date is never changed.
+     * 
+     * @see DBConstants#NATURAL_AUTHOR_FIELD
+     */
+    private static final String mergeAuthorSQL  =
+        "MERGE INTO " + AUTHORS_TABLE_NAME + " A"
+        + " USING SYSIBM.SYSDUMMY1"
+        + " ON A." + NATURAL_AUTHOR_FIELD + " = ?"
+        + " WHEN MATCHED AND NOT ( "
+            + "A." + AUTHOR_FIELD + " = ?"
+            + " AND A." + RATING_FIELD + " = ?"
+            + " AND A." + RANK_FIELD + " = ?"
+            + " AND COALESCE( A." + SOURCE_FIELD + ", '' )"
+                + " = COALESCE( CAST( ? AS VARCHAR( 255 ) ), '' )"
+            + " AND A." + LAST_COUNT_FIELD + " = ?"
+            + " AND A." + LISTS_ID_FIELD + " = ? )"
+        + " THEN UPDATE SET "
+            + AUTHOR_FIELD + " = ?, "
+            + RATING_FIELD + " = ?, "
+            + RANK_FIELD + " = ?, "
+            + SOURCE_FIELD + " = ?, "
+            + LAST_COUNT_FIELD + " = ?, "
+            + LISTS_ID_FIELD + " = ?, "
+            + MODIFICATION_DATE_FIELD + " = ?, "
+            + VERSION_FIELD + " = A." + VERSION_FIELD + " + 1"
+        + " WHEN NOT MATCHED THEN INSERT ( "
+            + AUTHOR_FIELD + ", "
+            + RATING_FIELD + ", "
+            + RANK_FIELD + ", "
+            + SOURCE_FIELD + ", "
+            + LAST_COUNT_FIELD + ", "
+            + LISTS_ID_FIELD + ", "
+            + CREATION_DATE_FIELD + ", "
+            + MODIFICATION_DATE_FIELD + ", "
+            + NATURAL_AUTHOR_FIELD
+        + " ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ? )";
+    
+    /** 
+     * Prefix for getting the authors with a set of natural keys;
+     * must be completed with an IN list.
+     */
+    private static final String getNaturalAuthorsSQL    =
+        "SELECT " + AUTHORS_ID_FIELD + ", " 
+        + NATURAL_AUTHOR_FIELD + ", "
+        + CURRENT_COUNT_FIELD + ", "
+        + VERSION_FIELD
+        + " FROM " + AUTHORS_TABLE_NAME
+        + " WHERE " + NATURAL_AUTHOR_FIELD + " IN ";
+    
     /** Deletes an author from the AUTHORS table */
     private static final String    deleteAuthorSQL   = 
         "DELETE FROM " + AUTHORS_TABLE_NAME
         + " WHERE " + AUTHORS_ID_FIELD + " = ?";
     private final PreparedStatement deleteAuthorPStatement;
+    
+    /** Deletes all authors in a given list from the AUTHORS table */
+    private static final String    deleteListAuthorsSQL   = 
+        "DELETE FROM " + AUTHORS_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement deleteListAuthorsPStatement;
+    
+    /** Moves all authors in one list to another list */
+    private static final String    reassignListAuthorsSQL   = 
+        "UPDATE " + AUTHORS_TABLE_NAME + " SET "
+        + LISTS_ID_FIELD + " = ?, "
+        + VERSION_FIELD + " = " + VERSION_FIELD + " + 1"
+        + " WHERE " + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement reassignListAuthorsPStatement;
 
     /** Gets all authors from the AUTHORS table */
     private final String    getAllAuthorsSQL  =
         "SELECT * FROM " + AUTHORS_TABLE_NAME;
     private final PreparedStatement getAllAuthorsPStatement;
     
+    /** Gets the ID and name of all authors */
+    private static final String getAuthorNamesSQL   =
+        "SELECT " + AUTHORS_ID_FIELD + ", " + AUTHOR_FIELD
+        + " FROM " + AUTHORS_TABLE_NAME;
+    
     /** Gets all authors for a specific list */
     private final String    getAuthorListSQL  =
         "SELECT * FROM " + AUTHORS_TABLE_NAME
@@ -92,12 +187,48 @@ public class AuthorsTable extends Table
         + " WHERE " + AUTHORS_ID_FIELD + " = ?";
     private final PreparedStatement getAuthorByIDPStatement;
     
+    /** Gets the name of an author given its row ID */
+    private static final String    getAuthorNameSQL  =
+        "SELECT " + AUTHOR_FIELD + " FROM " + AUTHORS_TABLE_NAME
+        + " WHERE " + AUTHORS_ID_FIELD + " = ?";
+    private final PreparedStatement getAuthorNamePStatement;
+    
     /** Gets author ID for a given name*/
     private final String    getAuthorByNameSQL  =
         "SELECT " + AUTHORS_ID_FIELD + " FROM " + AUTHORS_TABLE_NAME
         + " WHERE " + AUTHOR_FIELD + " = ?";
     private final PreparedStatement getAuthorByNamePStatement;
     
+    /** Gets the current count of an author given its row ID */
+    private static final String    getCurrentCountSQL  =
+        "SELECT " + CURRENT_COUNT_FIELD + " FROM " + AUTHORS_TABLE_NAME
+        + " WHERE " + AUTHORS_ID_FIELD + " = ?";
+    private final PreparedStatement getCurrentCountPStatement;
+    
+    /** 
+     * Recomputes the current count of every author
+     * from the TITLES and TITLES_ARCHIVE tables.
+     */
+    private static final String    rebuildCurrentCountsSQL  =
+        "UPDATE " + AUTHORS_TABLE_NAME + " SET "
+        + CURRENT_COUNT_FIELD + " = "
+        + "( SELECT COUNT(*) FROM " + TITLES_TABLE_NAME
+        + " WHERE " + TITLES_TABLE_NAME + "." + AUTHORS_ID_FIELD
+        + " = " + AUTHORS_TABLE_NAME + "." + AUTHORS_ID_FIELD + " )"
+        + " + ( SELECT COUNT(*) FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + TITLES_ARCHIVE_TABLE_NAME + "." + AUTHORS_ID_FIELD
+        + " = " + AUTHORS_TABLE_NAME + "." + AUTHORS_ID_FIELD + " )";
+    private final PreparedStatement rebuildCurrentCountsPStatement;
+    
+    /** 
+     * Gets all authors whose current count 
+     * differs from their last count.
+     */
+    private static final String    getChangedAuthorsSQL  =
+        "SELECT * FROM " + AUTHORS_TABLE_NAME
+        + " WHERE " + CURRENT_COUNT_FIELD + " <> " + LAST_COUNT_FIELD;
+    private final PreparedStatement getChangedAuthorsPStatement;
+    
     /** The DBServer instance that owns this object. */
     private final DBServer  dbServer;
 
@@ -109,23 +240,42 @@ public class AuthorsTable extends Table
         dbServer = server;
         
         insertAuthorPStatement = 
-            server.getPreparedStatement( insertAuthorSQL, genKeys );
+            server.getLazyPreparedStatement( insertAuthorSQL, genKeys );
         updateAuthorPStatement = 
-            server.getPreparedStatement( updateAuthorSQL, noGenKeys );
+            server.getLazyPreparedStatement( updateAuthorSQL, noGenKeys );
         deleteAuthorPStatement =
-            server.getPreparedStatement( deleteAuthorSQL, noGenKeys );
+            server.getLazyPreparedStatement( deleteAuthorSQL, noGenKeys );
+        deleteListAuthorsPStatement =
+            server.getLazyPreparedStatement( deleteListAuthorsSQL, noGenKeys );
+        reassignListAuthorsPStatement =
+            server.getLazyPreparedStatement( 
+                reassignListAuthorsSQL, 
+                noGenKeys
+            );
         getAllAuthorsPStatement = 
-            server.getPreparedStatement( getAllAuthorsSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAllAuthorsSQL, noGenKeys );
         getAuthorsListPStatement =
-            server.getPreparedStatement( getAuthorListSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAuthorListSQL, noGenKeys );
         getAuthorByIDPStatement =
-            server.getPreparedStatement( getAuthorByIDSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAuthorByIDSQL, noGenKeys );
         getAuthorByNamePStatement =
-            server.getPreparedStatement( getAuthorByNameSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAuthorByNameSQL, noGenKeys );
+        getAuthorNamePStatement =
+            server.getLazyPreparedStatement( getAuthorNameSQL, noGenKeys );
+        getCurrentCountPStatement =
+            server.getLazyPreparedStatement( getCurrentCountSQL, noGenKeys );
+        rebuildCurrentCountsPStatement =
+            server.getLazyPreparedStatement( 
+                rebuildCurrentCountsSQL, 
+                noGenKeys
+            );
+        getChangedAuthorsPStatement =
+            server.getLazyPreparedStatement( getChangedAuthorsSQL, noGenKeys );
     }
 
     /**
      * Add a new record to the AUTHORS table. 
+     * The new author has no titles, so its current count is set to 0.
      *
      * @param author Object representing author to be added
      * 
@@ -148,6 +298,8 @@ public class AuthorsTable extends Table
         }
         int ident   = rSet.getInt( 1 );
         author.setIdent( ident );
+        author.setVersion( 0 );
+        author.setCurrentCount( 0 );
         
         // insert author comments
         dbServer.insertCommentsFor( author );
@@ -157,10 +309,16 @@ public class AuthorsTable extends Table
     /**
      * Updates an existing author in the AUTHORS table.
      * The author record must have previously been read from the table.
+     * If the update succeeds the version of the given author
+     * is incremented to match the version in the database,
+     * and its current count is refreshed from the database.
      *
      * @param author    the author to update
      * 
      * @throws SQLException if a SQL error occurs
+     * @throws ConcurrentUpdateException
+     *      if the author has been modified or deleted by another client
+     *      since it was read
      */
     public void updateAuthor( Author author ) throws SQLException
     {
@@ -175,18 +333,132 @@ public class AuthorsTable extends Table
         }
         
         int     ident   = optIdent.getAsInt();
+        int     version = author.getVersion();
         int     count   = cvtAuthorToRow( author, updateAuthorPStatement );
-        updateAuthorPStatement.setInt( count, ident );
+        updateAuthorPStatement.setInt( count++, ident );
+        updateAuthorPStatement.setInt( count++, version );
         
         // update most author data
         logger.info( "updating author: " + name );
-        updateAuthorPStatement.executeUpdate();
+        if ( updateAuthorPStatement.executeUpdate() == 0 )
+        {
+            ConcurrentUpdateException   exc =
+                new ConcurrentUpdateException( 
+                    AUTHORS_TABLE_NAME, 
+                    ident, 
+                    version
+                );
+            logger.warning( exc.getMessage() );
+            throw exc;
+        }
+        author.setVersion( version + 1 );
+        author.setCurrentCount( getCurrentCount( ident ) );
         
         // update author comments
         dbServer.synchronizeCommentsFor( author );
         logger.info( "author: " + name + " updated" );
     }
     
+    /**
+     * Inserts or updates a set of authors in a single batched statement,
+     * matching each author to an existing row by its natural key:
+     * its normalized name.
+     * An author that matches no row is inserted, along with its comments;
+     * one that matches a row with different data updates that row,
+     * but not its comments or creation date;
+     * one that matches a row with the same data changes nothing.
+     * On return the row ID, version and current count
+     * of each given author match the database.
+     * 
+     * @param authors   the given authors
+     * 
+     * @return  the outcome for each given author, in order
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws KCLSException 
+     *      if an author has not been assigned to an existing list
+     * 
+     * @see DBConstants#NATURAL_AUTHOR_FIELD
+     */
+    public List<Outcome> mergeAuthors( List<Author> authors )
+        throws SQLException, KCLSException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        logger.info( "merging " + authors.size() + " authors" );
+        int                     maxIdent    = 
+            getMaxIdent( dbServer, AUTHORS_TABLE_NAME, AUTHORS_ID_FIELD );
+        Map<String, Integer>    listIDs     = new HashMap<>();
+        int[]                   counts      = null;
+        PreparedStatement       statement   =
+            dbServer.getPreparedStatement( mergeAuthorSQL, noGenKeys );
+        try
+        {
+            for ( Author author : authors )
+            {
+                String  list    = author.getListName();
+                int     listID  = 
+                    listIDs.computeIfAbsent( list, dbServer::getListID );
+                if ( listID < 1 )
+                {
+                    String message  = "No list designation found for author: "
+                        + author.getAuthor();
+                    logger.severe( message );
+                    throw new KCLSException( message );
+                }
+                cvtAuthorToMergeRow( author, listID, statement );
+                statement.addBatch();
+            }
+            counts = statement.executeBatch();
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        
+        // read back the row ID, version and current count of each author
+        List<String>            keys        = new ArrayList<>();
+        for ( Author author : authors )
+            keys.add( normalize( author.getAuthor() ) );
+        Map<String, int[]>      rows        = new HashMap<>();
+        queryForEachChunk( 
+            dbServer, 
+            getNaturalAuthorsSQL, 
+            new ArrayList<>( new HashSet<>( keys ) ), 
+            rSet -> new AbstractMap.SimpleEntry<>(
+                rSet.getString( NATURAL_AUTHOR_FIELD ),
+                new int[] { 
+                    rSet.getInt( AUTHORS_ID_FIELD ),
+                    rSet.getInt( VERSION_FIELD ),
+                    rSet.getInt( CURRENT_COUNT_FIELD )
+                }
+            )
+        ).forEach( e -> rows.put( e.getKey(), e.getValue() ) );
+        
+        List<Outcome>           outcomes    = new ArrayList<>();
+        Set<Integer>            seen        = new HashSet<>();
+        for ( int inx = 0 ; inx < authors.size() ; ++inx )
+        {
+            Author  author  = authors.get( inx );
+            int[]   row     = rows.get( keys.get( inx ) );
+            author.setIdent( row[0] );
+            author.setVersion( row[1] );
+            author.setCurrentCount( row[2] );
+            
+            // an author that appears twice is only inserted once
+            Outcome outcome = 
+                counts[inx] == 0 ? Outcome.UNCHANGED : Outcome.UPDATED;
+            if ( seen.add( row[0] ) && row[0] > maxIdent )
+            {
+                outcome = Outcome.INSERTED;
+                dbServer.insertCommentsFor( author );
+            }
+            outcomes.add( outcome );
+        }
+        logger.info( authors.size() + " authors merged" );
+        return outcomes;
+    }
+    
     /**
      * Delete a row from the AUTHORS table.
      * The row must have been previously read from table.
@@ -210,7 +482,90 @@ public class AuthorsTable extends Table
         deleteAuthorPStatement.setInt( 1, ident );
         deleteAuthorPStatement.executeUpdate();
     }
+    
+    /**
+     * Delete all authors in a given list from the AUTHORS table.
+     * Comments associated with the authors are <em>not</em> deleted.
+     * 
+     * @param listID    the row ID of the given list
+     * 
+     * @return the number of authors deleted
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteAuthorsForList( int listID ) throws SQLException
+    {
+        deleteListAuthorsPStatement.setInt( 1, listID );
+        logger.info( "deleting authors for list: " + listID );
+        int     count   = deleteListAuthorsPStatement.executeUpdate();
+        logger.info( count + " authors deleted" );
+        return count;
+    }
+    
+    /**
+     * Moves all authors in one list to another list.
+     * 
+     * @param fromListID    the row ID of the list to move authors from
+     * @param toListID      the row ID of the list to move authors to
+     * 
+     * @return the number of authors moved
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int reassignAuthors( int fromListID, int toListID )
+        throws SQLException
+    {
+        reassignListAuthorsPStatement.setInt( 1, toListID );
+        reassignListAuthorsPStatement.setInt( 2, fromListID );
+        logger.info( "moving authors from list " + fromListID 
+            + " to list " + toListID );
+        int     count   = reassignListAuthorsPStatement.executeUpdate();
+        logger.info( count + " authors moved" );
+        return count;
+    }
         
+    /**
+     * Gets the ranks of all authors in a given list, in rank order.
+     * 
+     * @param listID    the row ID of the given list
+     * 
+     * @return  the row IDs of the authors in the given list,
+     *          mapped to their ranks, in rank order
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public Map<Integer, Integer> getAuthorRanks( int listID ) 
+        throws SQLException
+    {
+        return 
+            getRanks( dbServer, AUTHORS_TABLE_NAME, AUTHORS_ID_FIELD, listID );
+    }
+    
+    /**
+     * Sets the ranks of a set of authors in a single batched statement.
+     * Only the rank and version of each author are changed.
+     * 
+     * @param ranks row IDs of the authors to update,
+     *              mapped to their new ranks
+     * 
+     * @return the number of authors updated
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int updateAuthorRanks( Map<Integer, Integer> ranks )
+        throws SQLException
+    {
+        logger.info( "updating ranks of " + ranks.size() + " authors" );
+        int     count   = updateRanks( 
+            dbServer, 
+            AUTHORS_TABLE_NAME, 
+            AUTHORS_ID_FIELD, 
+            ranks
+        );
+        logger.info( count + " authors updated" );
+        return count;
+    }
+    
     /**
      * Get a list of all rows in the AUTHORS table.
      * 
@@ -229,6 +584,32 @@ public class AuthorsTable extends Table
         return allAuthors;
     }
     
+    /**
+     * Gets the names of all authors, keyed by row ID.
+     * Only the ID and name columns are read.
+     * 
+     * @return  a map from author row ID to author name
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public Map<Integer, String> getAuthorNames() throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        Map<Integer, String>    names       = new HashMap<>();
+        PreparedStatement       statement   =
+            dbServer.getPreparedStatement( getAuthorNamesSQL, noGenKeys );
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            while ( rSet.next() )
+                names.put( rSet.getInt( 1 ), rSet.getString( 2 ) );
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        return names;
+    }
     
     /**
      * Retrieve an author ID using its name.
@@ -291,6 +672,158 @@ public class AuthorsTable extends Table
         return allAuthors;
     }
     
+    /**
+     * Gets the name of the author with a given row ID,
+     * without reading the author's comments or attributes.
+     * 
+     * @param ident the given row ID
+     * 
+     * @return  the name of the given author,
+     *          or null if the author is not in the database
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public String getAuthorName( int ident ) throws SQLException
+    {
+        String  name    = null;
+        getAuthorNamePStatement.setInt( 1, ident );
+        try ( ResultSet rSet = getAuthorNamePStatement.executeQuery() )
+        {
+            if ( rSet.next() )
+                name = rSet.getString( 1 );
+        }
+        return name;
+    }
+    
+    /**
+     * Gets the current count of the author with a given row ID.
+     * 
+     * @param ident the given row ID
+     * 
+     * @return  the current count of the given author,
+     *          or 0 if the author is not in the database
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int getCurrentCount( int ident ) throws SQLException
+    {
+        int     count   = 0;
+        getCurrentCountPStatement.setInt( 1, ident );
+        try ( ResultSet rSet = getCurrentCountPStatement.executeQuery() )
+        {
+            if ( rSet.next() )
+                count = rSet.getInt( 1 );
+        }
+        return count;
+    }
+    
+    /**
+     * Recomputes the current count of every author
+     * from the contents of the TITLES table.
+     * Only needed to repair counts that have drifted,
+     * for example after direct manipulation of the database.
+     * 
+     * @return the number of authors updated
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int rebuildCurrentCounts() throws SQLException
+    {
+        logger.info( "rebuilding author counts" );
+        int     count   = rebuildCurrentCountsPStatement.executeUpdate();
+        logger.info( count + " author counts rebuilt" );
+        return count;
+    }
+    
+    /**
+     * Gets all authors whose current count differs from
+     * their last count.
+     * 
+     * @return  a list of all authors whose current count differs from
+     *          their last count
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public List<Author> getChangedAuthors() throws SQLException
+    {
+        List<Author>    authors = new ArrayList<>();
+        try ( ResultSet rSet = getChangedAuthorsPStatement.executeQuery() )
+        {
+            while ( rSet.next() )
+                authors.add( cvtRowToAuthor( rSet ) );
+        }
+        return authors;
+    }
+    
+    /**
+     * Gets a publisher that streams all rows of the AUTHORS table.
+     * 
+     * Attributes are not retrieved.
+     * 
+     * @param fetchSize the default fetch size of the publisher
+     * 
+     * @return  a publisher that streams all rows of the AUTHORS table
+     */
+    public CursorPublisher<Author> getAllAuthorsPublisher( int fetchSize )
+    {
+        CursorPublisher<Author> publisher   =
+            new CursorPublisher<>(
+                dbServer,
+                getAllAuthorsSQL,
+                s -> {},
+                this::cvtRowToPublishedAuthor,
+                fetchSize
+            );
+        return publisher;
+    }
+    
+    /**
+     * Gets a publisher that streams all authors
+     * associated with a given list.
+     * If the list does not exist the publisher completes
+     * without publishing any authors.
+     * Attributes are not retrieved.
+     * 
+     * @param listName  the name of the given list
+     * @param fetchSize the default fetch size of the publisher
+     * 
+     * @return  a publisher that streams all authors 
+     *          associated with the given list
+     */
+    public CursorPublisher<Author> 
+    getAuthorListPublisher( String listName, int fetchSize )
+    {
+        CursorPublisher<Author> publisher   =
+            new CursorPublisher<>(
+                dbServer,
+                getAuthorListSQL,
+                s -> s.setInt( 1, dbServer.getListID( listName ) ),
+                this::cvtRowToPublishedAuthor,
+                fetchSize
+            );
+        return publisher;
+    }
+    
+    /**
+     * Converts a row of a result set to a author to be published,
+     * marking the author's attributes as not loaded.
+     * 
+     * @param rSet  the result set, positioned at the row to convert
+     * 
+     * @return  the author represented by the row
+     * 
+     * @throws SQLException if a SQL error occurs
+     * 
+     * @see kcls_manager.main.LibraryItem#isAttributesLoaded()
+     */
+    private Author cvtRowToPublishedAuthor( ResultSet rSet )
+        throws SQLException
+    {
+        Author  author  = cvtRowToAuthor( rSet );
+        author.setAttributesLoaded( false );
+        return author;
+    }
+    
     private Author cvtRowToAuthor( ResultSet rSet ) throws SQLException
     {
         int     authorID        = rSet.getInt( AUTHORS_ID_FIELD );
@@ -303,6 +836,7 @@ public class AuthorsTable extends Table
         int     listID          = rSet.getInt( LISTS_ID_FIELD );
         Date    sqlCreDate      = rSet.getDate( CREATION_DATE_FIELD );
         Date    sqlModDate      = rSet.getDate( MODIFICATION_DATE_FIELD );
+        int     version         = rSet.getInt( VERSION_FIELD );
         
         LocalDate   creDate     = sqlCreDate.toLocalDate();
         LocalDate   modDate     = sqlModDate.toLocalDate();
@@ -312,6 +846,7 @@ public class AuthorsTable extends Table
         
         Author  author  = new Author( creDate, text, listName );
         author.setIdent( authorID );
+        author.setVersion( version );
         // author.setAuthor
         author.setRating( rating );
         author.setRank( rank );
@@ -330,6 +865,7 @@ public class AuthorsTable extends Table
     /**
      * Uses populates a prepared statement with data from a given author.
      * The total number of fields set in the statement is returned.
+     * The current count is maintained by the database, and is not set.
      * 
      * @param author    the given author
      * @param statement the prepared statement to populate
@@ -346,7 +882,6 @@ public class AuthorsTable extends Table
         int         rank                = author.getRank();
         String      source              = author.getSource();
         int         lastCount           = author.getLastCount();
-        int         currentCount        = author.getCurrentCount();
         String      list                = author.getListName();
         LocalDate   creationDate        = author.getCreationDate();
         LocalDate   modificationDate    = author.getModifyDate();
@@ -370,11 +905,62 @@ public class AuthorsTable extends Table
         statement.setInt( inx++, rank );
         statement.setString( inx++, source );
         statement.setInt( inx++, lastCount );
-        statement.setInt( inx++, currentCount );
         statement.setInt( inx++, listID );
         statement.setDate( inx++, creDate );
         statement.setDate( inx++, modDate );
+        statement.setString( inx++, normalize( name ) );
         
         return inx;
     }
+    
+    /**
+     * Populates the merge statement with data from a given author.
+     * 
+     * @param author    the given author
+     * @param listID    the row ID of the author's list
+     * @param statement the merge statement to populate
+     *
+     * @throws SQLException if a SQL error occurs
+     * 
+     * @see #mergeAuthorSQL
+     */
+    private static void cvtAuthorToMergeRow( 
+        Author author, 
+        int listID, 
+        PreparedStatement statement 
+    ) throws SQLException
+    {
+        String          name        = author.getAuthor();
+        String          key         = normalize( name );
+        java.sql.Date   creDate     = 
+            java.sql.Date.valueOf( author.getCreationDate() );
+        java.sql.Date   modDate     = 
+            java.sql.Date.valueOf( author.getModifyDate() );
+        
+        int inx = 1;
+        statement.setString( inx++, key );
+        
+        // the data are first compared with, then copied to, a matching row
+        for ( int pass = 0 ; pass < 2 ; ++pass )
+        {
+            statement.setString( inx++, name );
+            statement.setInt( inx++, author.getRating() );
+            statement.setInt( inx++, author.getRank() );
+            statement.setString( inx++, author.getSource() );
+            statement.setInt( inx++, author.getLastCount() );
+            statement.setInt( inx++, listID );
+        }
+        statement.setDate( inx++, modDate );
+        
+        // a new row
+        statement.setString( inx++, name );
+        statement.setInt( inx++, author.getRating() );
+        statement.setInt( inx++, author.getRank() );
+        statement.setString( inx++, author.getSource() );
+        statement.setInt( inx++, author.getLastCount() );
+        statement.setInt( inx++, listID );
+        statement.setDate( inx++, creDate );
+        statement.setDate( inx++, modDate );
+        statement.setString( inx++, key );
+    }
 }
@@ -1,24 +1,45 @@
 package kcls_manager.database;
 
+import static kcls_manager.database.DBConstants.COMMENTS_ARCHIVE_TABLE_NAME;
 import static kcls_manager.database.DBConstants.COMMENTS_ID_FIELD;
 import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.AUTHORS_ID_FIELD;
+import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
 import static kcls_manager.database.DBConstants.ITEM_ID_FIELD;
+import static kcls_manager.database.DBConstants.LISTS_ID_FIELD;
 import static kcls_manager.database.DBConstants.LIST_TYPE_FIELD;
+import static kcls_manager.database.DBConstants.PREVIEW_FIELD;
+import static kcls_manager.database.DBConstants.PREVIEW_LENGTH;
 import static kcls_manager.database.DBConstants.TEXT_FIELD;
+import static kcls_manager.database.DBConstants.TEXT_LENGTH_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.VERSION_FIELD;
 import static kcls_manager.main.Constants.AUTHOR_TYPE;
 import static kcls_manager.main.Constants.TITLE_TYPE;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.OptionalInt;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import kcls_manager.main.Author;
 import kcls_manager.main.Comment;
+import kcls_manager.main.ConcurrentUpdateException;
 import kcls_manager.main.KCLSException;
 import kcls_manager.main.LibraryItem;
 import kcls_manager.main.Title;
@@ -26,11 +47,19 @@ import kcls_manager.main.Title;
 /**
  * This class provides support for maintenance of the 
  * COMMENTS table.
+ * <p>
+ * The full text of a comment is stored as a CLOB,
+ * along with a preview of its leading characters and its length.
+ * Queries that retrieve comments read only the preview;
+ * a comment whose text is no longer than a preview
+ * is thereby fully loaded,
+ * while a longer comment is loaded with only its preview,
+ * and its full text must be read separately.
  * 
  * @author jstra
  *
  */
-public class CommentsTable
+public class CommentsTable extends Table
 {
     private static final String loggerName  = CommentsTable.class.getName();
     private static final Logger logger      = Logger.getLogger( loggerName );
@@ -38,94 +67,267 @@ public class CommentsTable
     /** Inserts a single comment into the COMMENTS table */
     private static final String    insertCommentSQL   = 
         "INSERT INTO " + COMMENTS_TABLE_NAME + "("
+        + PREVIEW_FIELD + ", "
         + TEXT_FIELD + ", "
+        + TEXT_LENGTH_FIELD + ", "
         + ITEM_ID_FIELD + ", "
         + LIST_TYPE_FIELD
     + " )"
-    + "VALUES ( ?, ?, ? )";
+    + "VALUES ( ?, ?, ?, ?, ? )";
     private final PreparedStatement insertCommentPStatement;
     
-    /** Updates an existing comment in the COMMENTS table */
+    /** 
+     * Updates an existing comment in the COMMENTS table,
+     * provided it has not been modified since it was read.
+     */
     private static final String    updateCommentSQL   = 
         "UPDATE " + COMMENTS_TABLE_NAME + " SET "
+        + PREVIEW_FIELD + " = ?, "
         + TEXT_FIELD + " = ?, "
+        + TEXT_LENGTH_FIELD + " = ?, "
         + ITEM_ID_FIELD + " = ?, "
-        + LIST_TYPE_FIELD + " = ? "
-    + "WHERE " + COMMENTS_ID_FIELD + " = ?";
+        + LIST_TYPE_FIELD + " = ?, "
+        + VERSION_FIELD + " = " + VERSION_FIELD + " + 1 "
+    + "WHERE " + COMMENTS_ID_FIELD + " = ? "
+        + "AND " + VERSION_FIELD + " = ?";
     private final PreparedStatement updateCommentPStatement;
     
+    /** 
+     * Updates an existing comment in the COMMENTS table,
+     * provided it has not been modified since it was read,
+     * leaving its text unchanged;
+     * used when only the preview of the text has been loaded.
+     */
+    private static final String    updateCommentRefSQL   = 
+        "UPDATE " + COMMENTS_TABLE_NAME + " SET "
+        + ITEM_ID_FIELD + " = ?, "
+        + LIST_TYPE_FIELD + " = ?, "
+        + VERSION_FIELD + " = " + VERSION_FIELD + " + 1 "
+    + "WHERE " + COMMENTS_ID_FIELD + " = ? "
+        + "AND " + VERSION_FIELD + " = ?";
+    private final PreparedStatement updateCommentRefPStatement;
+    
     /** Deletes a comment from the COMMENTS table */
     private static final String    deleteCommentSQL   = 
         "DELETE FROM " + COMMENTS_TABLE_NAME
         + " WHERE " + COMMENTS_ID_FIELD + " = ?";
     private final PreparedStatement deleteCommentPStatement;
     
+    /** Deletes all comments for a given item */
+    private static final String    deleteItemCommentsSQL   = 
+        "DELETE FROM " + COMMENTS_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = ?" 
+        + " AND " + ITEM_ID_FIELD + " = ?";
+    private final PreparedStatement deleteItemCommentsPStatement;
+    
+    /** 
+     * Prefix for deleting all comments for a set of items;
+     * must be completed with an IN list.
+     */
+    private static final String    deleteItemsCommentsSQL   = 
+        "DELETE FROM " + COMMENTS_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = ?" 
+        + " AND " + ITEM_ID_FIELD + " IN ";
+    
+    /** Deletes all comments for all titles in a given list */
+    private static final String    deleteTitleListCommentsSQL   = 
+        "DELETE FROM " + COMMENTS_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = " + TITLE_TYPE 
+        + " AND " + ITEM_ID_FIELD + " IN "
+        + "( SELECT " + TITLES_ID_FIELD + " FROM " + TITLES_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ? )";
+    private final PreparedStatement deleteTitleListCommentsPStatement;
+    
+    /** Deletes all comments for all authors in a given list */
+    private static final String    deleteAuthorListCommentsSQL   = 
+        "DELETE FROM " + COMMENTS_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = " + AUTHOR_TYPE 
+        + " AND " + ITEM_ID_FIELD + " IN "
+        + "( SELECT " + AUTHORS_ID_FIELD + " FROM " + AUTHORS_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ? )";
+    private final PreparedStatement deleteAuthorListCommentsPStatement;
+    
+    /** 
+     * The columns selected when retrieving comments;
+     * all columns except the full text.
+     */
+    private static final String summaryColumns  =
+        COMMENTS_ID_FIELD + ", "
+        + PREVIEW_FIELD + ", "
+        + TEXT_LENGTH_FIELD + ", "
+        + ITEM_ID_FIELD + ", "
+        + LIST_TYPE_FIELD + ", "
+        + VERSION_FIELD;
+    
     /** Selects a comment by COMMENTS id. */
     private static final String getCommentSQL   =
-        "SELECT *" + " FROM " + COMMENTS_TABLE_NAME
+        "SELECT " + summaryColumns + " FROM " + COMMENTS_TABLE_NAME
         + " WHERE " + COMMENTS_ID_FIELD + " = " + "?";
     private final PreparedStatement getCommentPStatement;
     
     /** Selects all comments. */
     private static final String getAllCommentsSQL   =
-        "SELECT *" + " FROM " + COMMENTS_TABLE_NAME;
+        "SELECT " + summaryColumns + " FROM " + COMMENTS_TABLE_NAME;
     private final PreparedStatement getAllCommentsPStatement;
     
     /** Selects all comments for a given Title object. */
     private static final String getTitleCommentsSQL   =
-        "SELECT *" + " FROM " + COMMENTS_TABLE_NAME
+        "SELECT " + summaryColumns + " FROM " + COMMENTS_TABLE_NAME
         + " WHERE " + LIST_TYPE_FIELD + " = " + TITLE_TYPE 
         + " AND "+ ITEM_ID_FIELD + " = " + "?";
     private final PreparedStatement getTitleCommentsPStatement;
     
+    /**
+     * Selects all comments for the titles in a given range of row IDs;
+     * used by parallel scans, on a connection from the scan pool.
+     */
+    private static final String getTitleRangeCommentsSQL   =
+        "SELECT " + summaryColumns + " FROM " + COMMENTS_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = " + TITLE_TYPE 
+        + " AND "+ ITEM_ID_FIELD + " BETWEEN ? AND ?"
+        + " ORDER BY " + COMMENTS_ID_FIELD;
+    
     /** Selects all comments for a given item. */
     private static final String getItemCommentsSQL   =
-        "SELECT *" + " FROM " + COMMENTS_TABLE_NAME
+        "SELECT " + summaryColumns + " FROM " + COMMENTS_TABLE_NAME
         + " WHERE " + LIST_TYPE_FIELD + " = ?" 
         + " AND "+ ITEM_ID_FIELD + " = ?";
     private final PreparedStatement getItemCommentsPStatement;
     
     /** Selects all comments for a given author. */
     private static final String getAuthorCommentsSQL   =
-        "SELECT *" + " FROM " + COMMENTS_TABLE_NAME
+        "SELECT " + summaryColumns + " FROM " + COMMENTS_TABLE_NAME
         + " WHERE " + LIST_TYPE_FIELD + " = " + AUTHOR_TYPE 
         + " AND "+ ITEM_ID_FIELD + " = " + "?";
     private final PreparedStatement getAuthorCommentsPStatement;
+    
+    /** All columns of the COMMENTS table, in order */
+    private static final String allColumns  =
+        COMMENTS_ID_FIELD + ", "
+        + PREVIEW_FIELD + ", "
+        + TEXT_FIELD + ", "
+        + TEXT_LENGTH_FIELD + ", "
+        + ITEM_ID_FIELD + ", "
+        + LIST_TYPE_FIELD + ", "
+        + VERSION_FIELD;
+    
+    /** 
+     * Prefix for copying all comments for a set of items
+     * to the COMMENTS_ARCHIVE table;
+     * must be completed with an IN list.
+     */
+    private static final String archiveItemsCommentsSQL =
+        "INSERT INTO " + COMMENTS_ARCHIVE_TABLE_NAME 
+        + " ( " + allColumns + " )"
+        + " SELECT " + allColumns + " FROM " + COMMENTS_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = ?" 
+        + " AND " + ITEM_ID_FIELD + " IN ";
+    
+    /** Selects all archived comments for a given item. */
+    private static final String getArchivedItemCommentsSQL   =
+        "SELECT " + summaryColumns + " FROM " + COMMENTS_ARCHIVE_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = ?" 
+        + " AND "+ ITEM_ID_FIELD + " = ?";
+    private final PreparedStatement getArchivedItemCommentsPStatement;
+    
+    /** Selects the full text of a comment by COMMENTS id. */
+    private static final String getCommentTextSQL   =
+        "SELECT " + TEXT_FIELD + " FROM " + COMMENTS_TABLE_NAME
+        + " WHERE " + COMMENTS_ID_FIELD + " = ?";
+    private final PreparedStatement getCommentTextPStatement;
+    
+    /** Selects the full text of an archived comment by COMMENTS id. */
+    private static final String getArchivedCommentTextSQL   =
+        "SELECT " + TEXT_FIELD + " FROM " + COMMENTS_ARCHIVE_TABLE_NAME
+        + " WHERE " + COMMENTS_ID_FIELD + " = ?";
+    private final PreparedStatement getArchivedCommentTextPStatement;
+    
+    /** Deletes all archived comments for the archived titles in a list. */
+    private static final String deleteArchivedListCommentsSQL   =
+        "DELETE FROM " + COMMENTS_ARCHIVE_TABLE_NAME
+        + " WHERE " + LIST_TYPE_FIELD + " = " + TITLE_TYPE
+        + " AND " + ITEM_ID_FIELD + " IN "
+        + "( SELECT " + TITLES_ID_FIELD + " FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ? )";
+    private final PreparedStatement deleteArchivedListCommentsPStatement;
+    
+    /** The DBServer instance that owns this object. */
+    private final DBServer  dbServer;
 
     public CommentsTable( DBServer server )
     {
         final int genKeys   = Statement.RETURN_GENERATED_KEYS;
         final int noGenKeys = Statement.NO_GENERATED_KEYS;
         
+        dbServer = server;
+        
         insertCommentPStatement = 
-            server.getPreparedStatement( insertCommentSQL, genKeys );
+            server.getLazyPreparedStatement( insertCommentSQL, genKeys );
         updateCommentPStatement =
-            server.getPreparedStatement( updateCommentSQL, noGenKeys);
+            server.getLazyPreparedStatement( updateCommentSQL, noGenKeys);
+        updateCommentRefPStatement =
+            server.getLazyPreparedStatement( updateCommentRefSQL, noGenKeys);
         deleteCommentPStatement = 
-            server.getPreparedStatement( deleteCommentSQL, noGenKeys );
+            server.getLazyPreparedStatement( deleteCommentSQL, noGenKeys );
+        deleteItemCommentsPStatement = 
+            server.getLazyPreparedStatement( deleteItemCommentsSQL, noGenKeys );
+        deleteTitleListCommentsPStatement = 
+            server.getLazyPreparedStatement( 
+                deleteTitleListCommentsSQL, 
+                noGenKeys
+            );
+        deleteAuthorListCommentsPStatement = 
+            server.getLazyPreparedStatement( 
+                deleteAuthorListCommentsSQL, 
+                noGenKeys
+            );
+        deleteArchivedListCommentsPStatement =
+            server.getLazyPreparedStatement(
+                deleteArchivedListCommentsSQL,
+                noGenKeys
+            );
         getCommentPStatement = 
-            server.getPreparedStatement( getCommentSQL, noGenKeys );
+            server.getLazyPreparedStatement( getCommentSQL, noGenKeys );
         getAllCommentsPStatement = 
-            server.getPreparedStatement( getAllCommentsSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAllCommentsSQL, noGenKeys );
         getTitleCommentsPStatement = 
-            server.getPreparedStatement( getTitleCommentsSQL, noGenKeys );
+            server.getLazyPreparedStatement( getTitleCommentsSQL, noGenKeys );
         getAuthorCommentsPStatement = 
-            server.getPreparedStatement( getAuthorCommentsSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAuthorCommentsSQL, noGenKeys );
         getItemCommentsPStatement = 
-            server.getPreparedStatement( getItemCommentsSQL, noGenKeys );
+            server.getLazyPreparedStatement( getItemCommentsSQL, noGenKeys );
+        getArchivedItemCommentsPStatement = 
+            server.getLazyPreparedStatement( 
+                getArchivedItemCommentsSQL, 
+                noGenKeys 
+            );
+        getCommentTextPStatement = 
+            server.getLazyPreparedStatement( getCommentTextSQL, noGenKeys );
+        getArchivedCommentTextPStatement = 
+            server.getLazyPreparedStatement( 
+                getArchivedCommentTextSQL, 
+                noGenKeys 
+            );
     }
 
     /**
      * Add a new record to the COMMENTS  table. 
      * The comment's item ID must be set prior to invoking this method.
+     * If only a preview of the comment's text has been loaded
+     * the full text is loaded first, 
+     * so that the preview is never stored as the text.
      *
      * @param comment  Object representing comment to be added
      * 
      * @throws  SQLException if a SQL error occurs
+     * @throws  KCLSException
+     *      if the item ID is not set, or if the comment's text
+     *      is not loaded and cannot be found in the database
+     *      
+     * @see #loadText(Comment)
      */
     public void insertComment( Comment comment ) throws SQLException
     {
-        String      text                = comment.getText();
         OptionalInt itemID              = comment.getItemID();
         int         type                = comment.getType();
         
@@ -138,12 +340,13 @@ public class CommentsTable
             throw new KCLSException( message );
         }
         
-        int inx = 1;
-        insertCommentPStatement.setString( inx++, text );
+        loadText( comment );
+        String      text                = comment.getText();
+        int inx = bindText( insertCommentPStatement, 1, text );
         insertCommentPStatement.setInt( inx++, itemID.getAsInt() );
         insertCommentPStatement.setInt( inx++, type );
         
-        logger.info( "inserting comment: " + text );
+        logger.info( "inserting comment: " + getPreview( text ) );
         insertCommentPStatement.executeUpdate();
         
         int ident   = 0;
@@ -158,6 +361,7 @@ public class CommentsTable
             ident   = rSet.getInt( 1 );
         }
         comment.setIdent( ident );
+        comment.setVersion( 0 );
         logger.info( "comment inserted" );
     }
     
@@ -165,10 +369,17 @@ public class CommentsTable
      * Update a given row in the COMMENTS table.
      * The row must previously have been fetched,
      * and the commentsID set.
+     * If only a preview of the comment's text has been loaded
+     * the text in the database is left unchanged.
+     * If the update succeeds the version of the given comment
+     * is incremented to match the version in the database.
      * 
      * @param comment   the given row
      * 
      * @throws SQLException if a SQL exception occurs
+     * @throws ConcurrentUpdateException
+     *      if the row has been modified or deleted by another client
+     *      since it was fetched
      */
     public void updateComment( Comment comment ) throws SQLException
     {
@@ -184,15 +395,33 @@ public class CommentsTable
         String      text                = comment.getText();
         OptionalInt itemID              = comment.getItemID();
         int         type                = comment.getType();
+        int         version             = comment.getVersion();
     
-        int inx = 1;
-        updateCommentPStatement.setString( inx++, text );
-        updateCommentPStatement.setInt( inx++, itemID.getAsInt() );
-        updateCommentPStatement.setInt( inx++, type );
-        updateCommentPStatement.setInt( inx++, commentsID );
+        PreparedStatement   statement   = updateCommentRefPStatement;
+        int                 inx         = 1;
+        if ( comment.isTextLoaded() )
+        {
+            statement = updateCommentPStatement;
+            inx = bindText( statement, inx, text );
+        }
+        statement.setInt( inx++, itemID.getAsInt() );
+        statement.setInt( inx++, type );
+        statement.setInt( inx++, commentsID );
+        statement.setInt( inx++, version );
         
-        logger.info( "updating comment: " + text );
-        updateCommentPStatement.executeUpdate();
+        logger.info( "updating comment: " + getPreview( text ) );
+        if ( statement.executeUpdate() == 0 )
+        {
+            ConcurrentUpdateException   exc =
+                new ConcurrentUpdateException( 
+                    COMMENTS_TABLE_NAME, 
+                    commentsID, 
+                    version
+                );
+            logger.warning( exc.getMessage() );
+            throw exc;
+        }
+        comment.setVersion( version + 1 );
         logger.info( "comment updated" );
 
     }
@@ -258,6 +487,78 @@ public class CommentsTable
         return comment;
     }
     
+    /**
+     * Reads the full text of a comment,
+     * archived or not, given the comment's row ID.
+     * The text is passed to a given consumer as a Reader,
+     * which streams the text from the database
+     * and is valid only for the duration of the call to the consumer.
+     * If the comment has no text the consumer is not called.
+     * 
+     * @param ident     the given row ID
+     * @param consumer  the given consumer
+     * 
+     * @return  true if the comment was found, whether or not it has text
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws IOException  if thrown by the consumer
+     */
+    public boolean readText( int ident, DBServer.TextConsumer consumer )
+        throws SQLException, IOException
+    {
+        PreparedStatement   archive = getArchivedCommentTextPStatement;
+        boolean             found   = 
+            readText( getCommentTextPStatement, ident, consumer );
+        if ( !found )
+            found = readText( archive, ident, consumer );
+        return found;
+    }
+    
+    /**
+     * Loads the full text of a given comment,
+     * if only a preview has been loaded.
+     * 
+     * @param comment   the given comment
+     * 
+     * @throws SQLException     if a SQL error occurs
+     * @throws KCLSException    
+     *      if the comment does not have a row ID,
+     *      or is not found in the database
+     */
+    public void loadText( Comment comment ) throws SQLException
+    {
+        if ( comment.isTextLoaded() )
+            return;
+        OptionalInt optIdent    = comment.getIdent();
+        if ( optIdent.isEmpty() )
+        {
+            String  message = "Expected ident for comment text; not found";
+            logger.severe( message );
+            throw new KCLSException( message );
+        }
+        
+        int             ident   = optIdent.getAsInt();
+        StringWriter    writer  = new StringWriter( comment.getTextLength() );
+        boolean         found;
+        try
+        {
+            found = readText( ident, r -> r.transferTo( writer ) );
+        }
+        catch ( IOException exc )
+        {
+            String  message = "Read text of comment " + ident + " failed";
+            logger.log( Level.SEVERE, message, exc );
+            throw new KCLSException( message, exc );
+        }
+        if ( !found )
+        {
+            String  message = "Comment " + ident + " not found";
+            logger.severe( message );
+            throw new KCLSException( message );
+        }
+        comment.setText( writer.toString() );
+    }
+    
     /**
      * Get all comments from the COMMENTS table.
      * 
@@ -275,6 +576,26 @@ public class CommentsTable
         return comments;
     }
     
+    /**
+     * Gets a publisher that streams all rows of the COMMENTS table.
+     * 
+     * @param fetchSize the default fetch size of the publisher
+     * 
+     * @return  a publisher that streams all rows of the COMMENTS table
+     */
+    public CursorPublisher<Comment> getAllCommentsPublisher( int fetchSize )
+    {
+        CursorPublisher<Comment>    publisher   =
+            new CursorPublisher<>(
+                dbServer,
+                getAllCommentsSQL,
+                s -> {},
+                CommentsTable::cvtRowToComment,
+                fetchSize
+            );
+        return publisher;
+    }
+    
     /**
      * Get all rows in the COMMENTS table that are associated with
      * a given title. The retrieved comments are set in the given
@@ -300,6 +621,47 @@ public class CommentsTable
         title.setComments( comments );
     }
     
+    /**
+     * Gets the comments for all titles whose row IDs fall
+     * in a given range, using a given connection
+     * rather than the DBServer's connection.
+     * 
+     * @param conn      the given connection
+     * @param fromIdent the lowest title row ID in the range
+     * @param toIdent   the highest title row ID in the range
+     * 
+     * @return  a map from title row ID to the comments for that title;
+     *          titles without comments do not appear in the map
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public static Map<Integer, List<Comment>> getCommentsForTitleRange(
+        Connection  conn,
+        int         fromIdent,
+        int         toIdent
+    ) throws SQLException
+    {
+        Map<Integer, List<Comment>> comments    = new HashMap<>();
+        try ( PreparedStatement statement = 
+                conn.prepareStatement( getTitleRangeCommentsSQL ) )
+        {
+            statement.setInt( 1, fromIdent );
+            statement.setInt( 2, toIdent );
+            try ( ResultSet rSet = statement.executeQuery() )
+            {
+                while ( rSet.next() )
+                {
+                    Comment comment = cvtRowToComment( rSet );
+                    comments.computeIfAbsent( 
+                        comment.getItemID().getAsInt(), 
+                        k -> new ArrayList<>() 
+                    ).add( comment );
+                }
+            }
+        }
+        return comments;
+    }
+    
     /**
      * Get all rows in the COMMENTS table that are associated with
      * a given titlesID.
@@ -499,19 +861,253 @@ public class CommentsTable
     /**
      * Delete all comments for a given LibraryItem
      * (typically Author or Title).
-     * Comments that do not have ids are assumed not to be
-     * in the database and are ignored.
+     * All comments associated with the item in the database
+     * are deleted, whether or not they have been loaded
+     * into the item.
+     * If the item does not have a row ID it is assumed not to be
+     * in the database and is ignored.
      * 
      * @param item  the given LibraryItem
+     * 
+     * @throws SQLException if a SQL error occurs
      */
     public void deleteCommentsFor( LibraryItem item ) throws SQLException
     {
-        for ( Comment comment : item.getComments() )
+        OptionalInt optIdent    = item.getIdent();
+        if ( optIdent.isPresent() )
+        {
+            int itemType    = item instanceof Title ? TITLE_TYPE : AUTHOR_TYPE;
+            deleteItemCommentsPStatement.setInt( 1, itemType );
+            deleteItemCommentsPStatement.setInt( 2, optIdent.getAsInt() );
+            logger.info( "deleting comments for: " + optIdent.getAsInt() );
+            deleteItemCommentsPStatement.executeUpdate();
+        }
+    }
+    
+    /**
+     * Delete all comments for a given list of items
+     * of a given type.
+     * 
+     * @param itemType  the given type; TITLE_TYPE or AUTHOR_TYPE
+     * @param itemIDs   row IDs of the given items
+     * 
+     * @return the number of comments deleted
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteCommentsFor( int itemType, List<Integer> itemIDs )
+        throws SQLException
+    {
+        Object[]    leading = { itemType };
+        logger.info( "deleting comments for " + itemIDs.size() + " items" );
+        int     count   = 
+            executeForEachChunk( 
+                dbServer, 
+                deleteItemsCommentsSQL, 
+                leading, 
+                itemIDs
+            );
+        logger.info( count + " comments deleted" );
+        return count;
+    }
+    
+    /**
+     * Moves all comments for a given list of items of a given type
+     * from the COMMENTS table to the COMMENTS_ARCHIVE table.
+     * 
+     * @param itemType  the given type; TITLE_TYPE or AUTHOR_TYPE
+     * @param itemIDs   row IDs of the given items
+     * 
+     * @return the number of comments moved
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int archiveCommentsFor( int itemType, List<Integer> itemIDs )
+        throws SQLException
+    {
+        Object[]    leading = { itemType };
+        logger.info( "archiving comments for " + itemIDs.size() + " items" );
+        int     count   = 
+            executeForEachChunk( 
+                dbServer, 
+                archiveItemsCommentsSQL, 
+                leading, 
+                itemIDs
+            );
+        executeForEachChunk( 
+            dbServer, 
+            deleteItemsCommentsSQL, 
+            leading, 
+            itemIDs
+        );
+        logger.info( count + " comments archived" );
+        return count;
+    }
+    
+    /**
+     * Get all rows in the COMMENTS_ARCHIVE table that are associated with
+     * a given archived title. The retrieved comments are set in the given
+     * title object.
+     * 
+     * @param title the given archived title
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public void getArchivedCommentsFor( Title title ) throws SQLException
+    {
+        getArchivedItemCommentsPStatement.setInt( 1, TITLE_TYPE );
+        getArchivedItemCommentsPStatement.setInt( 
+            2, 
+            title.getIdent().getAsInt()
+        );
+        PreparedStatement   statement   = getArchivedItemCommentsPStatement;
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            title.setComments( getComments( rSet ) );
+        }
+    }
+    
+    /**
+     * Delete all comments for all items in a given list.
+     * 
+     * @param listType  the type of the given list; 
+     *                  TITLE_TYPE or AUTHOR_TYPE
+     * @param listID    the row ID of the given list
+     * 
+     * @return the number of comments deleted
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteCommentsForList( int listType, int listID )
+        throws SQLException
+    {
+        PreparedStatement   statement   = 
+            listType == TITLE_TYPE ? 
+                deleteTitleListCommentsPStatement :
+                deleteAuthorListCommentsPStatement;
+        statement.setInt( 1, listID );
+        logger.info( "deleting comments for list: " + listID );
+        int     count   = statement.executeUpdate();
+        logger.info( count + " comments deleted" );
+        return count;
+    }
+    
+    /**
+     * Delete all archived comments for the archived titles in a given list.
+     * Must be executed before the archived titles themselves are deleted.
+     * 
+     * @param listID    the row ID of the given list
+     * 
+     * @return the number of comments deleted
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteArchivedCommentsForList( int listID )
+        throws SQLException
+    {
+        deleteArchivedListCommentsPStatement.setInt( 1, listID );
+        logger.info( "deleting archived comments for list: " + listID );
+        int     count   = deleteArchivedListCommentsPStatement.executeUpdate();
+        logger.info( count + " archived comments deleted" );
+        return count;
+    }
+    
+    /**
+     * Reads the full text of a comment with a given row ID
+     * using a given statement,
+     * and passes it to a given consumer.
+     * 
+     * @param statement the given statement
+     * @param ident     the given row ID
+     * @param consumer  the given consumer
+     * 
+     * @return  true if the comment was found
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws IOException  if thrown by the consumer
+     */
+    private static boolean readText( 
+        PreparedStatement       statement,
+        int                     ident, 
+        DBServer.TextConsumer   consumer 
+    ) throws SQLException, IOException
+    {
+        statement.setInt( 1, ident );
+        boolean found   = false;
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            found = rSet.next();
+            Reader  reader  = 
+                found ? rSet.getCharacterStream( TEXT_FIELD ) : null;
+            if ( reader != null )
+            {
+                try ( Reader text = reader )
+                {
+                    consumer.accept( text );
+                }
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Binds the preview, full text and length of a given text
+     * to three consecutive parameters of a given statement,
+     * starting at a given index.
+     * The full text is streamed to the database.
+     * 
+     * @param statement the given statement
+     * @param inx       the given index
+     * @param text      the given text; may be null
+     * 
+     * @return  the index of the parameter following those bound
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    private static int 
+    bindText( PreparedStatement statement, int inx, String text )
+        throws SQLException
+    {
+        if ( text == null )
         {
-            OptionalInt optIdent    = comment.getIdent();
-            if ( optIdent.isPresent() )
-                deleteComment( optIdent.getAsInt() );
+            statement.setNull( inx++, Types.VARCHAR );
+            statement.setNull( inx++, Types.CLOB );
+            statement.setInt( inx++, 0 );
         }
+        else
+        {
+            statement.setString( inx++, getPreview( text ) );
+            statement.setCharacterStream( 
+                inx++, 
+                new StringReader( text ), 
+                text.length()
+            );
+            statement.setInt( inx++, text.length() );
+        }
+        return inx;
+    }
+    
+    /**
+     * Gets the preview of a given text:
+     * its leading characters, up to the length of a preview.
+     * A surrogate pair is not split.
+     * Also used by the database upgrade program.
+     * 
+     * @param text  the given text; may be null
+     * 
+     * @return  the preview of the given text; null if the text is null
+     */
+    public static String getPreview( String text )
+    {
+        String  preview = text;
+        if ( text != null && text.length() > PREVIEW_LENGTH )
+        {
+            int end = PREVIEW_LENGTH;
+            if ( Character.isHighSurrogate( text.charAt( end - 1 ) ) )
+                --end;
+            preview = text.substring( 0, end );
+        }
+        return preview;
     }
     
     /**
@@ -536,6 +1132,8 @@ public class CommentsTable
      * Given a result set, compile the single comment associated with
      * the current row in the set. It is assumed that the next row exists,
      * and that the result set's cursor is set to the desired row.
+     * If the comment's text is longer than a preview
+     * only the preview is loaded.
      * 
      * @param rSet  the given result set
      * 
@@ -543,16 +1141,21 @@ public class CommentsTable
      * 
      * @throws SQLException if a SQL error occurs
      */
-    private Comment cvtRowToComment( ResultSet rSet ) throws SQLException
+    private static Comment cvtRowToComment( ResultSet rSet )
+        throws SQLException
     {
         int     commentID   = rSet.getInt( COMMENTS_ID_FIELD );
-        String  text        = rSet.getString( TEXT_FIELD );
+        String  preview     = rSet.getString( PREVIEW_FIELD );
+        int     textLength  = rSet.getInt( TEXT_LENGTH_FIELD );
         Integer itemID      = rSet.getInt( ITEM_ID_FIELD );
         int     listType    = rSet.getInt( LIST_TYPE_FIELD );
+        int     version     = rSet.getInt( VERSION_FIELD );
         
-        Comment comment = new Comment( listType, text );
+        Comment comment = new Comment( listType, preview );
         comment.setIdent( commentID );
-        comment.setText( text );
+        comment.setVersion( version );
+        if ( textLength > PREVIEW_LENGTH )
+            comment.setPreview( preview, textLength );
         comment.setItemID( itemID );
         return comment;
     }
@@ -0,0 +1,274 @@
+package kcls_manager.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A fixed-size pool of read-only connections to the database,
+ * used by parallel scans so that each worker thread
+ * has a Derby session of its own.
+ * Connections are opened on demand, up to the maximum size of the pool;
+ * once that many are in use, a thread that needs a connection
+ * waits for another thread to return one.
+ * <p>
+ * Pooled connections are in auto-commit mode,
+ * with the default isolation level (read committed),
+ * so each query sees the committed state of the database
+ * when it is executed, and holds no locks once it completes.
+ * They never take part in a transaction
+ * in progress on the DBServer's connection.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author jstra
+ *
+ * @see DBServer#scanTitles()
+ * @see TitleScanSpliterator
+ */
+public class ConnectionPool implements AutoCloseable
+{
+    private static final String loggerName  =
+        ConnectionPool.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /**
+     * How often a thread waiting for a connection
+     * checks whether the pool has been closed, in milliseconds.
+     */
+    private static final long   pollMillis  = 500;
+
+    /** URL of the database. */
+    private final String        dbURL;
+    /** User name required for access to the database; might not be used. */
+    private final String        dbUserName;
+    /** Password required for database access; might not be used. */
+    private final String        dbPassword;
+
+    /** The maximum number of connections in the pool. */
+    private final int           maxSize;
+
+    /** Connections that are open but not in use. */
+    private final BlockingQueue<Connection> idle    =
+        new LinkedBlockingQueue<>();
+
+    /** All connections opened, in use or not; guarded by this. */
+    private final List<Connection>  opened  = new ArrayList<>();
+
+    /** True once the pool has been closed; guarded by this. */
+    private boolean             closed      = false;
+
+    /**
+     * Constructor.
+     * No connection is opened until one is needed.
+     *
+     * @param dbURL         URL for database access
+     * @param dbUserName    user name for database access
+     * @param dbPassword    password for database access
+     * @param maxSize       the maximum number of connections in the pool
+     *
+     * @throws IllegalArgumentException if <em>maxSize</em> is less than 1
+     */
+    public ConnectionPool(
+        String  dbURL,
+        String  dbUserName,
+        String  dbPassword,
+        int     maxSize
+    )
+    {
+        if ( maxSize < 1 )
+            throw new IllegalArgumentException( "maxSize < 1" );
+        this.dbURL = dbURL;
+        this.dbUserName = dbUserName;
+        this.dbPassword = dbPassword;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets a connection from the pool.
+     * An idle connection is returned if there is one;
+     * otherwise a new connection is opened if the pool is not full;
+     * otherwise the calling thread waits for a connection
+     * to be returned.
+     * The connection must be returned with <em>release</em>
+     * when no longer needed.
+     *
+     * @return a connection from the pool
+     *
+     * @throws SQLException
+     *      if a connection cannot be opened, if the pool is closed,
+     *      or if the calling thread is interrupted while waiting
+     *
+     * @see #release(Connection)
+     */
+    public Connection acquire() throws SQLException
+    {
+        Connection  conn    = idle.poll();
+        if ( conn == null && reserve() )
+        {
+            try
+            {
+                conn =
+                    DriverManager.getConnection(
+                        dbURL,
+                        dbUserName,
+                        dbPassword
+                    );
+                conn.setReadOnly( true );
+            }
+            catch ( SQLException exc )
+            {
+                unreserve( null );
+                throw exc;
+            }
+            register( conn );
+        }
+        while ( conn == null )
+        {
+            try
+            {
+                conn = idle.poll( pollMillis, TimeUnit.MILLISECONDS );
+            }
+            catch ( InterruptedException exc )
+            {
+                Thread.currentThread().interrupt();
+                throw new SQLException( "interrupted waiting for connection" );
+            }
+            if ( conn == null && isClosed() )
+                throw new SQLException( "connection pool is closed" );
+        }
+        return conn;
+    }
+
+    /**
+     * Returns a connection to the pool.
+     * If the pool has been closed the connection is closed instead.
+     *
+     * @param conn  the connection to return
+     *
+     * @see #acquire()
+     */
+    public void release( Connection conn )
+    {
+        if ( isClosed() )
+            closeQuietly( conn );
+        else
+            idle.offer( conn );
+    }
+
+    /**
+     * Gets the maximum number of connections in the pool.
+     *
+     * @return the maximum number of connections in the pool
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of connections currently open,
+     * whether in use or not.
+     *
+     * @return the number of connections currently open
+     */
+    public synchronized int getSize()
+    {
+        return opened.size();
+    }
+
+    /**
+     * Closes all idle connections, and marks the pool closed.
+     * Connections in use are closed as they are returned.
+     * Subsequent attempts to acquire a connection fail.
+     */
+    @Override
+    public void close()
+    {
+        synchronized ( this )
+        {
+            closed = true;
+        }
+        List<Connection>    toClose = new ArrayList<>();
+        idle.drainTo( toClose );
+        toClose.forEach( this::closeQuietly );
+        logger.info( "connection pool closed" );
+    }
+
+    /**
+     * Indicates whether the pool has been closed.
+     *
+     * @return true if the pool has been closed
+     */
+    private synchronized boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Reserves a place in the pool for a new connection.
+     *
+     * @return  true if a place was reserved;
+     *          false if the pool is full
+     *
+     * @throws SQLException if the pool is closed
+     */
+    private synchronized boolean reserve() throws SQLException
+    {
+        if ( closed )
+            throw new SQLException( "connection pool is closed" );
+        boolean reserved    = opened.size() < maxSize;
+        if ( reserved )
+            opened.add( null );
+        return reserved;
+    }
+
+    /**
+     * Releases a place in the pool reserved for a new connection,
+     * or occupied by a given connection.
+     *
+     * @param conn  the given connection;
+     *              null to release a reserved place
+     */
+    private synchronized void unreserve( Connection conn )
+    {
+        opened.remove( conn );
+    }
+
+    /**
+     * Fills a place in the pool reserved for a given new connection.
+     *
+     * @param conn  the given connection
+     */
+    private synchronized void register( Connection conn )
+    {
+        opened.set( opened.indexOf( null ), conn );
+        logger.info( "opened pooled connection " + opened.size() );
+    }
+
+    /**
+     * Closes a given connection, logging but otherwise ignoring
+     * any error.
+     *
+     * @param conn  the given connection
+     */
+    private void closeQuietly( Connection conn )
+    {
+        unreserve( conn );
+        try
+        {
+            conn.close();
+        }
+        catch ( SQLException exc )
+        {
+            logger.log( Level.WARNING, "close pooled connection failed", exc );
+        }
+    }
+}
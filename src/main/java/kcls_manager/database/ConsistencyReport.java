@@ -0,0 +1,222 @@
+package kcls_manager.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a referential consistency check:
+ * for each kind of problem, the number of rows found to have it,
+ * the row IDs of the first few such rows,
+ * and, if the check included repairs, the number of rows repaired.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author jstra
+ *
+ * @see DBServer#checkConsistency(boolean)
+ * @see ConsistencyScanner
+ */
+public class ConsistencyReport
+{
+    /**
+     * The kinds of problem detected by a consistency check,
+     * in the order in which they are repaired.
+     * Repairing a problem may expose problems of a later kind;
+     * for example, deleting an orphaned title orphans its comments.
+     */
+    public enum Problem
+    {
+        /** Authors whose list does not exist; repaired by deletion. */
+        ORPHAN_AUTHORS,
+        /** Titles whose list does not exist; repaired by deletion. */
+        ORPHAN_TITLES,
+        /** Archived titles whose list does not exist; repaired by deletion. */
+        ORPHAN_ARCHIVED_TITLES,
+        /**
+         * Titles that refer to an author that does not exist;
+         * repaired by removing the reference.
+         */
+        DANGLING_AUTHOR_IDS,
+        /**
+         * Comments whose title or author does not exist;
+         * repaired by deletion.
+         */
+        ORPHAN_COMMENTS,
+        /**
+         * Archived comments whose archived title does not exist;
+         * repaired by deletion.
+         */
+        ORPHAN_ARCHIVED_COMMENTS,
+        /**
+         * Queue position samples whose title does not exist,
+         * even in the archive; repaired by deletion.
+         */
+        ORPHAN_QPOS_SAMPLES,
+        /**
+         * Attributes whose title or author does not exist,
+         * even in the archive; repaired by deletion.
+         * Attributes are sampled by the IDs of their owners.
+         */
+        ORPHAN_ATTRIBUTES
+    }
+
+    /** The number of rows found with each problem. */
+    private final Map<Problem, Integer>         found;
+
+    /** The row IDs of the first few rows found with each problem. */
+    private final Map<Problem, List<Integer>>   samples;
+
+    /** The number of rows repaired for each problem. */
+    private final Map<Problem, Integer>         repaired;
+
+    /** The time taken by the check, in milliseconds. */
+    private final long                          elapsedMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param found         the number of rows found with each problem
+     * @param samples       the row IDs of the first few rows found
+     *                      with each problem
+     * @param repaired      the number of rows repaired for each problem
+     * @param elapsedMillis the time taken by the check, in milliseconds
+     */
+    public ConsistencyReport(
+        Map<Problem, Integer>       found,
+        Map<Problem, List<Integer>> samples,
+        Map<Problem, Integer>       repaired,
+        long                        elapsedMillis
+    )
+    {
+        this.found = copy( found );
+        Map<Problem, List<Integer>> copy    = new EnumMap<>( Problem.class );
+        samples.forEach( (problem, idents) ->
+            copy.put(
+                problem,
+                Collections.unmodifiableList( new ArrayList<>( idents ) )
+            )
+        );
+        this.samples = Collections.unmodifiableMap( copy );
+        this.repaired = copy( repaired );
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the number of rows found with a given problem.
+     *
+     * @param problem   the given problem
+     *
+     * @return the number of rows found with the given problem
+     */
+    public int getFound( Problem problem )
+    {
+        return found.getOrDefault( problem, 0 );
+    }
+
+    /**
+     * Gets the row IDs of the first few rows found with a given problem.
+     *
+     * @param problem   the given problem
+     *
+     * @return  the row IDs of the first few rows found
+     *          with the given problem, in ascending order
+     *
+     * @see ConsistencyScanner#MAX_SAMPLES
+     */
+    public List<Integer> getSamples( Problem problem )
+    {
+        return samples.getOrDefault( problem, Collections.emptyList() );
+    }
+
+    /**
+     * Gets the number of rows repaired for a given problem.
+     * This may exceed the number found,
+     * if repairing an earlier problem exposed more rows
+     * with the given problem.
+     *
+     * @param problem   the given problem
+     *
+     * @return  the number of rows repaired for the given problem;
+     *          0 if the check did not include repairs
+     */
+    public int getRepaired( Problem problem )
+    {
+        return repaired.getOrDefault( problem, 0 );
+    }
+
+    /**
+     * Gets the total number of rows found with any problem.
+     *
+     * @return the total number of rows found with any problem
+     */
+    public int getTotalFound()
+    {
+        return found.values().stream().mapToInt( Integer::intValue ).sum();
+    }
+
+    /**
+     * Gets the total number of rows repaired.
+     *
+     * @return the total number of rows repaired
+     */
+    public int getTotalRepaired()
+    {
+        return repaired.values().stream().mapToInt( Integer::intValue ).sum();
+    }
+
+    /**
+     * Indicates whether the check found no problems.
+     *
+     * @return true if the check found no problems
+     */
+    public boolean isConsistent()
+    {
+        return getTotalFound() == 0;
+    }
+
+    /**
+     * Gets the time taken by the check.
+     *
+     * @return the time taken by the check, in milliseconds
+     */
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    /**
+     * Makes an unmodifiable copy of a given map of counts.
+     *
+     * @param counts    the given map
+     *
+     * @return an unmodifiable copy of the given map
+     */
+    private static Map<Problem, Integer> copy( Map<Problem, Integer> counts )
+    {
+        Map<Problem, Integer>   copy    = new EnumMap<>( Problem.class );
+        copy.putAll( counts );
+        return Collections.unmodifiableMap( copy );
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder( "{" );
+        for ( Problem problem : Problem.values() )
+        {
+            bldr.append( problem ).append( "=" )
+                .append( getFound( problem ) );
+            if ( getRepaired( problem ) > 0 )
+                bldr.append( "/repaired=" ).append( getRepaired( problem ) );
+            if ( !getSamples( problem ).isEmpty() )
+                bldr.append( getSamples( problem ) );
+            bldr.append( "," );
+        }
+        bldr.append( "elapsedMillis=" ).append( elapsedMillis )
+            .append( "}" );
+        return bldr.toString();
+    }
+}
@@ -0,0 +1,405 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.DBConstants.ATTRIBUTES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.AUTHORS_ID_FIELD;
+import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.COMMENTS_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.COMMENTS_ID_FIELD;
+import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.ITEM_ID_FIELD;
+import static kcls_manager.database.DBConstants.LISTS_ID_FIELD;
+import static kcls_manager.database.DBConstants.LISTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.LIST_TYPE_FIELD;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_ID_FIELD;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.VERSION_FIELD;
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import kcls_manager.database.ConsistencyReport.Problem;
+
+/**
+ * Finds, and optionally repairs, rows that violate
+ * the referential integrity of the database:
+ * authors, titles and archived titles whose list does not exist,
+ * titles that refer to an author that does not exist,
+ * comments whose title or author does not exist,
+ * archived comments whose archived title does not exist,
+ * queue position samples whose title does not exist,
+ * and attributes whose title or author does not exist.
+ * Each kind of problem is found with a single anti-join
+ * (NOT EXISTS) query over the table concerned,
+ * so a check costs a few index or table scans
+ * no matter how many rows are affected.
+ * This class should only be used inside the database package.
+ *
+ * @author jstra
+ *
+ * @see DBServer#checkConsistency(boolean)
+ * @see ConsistencyReport
+ */
+public class ConsistencyScanner extends Table
+{
+    private static final String loggerName  =
+        ConsistencyScanner.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** Maximum number of row IDs reported for each kind of problem. */
+    public static final int MAX_SAMPLES     = 20;
+
+    /**
+     * Authors whose list does not exist;
+     * authors that belong to no list are not checked
+     */
+    private static final String orphanAuthorsSQL    =
+        "FROM " + AUTHORS_TABLE_NAME + " A"
+        + " WHERE A." + LISTS_ID_FIELD + " IS NOT NULL"
+        + " AND NOT EXISTS ( SELECT 1 FROM " + LISTS_TABLE_NAME + " L"
+        + " WHERE L." + LISTS_ID_FIELD + " = A." + LISTS_ID_FIELD + " )";
+
+    /**
+     * Titles whose list does not exist;
+     * titles that belong to no list are not checked
+     */
+    private static final String orphanTitlesSQL     =
+        "FROM " + TITLES_TABLE_NAME + " A"
+        + " WHERE A." + LISTS_ID_FIELD + " IS NOT NULL"
+        + " AND NOT EXISTS ( SELECT 1 FROM " + LISTS_TABLE_NAME + " L"
+        + " WHERE L." + LISTS_ID_FIELD + " = A." + LISTS_ID_FIELD + " )";
+
+    /**
+     * Archived titles whose list does not exist;
+     * archived titles that belong to no list are not checked
+     */
+    private static final String orphanArchivedTitlesSQL =
+        "FROM " + TITLES_ARCHIVE_TABLE_NAME + " A"
+        + " WHERE A." + LISTS_ID_FIELD + " IS NOT NULL"
+        + " AND NOT EXISTS ( SELECT 1 FROM " + LISTS_TABLE_NAME + " L"
+        + " WHERE L." + LISTS_ID_FIELD + " = A." + LISTS_ID_FIELD + " )";
+
+    /**
+     * Titles that refer to an author that does not exist;
+     * titles without an author have an author ID less than 1
+     */
+    private static final String danglingAuthorsSQL  =
+        "FROM " + TITLES_TABLE_NAME + " A"
+        + " WHERE A." + AUTHORS_ID_FIELD + " > 0"
+        + " AND NOT EXISTS ( SELECT 1 FROM " + AUTHORS_TABLE_NAME + " B"
+        + " WHERE B." + AUTHORS_ID_FIELD + " = A." + AUTHORS_ID_FIELD + " )";
+
+    /** Comments whose title or author does not exist */
+    private static final String orphanCommentsSQL   =
+        "FROM " + COMMENTS_TABLE_NAME + " A"
+        + " WHERE ( A." + LIST_TYPE_FIELD + " = " + TITLE_TYPE
+        + " AND NOT EXISTS ( SELECT 1 FROM " + TITLES_TABLE_NAME + " B"
+        + " WHERE B." + TITLES_ID_FIELD + " = A." + ITEM_ID_FIELD + " ) )"
+        + " OR ( A." + LIST_TYPE_FIELD + " = " + AUTHOR_TYPE
+        + " AND NOT EXISTS ( SELECT 1 FROM " + AUTHORS_TABLE_NAME + " B"
+        + " WHERE B." + AUTHORS_ID_FIELD + " = A." + ITEM_ID_FIELD + " ) )";
+
+    /** Archived comments whose archived title does not exist */
+    private static final String orphanArchivedCommentsSQL   =
+        "FROM " + COMMENTS_ARCHIVE_TABLE_NAME + " A"
+        + " WHERE A." + LIST_TYPE_FIELD + " = " + TITLE_TYPE
+        + " AND NOT EXISTS ( SELECT 1 FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " B WHERE B." + TITLES_ID_FIELD + " = A." + ITEM_ID_FIELD + " )";
+
+    /** Queue position samples whose title does not exist */
+    private static final String orphanSamplesSQL    =
+        "FROM " + QPOS_HISTORY_TABLE_NAME + " A"
+        + " WHERE NOT EXISTS ( SELECT 1 FROM " + TITLES_TABLE_NAME + " B"
+        + " WHERE B." + TITLES_ID_FIELD + " = A." + TITLES_ID_FIELD + " )"
+        + " AND NOT EXISTS ( SELECT 1 FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " B WHERE B." + TITLES_ID_FIELD + " = A." + TITLES_ID_FIELD + " )";
+
+    /**
+     * Attributes whose title or author does not exist;
+     * the attributes of archived titles remain in the ATTRIBUTES table.
+     * The whole condition is parenthesized,
+     * so that it can be extended when the attributes are repaired.
+     */
+    private static final String orphanAttributesSQL =
+        "FROM " + ATTRIBUTES_TABLE_NAME + " A"
+        + " WHERE ( ( A." + LIST_TYPE_FIELD + " = " + TITLE_TYPE
+        + " AND NOT EXISTS ( SELECT 1 FROM " + TITLES_TABLE_NAME + " B"
+        + " WHERE B." + TITLES_ID_FIELD + " = A." + ITEM_ID_FIELD + " )"
+        + " AND NOT EXISTS ( SELECT 1 FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " B WHERE B." + TITLES_ID_FIELD + " = A." + ITEM_ID_FIELD + " ) )"
+        + " OR ( A." + LIST_TYPE_FIELD + " = " + AUTHOR_TYPE
+        + " AND NOT EXISTS ( SELECT 1 FROM " + AUTHORS_TABLE_NAME + " B"
+        + " WHERE B." + AUTHORS_ID_FIELD + " = A." + ITEM_ID_FIELD
+        + " ) ) )";
+
+    /**
+     * Prefix for removing the author reference from a set of titles;
+     * must be completed with an IN list.
+     * The author ID of each title is set to a negative number
+     * derived from its row ID, never -1,
+     * so that titles that differ only in their missing authors
+     * do not collide in the natural key index,
+     * with each other or with titles that have no author.
+     *
+     * @see DBConstants#NATURAL_TITLE_FIELD
+     */
+    private static final String clearAuthorsSQL     =
+        "UPDATE " + TITLES_TABLE_NAME + " SET "
+        + AUTHORS_ID_FIELD + " = -1 - " + TITLES_ID_FIELD + ", "
+        + VERSION_FIELD + " = " + VERSION_FIELD + " + 1"
+        + " WHERE " + TITLES_ID_FIELD + " IN ";
+
+    /** The DBServer instance that owns this object. */
+    private final DBServer  dbServer;
+
+    /**
+     * Constructor.
+     *
+     * @param server    the DBServer instance that owns this object
+     */
+    public ConsistencyScanner( DBServer server )
+    {
+        dbServer = server;
+    }
+
+    /**
+     * Counts the rows with a given problem.
+     *
+     * @param problem   the given problem
+     *
+     * @return the number of rows with the given problem
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int count( Problem problem ) throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+
+        String              sql         =
+            "SELECT COUNT(*) " + getFromClause( problem );
+        int                 count       = 0;
+        PreparedStatement   statement   =
+            dbServer.getPreparedStatement( sql, noGenKeys );
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            if ( rSet.next() )
+                count = rSet.getInt( 1 );
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        logger.info( problem + ": " + count );
+        return count;
+    }
+
+    /**
+     * Gets the row IDs of the rows with a given problem,
+     * in ascending order.
+     * The ATTRIBUTES table has no row ID;
+     * for orphaned attributes the distinct IDs of the titles
+     * and authors that own them are returned instead.
+     *
+     * @param problem   the given problem
+     * @param limit     the maximum number of row IDs to get
+     *
+     * @return the row IDs of up to <em>limit</em> rows
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public List<Integer> getIdents( Problem problem, int limit )
+        throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+
+        String              idField     = "A." + getIdField( problem );
+        String              select      =
+            problem == Problem.ORPHAN_ATTRIBUTES ?
+                "SELECT DISTINCT " : "SELECT ";
+        String              sql         =
+            select + idField + " " + getFromClause( problem )
+            + " ORDER BY " + idField;
+        List<Integer>       idents      = new ArrayList<>();
+        PreparedStatement   statement   =
+            dbServer.getPreparedStatement( sql, noGenKeys );
+        try
+        {
+            statement.setMaxRows( limit );
+            try ( ResultSet rSet = statement.executeQuery() )
+            {
+                while ( rSet.next() )
+                    idents.add( rSet.getInt( 1 ) );
+            }
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        return idents;
+    }
+
+    /**
+     * Repairs a set of rows with a given problem.
+     * Orphaned rows are deleted; dangling author IDs are removed.
+     * Repairing orphaned authors or titles
+     * may orphan their comments and attributes,
+     * and the titles' queue position samples;
+     * these are repaired as problems in their own right.
+     * Orphaned attributes are identified by the IDs of their owners;
+     * since a title and an author may have the same ID,
+     * only the orphaned attributes of each owner are deleted.
+     *
+     * @param problem   the given problem
+     * @param idents    the row IDs of the rows to repair
+     *                  or, for orphaned attributes, of their owners
+     *
+     * @return the number of rows repaired
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int repair( Problem problem, List<Integer> idents )
+        throws SQLException
+    {
+        String  sql     = null;
+        if ( problem == Problem.DANGLING_AUTHOR_IDS )
+            sql = clearAuthorsSQL;
+        else if ( problem == Problem.ORPHAN_ATTRIBUTES )
+            sql =
+                "DELETE " + orphanAttributesSQL
+                + " AND A." + ITEM_ID_FIELD + " IN ";
+        else
+            sql =
+                "DELETE FROM " + getTableName( problem )
+                + " WHERE " + getIdField( problem ) + " IN ";
+        logger.info( "repairing " + idents.size() + " rows: " + problem );
+        int     count   =
+            executeForEachChunk( dbServer, sql, new Object[0], idents );
+        logger.info( count + " rows repaired: " + problem );
+        return count;
+    }
+
+    /**
+     * Gets the FROM and WHERE clauses of a query that selects
+     * the rows with a given problem.
+     * The table is given the correlation name A.
+     *
+     * @param problem   the given problem
+     *
+     * @return the FROM and WHERE clauses
+     */
+    private static String getFromClause( Problem problem )
+    {
+        String  sql     = null;
+        switch ( problem )
+        {
+        case ORPHAN_AUTHORS:
+            sql = orphanAuthorsSQL;
+            break;
+        case ORPHAN_TITLES:
+            sql = orphanTitlesSQL;
+            break;
+        case ORPHAN_ARCHIVED_TITLES:
+            sql = orphanArchivedTitlesSQL;
+            break;
+        case DANGLING_AUTHOR_IDS:
+            sql = danglingAuthorsSQL;
+            break;
+        case ORPHAN_COMMENTS:
+            sql = orphanCommentsSQL;
+            break;
+        case ORPHAN_ARCHIVED_COMMENTS:
+            sql = orphanArchivedCommentsSQL;
+            break;
+        case ORPHAN_QPOS_SAMPLES:
+            sql = orphanSamplesSQL;
+            break;
+        case ORPHAN_ATTRIBUTES:
+            sql = orphanAttributesSQL;
+            break;
+        }
+        return sql;
+    }
+
+    /**
+     * Gets the name of the table that contains the rows
+     * with a given problem.
+     *
+     * @param problem   the given problem
+     *
+     * @return the name of the table
+     */
+    private static String getTableName( Problem problem )
+    {
+        String  name    = null;
+        switch ( problem )
+        {
+        case ORPHAN_AUTHORS:
+            name = AUTHORS_TABLE_NAME;
+            break;
+        case ORPHAN_TITLES:
+        case DANGLING_AUTHOR_IDS:
+            name = TITLES_TABLE_NAME;
+            break;
+        case ORPHAN_ARCHIVED_TITLES:
+            name = TITLES_ARCHIVE_TABLE_NAME;
+            break;
+        case ORPHAN_COMMENTS:
+            name = COMMENTS_TABLE_NAME;
+            break;
+        case ORPHAN_ARCHIVED_COMMENTS:
+            name = COMMENTS_ARCHIVE_TABLE_NAME;
+            break;
+        case ORPHAN_QPOS_SAMPLES:
+            name = QPOS_HISTORY_TABLE_NAME;
+            break;
+        case ORPHAN_ATTRIBUTES:
+            name = ATTRIBUTES_TABLE_NAME;
+            break;
+        }
+        return name;
+    }
+
+    /**
+     * Gets the name of the row ID column of the table
+     * that contains the rows with a given problem.
+     *
+     * @param problem   the given problem
+     *
+     * @return the name of the row ID column
+     */
+    private static String getIdField( Problem problem )
+    {
+        String  name    = null;
+        switch ( problem )
+        {
+        case ORPHAN_AUTHORS:
+            name = AUTHORS_ID_FIELD;
+            break;
+        case ORPHAN_TITLES:
+        case ORPHAN_ARCHIVED_TITLES:
+        case DANGLING_AUTHOR_IDS:
+            name = TITLES_ID_FIELD;
+            break;
+        case ORPHAN_COMMENTS:
+        case ORPHAN_ARCHIVED_COMMENTS:
+            name = COMMENTS_ID_FIELD;
+            break;
+        case ORPHAN_QPOS_SAMPLES:
+            name = QPOS_HISTORY_ID_FIELD;
+            break;
+        case ORPHAN_ATTRIBUTES:
+            name = ITEM_ID_FIELD;
+            break;
+        }
+        return name;
+    }
+}
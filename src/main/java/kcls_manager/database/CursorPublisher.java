@@ -0,0 +1,418 @@
+package kcls_manager.database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kcls_manager.main.KCLSException;
+
+/**
+ * A Flow.Publisher that streams the rows of a query
+ * to its subscribers as they are requested.
+ * Every subscriber gets its own cursor:
+ * the query is not executed until the subscriber first requests items,
+ * and rows are read from the cursor, converted and delivered
+ * only while the subscriber has outstanding demand,
+ * so a slow subscriber holds no more than a single fetch
+ * of rows in memory.
+ * <p>
+ * Items are delivered on the thread that requests them;
+ * a request made from within <em>onNext</em> is queued
+ * and served when <em>onNext</em> returns, rather than recursively.
+ * Since all cursors share the DBServer's connection,
+ * a subscriber should not request items from one thread
+ * while another thread is using the DBServer.
+ * <p>
+ * The cursor's statement is surrendered to the DBServer
+ * as soon as the query is exhausted, an error occurs
+ * or the subscription is cancelled.
+ *
+ * @author jstra
+ *
+ * @param <T>   the type of item published
+ *
+ * @see DBServer#publishTitlesForList(String)
+ */
+public class CursorPublisher<T> implements Flow.Publisher<T>
+{
+    private static final String loggerName  =
+        CursorPublisher.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** Default number of rows to fetch from the database at a time */
+    public static final int     DEF_FETCH_SIZE  = 64;
+
+    /** The DBServer that owns the connection */
+    private final DBServer              dbServer;
+
+    /** The query to execute */
+    private final String                sql;
+
+    /** Binds the parameters of the query */
+    private final ParameterBinder       binder;
+
+    /** Converts a row of the result set to an item */
+    private final RowMapper<T>          mapper;
+
+    /** The fetch size for subscribers that don't specify their own */
+    private final int                   fetchSize;
+
+    /** The number of cursors currently open */
+    private final AtomicInteger         openCount   = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param dbServer  the DBServer that owns the connection
+     * @param sql       the query to execute
+     * @param binder    binds the parameters of the query
+     * @param mapper    converts a row of the result set to an item
+     * @param fetchSize the fetch size for subscribers
+     *                  that don't specify their own
+     *
+     * @throws IllegalArgumentException if <em>fetchSize</em>
+     *         is less than 1
+     */
+    public CursorPublisher(
+        DBServer        dbServer,
+        String          sql,
+        ParameterBinder binder,
+        RowMapper<T>    mapper,
+        int             fetchSize
+    )
+    {
+        if ( fetchSize < 1 )
+            throw new IllegalArgumentException( "fetchSize < 1" );
+        this.dbServer = dbServer;
+        this.sql = sql;
+        this.binder = binder;
+        this.mapper = mapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Subscribes a given subscriber using the publisher's fetch size.
+     *
+     * @param subscriber    the given subscriber
+     */
+    @Override
+    public void subscribe( Flow.Subscriber<? super T> subscriber )
+    {
+        subscribe( subscriber, fetchSize );
+    }
+
+    /**
+     * Subscribes a given subscriber using a given fetch size.
+     * The fetch size is a hint to the JDBC driver
+     * of the number of rows to read from the database at a time.
+     *
+     * @param subscriber    the given subscriber
+     * @param fetchSize     the given fetch size
+     *
+     * @throws IllegalArgumentException if <em>fetchSize</em>
+     *         is less than 1
+     */
+    public void
+    subscribe( Flow.Subscriber<? super T> subscriber, int fetchSize )
+    {
+        Objects.requireNonNull( subscriber );
+        if ( fetchSize < 1 )
+            throw new IllegalArgumentException( "fetchSize < 1" );
+        CursorSubscription  subscription    =
+            new CursorSubscription( subscriber, fetchSize );
+        subscriber.onSubscribe( subscription );
+    }
+
+    /**
+     * Gets the fetch size used for subscribers
+     * that don't specify their own.
+     *
+     * @return the default fetch size for this publisher
+     */
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    /**
+     * Gets the number of cursors currently open on behalf
+     * of this publisher's subscribers.
+     *
+     * @return the number of cursors currently open
+     */
+    public int getOpenCount()
+    {
+        return openCount.get();
+    }
+
+    /**
+     * Adds two non-negative counts of items, capping the result
+     * at Long.MAX_VALUE, which stands for unbounded demand.
+     *
+     * @param left  the first count
+     * @param right the second count
+     *
+     * @return the capped sum of the two counts
+     */
+    private static long addCap( long left, long right )
+    {
+        long    sum = left + right;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Binds the parameters of a query immediately before it is executed.
+     */
+    @FunctionalInterface
+    public interface ParameterBinder
+    {
+        /**
+         * Binds the parameters of a given statement.
+         *
+         * @param statement the given statement
+         *
+         * @throws SQLException if a SQL error occurs
+         */
+        void bind( PreparedStatement statement ) throws SQLException;
+    }
+
+    /**
+     * Converts the current row of a result set to an item.
+     *
+     * @param <T>   the type of item
+     */
+    @FunctionalInterface
+    public interface RowMapper<T>
+    {
+        /**
+         * Converts the current row of a given result set to an item.
+         *
+         * @param rSet  the given result set
+         *
+         * @return the item encapsulating the current row
+         *
+         * @throws SQLException if a SQL error occurs
+         */
+        T map( ResultSet rSet ) throws SQLException;
+    }
+
+    /**
+     * The subscription of a single subscriber,
+     * encapsulating the subscriber's cursor.
+     * All access to the cursor takes place in <em>drain</em>,
+     * which only ever runs on one thread at a time.
+     */
+    private class CursorSubscription implements Flow.Subscription
+    {
+        private final Flow.Subscriber<? super T>    subscriber;
+        private final int                           subFetchSize;
+
+        /** Number of items requested but not yet delivered */
+        private final AtomicLong    demand      = new AtomicLong();
+
+        /** Number of pending calls to drain */
+        private final AtomicInteger pending     = new AtomicInteger();
+
+        private volatile boolean    cancelled   = false;
+
+        /** Set when a request for a non-positive number of items is made */
+        private volatile boolean    badRequest  = false;
+
+        /** Set when the subscription has been terminated */
+        private boolean             done        = false;
+
+        private PreparedStatement   statement   = null;
+        private ResultSet           rSet        = null;
+
+        public CursorSubscription(
+            Flow.Subscriber<? super T> subscriber,
+            int fetchSize
+        )
+        {
+            this.subscriber = subscriber;
+            this.subFetchSize = fetchSize;
+        }
+
+        @Override
+        public void request( long count )
+        {
+            if ( count <= 0 )
+                badRequest = true;
+            else
+                demand.getAndAccumulate( count, CursorPublisher::addCap );
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            drain();
+        }
+
+        /**
+         * Delivers items while there is outstanding demand.
+         * If drain is already running (on this thread,
+         * from within onNext, or on another thread)
+         * the running instance is told to make another pass,
+         * and this call returns immediately.
+         */
+        private void drain()
+        {
+            if ( pending.getAndIncrement() != 0 )
+                return;
+            int missed  = 1;
+            do
+            {
+                if ( !done )
+                    emit();
+                missed = pending.addAndGet( -missed );
+            } while ( missed != 0 );
+        }
+
+        private void emit()
+        {
+            while ( !done )
+            {
+                if ( cancelled )
+                {
+                    terminate();
+                }
+                else if ( badRequest )
+                {
+                    terminate();
+                    String  message = "non-positive request (rule 3.9)";
+                    subscriber.onError(
+                        new IllegalArgumentException( message )
+                    );
+                }
+                else if ( demand.get() == 0 )
+                {
+                    break;
+                }
+                else
+                {
+                    T   item    = null;
+                    try
+                    {
+                        item = fetch();
+                    }
+                    catch ( SQLException exc )
+                    {
+                        terminate();
+                        String  message =
+                            DBServer.formatSQLError( "fetching rows", exc );
+                        logger.log( Level.SEVERE, message, exc );
+                        subscriber.onError(
+                            dbServer.translateSQLException( message, exc )
+                        );
+                        break;
+                    }
+                    catch ( RuntimeException exc )
+                    {
+                        terminate();
+                        logger.log( Level.SEVERE, "fetching rows", exc );
+                        subscriber.onError( exc );
+                        break;
+                    }
+
+                    if ( item == null )
+                    {
+                        terminate();
+                        subscriber.onComplete();
+                    }
+                    else
+                    {
+                        if ( demand.get() != Long.MAX_VALUE )
+                            demand.decrementAndGet();
+                        deliver( item );
+                    }
+                }
+            }
+        }
+
+        /**
+         * Delivers an item to the subscriber.
+         * A subscriber that throws from onNext
+         * is treated as having cancelled its subscription.
+         *
+         * @param item  the item to deliver
+         */
+        private void deliver( T item )
+        {
+            try
+            {
+                subscriber.onNext( item );
+            }
+            catch ( RuntimeException exc )
+            {
+                logger.log( Level.WARNING, "subscriber failed", exc );
+                cancelled = true;
+            }
+        }
+
+        /**
+         * Gets the next item from the cursor,
+         * opening the cursor if necessary.
+         *
+         * @return the next item, or null if the cursor is exhausted
+         *
+         * @throws SQLException if a SQL error occurs
+         */
+        private T fetch() throws SQLException
+        {
+            if ( rSet == null )
+            {
+                statement =
+                    dbServer.getPreparedStatement(
+                        sql,
+                        Statement.NO_GENERATED_KEYS
+                    );
+                openCount.incrementAndGet();
+                binder.bind( statement );
+                statement.setFetchSize( subFetchSize );
+                rSet = statement.executeQuery();
+            }
+            T   item    = rSet.next() ? mapper.map( rSet ) : null;
+            return item;
+        }
+
+        /**
+         * Terminates the subscription,
+         * releasing the cursor if it has been opened.
+         */
+        private void terminate()
+        {
+            done = true;
+            if ( statement == null )
+                return;
+            try
+            {
+                if ( rSet != null )
+                    rSet.close();
+            }
+            catch ( SQLException exc )
+            {
+                logger.log( Level.WARNING, "failed to close cursor", exc );
+            }
+            try
+            {
+                dbServer.surrenderPreparedStatement( statement );
+            }
+            catch ( KCLSException exc )
+            {
+                // already logged by DBServer
+            }
+            rSet = null;
+            statement = null;
+            openCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package kcls_manager.database;
+
+/**
+ * Describes a single committed change to the database.
+ * Events are published by the DBServer after each successful
+ * mutation, and delivered to all registered DBChangeListeners.
+ * An event identifies:
+ * <ul>
+ * <li>the kind of change (insert, update or delete);</li>
+ * <li>the type of entity that changed (title, author, list or comment);</li>
+ * <li>the row ID of the changed entity; and</li>
+ * <li>
+ *      the name of the list the entity belongs to, if known
+ *      (empty string otherwise).
+ * </li>
+ * </ul>
+ *
+ * @author jstra
+ *
+ * @see DBChangeListener
+ * @see DBServer#addChangeListener(DBChangeListener)
+ */
+public class DBChangeEvent
+{
+    /** The kind of change that took place. */
+    public enum Action
+    {
+        /** A new row was added. */
+        INSERTED,
+        /** An existing row was modified. */
+        UPDATED,
+        /** An existing row was removed. */
+        DELETED
+    }
+
+    /** The type of entity that changed. */
+    public enum Entity
+    {
+        /** A row in the TITLES table. */
+        TITLE,
+        /** A row in the AUTHORS table. */
+        AUTHOR,
+        /** A row in the LISTS table. */
+        LIST,
+        /** A row in the COMMENTS table. */
+        COMMENT
+    }
+
+    /** The kind of change that took place. */
+    private final Action    action;
+
+    /** The type of entity that changed. */
+    private final Entity    entity;
+
+    /** The row ID of the entity that changed. */
+    private final int       ident;
+
+    /**
+     * The name of the list the changed entity belongs to;
+     * empty string if not known.
+     */
+    private final String    listName;
+
+    /**
+     * Constructor.
+     *
+     * @param action    the kind of change that took place
+     * @param entity    the type of entity that changed
+     * @param ident     the row ID of the entity that changed
+     * @param listName  the name of the list the entity belongs to;
+     *                  may be null if not known
+     */
+    public DBChangeEvent(
+        Action action,
+        Entity entity,
+        int ident,
+        String listName
+    )
+    {
+        this.action = action;
+        this.entity = entity;
+        this.ident = ident;
+        this.listName = listName == null ? "" : listName;
+    }
+
+    /**
+     * Gets the kind of change that took place.
+     *
+     * @return the kind of change that took place
+     */
+    public Action getAction()
+    {
+        return action;
+    }
+
+    /**
+     * Gets the type of entity that changed.
+     *
+     * @return the type of entity that changed
+     */
+    public Entity getEntity()
+    {
+        return entity;
+    }
+
+    /**
+     * Gets the row ID of the entity that changed.
+     *
+     * @return the row ID of the entity that changed
+     */
+    public int getIdent()
+    {
+        return ident;
+    }
+
+    /**
+     * Gets the name of the list the changed entity belongs to.
+     *
+     * @return  the name of the list the changed entity belongs to,
+     *          or the empty string if not known
+     */
+    public String getListName()
+    {
+        return listName;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "{" )
+            .append( "action=" ).append( action ).append( "," )
+            .append( "entity=" ).append( entity ).append( "," )
+            .append( "ident=" ).append( ident ).append( "," )
+            .append( "listName=" ).append( listName )
+            .append( "}" );
+        return bldr.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package kcls_manager.database;
+
+/**
+ * Implemented by objects that need to be notified
+ * when data in the database changes,
+ * for example content providers and caches
+ * that want to patch themselves incrementally
+ * instead of reloading whole lists.
+ *
+ * @author jstra
+ *
+ * @see DBServer#addChangeListener(DBChangeListener)
+ * @see DBServer#setChangeExecutor(java.util.concurrent.Executor)
+ */
+public interface DBChangeListener
+{
+    /**
+     * Invoked after a mutation has been committed to the database.
+     * The thread on which this method is invoked is determined
+     * by the executor configured in the DBServer.
+     *
+     * @param event describes the change
+     */
+    void dbChanged( DBChangeEvent event );
+}
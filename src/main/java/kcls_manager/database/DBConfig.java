@@ -0,0 +1,534 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.DBConstants.DB_URL;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kcls_manager.main.KCLSException;
+
+/**
+ * Runtime configuration of the database layer.
+ * Settings are read from a properties file,
+ * and may be overridden by system properties of the same name,
+ * so that a large database can be tuned without recompiling.
+ * <p>
+ * Two kinds of setting are recognized:
+ * <ul>
+ * <li>
+ *      application settings, whose names start with <em>kcls.</em>,
+ *      such as the database URL and credentials,
+ *      the JDBC fetch size, the capacity of the entity cache,
+ *      the archiving of old titles and the startup consistency check;
+ *      these are exposed as typed values;
+ * </li>
+ * <li>
+ *      Derby properties, whose names start with <em>derby.</em>,
+ *      such as <em>derby.storage.pageCacheSize</em>,
+ *      <em>derby.storage.pageSize</em>,
+ *      <em>derby.storage.logBufferSize</em> and
+ *      <em>derby.locks.waitTimeout</em>;
+ *      these are copied to the system properties by
+ *      <em>applyDerbyProperties</em>, which must be called before
+ *      the Derby engine boots for most of them to take effect.
+ *      Note that <em>derby.storage.pageSize</em> only affects
+ *      tables and indexes created after it is set.
+ * </li>
+ * </ul>
+ * The properties file is named by the system property
+ * <em>kcls.config</em>; if that is not set,
+ * <em>kclsManager.properties</em> in the working directory is used,
+ * if it exists.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author jstra
+ *
+ * @see kcls_manager.main.DataManager#getConfig()
+ * @see DBServer#getConfig()
+ */
+public class DBConfig
+{
+    private static final String loggerName  = DBConfig.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** System property that names the configuration file. */
+    public static final String  CONFIG_FILE_PROPERTY    = "kcls.config";
+
+    /** Default configuration file, in the working directory. */
+    public static final String  DEF_CONFIG_FILE = "kclsManager.properties";
+
+    /** Prefix of the names of application settings. */
+    public static final String  KCLS_PREFIX         = "kcls.";
+
+    /** Prefix of the names of Derby properties. */
+    public static final String  DERBY_PREFIX        = "derby.";
+
+    /** URL of the database. */
+    public static final String  DB_URL_KEY          = "kcls.db.url";
+
+    /** User name for database access. */
+    public static final String  DB_USER_KEY         = "kcls.db.user";
+
+    /** Password for database access. */
+    public static final String  DB_PASSWORD_KEY     = "kcls.db.password";
+
+    /**
+     * JDBC fetch size given to every prepared statement;
+     * 0 leaves the driver's default in place.
+     */
+    public static final String  FETCH_SIZE_KEY      = "kcls.jdbc.fetchSize";
+
+    /** Number of rows fetched at a time by CursorPublishers. */
+    public static final String  PUBLISHER_FETCH_SIZE_KEY    =
+        "kcls.publisher.fetchSize";
+
+    /** Maximum number of titles and authors in the entity cache. */
+    public static final String  ENTITY_CACHE_KEY    =
+        "kcls.cache.entityCapacity";
+
+    /** Memory budget of the list query result cache, in bytes. */
+    public static final String  LIST_CACHE_KEY      =
+        "kcls.cache.listResultBytes";
+
+    /** Name of the list whose old titles are archived. */
+    public static final String  ARCHIVE_LIST_KEY    = "kcls.archive.list";
+
+    /**
+     * Age, in days since last modification, at which titles
+     * in the archived list are moved to the archive;
+     * 0 disables archiving.
+     */
+    public static final String  ARCHIVE_AGE_KEY     = "kcls.archive.ageDays";
+
+    /**
+     * The consistency check made at startup:
+     * <em>off</em>, <em>scan</em> or <em>repair</em>.
+     */
+    public static final String  CONSISTENCY_CHECK_KEY   =
+        "kcls.consistency.check";
+
+    /** No consistency check is made at startup. */
+    public static final String  CONSISTENCY_OFF     = "off";
+
+    /** Problems are found and reported at startup. */
+    public static final String  CONSISTENCY_SCAN    = "scan";
+
+    /** Problems are found, reported and repaired at startup. */
+    public static final String  CONSISTENCY_REPAIR  = "repair";
+
+    /**
+     * Maximum number of connections used by parallel scans;
+     * 0 means one per available processor.
+     */
+    public static final String  SCAN_CONNECTIONS_KEY    =
+        "kcls.scan.connections";
+
+    /** Number of row IDs fetched at a time by each parallel scan worker. */
+    public static final String  SCAN_CHUNK_SIZE_KEY     =
+        "kcls.scan.chunkSize";
+
+    /** Default JDBC fetch size: the driver's default. */
+    public static final int     DEF_FETCH_SIZE      = 0;
+
+    /** Default name of the list whose old titles are archived. */
+    public static final String  DEF_ARCHIVE_LIST    = "Completed Titles";
+
+    /** Default archive age: archiving is disabled. */
+    public static final int     DEF_ARCHIVE_AGE     = 0;
+
+    /** Default scan connections: one per available processor. */
+    public static final int     DEF_SCAN_CONNECTIONS    = 0;
+
+    /** Default number of row IDs fetched at a time by a parallel scan. */
+    public static final int     DEF_SCAN_CHUNK_SIZE     = 500;
+
+    /** The settings, after system property overrides. */
+    private final Properties    properties;
+
+    /**
+     * Default constructor.
+     * Creates a configuration in which every setting has its default.
+     */
+    public DBConfig()
+    {
+        this( new Properties() );
+    }
+
+    /**
+     * Creates a configuration from a given set of properties.
+     * System properties are not consulted.
+     *
+     * @param properties    the given properties
+     */
+    public DBConfig( Properties properties )
+    {
+        this.properties = new Properties();
+        for ( String name : properties.stringPropertyNames() )
+            this.properties.setProperty(
+                name,
+                properties.getProperty( name )
+            );
+    }
+
+    /**
+     * Loads the configuration from the configuration file, if any,
+     * overridden by any system properties
+     * whose names start with <em>kcls.</em> or <em>derby.</em>.
+     *
+     * @return the configuration
+     *
+     * @throws KCLSException if the configuration file cannot be read
+     *
+     * @see #CONFIG_FILE_PROPERTY
+     */
+    public static DBConfig load() throws KCLSException
+    {
+        String      name    = System.getProperty( CONFIG_FILE_PROPERTY );
+        boolean     named   = name != null;
+        Path        path    = Paths.get( named ? name : DEF_CONFIG_FILE );
+        Properties  props   = new Properties();
+        if ( named || Files.exists( path ) )
+            props.putAll( read( path ).properties );
+
+        Properties  system  = System.getProperties();
+        for ( String key : system.stringPropertyNames() )
+            if ( key.startsWith( KCLS_PREFIX )
+                || key.startsWith( DERBY_PREFIX ) )
+                props.setProperty( key, system.getProperty( key ) );
+        props.remove( CONFIG_FILE_PROPERTY );
+
+        DBConfig    config  = new DBConfig( props );
+        logger.info( "configuration loaded: " + config );
+        return config;
+    }
+
+    /**
+     * Reads the configuration from a given properties file.
+     * System properties are not consulted.
+     *
+     * @param path  the given properties file
+     *
+     * @return the configuration
+     *
+     * @throws KCLSException if the file cannot be read
+     */
+    public static DBConfig read( Path path ) throws KCLSException
+    {
+        Properties  props   = new Properties();
+        try ( InputStream inStream = Files.newInputStream( path ) )
+        {
+            props.load( inStream );
+        }
+        catch ( IOException exc )
+        {
+            String  message = "failed to read configuration: " + path;
+            logger.log( Level.SEVERE, message, exc );
+            throw new KCLSException( message, exc );
+        }
+        return new DBConfig( props );
+    }
+
+    /**
+     * Copies all Derby properties in this configuration
+     * to the system properties, where the Derby engine reads them
+     * as it boots.
+     * A Derby property that is already set as a system property
+     * is left alone.
+     *
+     * @return the names of the properties that were set
+     */
+    public Set<String> applyDerbyProperties()
+    {
+        Set<String> applied = new TreeSet<>();
+        for ( String key : getDerbyPropertyNames() )
+        {
+            if ( System.getProperty( key ) == null )
+            {
+                System.setProperty( key, properties.getProperty( key ) );
+                applied.add( key );
+            }
+        }
+        if ( !applied.isEmpty() )
+            logger.info( "derby properties applied: " + applied );
+        return applied;
+    }
+
+    /**
+     * Gets the names of all Derby properties in this configuration.
+     *
+     * @return the names of all Derby properties, in order
+     */
+    public Set<String> getDerbyPropertyNames()
+    {
+        Set<String> names   = new TreeSet<>();
+        for ( String key : properties.stringPropertyNames() )
+            if ( key.startsWith( DERBY_PREFIX ) )
+                names.add( key );
+        return Collections.unmodifiableSet( names );
+    }
+
+    /**
+     * Gets the value of a given setting.
+     *
+     * @param key   the name of the given setting
+     * @param def   the value to return if the setting is absent
+     *
+     * @return the value of the given setting, or <em>def</em>
+     */
+    public String getString( String key, String def )
+    {
+        return properties.getProperty( key, def );
+    }
+
+    /**
+     * Gets the value of a given integer setting.
+     *
+     * @param key   the name of the given setting
+     * @param def   the value to return if the setting is absent
+     *
+     * @return the value of the given setting, or <em>def</em>
+     *
+     * @throws KCLSException
+     *      if the setting is present but not a non-negative integer
+     */
+    public int getInt( String key, int def ) throws KCLSException
+    {
+        long    result  = getLong( key, def );
+        if ( result > Integer.MAX_VALUE )
+        {
+            String  message = "invalid configuration: " + key + "=" + result;
+            logger.severe( message );
+            throw new KCLSException( message );
+        }
+        return (int)result;
+    }
+
+    /**
+     * Gets the value of a given long integer setting.
+     *
+     * @param key   the name of the given setting
+     * @param def   the value to return if the setting is absent
+     *
+     * @return the value of the given setting, or <em>def</em>
+     *
+     * @throws KCLSException
+     *      if the setting is present but not a non-negative integer
+     */
+    public long getLong( String key, long def ) throws KCLSException
+    {
+        String  value   = properties.getProperty( key );
+        long    result  = def;
+        if ( value != null )
+        {
+            try
+            {
+                result = Long.parseLong( value.trim() );
+            }
+            catch ( NumberFormatException exc )
+            {
+                result = -1;
+            }
+            if ( result < 0 )
+            {
+                String  message =
+                    "invalid configuration: " + key + "=" + value;
+                logger.severe( message );
+                throw new KCLSException( message );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the URL of the database.
+     *
+     * @return the URL of the database;
+     *         DBConstants.DB_URL by default
+     */
+    public String getDBURL()
+    {
+        return getString( DB_URL_KEY, DB_URL );
+    }
+
+    /**
+     * Gets the user name for database access.
+     *
+     * @return the user name for database access; empty by default
+     */
+    public String getDBUserName()
+    {
+        return getString( DB_USER_KEY, "" );
+    }
+
+    /**
+     * Gets the password for database access.
+     *
+     * @return the password for database access; empty by default
+     */
+    public String getDBPassword()
+    {
+        return getString( DB_PASSWORD_KEY, "" );
+    }
+
+    /**
+     * Gets the JDBC fetch size given to every prepared statement.
+     *
+     * @return the JDBC fetch size; 0 for the driver's default
+     */
+    public int getFetchSize()
+    {
+        return getInt( FETCH_SIZE_KEY, DEF_FETCH_SIZE );
+    }
+
+    /**
+     * Gets the number of rows fetched at a time by CursorPublishers.
+     *
+     * @return the number of rows fetched at a time by CursorPublishers
+     *
+     * @see CursorPublisher#DEF_FETCH_SIZE
+     */
+    public int getPublisherFetchSize()
+    {
+        int fetchSize   =
+            getInt( PUBLISHER_FETCH_SIZE_KEY, CursorPublisher.DEF_FETCH_SIZE );
+        return fetchSize;
+    }
+
+    /**
+     * Gets the maximum number of titles and authors in the entity cache.
+     *
+     * @return the capacity of the entity cache
+     *
+     * @see EntityCache#DEF_CAPACITY
+     */
+    public int getEntityCacheCapacity()
+    {
+        return getInt( ENTITY_CACHE_KEY, EntityCache.DEF_CAPACITY );
+    }
+
+    /**
+     * Gets the memory budget of the list query result cache.
+     *
+     * @return the memory budget, in bytes; 0 disables the cache
+     *
+     * @see ListResultCache#DEF_BUDGET_BYTES
+     */
+    public long getListCacheBudget()
+    {
+        return getLong( LIST_CACHE_KEY, ListResultCache.DEF_BUDGET_BYTES );
+    }
+
+    /**
+     * Gets the name of the list whose old titles are archived.
+     *
+     * @return the name of the list whose old titles are archived
+     *
+     * @see DBServer#archiveTitles()
+     */
+    public String getArchiveListName()
+    {
+        return getString( ARCHIVE_LIST_KEY, DEF_ARCHIVE_LIST );
+    }
+
+    /**
+     * Gets the age, in days since last modification,
+     * at which titles in the archived list are moved to the archive.
+     *
+     * @return the archive age, in days; 0 if archiving is disabled
+     *
+     * @see DBServer#archiveTitles()
+     */
+    public int getArchiveAgeDays()
+    {
+        return getInt( ARCHIVE_AGE_KEY, DEF_ARCHIVE_AGE );
+    }
+
+    /**
+     * Gets the consistency check made at startup.
+     *
+     * @return  CONSISTENCY_OFF, CONSISTENCY_SCAN or CONSISTENCY_REPAIR;
+     *          CONSISTENCY_OFF by default
+     *
+     * @throws KCLSException if the setting has any other value
+     *
+     * @see DBServer#checkConsistency(boolean)
+     */
+    public String getConsistencyCheck() throws KCLSException
+    {
+        String  value   =
+            getString( CONSISTENCY_CHECK_KEY, CONSISTENCY_OFF ).trim();
+        if ( !value.equals( CONSISTENCY_OFF )
+            && !value.equals( CONSISTENCY_SCAN )
+            && !value.equals( CONSISTENCY_REPAIR ) )
+        {
+            String  message =
+                "invalid configuration: " + CONSISTENCY_CHECK_KEY + "=" + value;
+            logger.severe( message );
+            throw new KCLSException( message );
+        }
+        return value;
+    }
+
+    /**
+     * Gets the maximum number of connections used by parallel scans.
+     *
+     * @return  the maximum number of scan connections;
+     *          the number of available processors by default,
+     *          or if the setting is 0 or less
+     *
+     * @see DBServer#scanTitles()
+     */
+    public int getScanConnections()
+    {
+        int     count   = getInt( SCAN_CONNECTIONS_KEY, DEF_SCAN_CONNECTIONS );
+        if ( count <= 0 )
+            count = Runtime.getRuntime().availableProcessors();
+        return count;
+    }
+
+    /**
+     * Gets the number of row IDs fetched at a time
+     * by each parallel scan worker.
+     *
+     * @return  the scan chunk size; DEF_SCAN_CHUNK_SIZE by default,
+     *          or if the setting is 0 or less
+     *
+     * @see DBServer#scanTitles()
+     */
+    public int getScanChunkSize()
+    {
+        int     size    = getInt( SCAN_CHUNK_SIZE_KEY, DEF_SCAN_CHUNK_SIZE );
+        return size > 0 ? size : DEF_SCAN_CHUNK_SIZE;
+    }
+
+    /**
+     * Formats the configuration for logging.
+     * The password, if any, is not shown.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder( "{" );
+        String          delim   = "";
+        for ( String key : new TreeSet<>( properties.stringPropertyNames() ) )
+        {
+            String  value   =
+                key.equals( DB_PASSWORD_KEY ) ? "****"
+                    : properties.getProperty( key );
+            bldr.append( delim ).append( key ).append( "=" ).append( value );
+            delim = ",";
+        }
+        bldr.append( "}" );
+        return bldr.toString();
+    }
+}
@@ -15,6 +15,18 @@ public class DBConstants
     public static final String  LISTS_TABLE_NAME        = "LISTS";
     public static final String  COMMENTS_TABLE_NAME     = "COMMENTS";
     public static final String  ATTRIBUTES_TABLE_NAME   = "ATTRIBUTES";
+    public static final String  QPOS_HISTORY_TABLE_NAME = "QPOS_HISTORY";
+    
+    /** 
+     * Cold partition of the TITLES table: completed titles
+     * moved out of TITLES once they reach a given age.
+     */
+    public static final String  TITLES_ARCHIVE_TABLE_NAME   = 
+        "TITLES_ARCHIVE";
+    
+    /** Cold partition of the COMMENTS table: comments of archived titles */
+    public static final String  COMMENTS_ARCHIVE_TABLE_NAME = 
+        "COMMENTS_ARCHIVE";
     
     /* ****************************************
      * Database Table Field Names
@@ -63,6 +75,36 @@ public class DBConstants
     /** text, e.g. the text of a comment */
     public static final String  TEXT_FIELD              = "text";
     
+    /** 
+     * preview, e.g. the leading characters of the text of a comment
+     * 
+     * @see #PREVIEW_LENGTH
+     */
+    public static final String  PREVIEW_FIELD           = "preview";
+    
+    /** text length, e.g. the length of the full text of a comment */
+    public static final String  TEXT_LENGTH_FIELD       = "text_length";
+    
+    /** The maximum length of a preview */
+    public static final int     PREVIEW_LENGTH          = 255;
+    
+    /** 
+     * The maximum length of a natural title or natural author;
+     * a longer normalized string is truncated.
+     * 
+     * @see #NATURAL_TITLE_FIELD
+     * @see #NATURAL_AUTHOR_FIELD
+     */
+    public static final int     NATURAL_KEY_LENGTH      = 255;
+    
+    /** 
+     * The maximum length of a natural media type;
+     * a longer normalized string is truncated.
+     * 
+     * @see #NATURAL_MEDIA_FIELD
+     */
+    public static final int     NATURAL_MEDIA_LENGTH    = 127;
+    
     /** source, e.g. "library", "amazon" */
     public static final String  SOURCE_FIELD            = "source";
     
@@ -178,7 +220,103 @@ public class DBConstants
      * @see #RECKON_QPOS_FIELD
      */
     public static final String  CHECK_QPOS_FIELD        = "check_qpos";
+
+    /**
+     * Row version, used for optimistic concurrency control.
+     * Incremented every time a row is updated;
+     * an update only succeeds if the version of the row in the database
+     * matches the version of the row when it was read.
+     */
+    public static final String  VERSION_FIELD           = "version";
     
+    /**
+     * ready date
+     * The forecast date on which an on-hold item will be ready,
+     * computed from the item's queue position history.
+     * Null if no forecast is available.
+     * 
+     * @see #QPOS_HISTORY_TABLE_NAME
+     */
+    public static final String  READY_DATE_FIELD        = "ready_date";
+    
+    /** Queue position history id field (primary key) */
+    public static final String  QPOS_HISTORY_ID_FIELD   = "qpos_id";
+    
+    /** Date on which a queue position was observed */
+    public static final String  SAMPLE_DATE_FIELD       = "sample_date";
+    
+    /** An observed queue position */
+    public static final String  QPOS_FIELD              = "qpos";
+    
+    /**
+     * archive date
+     * The date on which a title was moved to the archive.
+     * 
+     * @see #TITLES_ARCHIVE_TABLE_NAME
+     */
+    public static final String  ARCHIVE_DATE_FIELD      = "archive_date";
+    
+    /**
+     * natural title
+     * The normalized text of a title: trimmed, lower case,
+     * with each run of white space replaced by a single space.
+     * Together with the author ID and the natural media type
+     * it uniquely identifies a title.
+     * Maintained by the application, never displayed.
+     * 
+     * @see #NATURAL_MEDIA_FIELD
+     */
+    public static final String  NATURAL_TITLE_FIELD     = "natural_title";
+    
+    /**
+     * natural media type
+     * The normalized media type of a title;
+     * an empty string if the title has no media type.
+     * 
+     * @see #NATURAL_TITLE_FIELD
+     */
+    public static final String  NATURAL_MEDIA_FIELD     = "natural_type";
+    
+    /**
+     * natural author
+     * The normalized name of an author,
+     * which uniquely identifies the author.
+     * Maintained by the application, never displayed.
+     * 
+     * @see #NATURAL_TITLE_FIELD
+     */
+    public static final String  NATURAL_AUTHOR_FIELD    = "natural_author";
+    
+    /**
+     * attribute key
+     * The name of an attribute of a title or author,
+     * for example "format" or "branch".
+     * 
+     * @see #ATTRIBUTES_TABLE_NAME
+     */
+    public static final String  ATTR_KEY_FIELD          = "attr_key";
+    
+    /**
+     * attribute type
+     * Identifies the column that holds the value of an attribute:
+     * S for <em>string value</em>, N for <em>number value</em>
+     * or D for <em>date value</em>.
+     * 
+     * @see #STRING_VALUE_FIELD
+     * @see #NUMBER_VALUE_FIELD
+     * @see #DATE_VALUE_FIELD
+     */
+    public static final String  ATTR_TYPE_FIELD         = "attr_type";
+    
+    /** The value of a string attribute; null for other types */
+    public static final String  STRING_VALUE_FIELD      = "string_value";
+    
+    /** The value of an integer attribute; null for other types */
+    public static final String  NUMBER_VALUE_FIELD      = "number_value";
+    
+    /** The value of a date attribute; null for other types */
+    public static final String  DATE_VALUE_FIELD        = "date_value";
+
     /* ****************************************
      * List types
      */    
@@ -215,6 +353,21 @@ public class DBConstants
     public static final String  TEST_DB_URL             = 
         "jdbc:derby:" + TEST_DB_PATH;
     
+    /**
+     * Suffix of the file, next to the database directory,
+     * that holds a snapshot of the contents of all lists.
+     */
+    public static final String  SNAPSHOT_SUFFIX         = ".snapshot";
+    
+    /** SQL state: a lock could not be obtained within the time allowed */
+    public static final String  LOCK_TIMEOUT_STATE      = "40XL1";
+    
+    /** SQL state: as LOCK_TIMEOUT_STATE, with a dump of the lock table */
+    public static final String  LOCK_TIMEOUT_DUMP_STATE = "40XL2";
+    
+    /** SQL state: the transaction was chosen as the victim of a deadlock */
+    public static final String  DEADLOCK_STATE          = "40001";
+    
     /** Database User Name */
     public static final String  DB_USER_NAME            = "kclsUser";
     
@@ -1,23 +1,68 @@
 package kcls_manager.database;
 
+import static kcls_manager.database.DBConstants.ATTRIBUTES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.COMMENTS_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
 import static kcls_manager.database.DBConstants.DB_URL;
+import static kcls_manager.database.DBConstants.DEADLOCK_STATE;
+import static kcls_manager.database.DBConstants.LISTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.LOCK_TIMEOUT_DUMP_STATE;
+import static kcls_manager.database.DBConstants.LOCK_TIMEOUT_STATE;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_TABLE_NAME;
+import static kcls_manager.database.DBConstants.SNAPSHOT_SUFFIX;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import kcls_manager.database.ConsistencyReport.Problem;
+import kcls_manager.database.DBChangeEvent.Action;
+import kcls_manager.database.DBChangeEvent.Entity;
+import kcls_manager.database.UpsertResult.Outcome;
 import kcls_manager.main.Author;
 import kcls_manager.main.Comment;
+import kcls_manager.main.ConcurrentUpdateException;
+import kcls_manager.main.DeadlockException;
 import kcls_manager.main.KCLSException;
 import kcls_manager.main.KCLSList;
 import kcls_manager.main.LibraryItem;
+import kcls_manager.main.LockTimeoutException;
+import kcls_manager.main.QPosSample;
+import kcls_manager.main.ReadyDateForecaster;
 import kcls_manager.main.Title;
 
 /**
@@ -34,16 +79,57 @@ import kcls_manager.main.Title;
  * e.g. if querying a title requires access to the AUTHORS table,
  * that access is moderated via this class.
  * 
+ * After each committed mutation a DBChangeEvent is published
+ * to all registered DBChangeListeners, so that views and caches
+ * can patch themselves incrementally instead of reloading
+ * whole lists.
+ * 
+ * Titles and authors are cached in a bounded identity map
+ * which is filled by all read paths, and updated or invalidated
+ * by all write paths; repeated lookups of the same entity,
+ * such as the author of every title in a list, are satisfied
+ * from memory.
+ *
+ * Operations that touch more than one row, such as deleting
+ * a title together with its comments, or deleting a list
+ * together with its contents, are executed in a single transaction
+ * using set-based statements wherever possible.
+ *
+ * At shutdown the server drains pending maintenance, checkpoints
+ * the database and shuts it down cleanly, so that the next boot
+ * does not have to recover the transaction log.
+ * DataManager registers a JVM shutdown hook that does this
+ * for the singleton server if the application exits without
+ * calling DataManager.closeConnection.
+ *
  * @author jstra
  *
- *  @TODO   add shutdown hook to DataManager... or property-changed
- *          callback to DBServer?
+ * @see kcls_manager.main.DataManager#closeConnection()
  */
 public class DBServer
 {
     private static final String loggerName  = DBServer.class.getName();
     private static final Logger logger      = Logger.getLogger( loggerName );
     
+    /** Shape of list queries in rank order, for the list cache. */
+    private static final String     byRankShape         = "rank";
+    
+    /** Shape of list queries in ready date order, for the list cache. */
+    private static final String     byReadyDateShape    = "readyDate";
+    
+    /** The names of all tables in the database. */
+    private static final String[]   allTableNames   =
+    {
+        LISTS_TABLE_NAME,
+        COMMENTS_TABLE_NAME,
+        AUTHORS_TABLE_NAME,
+        TITLES_TABLE_NAME,
+        QPOS_HISTORY_TABLE_NAME,
+        ATTRIBUTES_TABLE_NAME,
+        TITLES_ARCHIVE_TABLE_NAME,
+        COMMENTS_ARCHIVE_TABLE_NAME,
+    };
+    
     /** URL of the database. */
     private final String        dbURL;
     /** User name required for access to the database; might not be used. */
@@ -69,12 +155,80 @@ public class DBServer
     /** Object representing the TITLES table */
     private final TitlesTable   titlesTable;
 
+    /** Object representing the QPOS_HISTORY table */
+    private final QPosHistoryTable  qposHistoryTable;
+
+    /** Computes the state stamp of the database */
+    private final DBStateStamp      dbStateStamp;
+
+    /** Object representing the ATTRIBUTES table */
+    private final AttributesTable   attributesTable;
+
+    /** Finds and repairs referential integrity problems */
+    private final ConsistencyScanner    consistencyScanner;
+    
+    /** True if a snapshot of all lists is written at shutdown. */
+    private volatile boolean        snapshotOnShutdown  = true;
+    
+    /** True if the database is checkpointed and shut down at shutdown. */
+    private volatile boolean        shutdownDatabase    = true;
+
     /**
      * List of resources, such as Statements and PreparedStatements,
      * that need to be closed when no longer needed.
      */
     private final List<AutoCloseable> allCloseables   = new ArrayList<>();
     
+    /** Listeners to be notified after each committed mutation. */
+    private final List<DBChangeListener>    changeListeners = 
+        new CopyOnWriteArrayList<>();
+    
+    /**
+     * Executor used to deliver change events to listeners.
+     * By default events are delivered synchronously, on the thread
+     * that performed the mutation.
+     */
+    private volatile Executor   changeExecutor  = Runnable::run;
+    
+    /** Runtime configuration: fetch sizes, cache sizes, etc. */
+    private final DBConfig      config;
+    
+    /** Identity map of recently used titles and authors. */
+    private final EntityCache   entityCache;
+    
+    /** Results of list queries, validated by per-list versions. */
+    private final ListResultCache   listCache;
+    
+    /** Collects runtime statistics for prepared statements. */
+    private final StatementDiagnostics  diagnostics;
+    
+    /** Compresses tables and refreshes their statistics. */
+    private final MaintenanceScheduler  maintenance;
+    
+    /** Reports statements that are waiting for locks. */
+    private final LockWatchdog          lockWatchdog;
+    
+    /** Read-only connections used by parallel scans. */
+    private final ConnectionPool        scanPool;
+    
+    /** Determines whether transactions that fail are retried. */
+    private volatile RetryPolicy        retryPolicy = RetryPolicy.DEFAULT;
+    
+    /**
+     * Confines a transaction on this server's connection 
+     * to the thread that began it.
+     * A thread that begins a transaction while another thread's
+     * transaction is in progress waits for it to end,
+     * rather than joining it;
+     * the hold count is the nesting depth of the current thread.
+     */
+    private final ReentrantLock         transactionLock = 
+        new ReentrantLock();
+    
+    /** Counts the outcomes of transactions, including retries. */
+    private final RetryStatistics       retryStatistics =
+        new RetryStatistics();
+    
     /**
      * Default constructor.
      */
@@ -96,22 +250,129 @@ public class DBServer
     
     /**
      * Constructor that provides all parameters needed to access the database.
+     * All other settings are defaulted.
      * 
      * @param dbURL         URL for database access
      * @param dbUserName    user name for database access
      * @param dbPassword    password for database access
      */
     public DBServer( String dbURL, String dbUserName, String dbPassword ) 
+    {
+        this( dbURL, dbUserName, dbPassword, new DBConfig() );
+    }
+    
+    /**
+     * Constructor that takes the URL, user name and password
+     * needed to access the database from a given configuration,
+     * along with all other settings.
+     * 
+     * @param config    the given configuration
+     * 
+     * @see kcls_manager.main.DataManager#getConfig()
+     */
+    public DBServer( DBConfig config )
+    {
+        this( 
+            config.getDBURL(), 
+            config.getDBUserName(), 
+            config.getDBPassword(), 
+            config
+        );
+    }
+    
+    /**
+     * Constructor that provides all parameters needed to access 
+     * the database, and a configuration for all other settings.
+     * The URL, user name and password in the configuration are ignored.
+     * Derby properties in the configuration must already have been
+     * applied if they are to take effect.
+     * 
+     * @param dbURL         URL for database access
+     * @param dbUserName    user name for database access
+     * @param dbPassword    password for database access
+     * @param config        configuration for all other settings
+     * 
+     * @see DBConfig#applyDerbyProperties()
+     */
+    public DBServer( 
+        String      dbURL, 
+        String      dbUserName, 
+        String      dbPassword,
+        DBConfig    config
+    ) 
+    {
+        this( 
+            dbURL, 
+            dbUserName, 
+            dbPassword, 
+            config,
+            new EntityCache( config.getEntityCacheCapacity() ),
+            new ListResultCache( config.getListCacheBudget() )
+        );
+    }
+    
+    /**
+     * Constructor that provides all parameters needed to access 
+     * the database, a configuration for all other settings,
+     * and the caches to use.
+     * 
+     * @param dbURL         URL for database access
+     * @param dbUserName    user name for database access
+     * @param dbPassword    password for database access
+     * @param config        configuration for all other settings
+     * @param entityCache   the cache of recently used titles and authors
+     * @param listCache     the cache of list query results
+     * 
+     * @see #openSession()
+     */
+    private DBServer( 
+        String          dbURL, 
+        String          dbUserName, 
+        String          dbPassword,
+        DBConfig        config,
+        EntityCache     entityCache,
+        ListResultCache listCache
+    ) 
     {
         this.dbURL = dbURL;
         this.dbUserName = dbUserName;
         this.dbPassword = dbPassword;
+        this.config = config;
+        this.entityCache = entityCache;
+        this.listCache = listCache;
         connection = connectToDatabase();
+        diagnostics = new StatementDiagnostics( connection );
+        diagnostics.setFetchSize( config.getFetchSize() );
+        maintenance = 
+            new MaintenanceScheduler( 
+                dbURL, 
+                dbUserName, 
+                dbPassword,
+                diagnostics::getLastActivityTime
+            );
+        lockWatchdog = 
+            new LockWatchdog( 
+                dbURL, 
+                dbUserName, 
+                dbPassword,
+                diagnostics::getExecuting
+            );
+        scanPool = 
+            new ConnectionPool( 
+                dbURL, 
+                dbUserName, 
+                dbPassword,
+                config.getScanConnections()
+            );
         
         listsTable = new ListsTable( this );
         commentsTable = new CommentsTable( this );
         authorsTable = new AuthorsTable( this );
         titlesTable = new TitlesTable( this );
+        qposHistoryTable = new QPosHistoryTable( this );
+        dbStateStamp = new DBStateStamp( this );
+        attributesTable = new AttributesTable( this );
+        consistencyScanner = new ConsistencyScanner( this );
     }
     
     /**
@@ -120,6 +381,8 @@ public class DBServer
      * during shutdown. If the statement needs to be closed prior
      * to shutdown use <em>surrenderPreparedStatement</em>.
      * This method should be used only by other database classes.
+     * The statement is instrumented for diagnostics;
+     * see <em>setDiagnosticsEnabled</em>.
      * 
      * @param   sql     the SQL command associated with the 
      *                  prepared statement.
@@ -140,19 +403,54 @@ public class DBServer
         PreparedStatement   statement   = null;
         try
         {
-            statement = connection.prepareStatement( sql, flags );
+            PreparedStatement   prepared    = 
+                connection.prepareStatement( sql, flags );
+            int                 fetchSize   = diagnostics.getFetchSize();
+            if ( fetchSize > 0 )
+                prepared.setFetchSize( fetchSize );
+            statement = diagnostics.wrap( prepared, sql );
             allCloseables.add( statement );
         }
         catch ( SQLException exc )
         {
             String  message = "failed to acquire prepared statement";
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         
         return statement;
     }
     
+    /**
+     * Gets a prepared statement that is not prepared
+     * until it is first used.
+     * This is the preferred method for the table classes,
+     * which create all of their statements at construction time;
+     * deferring preparation keeps the cost of starting the server
+     * down to the cost of opening the connection.
+     * Note that errors in the SQL command are not detected
+     * until the statement is first used.
+     * Otherwise the statement behaves as a statement obtained
+     * via <em>getPreparedStatement</em>.
+     * 
+     * @param   sql     the SQL command associated with the 
+     *                  prepared statement.
+     *                  
+     * @param   flags   Statement.RETURN_GENERATED_KEYS or
+     *                  Statement.NO_GENERATED_KEYS
+     * 
+     * @return  a prepared statement for connected to the database
+     * 
+     * @see #getPreparedStatement(String, int)
+     */
+    public PreparedStatement 
+    getLazyPreparedStatement( String sql, int flags )
+    {
+        PreparedStatement   statement   = diagnostics.wrapLazy( sql, flags );
+        allCloseables.add( statement );
+        return statement;
+    }
+    
     /**
      * Frees the resources associated with a prepared statement
      * obtained via <em>getPreparedStatement.</em>.
@@ -180,10 +478,158 @@ public class DBServer
         {
             String  message = "failed to close prepared statement";
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
+    /**
+     * Gets the cache of recently used titles and authors.
+     * Mainly used to monitor cache statistics.
+     *
+     * @return the cache of recently used titles and authors
+     */
+    public EntityCache getEntityCache()
+    {
+        return entityCache;
+    }
+    
+    /**
+     * Gets the cache of list query results.
+     * Mainly used to monitor cache statistics.
+     *
+     * @return the cache of list query results
+     */
+    public ListResultCache getListResultCache()
+    {
+        return listCache;
+    }
+
+    /**
+     * Enables or disables statement diagnostics.
+     * While diagnostics are enabled Derby runtime statistics
+     * are collected for every execution of every prepared statement
+     * obtained via <em>getPreparedStatement</em>,
+     * i.e. all statements used by the table classes.
+     * Collecting statistics is expensive;
+     * diagnostics should not be enabled in normal operation.
+     *
+     * @param enable    true to enable diagnostics, false to disable
+     *
+     * @throws KCLSException if an error occurs
+     *
+     * @see #getDiagnostics()
+     * @see #getDiagnosticsReport()
+     */
+    public void setDiagnosticsEnabled( boolean enable )
+    {
+        try
+        {
+            diagnostics.setEnabled( enable );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "set diagnostics", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+    }
+
+    /**
+     * Gets the object that collects statement diagnostics.
+     * Mainly used to examine the statistics collected for
+     * individual statements.
+     *
+     * @return the object that collects statement diagnostics
+     *
+     * @see #setDiagnosticsEnabled(boolean)
+     */
+    public StatementDiagnostics getDiagnostics()
+    {
+        return diagnostics;
+    }
+
+    /**
+     * Produces a report of the statement diagnostics collected
+     * so far: for each statement the access paths used
+     * (table or index scan, and the index used),
+     * and rows visited versus rows returned.
+     * Frequently executed statements that fall back to a table scan
+     * are flagged.
+     * Any result sets that have not yet been closed are closed
+     * in order to complete their statistics.
+     *
+     * @return a report of the statement diagnostics collected so far
+     *
+     * @throws KCLSException if an error occurs
+     *
+     * @see #setDiagnosticsEnabled(boolean)
+     * @see StatementDiagnostics#getReport()
+     */
+    public String getDiagnosticsReport()
+    {
+        try
+        {
+            diagnostics.flush();
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "diagnostics report", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return diagnostics.getReport();
+    }
+
+    /**
+     * Registers a listener to be notified after each
+     * committed mutation.
+     * Changes to the comments of a title or author made via
+     * <em>insertCommentsFor</em>, <em>synchronizeCommentsFor</em>
+     * or <em>deleteCommentsFor</em> are adjuncts of title and
+     * author operations, and are reported via the event
+     * for the owning title or author.
+     *
+     * @param listener  the listener to register
+     *
+     * @see #removeChangeListener(DBChangeListener)
+     */
+    public void addChangeListener( DBChangeListener listener )
+    {
+        changeListeners.add( listener );
+    }
+
+    /**
+     * Removes a listener previously registered via
+     * <em>addChangeListener</em>.
+     *
+     * @param listener  the listener to remove
+     *
+     * @see #addChangeListener(DBChangeListener)
+     */
+    public void removeChangeListener( DBChangeListener listener )
+    {
+        changeListeners.remove( listener );
+    }
+
+    /**
+     * Sets the executor used to deliver change events to listeners.
+     * By default events are delivered synchronously on the thread
+     * that performed the mutation; to deliver events on the
+     * event dispatch thread, for example, use
+     * <em>SwingUtilities::invokeLater</em>.
+     *
+     * @param executor  the executor used to deliver change events
+     *
+     * @throws NullPointerException if <em>executor</em> is null
+     */
+    public void setChangeExecutor( Executor executor )
+        throws NullPointerException
+    {
+        if ( executor == null )
+            throw new NullPointerException( "change executor" );
+        changeExecutor = executor;
+    }
+
     /**
      * Delete all rows from a given table.
      * This is probably only necessary during testing.
@@ -199,17 +645,227 @@ public class DBServer
         {
             String  sql = "DELETE FROM " +listName + " WHERE 1=1";
             statement.executeUpdate( sql );
+            evictAll();
             logger.info( "table: " + listName + " truncated" );
         }
         catch ( SQLException exc )
         {
             String  message = "Failure to truncate table: " + listName;
             logger.severe( message );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         logger.info( "table: " + listName + " truncated" );
     }
     
+    /**
+     * Schedules table maintenance to run periodically,
+     * whenever the database has been idle for a given time.
+     * Each maintenance pass compresses the tables that see
+     * the most churn (TITLES and COMMENTS),
+     * and refreshes their optimizer statistics.
+     * Any previous schedule is cancelled.
+     * 
+     * @param period        the period between maintenance attempts
+     * @param unit          the unit of the period
+     * @param idleMillis    the minimum time, in milliseconds,
+     *                      since the last database activity;
+     *                      0 to perform maintenance unconditionally
+     * 
+     * @see MaintenanceScheduler
+     */
+    public void startMaintenance( long period, TimeUnit unit, long idleMillis )
+    {
+        maintenance.start( period, unit, idleMillis );
+    }
+    
+    /**
+     * Cancels scheduled table maintenance, if any.
+     */
+    public void stopMaintenance()
+    {
+        maintenance.stop();
+    }
+    
+    /**
+     * Performs a table maintenance pass immediately.
+     * 
+     * @return the result of maintaining each table
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see MaintenanceScheduler#runMaintenance()
+     */
+    public List<MaintenanceResult> runMaintenance() throws KCLSException
+    {
+        return maintenance.runMaintenance();
+    }
+    
+    /**
+     * Gets the object that schedules table maintenance,
+     * mainly to configure it, or to monitor its results.
+     * 
+     * @return the object that schedules table maintenance
+     */
+    public MaintenanceScheduler getMaintenanceScheduler()
+    {
+        return maintenance;
+    }
+    
+    /**
+     * Starts watching for statements that take longer than
+     * a given threshold to execute; for each such statement
+     * a snapshot of the database's lock and transaction tables
+     * is logged, identifying the transactions that are blocking it.
+     * Any previous watch is cancelled.
+     * 
+     * @param thresholdMillis   the latency threshold, in milliseconds
+     * @param periodMillis      the interval between checks,
+     *                          in milliseconds
+     * 
+     * @see LockWatchdog
+     */
+    public void startLockWatchdog( long thresholdMillis, long periodMillis )
+    {
+        lockWatchdog.start( thresholdMillis, periodMillis );
+    }
+    
+    /**
+     * Stops watching for slow statements, if started.
+     */
+    public void stopLockWatchdog()
+    {
+        lockWatchdog.stop();
+    }
+    
+    /**
+     * Gets the object that watches for slow statements,
+     * mainly to take snapshots of the lock tables on demand,
+     * or to retrieve the most recent snapshot.
+     * 
+     * @return the object that watches for slow statements
+     */
+    public LockWatchdog getLockWatchdog()
+    {
+        return lockWatchdog;
+    }
+    
+    /**
+     * Opens a session on the database: a second server,
+     * with a connection of its own, that shares this server's caches,
+     * configuration and change listeners.
+     * A session allows long running work, such as a consistency check,
+     * to be done on a background thread
+     * without sharing this server's connection;
+     * titles and authors changed by the session are evicted
+     * from this server's caches,
+     * and change events are delivered to this server's listeners.
+     * A session must be closed with <em>shutdown</em>,
+     * which closes its connection but leaves the database running.
+     * 
+     * @return a session on the database
+     * 
+     * @throws KCLSException if the session cannot connect to the database
+     */
+    public DBServer openSession() throws KCLSException
+    {
+        DBServer    session = 
+            new DBServer( 
+                dbURL, 
+                dbUserName, 
+                dbPassword, 
+                config, 
+                entityCache, 
+                listCache
+            );
+        session.changeListeners.addAll( changeListeners );
+        session.changeExecutor = changeExecutor;
+        session.retryPolicy = retryPolicy;
+        session.setSnapshotOnShutdown( false );
+        session.setShutdownDatabase( false );
+        logger.info( "session opened on: " + dbURL );
+        return session;
+    }
+    
+    /**
+     * Gets the runtime configuration of this server.
+     * 
+     * @return the runtime configuration of this server
+     */
+    public DBConfig getConfig()
+    {
+        return config;
+    }
+    
+    /**
+     * Sets the policy that determines whether, and when,
+     * a transaction that fails because of a deadlock or lock timeout
+     * is retried.
+     * 
+     * @param retryPolicy   the retry policy; 
+     *                      RetryPolicy.NONE to disable retries
+     */
+    public void setRetryPolicy( RetryPolicy retryPolicy )
+    {
+        this.retryPolicy = retryPolicy;
+    }
+    
+    /**
+     * Gets the policy that determines whether, and when,
+     * a failed transaction is retried.
+     * 
+     * @return the retry policy
+     */
+    public RetryPolicy getRetryPolicy()
+    {
+        return retryPolicy;
+    }
+    
+    /**
+     * Gets the counts of transactions executed, retried,
+     * recovered by retrying, and failed after retrying.
+     * 
+     * @return the retry statistics
+     */
+    public RetryStatistics getRetryStatistics()
+    {
+        return retryStatistics;
+    }
+    
+    /**
+     * Warms up the database by executing a trivial query
+     * against each table, so that the tables (and their indexes)
+     * are opened and their first pages read
+     * before the first query that a user is waiting for.
+     * This is typically executed on a background thread
+     * immediately after the server is started.
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see kcls_manager.main.DataManager#startDBServerAsync()
+     */
+    public void warmUp() throws KCLSException
+    {
+        for ( String tableName : allTableNames )
+        {
+            String  sql = "SELECT COUNT(*) FROM " + tableName;
+            try ( 
+                Statement statement = connection.createStatement();
+                ResultSet rSet      = statement.executeQuery( sql );
+            )
+            {
+                rSet.next();
+            }
+            catch ( SQLException exc )
+            {
+                String  message = 
+                    formatSQLError( "warm up " + tableName, exc );
+                logger.log( Level.SEVERE, message, exc );
+                throw translateSQLException( message, exc );
+            }
+        }
+        logger.info( "warm up complete" );
+    }
+    
     /**
      * Add a new record to the COMMENTS table. 
      *
@@ -223,13 +879,16 @@ public class DBServer
         {
             logger.info( "inserting comment " );
             commentsTable.insertComment( comment );
+            evictOwner( comment );
             logger.info( "comment inserted" );
+            int     ident   = comment.getIdent().orElse( -1 );
+            publishChange( Action.INSERTED, Entity.COMMENT, ident, null );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Insert comment", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -240,6 +899,9 @@ public class DBServer
      * 
      * @param comment   the given row
      * 
+     * @throws ConcurrentUpdateException
+     *      if the row was modified or deleted by another client
+     *      since it was fetched
      * @throws KCLSException if an error occurs
      */
     public void updateComment( Comment comment ) throws KCLSException
@@ -247,14 +909,19 @@ public class DBServer
         try
         {
             logger.info( "updating comment " );
+            // evict first so that a conflicting update doesn't leave
+            // a stale owner in the cache
+            evictOwner( comment );
             commentsTable.updateComment( comment );
             logger.info( "comment updated" );
+            int     ident   = comment.getIdent().orElse( -1 );
+            publishChange( Action.UPDATED, Entity.COMMENT, ident, null );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Update comment", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -273,13 +940,16 @@ public class DBServer
         {
             logger.info( "updating comment " );
             commentsTable.deleteComment( comment );
+            evictOwner( comment );
             logger.info( "comment updated" );
+            int     ident   = comment.getIdent().orElse( -1 );
+            publishChange( Action.DELETED, Entity.COMMENT, ident, null );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Update comment", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -299,13 +969,14 @@ public class DBServer
         {
             logger.info( "deleting comments for LibraryItem" );
             commentsTable.deleteCommentsFor( item );
+            evict( item );
             logger.info( "comments for LibraryItem deleted" );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Update comment", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -332,32 +1003,104 @@ public class DBServer
         {
             String  message = formatSQLError( "Get comment", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return comment;
     }
     
     /**
-     * Get all comments from the COMMENTS table.
+     * Loads the full text of a given comment,
+     * if only a preview of its text has been loaded.
+     * Comments retrieved from the database with long text
+     * carry only a preview of the text
+     * until this method is called.
      * 
-     * @return  a (possibly empty) list of all rows in the COMMENTS table
+     * @param comment   the given comment
      * 
-     * @throws KCLSException if an error occurs
+     * @throws KCLSException 
+     *      if the comment does not have a row ID,
+     *      is not found in the database,
+     *      or if an error occurs
+     *      
+     * @see Comment#isTextLoaded()
      */
-    public List<Comment> getAllComments() throws KCLSException
+    public void loadCommentText( Comment comment ) throws KCLSException
     {
-        List<Comment>  comments    = null;
         try
         {
-            logger.info( "getting all comments " );
-            comments = commentsTable.getAllComments();
-            logger.info( "all comments retrieved" );
+            commentsTable.loadText( comment );
         }
         catch ( SQLException exc )
         {
-            String  message = formatSQLError( "Get all comments", exc );
+            String  message = formatSQLError( "Load comment text", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
+        }
+    }
+    
+    /**
+     * Streams the full text of a comment, given the comment's row ID,
+     * to a given consumer.
+     * The consumer is passed a Reader
+     * that reads the text directly from the database;
+     * the Reader is valid only for the duration of the call
+     * to the consumer,
+     * and the consumer must not use this DBServer.
+     * If the comment has no text the consumer is not called.
+     * 
+     * @param ident     the given row ID
+     * @param consumer  the given consumer
+     * 
+     * @return  true if the comment was found
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, 
+     *      including an IOException thrown by the consumer
+     */
+    public boolean readCommentText( int ident, TextConsumer consumer )
+        throws KCLSException
+    {
+        boolean found   = false;
+        try
+        {
+            found = commentsTable.readText( ident, consumer );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "Read comment text", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        catch ( IOException exc )
+        {
+            String  message = "Read comment text failed: " + ident;
+            logger.log( Level.SEVERE, message, exc );
+            throw new KCLSException( message, exc );
+        }
+        return found;
+    }
+    
+    /**
+     * Get all comments from the COMMENTS table.
+     * 
+     * @return  a (possibly empty) list of all rows in the COMMENTS table
+     * 
+     * @throws KCLSException if an error occurs
+     */
+    public List<Comment> getAllComments() throws KCLSException
+    {
+        List<Comment>  comments    = null;
+        try
+        {
+            logger.info( "getting all comments " );
+            comments = commentsTable.getAllComments();
+            logger.info( "all comments retrieved" );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "Get all comments", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
         }
         return comments;
     }
@@ -383,7 +1126,7 @@ public class DBServer
         {
             String  message = formatSQLError( "Get all title comments", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -406,14 +1149,18 @@ public class DBServer
         {
             String  name    = author.getAuthor();
             logger.info( "updating comments for author: " + name );
-            commentsTable.synchronizeCommentsFor( author );
+            runInTransaction(
+                () -> commentsTable.synchronizeCommentsFor( author ),
+                author
+            );
+            evict( author );
             logger.info( "update comments complete for author: " + name );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Update author comments", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -433,13 +1180,14 @@ public class DBServer
             String  name    = author.getAuthor();
             logger.info( "inserting comments for author: " + name );
             commentsTable.insertCommentsFor( author );
+            evict( author );
             logger.info( "insert comments complete for author: " + name );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Insert author comments", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -459,13 +1207,14 @@ public class DBServer
             String  name    = title.getTitle();
             logger.info( "inserting comments for title: " + name );
             commentsTable.insertCommentsFor( title );
+            evict( title );
             logger.info( "insert comments complete for title: " + name );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Insert ti comments", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -487,14 +1236,18 @@ public class DBServer
         try
         {
             logger.info( "getting all title comments " );
-            commentsTable.synchronizeCommentsFor( title );
+            runInTransaction(
+                () -> commentsTable.synchronizeCommentsFor( title ),
+                title
+            );
+            evict( title );
             logger.info( "all title comments retrieved" );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Get all title comments", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -519,7 +1272,7 @@ public class DBServer
         {
             String  message = formatSQLError( "Get all author comments", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -538,12 +1291,14 @@ public class DBServer
             logger.info( "inserting list " + listName );
             listsTable.insertList( list );
             logger.info( listName + " inserted" );
+            int     ident   = list.getIdent().orElse( -1 );
+            publishChange( Action.INSERTED, Entity.LIST, ident, listName );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Insert list", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -562,43 +1317,97 @@ public class DBServer
             String  listName    = list.getDialogTitle();
             logger.info( "updating list " + listName );
             listsTable.updateList( list );
+            evictAll();
             logger.info( listName + " updated" );
+            int     ident   = list.getIdent().orElse( -1 );
+            publishChange( Action.UPDATED, Entity.LIST, ident, listName );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Update list", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
     /**
-     * Delete an existing record from the LISTS table.
+     * Delete an existing record from the LISTS table,
+     * together with all titles or authors in the list
+     * and their comments.
      * The record must have been previously read from the table. 
+     * All changes are made in a single transaction.
      *
      * @param list  the list to delete
      * 
      * @throws KCLSException if an error occurs
-*/
+     * 
+     * @see #deleteList(KCLSList, KCLSList)
+     */
     public void deleteList( KCLSList list ) throws KCLSException
     {
+        deleteList( list, null );
+    }
+    
+    /**
+     * Delete an existing record from the LISTS table.
+     * Titles or authors in the list are moved to a given list;
+     * if the given list is null they are deleted,
+     * together with their comments.
+     * The record must have been previously read from the table. 
+     * All changes are made in a single transaction.
+     *
+     * @param list          the list to delete
+     * @param reassignTo    the list to move the contents of
+     *                      the deleted list to; may be null
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if the deleted list and the list
+     *      to move its contents to are not of the same type
+     */
+    public void deleteList( KCLSList list, KCLSList reassignTo ) 
+        throws KCLSException
+    {
+        String  listName    = list.getDialogTitle();
         try
         {
-            String  listName    = list.getDialogTitle();
+            int     ident       = getListIdent( list );
+            int     toIdent     = -1;
+            String  toName      = null;
+            if ( reassignTo != null )
+            {
+                if ( reassignTo.getListType() != list.getListType() )
+                {
+                    String  message = 
+                        "Can't move contents of list " + listName
+                        + " to list of a different type: " 
+                        + reassignTo.getDialogTitle();
+                    logger.severe( message );
+                    throw new KCLSException( message );
+                }
+                toIdent = getListIdent( reassignTo );
+                toName = reassignTo.getDialogTitle();
+            }
+            
             logger.info( "deleting list " + listName );
-            listsTable.deleteList( list );
+            deleteList( ident, toIdent );
             logger.info( listName + " deleted" );
+            publishChange( Action.DELETED, Entity.LIST, ident, listName );
+            if ( toIdent > 0 )
+                publishChange( Action.UPDATED, Entity.LIST, toIdent, toName );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Delete list", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
     /**
-     * Delete an existing record from the LISTS table.
+     * Delete an existing record from the LISTS table,
+     * together with all titles or authors in the list
+     * and their comments.
+     * All changes are made in a single transaction.
      *
      * @param ident  the ID of the list to delete
      * 
@@ -609,14 +1418,15 @@ public class DBServer
         try
         {
             logger.info( "deleting list " + ident );
-            listsTable.deleteList( ident );
+            deleteList( ident, -1 );
             logger.info( "List deleted: " + ident );
+            publishChange( Action.DELETED, Entity.LIST, ident, null );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Delete list", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
 
@@ -640,11 +1450,243 @@ public class DBServer
         {
             String  message = formatSQLError( "Get all lists", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return allLists;
     }
     
+    /**
+     * Gets the database state stamp:
+     * a fingerprint of the contents of all lists, titles and authors,
+     * which changes whenever any of them changes.
+     * 
+     * @return the database state stamp
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see DBStateStamp
+     */
+    public long getStateStamp() throws KCLSException
+    {
+        long    stamp   = 0;
+        try
+        {
+            stamp = dbStateStamp.getStateStamp();
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "Get state stamp", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return stamp;
+    }
+    
+    /**
+     * Creates a snapshot of the contents of all lists.
+     * The state stamp is read before the lists,
+     * so a change made while the snapshot is being created
+     * can only make the snapshot appear out of date, never current.
+     * 
+     * @return a snapshot of the contents of all lists
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see ListSnapshot
+     */
+    public ListSnapshot createSnapshot() throws KCLSException
+    {
+        ListSnapshot    snapshot    = new ListSnapshot( getStateStamp() );
+        for ( KCLSList list : getAllLists() )
+        {
+            String  listName    = list.getDialogTitle();
+            if ( list.getListType() == TITLE_TYPE )
+                snapshot.addTitleList( list, getTitlesForList( listName ) );
+            else if ( list.getListType() == AUTHOR_TYPE )
+                snapshot.addAuthorList( list, getAuthorsForList( listName ) );
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Writes a snapshot of the contents of all lists
+     * to the snapshot file next to the database.
+     * Nothing is written if the database has no snapshot file,
+     * for example an in-memory database.
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see #getSnapshotPath(String)
+     */
+    public void writeSnapshot() throws KCLSException
+    {
+        Optional<Path>  path    = getSnapshotPath( dbURL );
+        if ( !path.isPresent() )
+            return;
+        
+        long            start       = System.currentTimeMillis();
+        ListSnapshot    snapshot    = createSnapshot();
+        try
+        {
+            snapshot.write( path.get() );
+        }
+        catch ( IOException exc )
+        {
+            String  message = "failed to write snapshot: " + path.get();
+            logger.log( Level.SEVERE, message, exc );
+            throw new KCLSException( message, exc );
+        }
+        long            elapsed     = System.currentTimeMillis() - start;
+        logger.info( 
+            "snapshot written to " + path.get() + " in " + elapsed + "ms"
+        );
+    }
+    
+    /**
+     * Indicates whether a given snapshot reflects the current
+     * contents of the database.
+     * 
+     * @param snapshot  the given snapshot
+     * 
+     * @return  true if the given snapshot reflects the current
+     *          contents of the database
+     * 
+     * @throws KCLSException if an error occurs
+     */
+    public boolean isSnapshotCurrent( ListSnapshot snapshot ) 
+        throws KCLSException
+    {
+        return snapshot.getStateStamp() == getStateStamp();
+    }
+    
+    /**
+     * Determines whether a snapshot of all lists is written
+     * when this server shuts down. The default is true.
+     * 
+     * @param snapshotOnShutdown    true to write a snapshot at shutdown
+     */
+    public void setSnapshotOnShutdown( boolean snapshotOnShutdown )
+    {
+        this.snapshotOnShutdown = snapshotOnShutdown;
+    }
+    
+    /**
+     * Indicates whether a snapshot of all lists is written
+     * when this server shuts down.
+     * 
+     * @return true if a snapshot is written at shutdown
+     */
+    public boolean isSnapshotOnShutdown()
+    {
+        return snapshotOnShutdown;
+    }
+    
+    /**
+     * Determines whether the database is checkpointed and shut down
+     * when this server shuts down. The default is true.
+     * A database that is not shut down is recovered
+     * from its transaction log when it is next booted.
+     * 
+     * @param shutdownDatabase  true to shut down the database
+     */
+    public void setShutdownDatabase( boolean shutdownDatabase )
+    {
+        this.shutdownDatabase = shutdownDatabase;
+    }
+    
+    /**
+     * Indicates whether the database is checkpointed and shut down
+     * when this server shuts down.
+     * 
+     * @return true if the database is shut down
+     */
+    public boolean isShutdownDatabase()
+    {
+        return shutdownDatabase;
+    }
+    
+    /**
+     * Gets the URL that shuts down the database with the given URL:
+     * the given URL without its attributes, 
+     * followed by <em>;shutdown=true</em>.
+     * 
+     * @param dbURL the given URL
+     * 
+     * @return the URL that shuts down the database
+     */
+    public static String getShutdownURL( String dbURL )
+    {
+        int     semi    = dbURL.indexOf( ';' );
+        String  base    = semi < 0 ? dbURL : dbURL.substring( 0, semi );
+        return base + ";shutdown=true";
+    }
+    
+    /**
+     * Gets the path to the snapshot file for the database
+     * with the given URL. The snapshot file is next to
+     * the database directory, for example
+     * <em>src/main/resources/kclsDB.snapshot</em>.
+     * 
+     * @param dbURL the given URL
+     * 
+     * @return  the path to the snapshot file, or empty if the
+     *          database is not stored in a directory
+     */
+    public static Optional<Path> getSnapshotPath( String dbURL )
+    {
+        final String    protocol    = "jdbc:derby:";
+        final String    subProtocol = "directory:";
+        
+        Optional<Path>  path        = Optional.empty();
+        if ( dbURL.startsWith( protocol ) )
+        {
+            String  dbName  = dbURL.substring( protocol.length() );
+            int     semi    = dbName.indexOf( ';' );
+            if ( semi >= 0 )
+                dbName = dbName.substring( 0, semi );
+            if ( dbName.startsWith( subProtocol ) )
+                dbName = dbName.substring( subProtocol.length() );
+            
+            // other subprotocols (memory:, jar:, classpath:) 
+            // have no directory to put the snapshot next to
+            boolean hasSubProtocol  = dbName.matches( "\\p{Alpha}{2,}:.*" );
+            if ( !dbName.isEmpty() && !hasSubProtocol )
+                path = Optional.of( Paths.get( dbName + SNAPSHOT_SUFFIX ) );
+        }
+        return path;
+    }
+    
+    /**
+     * Reads the snapshot of all lists for the database 
+     * with the given URL, without accessing the database.
+     * The snapshot may be out of date; once the database is available
+     * use <em>isSnapshotCurrent</em> to validate it.
+     * 
+     * @param dbURL the given URL
+     * 
+     * @return  the snapshot, or empty if there is no valid snapshot
+     * 
+     * @see #isSnapshotCurrent(ListSnapshot)
+     */
+    public static Optional<ListSnapshot> readSnapshot( String dbURL )
+    {
+        Optional<Path>          path        = getSnapshotPath( dbURL );
+        Optional<ListSnapshot>  snapshot    = Optional.empty();
+        if ( path.isPresent() && Files.exists( path.get() ) )
+        {
+            try
+            {
+                snapshot = Optional.of( ListSnapshot.read( path.get() ) );
+            }
+            catch ( IOException exc )
+            {
+                String  message = "ignoring invalid snapshot: " + path.get();
+                logger.log( Level.WARNING, message, exc );
+            }
+        }
+        return snapshot;
+    }
+    
     /**
      * Returns a list of all lists of type TITLE_TYPE.
      * 
@@ -664,7 +1706,7 @@ public class DBServer
         {
             String  message = formatSQLError( "Get title lists", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return titleLists;
     }
@@ -682,7 +1724,7 @@ public class DBServer
         {
             String  message = formatSQLError( "Get author lists", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return titleLists;
     }
@@ -702,7 +1744,7 @@ public class DBServer
         {
             String  message = formatSQLError( "Get list ID for " + listName, exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return ident;
     }
@@ -735,7 +1777,7 @@ public class DBServer
         {
             String  message = formatSQLError( "Get list for ident", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return list;
     }
@@ -751,15 +1793,120 @@ public class DBServer
         try
         {
             logger.info( "inserting author: " + name );
-            authorsTable.insertAuthor( author );
+            runInTransaction( () -> {
+                authorsTable.insertAuthor( author );
+                attributesTable.insertAttributes( 
+                    AUTHOR_TYPE, 
+                    Collections.singletonList( author )
+                );
+            }, author );
+            entityCache.put( author );
             logger.info( "inserted author: " + name );
+            publishChange( Action.INSERTED, author );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Insert author", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
+        }
+    }
+    
+    /**
+     * Inserts or updates a collection of authors,
+     * matching each author to an existing row by its natural key:
+     * its normalized name.
+     * Authors are merged with Derby's MERGE statement
+     * in batches of up to Table.MAX_IN_LIST_SIZE authors,
+     * each batch in a separate transaction,
+     * so no author has to be queried first
+     * and re-importing the same authors never creates duplicates.
+     * <ul>
+     * <li>
+     *      An author that matches no row is inserted, 
+     *      along with its comments.
+     * </li>
+     * <li>
+     *      An author that matches a row with different data
+     *      updates that row; the row's comments and creation date
+     *      are not changed.
+     * </li>
+     * <li>
+     *      An author that matches a row with the same data
+     *      changes nothing; in particular its version is unchanged.
+     * </li>
+     * </ul>
+     * On return the row ID, version and current count 
+     * of each given author match the database.
+     * 
+     * @param authors   the authors to upsert
+     * 
+     * @return  the number of authors inserted, updated and unchanged
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if an author's list does not exist
+     * 
+     * @see DBConstants#NATURAL_AUTHOR_FIELD
+     * @see #upsertTitles(Collection)
+     */
+    public UpsertResult upsertAuthors( Collection<Author> authors )
+        throws KCLSException
+    {
+        List<Author>    all         = new ArrayList<>( authors );
+        int             size        = all.size();
+        int[]           counts      = new int[Outcome.values().length];
+        List<Outcome>   outcomes    = new ArrayList<>();
+        try
+        {
+            logger.info( "upserting " + size + " authors" );
+            for ( int start = 0 ; start < size ; 
+                  start += Table.MAX_IN_LIST_SIZE )
+            {
+                int             end     = 
+                    Math.min( start + Table.MAX_IN_LIST_SIZE, size );
+                List<Author>    batch   = all.subList( start, end );
+                runInTransaction( () -> {
+                    outcomes.clear();
+                    outcomes.addAll( authorsTable.mergeAuthors( batch ) );
+                    attributesTable.insertAttributes(
+                        AUTHOR_TYPE,
+                        getInserted( batch, outcomes )
+                    );
+                }, batch.toArray( new LibraryItem[0] ) );
+                
+                for ( int inx = 0 ; inx < batch.size() ; ++inx )
+                {
+                    Author  author  = batch.get( inx );
+                    Outcome outcome = outcomes.get( inx );
+                    ++counts[outcome.ordinal()];
+                    if ( outcome == Outcome.UPDATED )
+                    {
+                        evict( author );
+                        publishChange( Action.UPDATED, author );
+                    }
+                    else if ( outcome == Outcome.INSERTED )
+                        publishChange( Action.INSERTED, author );
+                }
+            }
+            // cached titles contain the author's name
+            if ( counts[Outcome.UPDATED.ordinal()] > 0 )
+                evictAll( TITLE_TYPE );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "upsert authors", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
         }
+        
+        UpsertResult    result  = 
+            new UpsertResult( 
+                counts[Outcome.INSERTED.ordinal()],
+                counts[Outcome.UPDATED.ordinal()],
+                counts[Outcome.UNCHANGED.ordinal()]
+            );
+        logger.info( "upserted authors: " + result );
+        return result;
     }
     
     /**
@@ -767,6 +1914,10 @@ public class DBServer
      * The record must previously have been queried.
      *
      * @param author   the author to update
+     * 
+     * @throws ConcurrentUpdateException
+     *      if the author was modified or deleted by another client
+     *      since it was queried
      */
     public void updateAuthor( Author author )
     {
@@ -774,14 +1925,25 @@ public class DBServer
         try
         {
             logger.info( "updating author: " + name );
-            authorsTable.updateAuthor( author );
+            // cached titles contain the author's name
+            evictAll( TITLE_TYPE );
+            evict( author );
+            runInTransaction( () -> {
+                authorsTable.updateAuthor( author );
+                attributesTable.replaceAttributes( 
+                    AUTHOR_TYPE, 
+                    Collections.singletonList( author )
+                );
+            }, author );
+            entityCache.put( author );
             logger.info( "updated author: " + name );
+            publishChange( Action.UPDATED, author );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Update author", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -796,14 +1958,25 @@ public class DBServer
         try
         {
             logger.info( "deleting author: " + name );
-            authorsTable.deleteAuthor( author );
+            evictAll( TITLE_TYPE );
+            evict( author );
+            runInTransaction( () -> {
+                OptionalInt optIdent    = author.getIdent();
+                if ( optIdent.isPresent() )
+                    attributesTable.deleteAttributesFor( 
+                        AUTHOR_TYPE,
+                        Collections.singletonList( optIdent.getAsInt() )
+                    );
+                authorsTable.deleteAuthor( author );
+            }, author );
             logger.info( "deleted author: " + name );
+            publishChange( Action.DELETED, author );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "Delete author", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -828,7 +2001,7 @@ public class DBServer
         {
             String  message = formatSQLError( "get author by name", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return ident;
     }
@@ -844,18 +2017,59 @@ public class DBServer
         try
         {
             logger.info( "getting author: " + ident );
-            author = authorsTable.getAuthorByID( ident );
+            author = entityCache.getAuthor( ident );
+            if ( author == null )
+            {
+                author = authorsTable.getAuthorByID( ident );
+                if ( author != null )
+                {
+                    attributesTable.getAttributesFor( AUTHOR_TYPE, author );
+                    entityCache.put( author );
+                }
+            }
             logger.info( "read complete for author: " + ident );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "get author", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return author;
     }
     
+    /**
+     * Gets the name of the author with a given row ID.
+     * The name is taken from the entity cache if the author is cached;
+     * otherwise only the name is read from the database,
+     * and the author is not cached.
+     * Used to resolve the author names of titles
+     * without reading each author's comments and attributes.
+     * 
+     * @param ident the given row ID
+     * 
+     * @return the name of the author; null if the author does not exist
+     * 
+     * @throws KCLSException if an error occurs
+     */
+    String getAuthorName( int ident ) throws KCLSException
+    {
+        String  name    = null;
+        try
+        {
+            Author  author  = entityCache.getAuthor( ident );
+            name = author != null ? 
+                author.getAuthor() : authorsTable.getAuthorName( ident );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "get author name", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return name;
+    }
+    
     /**
      * Returns a list of all authors in the AUTHORS table. 
      *
@@ -870,13 +2084,15 @@ public class DBServer
         {
             logger.info( "getting all authors" );
             authors = authorsTable.getAllAuthors();
+            attributesTable.getAllAttributes( AUTHOR_TYPE, authors );
+            authors.forEach( entityCache::put );
             logger.info( "read complete for all authors");
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "get all authors", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return authors;
     }
@@ -895,31 +2111,85 @@ public class DBServer
         try
         {
             logger.info( "inserting title: " + name );
-            titlesTable.insertTitle( title );
+            Set<Integer>    authorIDs   = new HashSet<>();
+            runInTransaction( () -> {
+                titlesTable.insertTitle( title );
+                attributesTable.insertAttributes( 
+                    TITLE_TYPE, 
+                    Collections.singletonList( title )
+                );
+                authorIDs.clear();
+                authorIDs.addAll( getAuthorIDs( title ) );
+            }, title );
+            entityCache.put( title );
+            evictAuthors( authorIDs );
             logger.info( "inserted title: " + name );
+            publishChange( Action.INSERTED, title );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "insert title", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
+    /**
+     * Update a record in the TITLES table. 
+     * The record must previously have been queried.
+     *
+     * @param title the title to update
+     * 
+     * @throws ConcurrentUpdateException
+     *      if the title, or one of its comments, was modified or deleted
+     *      by another client since it was queried
+     * @throws KCLSException if an error occurs
+     */
     public void updateTitle( Title title ) throws KCLSException
     {
         String  name    = title.getTitle();
         try
         {
             logger.info( "updating title: " + name );
-            titlesTable.updateTitle( title );
+            
+            // the author before the update is taken from the cache
+            // if possible, so that the row is not read before it is locked
+            OptionalInt     optIdent    = title.getIdent();
+            Title           cached      = 
+                optIdent.isPresent() ? 
+                    entityCache.getTitle( optIdent.getAsInt() ) : null;
+            Set<Integer>    authorIDs   = new HashSet<>();
+            evict( title );
+            runInTransaction( () -> {
+                Set<Integer>    oldIDs  = 
+                    cached != null ? 
+                        getAuthorIDs( cached.getAuthor() ) : 
+                        getAuthorIDs( title );
+                titlesTable.updateTitle( title );
+                attributesTable.replaceAttributes( 
+                    TITLE_TYPE, 
+                    Collections.singletonList( title )
+                );
+                Set<Integer>    newIDs  = getAuthorIDs( title.getAuthor() );
+                
+                // only a change of author changes the authors' counts
+                authorIDs.clear();
+                if ( !oldIDs.equals( newIDs ) )
+                {
+                    authorIDs.addAll( oldIDs );
+                    authorIDs.addAll( newIDs );
+                }
+            }, title );
+            entityCache.put( title );
+            evictAuthors( authorIDs );
             logger.info( "updated title: " + name );
+            publishChange( Action.UPDATED, title );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "update title", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
@@ -937,45 +2207,599 @@ public class DBServer
         try
         {
             logger.info( "deleting title: " + name );
-            titlesTable.deleteTitle( title );
+            evict( title );
+            Set<Integer>    authorIDs   = new HashSet<>();
+            runInTransaction( () -> {
+                authorIDs.clear();
+                authorIDs.addAll( getAuthorIDs( title ) );
+                OptionalInt optIdent    = title.getIdent();
+                if ( optIdent.isPresent() )
+                {
+                    List<Integer>   idents  = 
+                        Collections.singletonList( optIdent.getAsInt() );
+                    qposHistoryTable.deleteSamplesFor( idents );
+                    attributesTable.deleteAttributesFor( TITLE_TYPE, idents );
+                }
+                titlesTable.deleteTitle( title );
+            }, title );
+            evictAuthors( authorIDs );
             logger.info( "deleted title: " + name );
+            publishChange( Action.DELETED, title );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "delete title", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
     }
     
     /**
-     * Get a title given its row ID.
-     * 
-     * @param ident the given row ID
+     * Delete a collection of titles, and all their comments,
+     * from the database.
+     * Rows are deleted with set-based statements,
+     * so the number of round trips to the database is proportional
+     * to the number of titles divided by Table.MAX_IN_LIST_SIZE.
+     * All changes are made in a single transaction.
+     * Titles that do not have row IDs are ignored.
      * 
-     * @return  Title object representing queried row, or null if not found
+     * @param titles    the titles to delete
      * 
      * @throws KCLSException if an error occurs
+     * 
+     * @see Table#MAX_IN_LIST_SIZE
      */
-    public Title getTitle( int ident ) throws KCLSException
+    public void deleteTitles( Collection<Title> titles ) throws KCLSException
     {
-        Title   title   = null;
+        List<Integer>   idents  = new ArrayList<>();
+        for ( Title title : titles )
+            title.getIdent().ifPresent( idents::add );
         try
         {
-            logger.info( "getting title: " + ident );
-            title = titlesTable.getTitle( ident );
-            logger.info( "queried row for title: " + ident );
+            logger.info( "deleting " + idents.size() + " titles" );
+            Set<Integer>    authorIDs   = new HashSet<>();
+            runInTransaction( () -> {
+                authorIDs.clear();
+                authorIDs.addAll( titlesTable.getAuthorIDs( idents ) );
+                commentsTable.deleteCommentsFor( TITLE_TYPE, idents );
+                attributesTable.deleteAttributesFor( TITLE_TYPE, idents );
+                qposHistoryTable.deleteSamplesFor( idents );
+                titlesTable.deleteTitles( idents );
+            } );
+            for ( int ident : idents )
+                evict( TITLE_TYPE, ident );
+            evictAuthors( authorIDs );
+            logger.info( "deleted " + idents.size() + " titles" );
+            for ( Title title : titles )
+                if ( title.getIdent().isPresent() )
+                    publishChange( Action.DELETED, title );
         }
         catch ( SQLException exc )
         {
-            String  message = formatSQLError( "insert title", exc );
+            String  message = formatSQLError( "delete titles", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
+        }
+    }
+    
+    /**
+     * Replaces the attributes of a collection of titles and authors
+     * with the attributes each item currently holds,
+     * without changing any other data.
+     * Attributes are deleted and inserted with set-based 
+     * and batched statements,
+     * so the number of round trips to the database is proportional
+     * to the number of items divided by Table.MAX_IN_LIST_SIZE.
+     * All changes are made in a single transaction.
+     * Item versions are not changed.
+     * 
+     * @param items the titles and authors whose attributes are stored;
+     *              all must have row IDs
+     * 
+     * @throws KCLSException if an error occurs, 
+     *                       if an item has no row ID,
+     *                       or if an item's attributes were not loaded
+     * 
+     * @see LibraryItem#setAttribute(String, String)
+     * @see LibraryItem#isAttributesLoaded()
+     */
+    public void updateAttributes( Collection<? extends LibraryItem> items )
+        throws KCLSException
+    {
+        List<LibraryItem>   titles  = new ArrayList<>();
+        List<LibraryItem>   authors = new ArrayList<>();
+        for ( LibraryItem item : items )
+        {
+            if ( item.getIdent().isEmpty() )
+            {
+                String  message = "Expected ID not found for item: " + item;
+                logger.severe( message );
+                throw new KCLSException( message );
+            }
+            if ( !item.isAttributesLoaded() )
+            {
+                String  message = "Attributes not loaded for item: " + item;
+                logger.severe( message );
+                throw new KCLSException( message );
+            }
+            if ( item instanceof Title )
+                titles.add( item );
+            else
+                authors.add( item );
+        }
+        try
+        {
+            logger.info( "updating attributes of " + items.size() + " items" );
+            runInTransaction( () -> {
+                for ( int start = 0 ; start < titles.size() ; 
+                      start += Table.MAX_IN_LIST_SIZE )
+                    attributesTable.replaceAttributes( 
+                        TITLE_TYPE, 
+                        titles.subList( 
+                            start,
+                            Math.min( start + Table.MAX_IN_LIST_SIZE, 
+                                      titles.size() )
+                        )
+                    );
+                for ( int start = 0 ; start < authors.size() ; 
+                      start += Table.MAX_IN_LIST_SIZE )
+                    attributesTable.replaceAttributes( 
+                        AUTHOR_TYPE, 
+                        authors.subList( 
+                            start,
+                            Math.min( start + Table.MAX_IN_LIST_SIZE, 
+                                      authors.size() )
+                        )
+                    );
+            } );
+            for ( LibraryItem item : items )
+            {
+                evict( item );
+                publishChange( Action.UPDATED, item );
+            }
+            logger.info( "updated attributes of " + items.size() + " items" );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "update attributes", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+    }
+    
+    /**
+     * Inserts or updates a collection of titles,
+     * matching each title to an existing row by its natural key:
+     * its normalized text, author and normalized media type.
+     * Titles are merged with Derby's MERGE statement
+     * in batches of up to Table.MAX_IN_LIST_SIZE titles,
+     * each batch in a separate transaction,
+     * so no title has to be queried first
+     * and re-importing the same titles never creates duplicates.
+     * <ul>
+     * <li>
+     *      A title that matches no row is inserted, 
+     *      along with its comments.
+     * </li>
+     * <li>
+     *      A title that matches a row with different data
+     *      updates that row; the row's comments, creation date
+     *      and forecast ready date are not changed.
+     * </li>
+     * <li>
+     *      A title that matches a row with the same data
+     *      changes nothing; in particular its version is unchanged.
+     * </li>
+     * <li>
+     *      A title that matches an archived title changes nothing,
+     *      and is counted as unchanged.
+     * </li>
+     * </ul>
+     * On return the row ID and version of each given title
+     * match the database.
+     * The author of each title must already exist,
+     * or the title is stored without an author.
+     * 
+     * @param titles    the titles to upsert
+     * 
+     * @return  the number of titles inserted, updated and unchanged
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if a title's list does not exist
+     * 
+     * @see DBConstants#NATURAL_TITLE_FIELD
+     * @see #upsertAuthors(Collection)
+     */
+    public UpsertResult upsertTitles( Collection<Title> titles )
+        throws KCLSException
+    {
+        List<Title>     all         = new ArrayList<>( titles );
+        int             size        = all.size();
+        int[]           counts      = new int[Outcome.values().length];
+        List<Outcome>   outcomes    = new ArrayList<>();
+        Set<Integer>    authorIDs   = new HashSet<>();
+        try
+        {
+            logger.info( "upserting " + size + " titles" );
+            for ( int start = 0 ; start < size ; 
+                  start += Table.MAX_IN_LIST_SIZE )
+            {
+                int         end     = 
+                    Math.min( start + Table.MAX_IN_LIST_SIZE, size );
+                List<Title> batch   = all.subList( start, end );
+                List<Integer>   inserted    = new ArrayList<>();
+                runInTransaction( () -> {
+                    outcomes.clear();
+                    outcomes.addAll( titlesTable.mergeTitles( batch ) );
+                    List<Title> added   = getInserted( batch, outcomes );
+                    attributesTable.insertAttributes( TITLE_TYPE, added );
+                    inserted.clear();
+                    for ( Title title : added )
+                        inserted.add( title.getIdent().getAsInt() );
+                }, batch.toArray( new LibraryItem[0] ) );
+                
+                // an update never changes a title's author,
+                // which is part of its natural key
+                authorIDs.addAll( titlesTable.getAuthorIDs( inserted ) );
+                
+                for ( int inx = 0 ; inx < batch.size() ; ++inx )
+                {
+                    Title   title   = batch.get( inx );
+                    Outcome outcome = outcomes.get( inx );
+                    ++counts[outcome.ordinal()];
+                    if ( outcome == Outcome.UPDATED )
+                    {
+                        evict( title );
+                        publishChange( Action.UPDATED, title );
+                    }
+                    else if ( outcome == Outcome.INSERTED )
+                        publishChange( Action.INSERTED, title );
+                }
+            }
+            evictAuthors( authorIDs );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "upsert titles", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        
+        UpsertResult    result  = 
+            new UpsertResult( 
+                counts[Outcome.INSERTED.ordinal()],
+                counts[Outcome.UPDATED.ordinal()],
+                counts[Outcome.UNCHANGED.ordinal()]
+            );
+        logger.info( "upserted titles: " + result );
+        return result;
+    }
+    
+    /**
+     * Moves a collection of titles to a given list.
+     * Only the list and modification date of each title are changed,
+     * using a single batched UPDATE statement;
+     * authors and comments are not touched.
+     * The version of each title is checked as by updateTitle;
+     * if any title is stale no title is moved.
+     * On success the list name, modification date and version
+     * of each given title are updated to match the database.
+     * All changes are made in a single transaction.
+     * Titles that do not have row IDs are ignored.
+     * 
+     * @param titles        the titles to move
+     * @param targetList    the name of the list to move the titles to
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if the given list does not exist
+     *      or is not a list of titles
+     * @throws ConcurrentUpdateException
+     *      if any title has been modified or deleted by another client
+     *      since it was queried
+     * 
+     * @see #updateTitle(Title)
+     */
+    public void moveTitles( Collection<Title> titles, String targetList )
+        throws KCLSException
+    {
+        List<Title>     toMove  = new ArrayList<>();
+        for ( Title title : titles )
+            if ( title.getIdent().isPresent() )
+                toMove.add( title );
+        
+        try
+        {
+            int         listID  = listsTable.getListID( targetList );
+            KCLSList    list    = 
+                listID < 1 ? null : listsTable.getList( listID );
+            if ( list == null || list.getListType() != TITLE_TYPE )
+            {
+                String  message = "Title list not found: " + targetList;
+                logger.severe( message );
+                throw new KCLSException( message );
+            }
+            
+            LocalDate   today   = LocalDate.now();
+            logger.info( 
+                "moving " + toMove.size() + " titles to " + targetList
+            );
+            runInTransaction( 
+                () -> titlesTable.moveTitles( toMove, listID, today )
+            );
+            for ( Title title : toMove )
+            {
+                title.setListName( targetList );
+                title.setModifyDate( today );
+                title.setVersion( title.getVersion() + 1 );
+                evict( title );
+            }
+            logger.info( "moved " + toMove.size() + " titles" );
+            for ( Title title : toMove )
+                publishChange( Action.UPDATED, title );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "move titles", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+    }
+    
+    /**
+     * Puts the members of a given list in a given order
+     * by changing as few ranks as possible.
+     * Ranks are gap-based, so moving a single title or author
+     * usually changes only its own rank;
+     * if there is no room left between two neighbors
+     * the whole list is renormalized instead.
+     * Either way the changes are applied in a single batched statement,
+     * in a single transaction.
+     * Only the rank and version of each member are changed;
+     * members already read from the database
+     * should be read again.
+     * 
+     * @param listName  the name of the given list
+     * @param idents    the row IDs of all members of the list,
+     *                  in the new order
+     * 
+     * @return the rank changes that were applied
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, if the given list does not exist,
+     *      or if <em>idents</em> does not contain the row ID
+     *      of every member of the list exactly once
+     * 
+     * @see RankPlan
+     */
+    public RankPlan reorder( String listName, List<Integer> idents )
+        throws KCLSException
+    {
+        List<Integer>   order   = new ArrayList<>( idents );
+        return rerank( 
+            listName, 
+            "reorder list", 
+            ranks -> RankPlan.compute( order, ranks )
+        );
+    }
+    
+    /**
+     * Renormalizes the ranks of the members of a given list,
+     * preserving their order:
+     * the members are given the ranks RankPlan.RANK_GAP,
+     * 2 * RankPlan.RANK_GAP, and so on.
+     * This restores the room between neighbors that allows
+     * <em>reorder</em> to move a member by changing a single rank,
+     * and may be run periodically, in the background,
+     * for lists whose members are frequently reordered.
+     * The changes are applied in a single batched statement,
+     * in a single transaction.
+     * 
+     * @param listName  the name of the given list
+     * 
+     * @return the rank changes that were applied
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if the given list does not exist
+     * 
+     * @see #reorder(String, List)
+     */
+    public RankPlan renormalizeRanks( String listName ) throws KCLSException
+    {
+        return rerank( 
+            listName, 
+            "renormalize ranks", 
+            ranks -> RankPlan.renormalize( 
+                new ArrayList<>( ranks.keySet() ), 
+                ranks 
+            )
+        );
+    }
+    
+    /**
+     * Records an observation of a title's position in the hold queue,
+     * and updates the title's forecast ready date.
+     * The forecast is recomputed from the title's complete 
+     * queue position history.
+     * The title's check date and check queue position are set
+     * from the most recent observation in the history.
+     * On success the check date, check queue position, ready date
+     * and version of the given title are updated to match the database.
+     * If the title has been changed since it was read
+     * nothing is recorded.
+     * 
+     * @param title the given title; must have been read from the database
+     * @param date  the date on which the queue position was observed
+     * @param qPos  the observed queue position
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if the given title 
+     *      is not in the database
+     * @throws ConcurrentUpdateException
+     *      if the title has been changed or deleted since it was read
+     * 
+     * @see ReadyDateForecaster
+     */
+    public void recordQPos( Title title, LocalDate date, int qPos )
+        throws KCLSException
+    {
+        String      name        = title.getTitle();
+        OptionalInt optIdent    = title.getIdent();
+        if ( !optIdent.isPresent() )
+        {
+            String  message = "Record qpos: title not in database: " + name;
+            logger.severe( message );
+            throw new KCLSException( message );
+        }
+        
+        int                 ident       = optIdent.getAsInt();
+        int                 version     = title.getVersion();
+        QPosSample          sample      = new QPosSample( date, qPos );
+        List<ReadyDateForecaster>   result  = new ArrayList<>( 1 );
+        try
+        {
+            logger.info( "recording qpos for " + name + ": " + sample );
+            runInTransaction( () -> {
+                // a fresh forecaster for each attempt, if retried
+                ReadyDateForecaster forecaster  = new ReadyDateForecaster();
+                result.clear();
+                result.add( forecaster );
+                qposHistoryTable.insertSample( ident, sample );
+                qposHistoryTable.getSamples( ident )
+                    .forEach( forecaster::addSample );
+                Optional<LocalDate> readyDate   = forecaster.getReadyDate();
+                titlesTable.updateForecast(
+                    ident,
+                    version,
+                    forecaster.getLastQPos(),
+                    forecaster.getLastDate(),
+                    readyDate.orElse( null )
+                );
+            } );
+            ReadyDateForecaster forecaster  = result.get( 0 );
+            title.setCheckQPos( forecaster.getLastQPos() );
+            title.setCheckDate( forecaster.getLastDate() );
+            title.setReadyDate( forecaster.getReadyDate().orElse( null ) );
+            title.setVersion( version + 1 );
+            evict( title );
+            logger.info( "forecast for " + name + ": " + title.getReadyDate() );
+            publishChange( Action.UPDATED, title );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "record qpos", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+    }
+    
+    /**
+     * Gets the queue position history of a given title, in date order.
+     * 
+     * @param title the given title
+     * 
+     * @return  the queue position history of the given title;
+     *          empty if the title is not in the database
+     * 
+     * @throws KCLSException if an error occurs
+     */
+    public List<QPosSample> getQPosHistory( Title title ) throws KCLSException
+    {
+        List<QPosSample>    samples     = new ArrayList<>();
+        OptionalInt         optIdent    = title.getIdent();
+        try
+        {
+            if ( optIdent.isPresent() )
+                samples.addAll( 
+                    qposHistoryTable.getSamples( optIdent.getAsInt() )
+                );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "get qpos history", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return samples;
+    }
+    
+    /**
+     * Get a title given its row ID.
+     * 
+     * @param ident the given row ID
+     * 
+     * @return  Title object representing queried row, or null if not found
+     * 
+     * @throws KCLSException if an error occurs
+     */
+    public Title getTitle( int ident ) throws KCLSException
+    {
+        Title   title   = null;
+        try
+        {
+            logger.info( "getting title: " + ident );
+            title = entityCache.getTitle( ident );
+            if ( title == null )
+            {
+                title = titlesTable.getTitle( ident );
+                if ( title != null )
+                {
+                    attributesTable.getAttributesFor( TITLE_TYPE, title );
+                    entityCache.put( title );
+                }
+            }
+            logger.info( "queried row for title: " + ident );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "insert title", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
         }
         
         return title;
     }
     
+    /**
+     * Get a title given its row ID,
+     * optionally looking in the archive if the title
+     * is not found in the TITLES table.
+     * 
+     * @param ident             the given row ID
+     * @param includeArchive    true to look in the archive
+     * 
+     * @return  Title object representing queried row, or null if not found
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see #archiveTitles(String, LocalDate)
+     */
+    public Title getTitle( int ident, boolean includeArchive ) 
+        throws KCLSException
+    {
+        Title   title   = getTitle( ident );
+        if ( title == null && includeArchive )
+        {
+            try
+            {
+                logger.info( "getting archived title: " + ident );
+                title = titlesTable.getArchivedTitle( ident );
+                if ( title != null )
+                {
+                    commentsTable.getArchivedCommentsFor( title );
+                    attributesTable.getAttributesFor( TITLE_TYPE, title );
+                }
+            }
+            catch ( SQLException exc )
+            {
+                String  message = 
+                    formatSQLError( "getting archived title", exc );
+                logger.log( Level.SEVERE, message, exc );
+                throw translateSQLException( message, exc );
+            }
+        }
+        return title;
+    }
+    
     /**
      * Gets a list of all rows in the TITLES table.
      * 
@@ -989,13 +2813,15 @@ public class DBServer
         {
             logger.info( "getting all titles" );
             titles.addAll( titlesTable.getAllTitles() );
+            attributesTable.getAllAttributes( TITLE_TYPE, titles );
+            titles.forEach( entityCache::put );
             logger.info( "completed getting all titles" );
         }
         catch ( SQLException exc )
         {
             String  message = formatSQLError( "getting all titles", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         
         return titles;
@@ -1025,6 +2851,7 @@ public class DBServer
         {
             logger.info( "getting all titles for author: " + name );
             titles.addAll( titlesTable.getTitlesForAuthor( author ) );
+            attributesTable.getAttributesFor( TITLE_TYPE, titles );
             logger.info( "completed getting all titles for author: " + name );
         }
         catch ( SQLException exc )
@@ -1032,20 +2859,89 @@ public class DBServer
             String  message = 
                 formatSQLError( "getting all titles for author", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         
         return titles;
     }
 
+    /**
+     * Gets all titles with a given attribute value.
+     * The titles are found with the index on attribute name and value,
+     * and their attributes are read with a single query
+     * for each Table.MAX_IN_LIST_SIZE titles.
+     * 
+     * @param key   the name of the attribute
+     * @param value the value of the attribute:
+     *              a String, an Integer, a Long or a LocalDate
+     * 
+     * @return  all titles with the given attribute value,
+     *          in row ID order
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if the value is not of a supported type
+     * 
+     * @see LibraryItem#getAttributes()
+     */
+    public List<Title> getTitlesByAttribute( String key, Object value )
+        throws KCLSException
+    {
+        List<Title> titles  = new ArrayList<>();
+        try
+        {
+            logger.info( "getting titles where " + key + "=" + value );
+            titles.addAll( titlesTable.getTitlesByAttribute( key, value ) );
+            attributesTable.getAttributesFor( TITLE_TYPE, titles );
+            titles.forEach( entityCache::put );
+            logger.info( titles.size() + " titles where " + key + "=" + value );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = 
+                formatSQLError( "getting titles by attribute", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return titles;
+    }
+
+    /**
+     * Gets all titles for a given list, in rank order.
+     * The result is cached; if the list has not changed since
+     * it was last queried the database is not accessed.
+     * 
+     * @param listName  the name of the given list
+     * 
+     * @return  all titles for the given list
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see #getListResultCache()
+     */
     public List<Title> getTitlesForList( String listName )
         throws KCLSException
     {
+        Optional<List<Title>>   cached  = 
+            listCache.get( TITLE_TYPE, byRankShape, listName );
+        if ( cached.isPresent() )
+        {
+            logger.info( "titles for list from cache: " + listName );
+            return cached.get();
+        }
+        
         List<Title> titles  = new ArrayList<>();
         try
         {
             logger.info( "getting titles for list: " + listName );
+            long    stamp   = listCache.getStamp();
             titles.addAll( titlesTable.getTitleList( listName ) );
+            attributesTable.getAttributesForList( 
+                TITLE_TYPE, 
+                listsTable.getListID( listName ), 
+                titles
+            );
+            titles.forEach( entityCache::put );
+            listCache.put( TITLE_TYPE, byRankShape, listName, titles, stamp );
             logger.info( "queried all titles for list: " + listName );
         }
         catch ( SQLException exc )
@@ -1053,35 +2949,610 @@ public class DBServer
             String  message = 
                 formatSQLError( "getting all titles for list", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         
         return titles;
     }
 
+    /**
+     * Gets all titles for a given list,
+     * optionally including the list's archived titles.
+     * Archived titles follow the titles in the TITLES table,
+     * and are not cached.
+     * 
+     * @param listName          the name of the given list
+     * @param includeArchive    true to include archived titles
+     * 
+     * @return  all titles for the given list
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see #archiveTitles(String, LocalDate)
+     */
+    public List<Title> 
+    getTitlesForList( String listName, boolean includeArchive )
+        throws KCLSException
+    {
+        List<Title> titles  = new ArrayList<>( getTitlesForList( listName ) );
+        if ( includeArchive )
+            titles.addAll( getArchivedTitles( listName ) );
+        return titles;
+    }
+    
+    /**
+     * Gets all archived titles for a given list.
+     * Archived titles are read-only;
+     * an attempt to update one fails as if it had been deleted.
+     * 
+     * @param listName  the name of the given list
+     * 
+     * @return  all archived titles for the given list
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see #archiveTitles(String, LocalDate)
+     */
+    public List<Title> getArchivedTitles( String listName )
+        throws KCLSException
+    {
+        List<Title> titles  = new ArrayList<>();
+        try
+        {
+            logger.info( "getting archived titles for list: " + listName );
+            int     listID  = listsTable.getListID( listName );
+            if ( listID > 0 )
+                titles.addAll( titlesTable.getArchivedTitleList( listID ) );
+            for ( Title title : titles )
+                commentsTable.getArchivedCommentsFor( title );
+            attributesTable.getAttributesFor( TITLE_TYPE, titles );
+            logger.info( titles.size() + " archived titles: " + listName );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = 
+                formatSQLError( "getting archived titles for list", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return titles;
+    }
+    
+    /**
+     * Moves the titles in the configured archive list
+     * that have not been modified for the configured number of days
+     * to the archive.
+     * Does nothing if archiving is not configured.
+     * 
+     * @return the number of titles archived
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see DBConfig#getArchiveListName()
+     * @see DBConfig#getArchiveAgeDays()
+     * @see #archiveTitles(String, LocalDate)
+     */
+    public int archiveTitles() throws KCLSException
+    {
+        int     ageDays = config.getArchiveAgeDays();
+        int     count   = 0;
+        if ( ageDays > 0 )
+        {
+            LocalDate   cutoff  = LocalDate.now().minusDays( ageDays );
+            count = archiveTitles( config.getArchiveListName(), cutoff );
+        }
+        return count;
+    }
+    
+    /**
+     * Moves the titles in a given list that were last modified
+     * before a given date, together with their comments,
+     * from the TITLES and COMMENTS tables to the 
+     * TITLES_ARCHIVE and COMMENTS_ARCHIVE tables.
+     * This keeps the TITLES table, and the queries on the
+     * lists in it, small no matter how much history accumulates.
+     * Titles are moved oldest first, in set-based batches
+     * of up to Table.MAX_IN_LIST_SIZE titles;
+     * each batch is a separate transaction,
+     * so that other work is never locked out for long.
+     * <p>
+     * Archived titles still count toward their authors' current counts.
+     * Their queue position history is left in place.
+     * They are only returned by queries that ask for the archive,
+     * such as <em>getTitlesForList( listName, true )</em>;
+     * to every other query they appear to have been deleted,
+     * and a DELETED event is published for each.
+     * 
+     * @param listName  the name of the given list
+     * @param cutoff    the given date
+     * 
+     * @return the number of titles archived
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if the given list does not exist
+     *      or is not a list of titles
+     * 
+     * @see #getTitlesForList(String, boolean)
+     * @see #getArchivedTitles(String)
+     * @see Table#MAX_IN_LIST_SIZE
+     */
+    public int archiveTitles( String listName, LocalDate cutoff )
+        throws KCLSException
+    {
+        int     total   = 0;
+        try
+        {
+            int         listID  = listsTable.getListID( listName );
+            KCLSList    list    = 
+                listID < 1 ? null : listsTable.getList( listID );
+            if ( list == null || list.getListType() != TITLE_TYPE )
+            {
+                String  message = "Title list not found: " + listName;
+                logger.severe( message );
+                throw new KCLSException( message );
+            }
+            
+            logger.info( 
+                "archiving titles in " + listName + " older than " + cutoff
+            );
+            LocalDate       today   = LocalDate.now();
+            int             limit   = Table.MAX_IN_LIST_SIZE;
+            List<Integer>   batch   = new ArrayList<>();
+            do
+            {
+                runInTransaction( () -> {
+                    batch.clear();
+                    batch.addAll( titlesTable.getArchiveCandidates( 
+                        listID, 
+                        cutoff, 
+                        limit 
+                    ) );
+                    if ( !batch.isEmpty() )
+                    {
+                        commentsTable.archiveCommentsFor( TITLE_TYPE, batch );
+                        titlesTable.archiveTitles( batch, today );
+                    }
+                } );
+                for ( int ident : batch )
+                    evict( TITLE_TYPE, ident );
+                for ( int ident : batch )
+                {
+                    Entity  entity  = Entity.TITLE;
+                    publishChange( Action.DELETED, entity, ident, listName );
+                }
+                total += batch.size();
+            } while ( batch.size() == limit );
+            logger.info( "archived " + total + " titles" );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "archive titles", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return total;
+    }
+    
+    /**
+     * Gets all authors for a given list, in rank order.
+     * The result is cached; if the list has not changed since
+     * it was last queried the database is not accessed.
+     * 
+     * @param listName  the name of the given list
+     * 
+     * @return  all authors for the given list
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see #getListResultCache()
+     */
     public List<Author> getAuthorsForList( String listName )
         throws KCLSException
     {
+        Optional<List<Author>>  cached  = 
+            listCache.get( AUTHOR_TYPE, byRankShape, listName );
+        if ( cached.isPresent() )
+        {
+            logger.info( "authors for list from cache: " + listName );
+            return cached.get();
+        }
+        
         List<Author> authors  = new ArrayList<>();
         try
         {
-            logger.info( "getting authors for list: " + listName );
-            authors.addAll( authorsTable.getAuthorList( listName ) );
-            logger.info( "queried all authors for list: " + listName );
+            logger.info( "getting authors for list: " + listName );
+            long    stamp   = listCache.getStamp();
+            authors.addAll( authorsTable.getAuthorList( listName ) );
+            attributesTable.getAttributesForList( 
+                AUTHOR_TYPE, 
+                listsTable.getListID( listName ), 
+                authors
+            );
+            authors.forEach( entityCache::put );
+            listCache.put( 
+                AUTHOR_TYPE, 
+                byRankShape, 
+                listName, 
+                authors, 
+                stamp
+            );
+            logger.info( "queried all authors for list: " + listName );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = 
+                formatSQLError( "getting all authors for list", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        
+        return authors;
+    }
+
+    /**
+     * Gets a publisher that streams all rows in the TITLES table,
+     * reading rows from the database only as subscribers request them.
+     * Intended for exports and background jobs that would otherwise
+     * have to hold the whole table in memory;
+     * titles published this way are not added to the entity cache.
+     * Attributes are not retrieved, 
+     * as that would cost a query for each title;
+     * use <em>scanTitles</em> to stream titles with their attributes.
+     * 
+     * @return  a publisher that streams all rows in the TITLES table
+     * 
+     * @see CursorPublisher
+     */
+    public CursorPublisher<Title> publishAllTitles()
+    {
+        final int   fetchSize   = config.getPublisherFetchSize();
+        return titlesTable.getAllTitlesPublisher( fetchSize );
+    }
+    
+    /**
+     * Gets a parallel stream of all rows in the TITLES table,
+     * with their comments.
+     * The range of title row IDs is divided into chunks,
+     * and each chunk is read on a connection of its own,
+     * borrowed from a pool of read-only connections,
+     * so that CPU-heavy work on the titles, such as indexing,
+     * statistics or export, proceeds on as many threads
+     * as the stream's fork/join pool provides,
+     * without waiting on a single cursor.
+     * The size of the connection pool is configured by
+     * DBConfig.SCAN_CONNECTIONS_KEY, and the size of a chunk by
+     * DBConfig.SCAN_CHUNK_SIZE_KEY.
+     * <p>
+     * The stream is in row ID order if an ordered operation is used.
+     * Titles streamed this way are not added to the entity cache.
+     * Titles inserted or deleted while the stream is in progress
+     * may or may not be seen; 
+     * titles belonging to lists created after the stream is opened,
+     * or by authors created after the stream is opened, are not.
+     * Errors are reported as KCLSException 
+     * by the terminal operation of the stream.
+     * 
+     * @return a parallel stream of all rows in the TITLES table
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see TitleScanSpliterator
+     * @see DBConfig#getScanConnections()
+     */
+    public Stream<Title> scanTitles() throws KCLSException
+    {
+        Stream<Title>   stream  = null;
+        try
+        {
+            logger.info( "opening title scan" );
+            int[]   range   = titlesTable.getIdentRange();
+            if ( range == null )
+                stream = Stream.empty();
+            else
+            {
+                Map<Integer, String>    authorNames =
+                    Collections.unmodifiableMap(
+                        authorsTable.getAuthorNames()
+                    );
+                Map<Integer, String>    listNames   = new HashMap<>();
+                for ( KCLSList list : listsTable.getAllLists() )
+                    list.getIdent().ifPresent( 
+                        i -> listNames.put( i, list.getDialogTitle() )
+                    );
+                TitleScanSpliterator    spliterator =
+                    new TitleScanSpliterator(
+                        this,
+                        scanPool,
+                        authorNames,
+                        Collections.unmodifiableMap( listNames ),
+                        range[0],
+                        range[1],
+                        config.getScanChunkSize()
+                    );
+                stream = StreamSupport.stream( spliterator, true );
+            }
+            logger.info( "title scan open" );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "open title scan", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return stream;
+    }
+    
+    /**
+     * Gets a publisher that streams all titles for a given list,
+     * reading rows from the database only as subscribers request them.
+     * Titles published this way are not added to the entity cache.
+     * 
+     * @param listName  the name of the given list
+     * 
+     * @return  a publisher that streams all titles for the given list
+     * 
+     * @see #getTitlesForList(String)
+     */
+    public CursorPublisher<Title> publishTitlesForList( String listName )
+    {
+        final int   fetchSize   = config.getPublisherFetchSize();
+        return titlesTable.getTitleListPublisher( listName, fetchSize );
+    }
+    
+    /**
+     * Gets a publisher that streams all rows in the AUTHORS table,
+     * reading rows from the database only as subscribers request them.
+     * Authors published this way are not added to the entity cache.
+     * 
+     * @return  a publisher that streams all rows in the AUTHORS table
+     * 
+     * @see #getAllAuthors()
+     */
+    public CursorPublisher<Author> publishAllAuthors()
+    {
+        final int   fetchSize   = config.getPublisherFetchSize();
+        return authorsTable.getAllAuthorsPublisher( fetchSize );
+    }
+    
+    /**
+     * Gets a publisher that streams all authors for a given list,
+     * reading rows from the database only as subscribers request them.
+     * Authors published this way are not added to the entity cache.
+     * 
+     * @param listName  the name of the given list
+     * 
+     * @return  a publisher that streams all authors for the given list
+     * 
+     * @see #getAuthorsForList(String)
+     */
+    public CursorPublisher<Author> publishAuthorsForList( String listName )
+    {
+        final int   fetchSize   = config.getPublisherFetchSize();
+        return authorsTable.getAuthorListPublisher( listName, fetchSize );
+    }
+    
+    /**
+     * Gets a publisher that streams all rows in the COMMENTS table,
+     * reading rows from the database only as subscribers request them.
+     * 
+     * @return  a publisher that streams all rows in the COMMENTS table
+     * 
+     * @see #getAllComments()
+     */
+    public CursorPublisher<Comment> publishAllComments()
+    {
+        final int   fetchSize   = config.getPublisherFetchSize();
+        return commentsTable.getAllCommentsPublisher( fetchSize );
+    }
+
+    /**
+     * Checks the referential integrity of the database:
+     * looks for authors and titles whose list does not exist,
+     * titles that refer to an author that does not exist,
+     * comments whose title or author does not exist,
+     * and queue position samples whose title does not exist.
+     * Such rows can only be created by external changes
+     * or by failures, but a single orphaned title
+     * prevents its whole list from being read.
+     * Each kind of problem is found with a single set-based query.
+     * <p>
+     * If so requested, the problems are also repaired:
+     * orphaned rows are deleted, and dangling author IDs are removed.
+     * Repairs are made in batches of up to Table.MAX_IN_LIST_SIZE rows,
+     * each batch in a separate transaction.
+     * The caches are cleared if anything is repaired.
+     * 
+     * @param repair    true to repair the problems found
+     * 
+     * @return  the number of rows found with each problem,
+     *          and the number repaired
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see ConsistencyReport
+     * @see DBConfig#getConsistencyCheck()
+     */
+    public ConsistencyReport checkConsistency( boolean repair )
+        throws KCLSException
+    {
+        final int maxSamples    = ConsistencyScanner.MAX_SAMPLES;
+        
+        long                        start       = System.currentTimeMillis();
+        Map<Problem, Integer>       found       =
+            new EnumMap<>( Problem.class );
+        Map<Problem, List<Integer>> samples     =
+            new EnumMap<>( Problem.class );
+        Map<Problem, Integer>       repaired    =
+            new EnumMap<>( Problem.class );
+        try
+        {
+            logger.info( "checking consistency" );
+            for ( Problem problem : Problem.values() )
+            {
+                found.put( problem, consistencyScanner.count( problem ) );
+                samples.put( 
+                    problem, 
+                    consistencyScanner.getIdents( problem, maxSamples )
+                );
+            }
+            
+            boolean anyFound    =
+                found.values().stream().anyMatch( c -> c > 0 );
+            if ( repair && anyFound )
+            {
+                for ( Problem problem : Problem.values() )
+                    repaired.put( problem, repair( problem ) );
+                evictAll();
+            }
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "check consistency", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        
+        long                elapsed = System.currentTimeMillis() - start;
+        ConsistencyReport   report  = 
+            new ConsistencyReport( found, samples, repaired, elapsed );
+        Level               level   = 
+            report.isConsistent() ? Level.INFO : Level.WARNING;
+        logger.log( level, "consistency check complete: " + report );
+        return report;
+    }
+    
+    /**
+     * Gets all authors whose current count differs from their last count,
+     * i.e. authors that have gained or lost titles since
+     * their last count was recorded.
+     * The current count of each author is maintained by the database
+     * as titles are inserted, deleted or assigned to a different author,
+     * so this requires a single query.
+     * 
+     * @return  all authors whose current count differs from 
+     *          their last count
+     * 
+     * @throws KCLSException if an error occurs
+     * 
+     * @see #rebuildAuthorCounts()
+     */
+    public List<Author> getAuthorsWithNewTitles() throws KCLSException
+    {
+        List<Author> authors  = new ArrayList<>();
+        try
+        {
+            logger.info( "getting authors with new titles" );
+            authors.addAll( authorsTable.getChangedAuthors() );
+            attributesTable.getAttributesFor( AUTHOR_TYPE, authors );
+            authors.forEach( entityCache::put );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = 
+                formatSQLError( "getting authors with new titles", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        
+        return authors;
+    }
+    
+    /**
+     * Recomputes the current count of every author
+     * from the contents of the TITLES and TITLES_ARCHIVE tables.
+     * Current counts are normally maintained incrementally by the database;
+     * this method is only needed to repair counts that have drifted.
+     * 
+     * @return the number of authors updated
+     * 
+     * @throws KCLSException if an error occurs
+     */
+    public int rebuildAuthorCounts() throws KCLSException
+    {
+        int     count   = 0;
+        try
+        {
+            count = authorsTable.rebuildCurrentCounts();
+            evictAll( AUTHOR_TYPE );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( "rebuild author counts", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        return count;
+    }
+
+    /**
+     * Writes a snapshot of all lists, logging, 
+     * but not propagating, any error;
+     * failure to write a snapshot must not prevent shutdown.
+     */
+    private void writeSnapshotQuietly()
+    {
+        try
+        {
+            writeSnapshot();
+        }
+        catch ( KCLSException exc )
+        {
+            // already logged
+        }
+    }
+    
+    /**
+     * Checkpoints the database, logging rather than throwing any error;
+     * used during shutdown, which must continue regardless.
+     */
+    private void checkpointQuietly()
+    {
+        try
+        {
+            checkpoint();
+        }
+        catch ( KCLSException exc )
+        {
+            // already logged
+        }
+    }
+    
+    /**
+     * Forces a checkpoint of the database:
+     * all changed pages are written to disk,
+     * and the transaction log is truncated.
+     * 
+     * @throws KCLSException if an error occurs
+     */
+    public void checkpoint() throws KCLSException
+    {
+        String  sql = "CALL SYSCS_UTIL.SYSCS_CHECKPOINT_DATABASE()";
+        try ( Statement statement = connection.createStatement() )
+        {
+            long    start   = System.currentTimeMillis();
+            statement.execute( sql );
+            long    elapsed = System.currentTimeMillis() - start;
+            logger.info( "checkpoint complete in " + elapsed + "ms" );
         }
         catch ( SQLException exc )
         {
-            String  message = 
-                formatSQLError( "getting all authors for list", exc );
+            String  message = formatSQLError( "checkpoint", exc );
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
-        
-        return authors;
     }
-
+    
     /**
-     * Shutdown the Derby embedded driver.
+     * Shutdown the server.
+     * Scheduled maintenance is stopped, 
+     * after any maintenance pass in progress completes,
+     * and the list snapshot is written.
+     * Then, unless disabled, the database is checkpointed;
+     * after all resources and the connection are closed
+     * the database is shut down, so that the next boot
+     * can skip log recovery.
+     * 
+     * @see #setShutdownDatabase(boolean)
      */
     public void shutdown()
     {
@@ -1091,9 +3562,19 @@ public class DBServer
         // is part of the Derby download.
         final int       derbySystemShutdownErrorCode    = 50000;
         final String    derbySystemShutdownState        = "XJ015";
+        final int       derbyDBShutdownErrorCode        = 45000;
+        final String    derbyDBShutdownState            = "08006";
         try
         {
+            maintenance.stop();
+            lockWatchdog.stop();
+            scanPool.close();
+            if ( snapshotOnShutdown )
+                writeSnapshotQuietly();
+            if ( shutdownDatabase )
+                checkpointQuietly();
             logger.info( "freeing resources" );
+            diagnostics.close();
             for ( AutoCloseable closeable : allCloseables )
                 closeable.close();
             logger.info( "freeing resources complete" );
@@ -1101,11 +3582,15 @@ public class DBServer
             logger.info( "closing connection" );
             connection.close();
             
-            // DON'T TRY TO ACTUALLY SHUTDOWN THE SERVER
-            // WHEN USING THE EMBEDDED DRIVER
-//            logger.info( "starting shutdown" );
-//            DriverManager.getConnection("jdbc:derby:;shutdown=true");
-//            logger.info( "shutdown complete without exception" );
+            // Shut down this database only; the embedded engine
+            // stays up, so the database can be booted again
+            // by a new server in the same JVM.
+            if ( shutdownDatabase )
+            {
+                logger.info( "shutting down database" );
+                DriverManager.getConnection( getShutdownURL( dbURL ) );
+                logger.warning( "database shutdown did not report" );
+            }
         }
         catch ( IOException exc )
         {
@@ -1115,7 +3600,13 @@ public class DBServer
         {
             int     errorCode   = exc.getErrorCode();
             String  state       = exc.getSQLState();
-            if ( errorCode == derbySystemShutdownErrorCode
+            if ( errorCode == derbyDBShutdownErrorCode
+                 && state.equals( derbyDBShutdownState )
+               )
+            {
+                logger.info( "database shutdown complete" );
+            }
+            else if ( errorCode == derbySystemShutdownErrorCode
                  && state.equals( derbySystemShutdownState )
                )
             {
@@ -1173,7 +3664,7 @@ public class DBServer
                 "dump of " + tableName + " failed;"
                 + " err code: " + errorCode + " sqlState: " + sqlState;
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         logger.info( "dump of " + tableName + " complete" );
         return fileName;
@@ -1184,7 +3675,625 @@ public class DBServer
 //        return formatSQLError( "SQL Error", exc );
 //    }
     
-    private String formatSQLError( String prefix, SQLException exc )
+    /**
+     * Executes a given database action in a transaction.
+     * If the action completes normally the transaction is committed,
+     * otherwise it is rolled back.
+     * If the current thread already has a transaction in progress
+     * the action simply becomes part of the existing transaction,
+     * and any retry is left to the existing transaction.
+     * If another thread has a transaction in progress
+     * on this server's connection, 
+     * the current thread waits for it to end.
+     * <p>
+     * If the transaction fails because of a deadlock or lock timeout
+     * the whole action is executed again,
+     * as determined by the current retry policy.
+     * Before each retry the database-assigned state
+     * (row IDs and versions) of the given items,
+     * and of their comments, is restored to what it was
+     * before the first attempt, so the action must otherwise
+     * be safe to repeat after a rollback.
+     * 
+     * @param action    the given database action
+     * @param items     items modified by the action, if any
+     * 
+     * @throws SQLException if a SQL error occurs
+     * 
+     * @see #setRetryPolicy(RetryPolicy)
+     */
+    private void runInTransaction( SQLAction action, LibraryItem... items )
+        throws SQLException
+    {
+        if ( transactionLock.isHeldByCurrentThread() )
+        {
+            action.execute();
+            return;
+        }
+        
+        transactionLock.lock();
+        try
+        {
+            runWithRetry( action, items );
+        }
+        finally
+        {
+            transactionLock.unlock();
+        }
+    }
+    
+    /**
+     * Executes a given database action in a new transaction,
+     * retrying it as determined by the current retry policy.
+     * Must be called by the thread holding the transaction lock.
+     * 
+     * @param action    the given database action
+     * @param items     items modified by the action, if any
+     * 
+     * @throws SQLException if a SQL error occurs
+     * 
+     * @see #runInTransaction(SQLAction, LibraryItem...)
+     */
+    private void runWithRetry( SQLAction action, LibraryItem... items )
+        throws SQLException
+    {
+        RetryPolicy     policy  = retryPolicy;
+        List<ItemState> states  = new ArrayList<>( items.length );
+        for ( LibraryItem item : items )
+            states.add( new ItemState( item ) );
+        for ( int attempt = 1 ; ; ++attempt )
+        {
+            try
+            {
+                runOnce( action );
+                retryStatistics.recordTransaction( attempt, true );
+                return;
+            }
+            catch ( SQLException | RuntimeException exc )
+            {
+                if ( !policy.shouldRetry( attempt, exc ) )
+                {
+                    retryStatistics.recordTransaction( attempt, false );
+                    throw exc;
+                }
+                long    delay   = policy.getDelayMillis( attempt );
+                logger.log(
+                    Level.WARNING,
+                    "transaction attempt " + attempt + " failed, retrying in "
+                        + delay + "ms: " + exc.getMessage()
+                );
+                retryStatistics.recordRetry( delay );
+                states.forEach( ItemState::restore );
+                try
+                {
+                    Thread.sleep( delay );
+                }
+                catch ( InterruptedException intExc )
+                {
+                    Thread.currentThread().interrupt();
+                    retryStatistics.recordTransaction( attempt, false );
+                    exc.addSuppressed( intExc );
+                    throw exc;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Executes a given database action in a new transaction.
+     * If the action completes normally the transaction is committed,
+     * otherwise it is rolled back.
+     * 
+     * @param action    the given database action
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    private void runOnce( SQLAction action ) throws SQLException
+    {
+        connection.setAutoCommit( false );
+        try
+        {
+            action.execute();
+            connection.commit();
+        }
+        catch ( SQLException | RuntimeException exc )
+        {
+            try
+            {
+                connection.rollback();
+            }
+            catch ( SQLException rollbackExc )
+            {
+                exc.addSuppressed( rollbackExc );
+            }
+            throw exc;
+        }
+        finally
+        {
+            connection.setAutoCommit( true );
+        }
+    }
+    
+    /**
+     * Gets all titles for a given list, in order of forecast ready date.
+     * Titles without a forecast are at the end of the list.
+     * 
+     * @param listName  the name of the given list
+     * 
+     * @return  all titles for the given list, in order of ready date
+     * 
+     * @throws KCLSException if an error occurs
+     */
+    public List<Title> getTitlesForListByReadyDate( String listName )
+        throws KCLSException
+    {
+        Optional<List<Title>>   cached  = 
+            listCache.get( TITLE_TYPE, byReadyDateShape, listName );
+        if ( cached.isPresent() )
+            return cached.get();
+        
+        List<Title> titles  = new ArrayList<>();
+        try
+        {
+            logger.info( "getting titles by ready date for: " + listName );
+            long    stamp   = listCache.getStamp();
+            titles.addAll( titlesTable.getTitleListByReadyDate( listName ) );
+            attributesTable.getAttributesForList( 
+                TITLE_TYPE, 
+                listsTable.getListID( listName ), 
+                titles
+            );
+            titles.forEach( entityCache::put );
+            listCache.put( 
+                TITLE_TYPE, 
+                byReadyDateShape, 
+                listName, 
+                titles, 
+                stamp
+            );
+        }
+        catch ( SQLException exc )
+        {
+            String  message = 
+                formatSQLError( "getting titles by ready date", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+        
+        return titles;
+    }
+    
+    /**
+     * Deletes a list, in a single transaction.
+     * Titles, archived titles and authors in the list 
+     * are moved to a given list or, if no such list is given, 
+     * deleted along with their comments, attributes and samples.
+     * 
+     * @param ident     the row ID of the list to delete
+     * @param toIdent   the row ID of the list to move the contents
+     *                  of the deleted list to; 
+     *                  if less than 1 the contents are deleted
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    private void deleteList( int ident, int toIdent ) throws SQLException
+    {
+        runInTransaction( () -> {
+            if ( toIdent > 0 )
+            {
+                titlesTable.reassignTitles( ident, toIdent );
+                titlesTable.reassignArchivedTitles( ident, toIdent );
+                authorsTable.reassignAuthors( ident, toIdent );
+            }
+            else
+            {
+                commentsTable.deleteArchivedCommentsForList( ident );
+                attributesTable.deleteAttributesForArchivedList( ident );
+                qposHistoryTable.deleteSamplesForArchivedList( ident );
+                titlesTable.deleteArchivedTitlesForList( ident );
+                commentsTable.deleteCommentsForList( TITLE_TYPE, ident );
+                commentsTable.deleteCommentsForList( AUTHOR_TYPE, ident );
+                attributesTable.deleteAttributesForList( TITLE_TYPE, ident );
+                attributesTable.deleteAttributesForList( AUTHOR_TYPE, ident );
+                qposHistoryTable.deleteSamplesForList( ident );
+                titlesTable.deleteTitlesForList( ident );
+                authorsTable.deleteAuthorsForList( ident );
+            }
+            listsTable.deleteList( ident );
+        } );
+        evictAll();
+    }
+    
+    /**
+     * Gets the row ID of a given list. If the list has not been read
+     * from the database, its ID is looked up by name.
+     * 
+     * @param list  the given list
+     * 
+     * @return  the row ID of the given list
+     * 
+     * @throws SQLException     if a SQL error occurs
+     * @throws KCLSException    if the list is not in the database
+     */
+    private int getListIdent( KCLSList list ) 
+        throws SQLException, KCLSException
+    {
+        OptionalInt optIdent    = list.getIdent();
+        int         ident       = 
+            optIdent.isPresent() ? 
+                optIdent.getAsInt() : 
+                listsTable.getListID( list.getDialogTitle() );
+        if ( ident < 1 )
+        {
+            String  message = 
+                "Expected ID for list: " + list.getDialogTitle()
+                + " not found";
+            logger.severe( message );
+            throw new KCLSException( message );
+        }
+        return ident;
+    }
+    
+    /**
+     * Changes the ranks of the members of a given list
+     * according to a plan computed from their current ranks.
+     * The ranks are read, and the plan is computed and applied,
+     * in a single transaction.
+     * 
+     * @param listName  the name of the given list
+     * @param prefix    describes the operation in error messages
+     * @param planner   computes the plan from the current ranks,
+     *                  given in rank order
+     * 
+     * @return the plan that was applied
+     * 
+     * @throws KCLSException 
+     *      if an error occurs, or if the given list does not exist
+     */
+    private RankPlan rerank( 
+        String listName, 
+        String prefix, 
+        Function<Map<Integer, Integer>, RankPlan> planner
+    ) throws KCLSException
+    {
+        try
+        {
+            int         listID  = listsTable.getListID( listName );
+            KCLSList    list    = 
+                listID < 1 ? null : listsTable.getList( listID );
+            if ( list == null )
+            {
+                String  message = "List not found: " + listName;
+                logger.severe( message );
+                throw new KCLSException( message );
+            }
+            
+            int             type    = list.getListType();
+            List<RankPlan>  result  = new ArrayList<>();
+            runInTransaction( () -> {
+                result.clear();
+                RankPlan    plan;
+                if ( type == TITLE_TYPE )
+                {
+                    plan = planner.apply( titlesTable.getTitleRanks( listID ) );
+                    titlesTable.updateTitleRanks( plan.getChanges() );
+                }
+                else
+                {
+                    plan = 
+                        planner.apply( authorsTable.getAuthorRanks( listID ) );
+                    authorsTable.updateAuthorRanks( plan.getChanges() );
+                }
+                result.add( plan );
+            } );
+            
+            RankPlan    plan    = result.get( 0 );
+            Entity      entity  = 
+                type == TITLE_TYPE ? Entity.TITLE : Entity.AUTHOR;
+            logger.info( 
+                prefix + ": " + listName + ": " 
+                + plan.getChanges().size() + " ranks changed"
+            );
+            for ( int ident : plan.getChanges().keySet() )
+                evict( type, ident );
+            for ( int ident : plan.getChanges().keySet() )
+                publishChange( Action.UPDATED, entity, ident, listName );
+            return plan;
+        }
+        catch ( SQLException exc )
+        {
+            String  message = formatSQLError( prefix, exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw translateSQLException( message, exc );
+        }
+    }
+    
+    /**
+     * Repairs all rows with a given referential integrity problem,
+     * in batches of up to Table.MAX_IN_LIST_SIZE rows,
+     * each batch in a separate transaction.
+     * 
+     * @param problem   the given problem
+     * 
+     * @return the number of rows repaired
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    private int repair( Problem problem ) throws SQLException
+    {
+        int             total   = 0;
+        int             limit   = Table.MAX_IN_LIST_SIZE;
+        List<Integer>   batch   = new ArrayList<>();
+        int[]           count   = new int[1];
+        do
+        {
+            runInTransaction( () -> {
+                batch.clear();
+                batch.addAll( consistencyScanner.getIdents( problem, limit ) );
+                count[0] = 
+                    batch.isEmpty() ? 0 
+                        : consistencyScanner.repair( problem, batch );
+            } );
+            total += count[0];
+        } while ( batch.size() == limit && count[0] > 0 );
+        return total;
+    }
+    
+    /**
+     * Gets the items of a merged batch that were inserted.
+     * 
+     * @param <T>       the type of the items
+     * @param batch     the items of the batch
+     * @param outcomes  the outcome of the merge of each item,
+     *                  in the same order as the items
+     * 
+     * @return  the items that were inserted
+     */
+    private static <T extends LibraryItem> List<T> 
+    getInserted( List<T> batch, List<Outcome> outcomes )
+    {
+        List<T> inserted    = new ArrayList<>();
+        for ( int inx = 0 ; inx < batch.size() ; ++inx )
+            if ( outcomes.get( inx ) == Outcome.INSERTED )
+                inserted.add( batch.get( inx ) );
+        return inserted;
+    }
+    
+    /**
+     * Removes a given Title or Author from the entity cache,
+     * and invalidates every cached list query result that contains it.
+     *
+     * @param item  the given Title or Author
+     */
+    private void evict( LibraryItem item )
+    {
+        entityCache.remove( item );
+        listCache.invalidateItem( item );
+    }
+    
+    /**
+     * Removes the entity with the given type and row ID 
+     * from the entity cache,
+     * and invalidates every cached list query result that contains it.
+     *
+     * @param type  the given type; TITLE_TYPE or AUTHOR_TYPE
+     * @param ident the given row ID
+     */
+    private void evict( int type, int ident )
+    {
+        entityCache.remove( type, ident );
+        listCache.invalidateItem( type, ident );
+    }
+    
+    /**
+     * Removes the authors with the given row IDs from the entity cache,
+     * and invalidates every cached list query result that contains them.
+     * Used after titles have been added to or removed from authors,
+     * which changes the authors' current counts.
+     *
+     * @param authorIDs the given row IDs
+     */
+    private void evictAuthors( Collection<Integer> authorIDs )
+    {
+        for ( int ident : authorIDs )
+            evict( AUTHOR_TYPE, ident );
+    }
+    
+    /**
+     * Gets the row ID of the author of a given title, 
+     * as stored in the TITLES table.
+     *
+     * @param title the given title
+     * 
+     * @return  a set containing the row ID of the author 
+     *          of the given title; empty if the title has no row ID, 
+     *          no author, or is not in the TITLES table
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    private Set<Integer> getAuthorIDs( Title title ) throws SQLException
+    {
+        OptionalInt     optIdent    = title.getIdent();
+        Set<Integer>    authorIDs   = 
+            optIdent.isEmpty() ? Collections.emptySet() :
+                titlesTable.getAuthorIDs( 
+                    Collections.singletonList( optIdent.getAsInt() )
+                );
+        return authorIDs;
+    }
+    
+    /**
+     * Gets the row ID of the author with a given name.
+     *
+     * @param name  the given name
+     * 
+     * @return  a set containing the row ID of the author 
+     *          with the given name; empty if there is no such author
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    private Set<Integer> getAuthorIDs( String name ) throws SQLException
+    {
+        int     ident   = authorsTable.getAuthorID( name );
+        return 
+            ident > 0 ? Collections.singleton( ident ) : Collections.emptySet();
+    }
+    
+    /**
+     * Removes all entities of a given type from the entity cache,
+     * and invalidates all cached list query results of that type.
+     *
+     * @param type  the given type; TITLE_TYPE or AUTHOR_TYPE
+     */
+    private void evictAll( int type )
+    {
+        entityCache.removeAll( type );
+        listCache.invalidateType( type );
+    }
+    
+    /**
+     * Clears the entity cache, 
+     * and invalidates all cached list query results.
+     */
+    private void evictAll()
+    {
+        entityCache.clear();
+        listCache.clear();
+    }
+    
+    /**
+     * Removes the owner of a given comment from the entity cache.
+     * If the owner cannot be determined all entities of
+     * the comment's type are removed.
+     *
+     * @param comment   the given comment
+     */
+    private void evictOwner( Comment comment )
+    {
+        int         type        = comment.getType();
+        OptionalInt optItemID   = comment.getItemID();
+        if ( optItemID.isPresent() )
+            evict( type, optItemID.getAsInt() );
+        else
+            evictAll( type );
+    }
+
+    /**
+     * Publishes a change event to all registered listeners.
+     * Each listener is invoked via the configured change executor;
+     * exceptions thrown by a listener are logged and otherwise ignored.
+     * The version of the list the entity belongs to
+     * is advanced first, whether or not there are listeners,
+     * so that cached results for the list are no longer used.
+     *
+     * @param action    the kind of change that took place
+     * @param entity    the type of entity that changed
+     * @param ident     the row ID of the entity that changed
+     * @param listName  the name of the list the entity belongs to;
+     *                  may be null if not known
+     */
+    private void publishChange(
+        Action action,
+        Entity entity,
+        int ident,
+        String listName
+    )
+    {
+        if ( entity == Entity.TITLE )
+            listCache.invalidateList( TITLE_TYPE, listName );
+        else if ( entity == Entity.AUTHOR )
+            listCache.invalidateList( AUTHOR_TYPE, listName );
+        else if ( entity == Entity.LIST )
+            listCache.clear();
+        
+        if ( changeListeners.isEmpty() )
+            return;
+
+        DBChangeEvent   event   =
+            new DBChangeEvent( action, entity, ident, listName );
+        logger.fine( "publishing change: " + event );
+        for ( DBChangeListener listener : changeListeners )
+        {
+            changeExecutor.execute( () -> {
+                try
+                {
+                    listener.dbChanged( event );
+                }
+                catch ( RuntimeException exc )
+                {
+                    String  message = "change listener failed: " + event;
+                    logger.log( Level.WARNING, message, exc );
+                }
+            } );
+        }
+    }
+
+    /**
+     * Publishes a change event for a given LibraryItem.
+     *
+     * @param action    the kind of change that took place
+     * @param item      the given LibraryItem
+     */
+    private void publishChange( Action action, LibraryItem item )
+    {
+        Entity  entity  = item instanceof Title ? Entity.TITLE : Entity.AUTHOR;
+        int     ident   = item.getIdent().orElse( -1 );
+        publishChange( action, entity, ident, item.getListName() );
+    }
+
+    /**
+     * Creates the exception to throw for a given SQLException.
+     * Lock timeouts and deadlocks are mapped to 
+     * LockTimeoutException and DeadlockException, respectively,
+     * after logging a snapshot of the lock tables;
+     * any other error is mapped to a KCLSException.
+     * 
+     * @param message   the message for the new exception
+     * @param exc       the given SQLException
+     * 
+     * @return the exception to throw
+     */
+    KCLSException translateSQLException( String message, SQLException exc )
+    {
+        String          state   = exc.getSQLState();
+        KCLSException   kExc    = null;
+        if ( DEADLOCK_STATE.equals( state ) )
+        {
+            logLockSnapshot( message );
+            kExc = new DeadlockException( message, exc );
+        }
+        else if ( LOCK_TIMEOUT_STATE.equals( state ) 
+            || LOCK_TIMEOUT_DUMP_STATE.equals( state ) )
+        {
+            logLockSnapshot( message );
+            kExc = new LockTimeoutException( message, exc );
+        }
+        else
+            kExc = new KCLSException( message, exc );
+        return kExc;
+    }
+    
+    /**
+     * Takes a snapshot of the lock tables and logs it.
+     * Errors are logged and otherwise ignored,
+     * so as not to mask the error being reported.
+     * 
+     * @param message   the message describing the failed operation
+     */
+    private void logLockSnapshot( String message )
+    {
+        try
+        {
+            LockSnapshot    snapshot    = lockWatchdog.takeSnapshot();
+            logger.warning( message + "\n" + snapshot.getReport() );
+        }
+        catch ( KCLSException exc )
+        {
+            // already logged by LockWatchdog
+        }
+    }
+    
+    static String formatSQLError( String prefix, SQLException exc )
     {
         int     errorCode   = exc.getErrorCode();
         String  sqlState    = exc.getSQLState();
@@ -1210,8 +4319,42 @@ public class DBServer
             String  message = 
                 "database connection failure for URL: " + dbURL; 
             logger.log( Level.SEVERE, message, exc );
-            throw new KCLSException( message, exc );
+            throw translateSQLException( message, exc );
         }
         return conn;
     }
+    
+    /**
+     * Consumes the text of a comment, streamed from the database.
+     * 
+     * @see DBServer#readCommentText(int, TextConsumer)
+     */
+    @FunctionalInterface
+    public interface TextConsumer
+    {
+        /**
+         * Consumes the text of a comment.
+         * 
+         * @param reader    a Reader that streams the text of the comment
+         * 
+         * @throws IOException if an I/O error occurs
+         */
+        void accept( Reader reader ) throws IOException;
+    }
+    
+    /**
+     * A unit of database work that may throw a SQLException.
+     * 
+     * @see DBServer#runInTransaction(SQLAction, LibraryItem...)
+     */
+    @FunctionalInterface
+    private interface SQLAction
+    {
+        /**
+         * Performs the database work.
+         * 
+         * @throws SQLException if a SQL error occurs
+         */
+        void execute() throws SQLException;
+    }
 }
@@ -0,0 +1,151 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.DBConstants.AUTHORS_ID_FIELD;
+import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.CURRENT_COUNT_FIELD;
+import static kcls_manager.database.DBConstants.LISTS_ID_FIELD;
+import static kcls_manager.database.DBConstants.LISTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.VERSION_FIELD;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+
+/**
+ * Provides database support for computing the state stamp
+ * of the database: a fingerprint of the contents of the LISTS,
+ * AUTHORS and TITLES tables, which changes whenever their
+ * contents change.
+ * The stamp is computed from the tables themselves,
+ * so maintaining it costs nothing when the tables are changed,
+ * and no lock is held on behalf of the stamp
+ * inside the transactions that change them.
+ * <p>
+ * Every change to an author or title increments its version,
+ * and row IDs are never reused, so the AUTHORS and TITLES tables
+ * are summarized by their row count, highest row ID
+ * and the sum of their versions;
+ * the current count of an author, which is maintained by triggers
+ * without changing the author's version, is summed separately.
+ * The LISTS table has no version; it is small,
+ * and every row is hashed.
+ * This class should only be used inside the database package.
+ *
+ * @author jstra
+ *
+ * @see ListSnapshot
+ */
+public class DBStateStamp
+{
+    /**
+     * Combines the values summarizing the tables into a stamp;
+     * a large odd multiplier ensures that small changes
+     * to different values cannot cancel each other out.
+     */
+    private static final long   MULTIPLIER  = 0x9E3779B97F4A7C15L;
+
+    /** Summarizes the TITLES table */
+    private static final String    getTitlesStateSQL   =
+        "SELECT COUNT(*), MAX( " + TITLES_ID_FIELD + " ), "
+        + "SUM( CAST( " + VERSION_FIELD + " AS BIGINT ) )"
+        + " FROM " + TITLES_TABLE_NAME;
+    private final PreparedStatement getTitlesStatePStatement;
+
+    /** Summarizes the AUTHORS table */
+    private static final String    getAuthorsStateSQL   =
+        "SELECT COUNT(*), MAX( " + AUTHORS_ID_FIELD + " ), "
+        + "SUM( CAST( " + VERSION_FIELD + " AS BIGINT ) ), "
+        + "SUM( CAST( " + CURRENT_COUNT_FIELD + " AS BIGINT ) )"
+        + " FROM " + AUTHORS_TABLE_NAME;
+    private final PreparedStatement getAuthorsStatePStatement;
+
+    /** Gets all rows of the LISTS table, in a stable order */
+    private static final String    getListsSQL   =
+        "SELECT * FROM " + LISTS_TABLE_NAME
+        + " ORDER BY " + LISTS_ID_FIELD;
+    private final PreparedStatement getListsPStatement;
+
+    public DBStateStamp( DBServer server )
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+
+        getTitlesStatePStatement =
+            server.getLazyPreparedStatement( getTitlesStateSQL, noGenKeys );
+        getAuthorsStatePStatement =
+            server.getLazyPreparedStatement( getAuthorsStateSQL, noGenKeys );
+        getListsPStatement =
+            server.getLazyPreparedStatement( getListsSQL, noGenKeys );
+    }
+
+    /**
+     * Gets the state stamp of the database.
+     * Two stamps are equal if the contents of the LISTS, AUTHORS
+     * and TITLES tables have not changed between them.
+     * The tables are read but not locked beyond each read,
+     * so a change committed while the stamp is computed
+     * may or may not be reflected in it.
+     *
+     * @return the state stamp of the database
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public long getStateStamp() throws SQLException
+    {
+        long    stamp   = 0;
+        stamp = combine( stamp, getTitlesStatePStatement );
+        stamp = combine( stamp, getAuthorsStatePStatement );
+        try ( ResultSet rSet = getListsPStatement.executeQuery() )
+        {
+            int     columns = rSet.getMetaData().getColumnCount();
+            while ( rSet.next() )
+                for ( int inx = 1 ; inx <= columns ; ++inx )
+                    stamp = combine(
+                        stamp,
+                        Objects.hashCode( rSet.getObject( inx ) )
+                    );
+        }
+        return stamp;
+    }
+
+    /**
+     * Combines the values in the single row returned
+     * by a given query into a given stamp.
+     *
+     * @param stamp     the given stamp
+     * @param statement the given query
+     *
+     * @return  the combined stamp
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private static long combine( long stamp, PreparedStatement statement )
+        throws SQLException
+    {
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            if ( !rSet.next() )
+                throw new SQLException( "no summary row" );
+            int     columns = rSet.getMetaData().getColumnCount();
+            for ( int inx = 1 ; inx <= columns ; ++inx )
+                stamp = combine( stamp, rSet.getLong( inx ) );
+        }
+        return stamp;
+    }
+
+    /**
+     * Combines a given value into a given stamp.
+     *
+     * @param stamp the given stamp
+     * @param value the given value
+     *
+     * @return  the combined stamp
+     */
+    private static long combine( long stamp, long value )
+    {
+        return stamp * MULTIPLIER + value;
+    }
+}
@@ -0,0 +1,362 @@
+package kcls_manager.database;
+
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import kcls_manager.main.Author;
+import kcls_manager.main.Comment;
+import kcls_manager.main.LibraryItem;
+import kcls_manager.main.Title;
+
+/**
+ * Bounded identity map for Title and Author objects,
+ * keyed by entity type (TITLE_TYPE or AUTHOR_TYPE) and row ID.
+ * When the number of cached entities exceeds the capacity
+ * of the cache the least-recently used entity is evicted.
+ *
+ * The cache never hands out the objects it stores;
+ * entities are copied (including their comments)
+ * both when they are stored and when they are retrieved,
+ * so that modifications made by a caller cannot
+ * corrupt the cache.
+ *
+ * Hit and miss counts are maintained so that the effectiveness
+ * of the cache can be monitored.
+ *
+ * This class is thread-safe.
+ *
+ * @author jstra
+ *
+ * @see DBServer#getEntityCache()
+ */
+public class EntityCache
+{
+    /** The default maximum number of entities in the cache. */
+    public static final int DEF_CAPACITY    = 1024;
+
+    /** The maximum number of entities in the cache. */
+    private final int                       capacity;
+
+    /** Cached entities, in least-recently-used order. */
+    private final Map<Long,LibraryItem>     entities;
+
+    /** The number of lookups satisfied by the cache. */
+    private long    hits        = 0;
+
+    /** The number of lookups not satisfied by the cache. */
+    private long    misses      = 0;
+
+    /** The number of entities evicted to make room for new entities. */
+    private long    evictions   = 0;
+
+    /**
+     * Default constructor.
+     * Creates a cache with the default capacity.
+     *
+     * @see #DEF_CAPACITY
+     */
+    public EntityCache()
+    {
+        this( DEF_CAPACITY );
+    }
+
+    /**
+     * Constructor.
+     * Creates a cache with a given capacity.
+     * A capacity of 0 effectively disables the cache.
+     *
+     * @param capacity  the given capacity
+     *
+     * @throws IllegalArgumentException if <em>capacity</em> is negative
+     */
+    public EntityCache( int capacity )
+        throws IllegalArgumentException
+    {
+        if ( capacity < 0 )
+            throw new IllegalArgumentException( "negative cache capacity" );
+        this.capacity = capacity;
+        entities = new LinkedHashMap<Long,LibraryItem>( 16, .75f, true )
+        {
+            @Override
+            protected boolean
+            removeEldestEntry( Map.Entry<Long,LibraryItem> eldest )
+            {
+                boolean rcode   = size() > EntityCache.this.capacity;
+                if ( rcode )
+                    ++evictions;
+                return rcode;
+            }
+        };
+    }
+
+    /**
+     * Gets a copy of the title with the given row ID,
+     * or null if the title is not in the cache.
+     *
+     * @param ident the given row ID
+     *
+     * @return  a copy of the cached title, or null if not cached
+     */
+    public synchronized Title getTitle( int ident )
+    {
+        LibraryItem item    = lookup( TITLE_TYPE, ident );
+        Title       title   = item == null ? null : copy( (Title)item );
+        return title;
+    }
+
+    /**
+     * Gets a copy of the author with the given row ID,
+     * or null if the author is not in the cache.
+     *
+     * @param ident the given row ID
+     *
+     * @return  a copy of the cached author, or null if not cached
+     */
+    public synchronized Author getAuthor( int ident )
+    {
+        LibraryItem item    = lookup( AUTHOR_TYPE, ident );
+        Author      author  = item == null ? null : copy( (Author)item );
+        return author;
+    }
+
+    /**
+     * Adds a copy of a given Title or Author to the cache,
+     * replacing any previously cached version.
+     * Items without a row ID are ignored,
+     * as are items that do not hold all their attributes;
+     * any previously cached version of such an item is removed.
+     *
+     * @param item  the given Title or Author
+     *
+     * @see LibraryItem#isAttributesLoaded()
+     */
+    public synchronized void put( LibraryItem item )
+    {
+        OptionalInt optIdent    = item.getIdent();
+        if ( capacity == 0 || optIdent.isEmpty() )
+            return;
+        if ( !item.isAttributesLoaded() )
+        {
+            remove( item );
+            return;
+        }
+
+        int         ident       = optIdent.getAsInt();
+        if ( item instanceof Title )
+            entities.put( key( TITLE_TYPE, ident ), copy( (Title)item ) );
+        else if ( item instanceof Author )
+            entities.put( key( AUTHOR_TYPE, ident ), copy( (Author)item ) );
+    }
+
+    /**
+     * Removes the entity with the given type and row ID from the cache.
+     *
+     * @param type  the given type; TITLE_TYPE or AUTHOR_TYPE
+     * @param ident the given row ID
+     */
+    public synchronized void remove( int type, int ident )
+    {
+        entities.remove( key( type, ident ) );
+    }
+
+    /**
+     * Removes a given Title or Author from the cache.
+     * Items without a row ID are ignored.
+     *
+     * @param item  the given Title or Author
+     */
+    public synchronized void remove( LibraryItem item )
+    {
+        OptionalInt optIdent    = item.getIdent();
+        if ( optIdent.isPresent() )
+        {
+            int type    = item instanceof Title ? TITLE_TYPE : AUTHOR_TYPE;
+            remove( type, optIdent.getAsInt() );
+        }
+    }
+
+    /**
+     * Removes all entities of a given type from the cache.
+     *
+     * @param type  the given type; TITLE_TYPE or AUTHOR_TYPE
+     */
+    public synchronized void removeAll( int type )
+    {
+        Iterator<Long>  iter    = entities.keySet().iterator();
+        while ( iter.hasNext() )
+            if ( (int)(iter.next() >>> 32) == type )
+                iter.remove();
+    }
+
+    /**
+     * Removes all entities from the cache.
+     * Statistics are not affected.
+     */
+    public synchronized void clear()
+    {
+        entities.clear();
+    }
+
+    /**
+     * Gets the maximum number of entities in the cache.
+     *
+     * @return the maximum number of entities in the cache
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of entities currently in the cache.
+     *
+     * @return the number of entities currently in the cache
+     */
+    public synchronized int size()
+    {
+        return entities.size();
+    }
+
+    /**
+     * Gets the number of lookups satisfied by the cache.
+     *
+     * @return the number of lookups satisfied by the cache
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups not satisfied by the cache.
+     *
+     * @return the number of lookups not satisfied by the cache
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entities evicted to make room
+     * for new entities.
+     *
+     * @return  the number of entities evicted to make room
+     *          for new entities
+     */
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Gets the fraction of lookups satisfied by the cache.
+     *
+     * @return  the fraction of lookups satisfied by the cache,
+     *          in the range [0,1]; 0 if there have been no lookups
+     */
+    public synchronized double getHitRate()
+    {
+        long    total   = hits + misses;
+        double  rate    = total == 0 ? 0 : (double)hits / total;
+        return rate;
+    }
+
+    /**
+     * Returns a string summarizing the statistics for this cache.
+     */
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "size=" ).append( entities.size() ).append( "," )
+            .append( "capacity=" ).append( capacity ).append( "," )
+            .append( "hits=" ).append( hits ).append( "," )
+            .append( "misses=" ).append( misses ).append( "," )
+            .append( "evictions=" ).append( evictions ).append( "," )
+            .append( String.format( "hitRate=%.3f", getHitRate() ) );
+        return bldr.toString();
+    }
+
+    /**
+     * Looks up an entity, and updates hit/miss statistics.
+     *
+     * @param type  the type of the entity
+     * @param ident the row ID of the entity
+     *
+     * @return  the cached entity, or null if not found
+     */
+    private LibraryItem lookup( int type, int ident )
+    {
+        LibraryItem item    = entities.get( key( type, ident ) );
+        if ( item == null )
+            ++misses;
+        else
+            ++hits;
+        return item;
+    }
+
+    /**
+     * Combines an entity type and row ID into a single key.
+     *
+     * @param type  the entity type
+     * @param ident the row ID
+     *
+     * @return  the key for the given type and row ID
+     */
+    private static Long key( int type, int ident )
+    {
+        long    key     = ((long)type << 32) | (ident & 0xFFFFFFFFL);
+        return key;
+    }
+
+    /**
+     * Makes a deep copy of a given title.
+     *
+     * @param title the given title
+     *
+     * @return  a deep copy of the given title
+     */
+    static Title copy( Title title )
+    {
+        Title   copy    = new Title( title );
+        copy.setComments( copy( title.getComments() ) );
+        return copy;
+    }
+
+    /**
+     * Makes a deep copy of a given author.
+     *
+     * @param author the given author
+     *
+     * @return  a deep copy of the given author
+     */
+    static Author copy( Author author )
+    {
+        Author  copy    = new Author( author );
+        copy.setComments( copy( author.getComments() ) );
+        return copy;
+    }
+
+    /**
+     * Makes a deep copy of a given list of comments.
+     *
+     * @param comments  the given list of comments
+     *
+     * @return  a deep copy of the given list of comments
+     */
+    private static List<Comment> copy( List<Comment> comments )
+    {
+        List<Comment>   copy    = new ArrayList<>();
+        for ( Comment comment : comments )
+            copy.add( new Comment( comment ) );
+        return copy;
+    }
+}
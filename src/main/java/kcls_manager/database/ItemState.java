@@ -0,0 +1,88 @@
+package kcls_manager.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+import kcls_manager.main.Author;
+import kcls_manager.main.Comment;
+import kcls_manager.main.LibraryItem;
+
+/**
+ * The properties of a LibraryItem, and of its comments,
+ * that are assigned by the database server as the item is written:
+ * row IDs, versions and, for authors, the current count.
+ * The state is captured before a transaction starts,
+ * and restored before the transaction is retried,
+ * so that the retry sees the item exactly as the first attempt did.
+ *
+ * @author jstra
+ *
+ * @see RetryPolicy
+ */
+class ItemState
+{
+    /** The item whose state was captured. */
+    private final LibraryItem   item;
+
+    /** The row ID of the item. */
+    private final OptionalInt   ident;
+
+    /** The version of the item. */
+    private final int           version;
+
+    /** The current count of an author; 0 for titles. */
+    private final int           currentCount;
+
+    /** The comments of the item. */
+    private final List<Comment> comments;
+
+    /** The row IDs of the comments, in the same order. */
+    private final List<OptionalInt> commentIdents   = new ArrayList<>();
+
+    /** The item IDs of the comments, in the same order. */
+    private final List<OptionalInt> commentItemIDs  = new ArrayList<>();
+
+    /** The versions of the comments, in the same order. */
+    private final List<Integer>     commentVersions = new ArrayList<>();
+
+    /**
+     * Captures the state of a given item.
+     *
+     * @param item  the given item
+     */
+    public ItemState( LibraryItem item )
+    {
+        this.item = item;
+        ident = item.getIdent();
+        version = item.getVersion();
+        currentCount =
+            item instanceof Author ? ((Author)item).getCurrentCount() : 0;
+        comments = new ArrayList<>( item.getComments() );
+        for ( Comment comment : comments )
+        {
+            commentIdents.add( comment.getIdent() );
+            commentItemIDs.add( comment.getItemID() );
+            commentVersions.add( comment.getVersion() );
+        }
+    }
+
+    /**
+     * Restores the captured state to the item.
+     */
+    public void restore()
+    {
+        item.setIdent( ident );
+        item.setVersion( version );
+        if ( item instanceof Author )
+            ((Author)item).setCurrentCount( currentCount );
+        for ( int inx = 0 ; inx < comments.size() ; ++inx )
+        {
+            Comment comment = comments.get( inx );
+            comment.setIdent( commentIdents.get( inx ) );
+            comment.setItemID( commentItemIDs.get( inx ) );
+            comment.setVersion( commentVersions.get( inx ) );
+        }
+        item.setComments( comments );
+    }
+}
@@ -0,0 +1,520 @@
+package kcls_manager.database;
+
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import kcls_manager.main.Author;
+import kcls_manager.main.Comment;
+import kcls_manager.main.LibraryItem;
+import kcls_manager.main.Title;
+
+/**
+ * Caches the results of list queries, such as all titles in a list,
+ * keyed by entity type, query shape and list name,
+ * so that reopening a list that has not changed
+ * does not touch the database.
+ * <p>
+ * Validity is determined by version counters.
+ * All versions are drawn from a single clock,
+ * which is advanced every time the cache is told of a change:
+ * to a single list, to a single title or author
+ * (which changes every list whose cached result contains it),
+ * to every list of a given type, or to everything.
+ * A result is stored together with the clock value read
+ * before the query was executed, and is valid only while
+ * no change to its list has been recorded since;
+ * so a result whose list changes while the query is in progress
+ * is never served.
+ * <p>
+ * Results are copied, deeply, both when they are stored
+ * and when they are retrieved, so that callers can modify them
+ * freely. The size of each result is estimated,
+ * and the least-recently used results are evicted
+ * to keep the total within a memory budget.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author jstra
+ *
+ * @see DBServer#getListResultCache()
+ */
+public class ListResultCache
+{
+    /** The default memory budget, in bytes. */
+    public static final long    DEF_BUDGET_BYTES    = 8L * 1024 * 1024;
+
+    /** Estimated fixed size of a cached item, in bytes. */
+    private static final long   itemOverhead        = 256;
+
+    /** Estimated fixed size of a cached comment, in bytes. */
+    private static final long   commentOverhead     = 64;
+
+    /** The memory budget, in bytes. */
+    private final long                  budgetBytes;
+
+    /** Cached results, in least-recently-used order. */
+    private final Map<String,Entry>     entries     =
+        new LinkedHashMap<>( 16, .75f, true );
+
+    /** The clock value of the last change to each list. */
+    private final Map<String,Long>      listVersions    = new HashMap<>();
+
+    /** The clock value of the last change to all lists of each type. */
+    private final Map<Integer,Long>     typeVersions    = new HashMap<>();
+
+    /** The clock value of the last change to everything. */
+    private long    allVersion  = 0;
+
+    /** The source of all versions; advanced by every change. */
+    private long    clock       = 0;
+
+    /** The estimated size of all cached results, in bytes. */
+    private long    totalBytes  = 0;
+
+    /** The number of lookups satisfied by the cache. */
+    private long    hits        = 0;
+
+    /** The number of lookups not satisfied by the cache. */
+    private long    misses      = 0;
+
+    /** The number of results evicted to stay within the budget. */
+    private long    evictions   = 0;
+
+    /**
+     * Default constructor.
+     * Creates a cache with the default memory budget.
+     *
+     * @see #DEF_BUDGET_BYTES
+     */
+    public ListResultCache()
+    {
+        this( DEF_BUDGET_BYTES );
+    }
+
+    /**
+     * Creates a cache with a given memory budget.
+     * A budget of 0 effectively disables the cache.
+     *
+     * @param budgetBytes   the given memory budget, in bytes
+     *
+     * @throws IllegalArgumentException if <em>budgetBytes</em> is negative
+     */
+    public ListResultCache( long budgetBytes )
+        throws IllegalArgumentException
+    {
+        if ( budgetBytes < 0 )
+            throw new IllegalArgumentException( "negative cache budget" );
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Gets the current value of the clock.
+     * The value must be obtained before executing a query,
+     * and passed to <em>put</em> along with the result.
+     *
+     * @return the current value of the clock
+     *
+     * @see #put(int, String, String, List, long)
+     */
+    public synchronized long getStamp()
+    {
+        return clock;
+    }
+
+    /**
+     * Gets the version of a given list:
+     * the clock value of the most recent change to it.
+     *
+     * @param type      the type of the list; TITLE_TYPE or AUTHOR_TYPE
+     * @param listName  the name of the list
+     *
+     * @return the version of the given list
+     */
+    public synchronized long getListVersion( int type, String listName )
+    {
+        String  key         = key( type, listName );
+        long    listVersion = listVersions.getOrDefault( key, 0L );
+        long    typeVersion = typeVersions.getOrDefault( type, 0L );
+        return Math.max( allVersion, Math.max( listVersion, typeVersion ) );
+    }
+
+    /**
+     * Gets a copy of the cached result of a given query,
+     * if it is cached and still valid.
+     *
+     * @param <T>       Title or Author, according to <em>type</em>
+     * @param type      the type of the list; TITLE_TYPE or AUTHOR_TYPE
+     * @param shape     identifies the query, for example its sort order
+     * @param listName  the name of the list
+     *
+     * @return a copy of the cached result, if any
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends LibraryItem>
+    Optional<List<T>> get( int type, String shape, String listName )
+    {
+        String          key     = key( type, shape, listName );
+        Entry           entry   = entries.get( key );
+        Optional<List<T>>   result  = Optional.empty();
+        if ( entry != null && entry.stamp < getListVersion( type, listName ) )
+        {
+            remove( key );
+            entry = null;
+        }
+        if ( entry == null )
+            ++misses;
+        else
+        {
+            ++hits;
+            result = Optional.of( (List<T>)(List<?>)copy( entry.items ) );
+        }
+        return result;
+    }
+
+    /**
+     * Stores a copy of the result of a given query.
+     * If the list has changed since the given stamp was obtained,
+     * or the result exceeds the memory budget, it is not stored.
+     * Least-recently used results are evicted as necessary
+     * to stay within the memory budget.
+     *
+     * @param type      the type of the list; TITLE_TYPE or AUTHOR_TYPE
+     * @param shape     identifies the query, for example its sort order
+     * @param listName  the name of the list
+     * @param items     the result of the query
+     * @param stamp     the clock value obtained before
+     *                  the query was executed
+     *
+     * @see #getStamp()
+     */
+    public synchronized void put(
+        int                         type,
+        String                      shape,
+        String                      listName,
+        List<? extends LibraryItem> items,
+        long                        stamp
+    )
+    {
+        if ( stamp < getListVersion( type, listName ) )
+            return;
+        long    bytes   = estimateSize( items );
+        if ( bytes > budgetBytes )
+            return;
+
+        String  key     = key( type, shape, listName );
+        remove( key );
+        Entry   entry   =
+            new Entry( type, listName, copy( items ), stamp, bytes );
+        entries.put( key, entry );
+        totalBytes += bytes;
+
+        Iterator<Entry> iter    = entries.values().iterator();
+        while ( totalBytes > budgetBytes && iter.hasNext() )
+        {
+            totalBytes -= iter.next().bytes;
+            iter.remove();
+            ++evictions;
+        }
+    }
+
+    /**
+     * Records a change to a given list.
+     *
+     * @param type      the type of the list; TITLE_TYPE or AUTHOR_TYPE
+     * @param listName  the name of the list; ignored if null
+     */
+    public synchronized void invalidateList( int type, String listName )
+    {
+        if ( listName != null )
+            listVersions.put( key( type, listName ), ++clock );
+    }
+
+    /**
+     * Records a change to a given title or author,
+     * and so to every list whose cached result contains it.
+     *
+     * @param type  TITLE_TYPE or AUTHOR_TYPE
+     * @param ident the row ID of the title or author
+     */
+    public synchronized void invalidateItem( int type, int ident )
+    {
+        Set<String> changed = new HashSet<>();
+        for ( Entry entry : entries.values() )
+            if ( entry.type == type && entry.idents.contains( ident ) )
+                changed.add( entry.listName );
+        for ( String listName : changed )
+            invalidateList( type, listName );
+    }
+
+    /**
+     * Records a change to a given title or author,
+     * and so to every list whose cached result contains it.
+     * Items without a row ID are ignored.
+     *
+     * @param item  the given Title or Author
+     */
+    public void invalidateItem( LibraryItem item )
+    {
+        int type    = item instanceof Title ? TITLE_TYPE : AUTHOR_TYPE;
+        item.getIdent().ifPresent( i -> invalidateItem( type, i ) );
+    }
+
+    /**
+     * Records a change to every list of a given type.
+     *
+     * @param type  TITLE_TYPE or AUTHOR_TYPE
+     */
+    public synchronized void invalidateType( int type )
+    {
+        typeVersions.put( type, ++clock );
+    }
+
+    /**
+     * Records a change to every list.
+     * Statistics are not affected.
+     */
+    public synchronized void clear()
+    {
+        allVersion = ++clock;
+        entries.clear();
+        listVersions.clear();
+        typeVersions.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Gets the memory budget.
+     *
+     * @return the memory budget, in bytes
+     */
+    public long getBudgetBytes()
+    {
+        return budgetBytes;
+    }
+
+    /**
+     * Gets the estimated size of all cached results.
+     *
+     * @return the estimated size of all cached results, in bytes
+     */
+    public synchronized long getTotalBytes()
+    {
+        return totalBytes;
+    }
+
+    /**
+     * Gets the number of results currently in the cache,
+     * including results that are no longer valid
+     * but have not yet been looked up.
+     *
+     * @return the number of results currently in the cache
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups satisfied by the cache.
+     *
+     * @return the number of lookups satisfied by the cache
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups not satisfied by the cache.
+     *
+     * @return the number of lookups not satisfied by the cache
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Gets the number of results evicted to stay within
+     * the memory budget.
+     *
+     * @return  the number of results evicted
+     */
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Returns a string summarizing the statistics for this cache.
+     */
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "size=" ).append( entries.size() ).append( "," )
+            .append( "bytes=" ).append( totalBytes ).append( "," )
+            .append( "budget=" ).append( budgetBytes ).append( "," )
+            .append( "hits=" ).append( hits ).append( "," )
+            .append( "misses=" ).append( misses ).append( "," )
+            .append( "evictions=" ).append( evictions );
+        return bldr.toString();
+    }
+
+    /**
+     * Estimates the memory occupied by a given list of items,
+     * including their comments.
+     *
+     * @param items the given list of items
+     *
+     * @return the estimated size of the given items, in bytes
+     */
+    static long estimateSize( List<? extends LibraryItem> items )
+    {
+        long    bytes   = 0;
+        for ( LibraryItem item : items )
+        {
+            bytes += itemOverhead;
+            bytes += 2 * length( item.getListName() );
+            if ( item instanceof Title )
+            {
+                Title   title   = (Title)item;
+                bytes += 2 * length( title.getTitle() );
+                bytes += 2 * length( title.getAuthor() );
+            }
+            else if ( item instanceof Author )
+                bytes += 2 * length( ((Author)item).getAuthor() );
+            for ( Comment comment : item.getComments() )
+                bytes += commentOverhead + 2 * length( comment.getText() );
+        }
+        return bytes;
+    }
+
+    /**
+     * Removes the result with a given key, if any.
+     *
+     * @param key   the given key
+     */
+    private void remove( String key )
+    {
+        Entry   entry   = entries.remove( key );
+        if ( entry != null )
+            totalBytes -= entry.bytes;
+    }
+
+    /**
+     * Makes a deep copy of a given list of items.
+     *
+     * @param items the given list of items
+     *
+     * @return a deep copy of the given list of items
+     */
+    private static List<LibraryItem>
+    copy( List<? extends LibraryItem> items )
+    {
+        List<LibraryItem>   copy    = new ArrayList<>( items.size() );
+        for ( LibraryItem item : items )
+        {
+            if ( item instanceof Title )
+                copy.add( EntityCache.copy( (Title)item ) );
+            else
+                copy.add( EntityCache.copy( (Author)item ) );
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the length of a string that may be null.
+     *
+     * @param str   the string
+     *
+     * @return the length of the string; 0 if null
+     */
+    private static int length( String str )
+    {
+        return str == null ? 0 : str.length();
+    }
+
+    /**
+     * Combines a list type and name into a single key.
+     *
+     * @param type      the list type
+     * @param listName  the list name
+     *
+     * @return the key for the given type and name
+     */
+    private static String key( int type, String listName )
+    {
+        return type + ":" + listName;
+    }
+
+    /**
+     * Combines a list type, query shape and list name into a single key.
+     *
+     * @param type      the list type
+     * @param shape     the query shape
+     * @param listName  the list name
+     *
+     * @return the key for the given type, shape and name
+     */
+    private static String key( int type, String shape, String listName )
+    {
+        return type + ":" + shape + ":" + listName;
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class Entry
+    {
+        /** The type of the list. */
+        private final int               type;
+        /** The name of the list. */
+        private final String            listName;
+        /** The items in the result. */
+        private final List<LibraryItem> items;
+        /** The row IDs of the items in the result. */
+        private final Set<Integer>      idents  = new HashSet<>();
+        /** The clock value obtained before the query was executed. */
+        private final long              stamp;
+        /** The estimated size of the result, in bytes. */
+        private final long              bytes;
+
+        /**
+         * Constructor.
+         *
+         * @param type      the type of the list
+         * @param listName  the name of the list
+         * @param items     the items in the result
+         * @param stamp     the clock value obtained before
+         *                  the query was executed
+         * @param bytes     the estimated size of the result, in bytes
+         */
+        public Entry(
+            int                 type,
+            String              listName,
+            List<LibraryItem>   items,
+            long                stamp,
+            long                bytes
+        )
+        {
+            this.type = type;
+            this.listName = listName;
+            this.items = items;
+            this.stamp = stamp;
+            this.bytes = bytes;
+            for ( LibraryItem item : items )
+                item.getIdent().ifPresent( idents::add );
+        }
+    }
+}
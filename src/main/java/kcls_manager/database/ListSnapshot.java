@@ -0,0 +1,576 @@
+package kcls_manager.database;
+
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import kcls_manager.main.Author;
+import kcls_manager.main.KCLSList;
+import kcls_manager.main.LibraryItem;
+import kcls_manager.main.Title;
+
+/**
+ * A compact, read-only copy of the contents of all lists,
+ * sufficient to display the lists without access to the database.
+ * A snapshot is written next to the database when the DBServer
+ * shuts down, and can be read at startup, before the database
+ * is booted, so that list dialogs can be populated immediately.
+ * Comments are not included in a snapshot.
+ *
+ * Each snapshot records the database state stamp
+ * at the time it was taken;
+ * once the database is available the snapshot is current
+ * if, and only if, its state stamp matches the state stamp
+ * of the database.
+ *
+ * The binary format consists of:
+ * <ul>
+ * <li>a header: magic number, format version and state stamp;</li>
+ * <li>a dictionary of all distinct strings, each of which
+ *     is thereafter encoded as an index into the dictionary;</li>
+ * <li>each list, followed by its titles or authors.</li>
+ * </ul>
+ * Dates are encoded as epoch days.
+ *
+ * @author jstra
+ *
+ * @see DBServer#createSnapshot()
+ * @see DBServer#isSnapshotCurrent(ListSnapshot)
+ */
+public class ListSnapshot
+{
+    /** Identifies a snapshot file ("KCLS") */
+    private static final int    MAGIC           = 0x4B434C53;
+
+    /** The version of the binary format */
+    private static final int    FORMAT_VERSION  = 2;
+
+    /** Encodes a null string or empty ident */
+    private static final int    NULL_INDEX      = -1;
+
+    /** Encodes a null date */
+    private static final int    NULL_DATE       = Integer.MIN_VALUE;
+
+    /** The database state stamp at the time the snapshot was taken. */
+    private final long                      stateStamp;
+
+    /** All lists, in order. */
+    private final List<KCLSList>            lists   = new ArrayList<>();
+
+    /** The titles in each list of titles, keyed by list name. */
+    private final Map<String,List<Title>>   titles  = new HashMap<>();
+
+    /** The authors in each list of authors, keyed by list name. */
+    private final Map<String,List<Author>>  authors = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param stateStamp    the database state stamp at the time
+     *                      the snapshot is taken
+     */
+    public ListSnapshot( long stateStamp )
+    {
+        this.stateStamp = stateStamp;
+    }
+
+    /**
+     * Adds a list of titles to this snapshot.
+     *
+     * @param list      the list
+     * @param items     the titles in the list
+     */
+    public void addTitleList( KCLSList list, List<Title> items )
+    {
+        lists.add( list );
+        titles.put( list.getDialogTitle(), new ArrayList<>( items ) );
+    }
+
+    /**
+     * Adds a list of authors to this snapshot.
+     *
+     * @param list      the list
+     * @param items     the authors in the list
+     */
+    public void addAuthorList( KCLSList list, List<Author> items )
+    {
+        lists.add( list );
+        authors.put( list.getDialogTitle(), new ArrayList<>( items ) );
+    }
+
+    /**
+     * Gets the database state stamp at the time
+     * the snapshot was taken.
+     *
+     * @return the database state stamp
+     */
+    public long getStateStamp()
+    {
+        return stateStamp;
+    }
+
+    /**
+     * Gets all lists in this snapshot.
+     *
+     * @return an unmodifiable list of all lists in this snapshot
+     */
+    public List<KCLSList> getLists()
+    {
+        return Collections.unmodifiableList( lists );
+    }
+
+    /**
+     * Gets the titles belonging to a given list.
+     *
+     * @param listName  the name of the given list
+     *
+     * @return  an unmodifiable list of the titles belonging to the
+     *          given list; empty if there is no such list of titles
+     */
+    public List<Title> getTitles( String listName )
+    {
+        List<Title> list    =
+            titles.getOrDefault( listName, Collections.emptyList() );
+        return Collections.unmodifiableList( list );
+    }
+
+    /**
+     * Gets the authors belonging to a given list.
+     *
+     * @param listName  the name of the given list
+     *
+     * @return  an unmodifiable list of the authors belonging to the
+     *          given list; empty if there is no such list of authors
+     */
+    public List<Author> getAuthors( String listName )
+    {
+        List<Author>    list    =
+            authors.getOrDefault( listName, Collections.emptyList() );
+        return Collections.unmodifiableList( list );
+    }
+
+    /**
+     * Writes this snapshot to a given file.
+     * The snapshot is written to a temporary file
+     * which then replaces the given file,
+     * so that a failure never leaves a partial snapshot behind.
+     *
+     * @param path  the given file
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void write( Path path ) throws IOException
+    {
+        Path    temp    =
+            path.resolveSibling( path.getFileName() + ".tmp" );
+        try ( OutputStream outStream =
+                new BufferedOutputStream( Files.newOutputStream( temp ) ) )
+        {
+            write( outStream );
+        }
+        Files.move( temp, path, StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     * Writes this snapshot to a given stream.
+     *
+     * @param outStream the given stream
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void write( OutputStream outStream ) throws IOException
+    {
+        // Encode the body first, to collect the dictionary
+        Map<String,Integer>     dictionary  = new LinkedHashMap<>();
+        ByteArrayOutputStream   bodyBytes   = new ByteArrayOutputStream();
+        DataOutputStream        body        = new DataOutputStream( bodyBytes );
+        body.writeInt( lists.size() );
+        for ( KCLSList list : lists )
+        {
+            String  name    = list.getDialogTitle();
+            writeIdent( body, list.getIdent() );
+            body.writeInt( list.getListType() );
+            writeString( body, dictionary, name );
+            writeString( body, dictionary, list.getComponentLabel() );
+            writeDate( body, list.getCreationDate() );
+            writeDate( body, list.getModifyDate() );
+            if ( list.getListType() == TITLE_TYPE )
+            {
+                List<Title>     items   = getTitles( name );
+                body.writeInt( items.size() );
+                for ( Title title : items )
+                    writeTitle( body, dictionary, title );
+            }
+            else
+            {
+                List<Author>    items   = getAuthors( name );
+                body.writeInt( items.size() );
+                for ( Author author : items )
+                    writeAuthor( body, dictionary, author );
+            }
+        }
+        body.flush();
+
+        DataOutputStream    data    = new DataOutputStream( outStream );
+        data.writeInt( MAGIC );
+        data.writeInt( FORMAT_VERSION );
+        data.writeLong( stateStamp );
+        data.writeInt( dictionary.size() );
+        for ( String str : dictionary.keySet() )
+            data.writeUTF( str );
+        bodyBytes.writeTo( data );
+        data.flush();
+    }
+
+    /**
+     * Reads a snapshot from a given file.
+     *
+     * @param path  the given file
+     *
+     * @return the snapshot
+     *
+     * @throws IOException  if an I/O error occurs,
+     *                      or the file is not a valid snapshot
+     */
+    public static ListSnapshot read( Path path ) throws IOException
+    {
+        try ( InputStream inStream =
+                new BufferedInputStream( Files.newInputStream( path ) ) )
+        {
+            return read( inStream );
+        }
+    }
+
+    /**
+     * Reads a snapshot from a given stream.
+     *
+     * @param inStream  the given stream
+     *
+     * @return the snapshot
+     *
+     * @throws IOException  if an I/O error occurs,
+     *                      or the stream does not contain a valid snapshot
+     */
+    public static ListSnapshot read( InputStream inStream ) throws IOException
+    {
+        DataInputStream data    = new DataInputStream( inStream );
+        if ( data.readInt() != MAGIC )
+            throw new IOException( "not a list snapshot" );
+        int             version = data.readInt();
+        if ( version != FORMAT_VERSION )
+            throw new IOException( "unsupported snapshot version " + version );
+
+        ListSnapshot    snapshot    = new ListSnapshot( data.readLong() );
+        String[]        dictionary  = new String[data.readInt()];
+        for ( int inx = 0 ; inx < dictionary.length ; ++inx )
+            dictionary[inx] = data.readUTF();
+
+        int             listCount   = data.readInt();
+        for ( int inx = 0 ; inx < listCount ; ++inx )
+        {
+            OptionalInt ident       = readIdent( data );
+            int         listType    = data.readInt();
+            String      name        = readString( data, dictionary );
+            String      label       = readString( data, dictionary );
+            KCLSList    list        = new KCLSList( listType, label, name );
+            list.setIdent( ident );
+            list.setCreationDate( readDate( data ) );
+            list.setModifyDate( readDate( data ) );
+
+            int         itemCount   = data.readInt();
+            if ( listType == TITLE_TYPE )
+            {
+                List<Title>     items   = new ArrayList<>( itemCount );
+                for ( int jnx = 0 ; jnx < itemCount ; ++jnx )
+                    items.add( readTitle( data, dictionary, name ) );
+                snapshot.addTitleList( list, items );
+            }
+            else if ( listType == AUTHOR_TYPE )
+            {
+                List<Author>    items   = new ArrayList<>( itemCount );
+                for ( int jnx = 0 ; jnx < itemCount ; ++jnx )
+                    items.add( readAuthor( data, dictionary, name ) );
+                snapshot.addAuthorList( list, items );
+            }
+            else
+                throw new IOException( "invalid list type " + listType );
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes the fields common to titles and authors.
+     *
+     * @param data          the stream to write to
+     * @param dictionary    the string dictionary
+     * @param item          the item to write
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeItem(
+        DataOutputStream    data,
+        Map<String,Integer> dictionary,
+        LibraryItem         item
+    ) throws IOException
+    {
+        writeIdent( data, item.getIdent() );
+        data.writeInt( item.getVersion() );
+        data.writeInt( item.getRank() );
+        data.writeInt( item.getRating() );
+        writeString( data, dictionary, item.getSource() );
+        writeDate( data, item.getCreationDate() );
+        writeDate( data, item.getModifyDate() );
+    }
+
+    /**
+     * Reads the fields common to titles and authors.
+     *
+     * @param data          the stream to read from
+     * @param dictionary    the string dictionary
+     * @param listName      the name of the list containing the item
+     * @param item          the item to read into
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static void readItem(
+        DataInputStream data,
+        String[]        dictionary,
+        String          listName,
+        LibraryItem     item
+    ) throws IOException
+    {
+        item.setIdent( readIdent( data ) );
+        item.setVersion( data.readInt() );
+        item.setRank( data.readInt() );
+        item.setRating( data.readInt() );
+        item.setSource( readString( data, dictionary ) );
+        item.setCreationDate( readDate( data ) );
+        item.setModifyDate( readDate( data ) );
+        item.setListName( listName );
+    }
+
+    /**
+     * Writes a title.
+     *
+     * @param data          the stream to write to
+     * @param dictionary    the string dictionary
+     * @param title         the title to write
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeTitle(
+        DataOutputStream    data,
+        Map<String,Integer> dictionary,
+        Title               title
+    ) throws IOException
+    {
+        writeItem( data, dictionary, title );
+        writeString( data, dictionary, title.getTitle() );
+        writeString( data, dictionary, title.getAuthor() );
+        writeString( data, dictionary, title.getMediaType() );
+        data.writeInt( title.getCheckQPos() );
+        data.writeInt( title.getReckonQPos() );
+        writeDate( data, title.getCheckDate() );
+        writeDate( data, title.getReckonDate() );
+        writeDate( data, title.getReadyDate() );
+    }
+
+    /**
+     * Reads a title.
+     *
+     * @param data          the stream to read from
+     * @param dictionary    the string dictionary
+     * @param listName      the name of the list containing the title
+     *
+     * @return the title
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static Title
+    readTitle( DataInputStream data, String[] dictionary, String listName )
+        throws IOException
+    {
+        Title   title   = new Title();
+        readItem( data, dictionary, listName, title );
+        title.setTitle( readString( data, dictionary ) );
+        title.setAuthor( readString( data, dictionary ) );
+        title.setMediaType( readString( data, dictionary ) );
+        title.setCheckQPos( data.readInt() );
+        title.setReckonQPos( data.readInt() );
+        title.setCheckDate( readDate( data ) );
+        title.setReckonDate( readDate( data ) );
+        title.setReadyDate( readDate( data ) );
+        return title;
+    }
+
+    /**
+     * Writes an author.
+     *
+     * @param data          the stream to write to
+     * @param dictionary    the string dictionary
+     * @param author        the author to write
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeAuthor(
+        DataOutputStream    data,
+        Map<String,Integer> dictionary,
+        Author              author
+    ) throws IOException
+    {
+        writeItem( data, dictionary, author );
+        writeString( data, dictionary, author.getAuthor() );
+        data.writeInt( author.getLastCount() );
+        data.writeInt( author.getCurrentCount() );
+    }
+
+    /**
+     * Reads an author.
+     *
+     * @param data          the stream to read from
+     * @param dictionary    the string dictionary
+     * @param listName      the name of the list containing the author
+     *
+     * @return the author
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static Author
+    readAuthor( DataInputStream data, String[] dictionary, String listName )
+        throws IOException
+    {
+        Author  author  = new Author();
+        readItem( data, dictionary, listName, author );
+        author.setAuthor( readString( data, dictionary ) );
+        author.setLastCount( data.readInt() );
+        author.setCurrentCount( data.readInt() );
+        return author;
+    }
+
+    /**
+     * Writes a string as an index into the string dictionary,
+     * adding the string to the dictionary if necessary.
+     *
+     * @param data          the stream to write to
+     * @param dictionary    the string dictionary
+     * @param str           the string to write; may be null
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeString(
+        DataOutputStream    data,
+        Map<String,Integer> dictionary,
+        String              str
+    ) throws IOException
+    {
+        int index   = NULL_INDEX;
+        if ( str != null )
+            index = dictionary.computeIfAbsent( str, s -> dictionary.size() );
+        data.writeInt( index );
+    }
+
+    /**
+     * Reads a string encoded as an index into the string dictionary.
+     *
+     * @param data          the stream to read from
+     * @param dictionary    the string dictionary
+     *
+     * @return the string; may be null
+     *
+     * @throws IOException if an I/O error occurs, or the index is invalid
+     */
+    private static String
+    readString( DataInputStream data, String[] dictionary )
+        throws IOException
+    {
+        int     index   = data.readInt();
+        String  str     = null;
+        if ( index != NULL_INDEX )
+        {
+            if ( index < 0 || index >= dictionary.length )
+                throw new IOException( "invalid string index " + index );
+            str = dictionary[index];
+        }
+        return str;
+    }
+
+    /**
+     * Writes a date as an epoch day.
+     *
+     * @param data  the stream to write to
+     * @param date  the date to write; may be null
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeDate( DataOutputStream data, LocalDate date )
+        throws IOException
+    {
+        data.writeInt( date == null ? NULL_DATE : (int)date.toEpochDay() );
+    }
+
+    /**
+     * Reads a date encoded as an epoch day.
+     *
+     * @param data  the stream to read from
+     *
+     * @return the date; may be null
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static LocalDate readDate( DataInputStream data )
+        throws IOException
+    {
+        int epochDay    = data.readInt();
+        return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay( epochDay );
+    }
+
+    /**
+     * Writes a row ID.
+     *
+     * @param data  the stream to write to
+     * @param ident the row ID to write; may be empty
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeIdent( DataOutputStream data, OptionalInt ident )
+        throws IOException
+    {
+        data.writeInt( ident.orElse( NULL_INDEX ) );
+    }
+
+    /**
+     * Reads a row ID.
+     *
+     * @param data  the stream to read from
+     *
+     * @return the row ID; may be empty
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private static OptionalInt readIdent( DataInputStream data )
+        throws IOException
+    {
+        int ident   = data.readInt();
+        return
+            ident == NULL_INDEX ? OptionalInt.empty() : OptionalInt.of( ident );
+    }
+}
@@ -102,21 +102,21 @@ public class ListsTable extends Table
         final int noGenKeys = Statement.NO_GENERATED_KEYS;
         
         insertListPStatement = 
-            server.getPreparedStatement( insertListSQL, genKeys );
+            server.getLazyPreparedStatement( insertListSQL, genKeys );
         updateListPStatement =
-            server.getPreparedStatement( updateListSQL, genKeys );
+            server.getLazyPreparedStatement( updateListSQL, genKeys );
         deleteListPStatement =
-            server.getPreparedStatement( deleteListSQL, genKeys );
+            server.getLazyPreparedStatement( deleteListSQL, genKeys );
         getAllListsPStatement = 
-            server.getPreparedStatement( getAllListsSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAllListsSQL, noGenKeys );
         getTitleListsPStatement =
-            server.getPreparedStatement( getTitleListsSQL, noGenKeys );
+            server.getLazyPreparedStatement( getTitleListsSQL, noGenKeys );
         getAuthorListsPStatement =
-            server.getPreparedStatement( getAuthorListsSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAuthorListsSQL, noGenKeys );
         getListIDForNamePStatement =
-            server.getPreparedStatement( getListIDForNameSQL, noGenKeys );
+            server.getLazyPreparedStatement( getListIDForNameSQL, noGenKeys );
         getListPStatement =
-            server.getPreparedStatement( getListSQL, noGenKeys );
+            server.getLazyPreparedStatement( getListSQL, noGenKeys );
     }
 
     /**
@@ -0,0 +1,414 @@
+package kcls_manager.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A snapshot of the lock table (SYSCS_DIAG.LOCK_TABLE)
+ * and the transaction table (SYSCS_DIAG.TRANSACTION_TABLE)
+ * of the database, taken while a statement is waiting for a lock.
+ * For each lock being waited for, the snapshot can identify
+ * the transactions holding conflicting locks, and the statements
+ * they are executing, if any.
+ *
+ * @author jstra
+ *
+ * @see LockWatchdog
+ */
+public class LockSnapshot
+{
+    /** Lock state of a lock that has been granted */
+    public static final String  GRANT   = "GRANT";
+
+    /** Lock state of a lock that is being waited for */
+    public static final String  WAIT    = "WAIT";
+
+    /** Lock type of a table lock */
+    public static final String  TABLE   = "TABLE";
+
+    /** Gets all locks that are granted or being waited for */
+    private static final String getLocksSQL         =
+        "SELECT XID, TYPE, MODE, TABLENAME, LOCKNAME, STATE"
+        + " FROM SYSCS_DIAG.LOCK_TABLE"
+        + " ORDER BY TABLENAME, LOCKNAME, XID";
+
+    /** Gets all transactions */
+    private static final String getTransactionsSQL  =
+        "SELECT XID, STATUS, SQL_TEXT FROM SYSCS_DIAG.TRANSACTION_TABLE";
+
+    /** The time the snapshot was taken, in milliseconds since the epoch */
+    private final long                  takenAt;
+
+    /** All locks that are granted or being waited for */
+    private final List<Lock>            locks;
+
+    /** Maps transaction ID to status */
+    private final Map<String,String>    status;
+
+    /** Maps transaction ID to the SQL text of the executing statement */
+    private final Map<String,String>    sqlText;
+
+    /**
+     * Constructor.
+     *
+     * @param takenAt   the time the snapshot was taken,
+     *                  in milliseconds since the epoch
+     * @param locks     all locks that are granted or being waited for
+     * @param status    maps transaction ID to status
+     * @param sqlText   maps transaction ID to the SQL text
+     *                  of its executing statement
+     */
+    public LockSnapshot(
+        long                takenAt,
+        List<Lock>          locks,
+        Map<String,String>  status,
+        Map<String,String>  sqlText
+    )
+    {
+        this.takenAt = takenAt;
+        this.locks = Collections.unmodifiableList( new ArrayList<>( locks ) );
+        this.status = new HashMap<>( status );
+        this.sqlText = new HashMap<>( sqlText );
+    }
+
+    /**
+     * Takes a snapshot of the lock and transaction tables
+     * using a given connection.
+     * The connection should not be the one that is waiting for a lock.
+     *
+     * @param conn  the given connection
+     *
+     * @return  a snapshot of the lock and transaction tables
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public static LockSnapshot take( Connection conn ) throws SQLException
+    {
+        long                takenAt = System.currentTimeMillis();
+        List<Lock>          locks   = new ArrayList<>();
+        Map<String,String>  status  = new HashMap<>();
+        Map<String,String>  sqlText = new HashMap<>();
+        try ( Statement statement = conn.createStatement() )
+        {
+            try ( ResultSet rSet = statement.executeQuery( getLocksSQL ) )
+            {
+                while ( rSet.next() )
+                    locks.add( new Lock(
+                        rSet.getString( "XID" ),
+                        rSet.getString( "TYPE" ),
+                        rSet.getString( "MODE" ),
+                        rSet.getString( "TABLENAME" ),
+                        rSet.getString( "LOCKNAME" ),
+                        rSet.getString( "STATE" )
+                    ) );
+            }
+            try ( ResultSet rSet =
+                    statement.executeQuery( getTransactionsSQL ) )
+            {
+                while ( rSet.next() )
+                {
+                    String  xid = rSet.getString( "XID" );
+                    status.put( xid, rSet.getString( "STATUS" ) );
+                    sqlText.put( xid, rSet.getString( "SQL_TEXT" ) );
+                }
+            }
+        }
+        return new LockSnapshot( takenAt, locks, status, sqlText );
+    }
+
+    /**
+     * Gets the time the snapshot was taken.
+     *
+     * @return the time the snapshot was taken,
+     *         in milliseconds since the epoch
+     */
+    public long getTakenAt()
+    {
+        return takenAt;
+    }
+
+    /**
+     * Gets all locks that are granted or being waited for.
+     *
+     * @return all locks that are granted or being waited for
+     */
+    public List<Lock> getLocks()
+    {
+        return locks;
+    }
+
+    /**
+     * Gets all locks that are being waited for.
+     *
+     * @return all locks that are being waited for
+     */
+    public List<Lock> getWaiting()
+    {
+        List<Lock>  waiting =
+            locks.stream()
+                .filter( Lock::isWaiting )
+                .collect( Collectors.toList() );
+        return waiting;
+    }
+
+    /**
+     * Gets the granted locks that conflict with a given lock:
+     * locks held by other transactions on the same row,
+     * or on the whole of the same table.
+     * Lock modes are not considered, so a shared lock
+     * is reported as blocking a shared request;
+     * in practice a lock is only waited for
+     * when a conflicting lock is held.
+     *
+     * @param waiting   the given lock
+     *
+     * @return the granted locks that conflict with the given lock
+     */
+    public List<Lock> getBlockers( Lock waiting )
+    {
+        List<Lock>  blockers    =
+            locks.stream()
+                .filter( l -> !l.isWaiting() )
+                .filter( l -> !l.getXID().equals( waiting.getXID() ) )
+                .filter( l ->
+                    l.getTableName().equals( waiting.getTableName() )
+                )
+                .filter( l -> l.isTableLock()
+                    || waiting.isTableLock()
+                    || l.getLockName().equals( waiting.getLockName() )
+                )
+                .collect( Collectors.toList() );
+        return blockers;
+    }
+
+    /**
+     * Gets the status of a given transaction.
+     *
+     * @param xid   the ID of the given transaction
+     *
+     * @return the status of the given transaction,
+     *         or null if the transaction is not in the snapshot
+     */
+    public String getStatus( String xid )
+    {
+        return status.get( xid );
+    }
+
+    /**
+     * Gets the SQL text of the statement
+     * currently being executed by a given transaction.
+     * A transaction that holds locks while its client
+     * is doing something else is not executing a statement.
+     *
+     * @param xid   the ID of the given transaction
+     *
+     * @return the SQL text of the statement being executed
+     *         by the given transaction, or null if none
+     */
+    public String getSQLText( String xid )
+    {
+        return sqlText.get( xid );
+    }
+
+    /**
+     * Formats the snapshot for logging.
+     * For each lock being waited for the report lists
+     * the waiting transaction and statement,
+     * followed by each conflicting lock
+     * and the statement its transaction is executing, if any.
+     * If no lock is being waited for all locks are listed.
+     *
+     * @return the formatted snapshot
+     */
+    public String getReport()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        List<Lock>      waiting = getWaiting();
+        bldr.append( locks.size() ).append( " lock(s), " )
+            .append( waiting.size() ).append( " waiting" );
+        for ( Lock lock : waiting )
+        {
+            bldr.append( "\n  WAITING " ).append( lock )
+                .append( "\n      sql: " )
+                .append( formatSQLText( lock.getXID() ) );
+            for ( Lock blocker : getBlockers( lock ) )
+                bldr.append( "\n    BLOCKED BY " ).append( blocker )
+                    .append( " [" ).append( getStatus( blocker.getXID() ) )
+                    .append( "]\n      sql: " )
+                    .append( formatSQLText( blocker.getXID() ) );
+        }
+        if ( waiting.isEmpty() )
+            for ( Lock lock : locks )
+                bldr.append( "\n  " ).append( lock );
+        return bldr.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return getReport();
+    }
+
+    /**
+     * Formats the SQL text of the statement being executed
+     * by a given transaction, for the report.
+     *
+     * @param xid   the ID of the given transaction
+     *
+     * @return the formatted SQL text
+     */
+    private String formatSQLText( String xid )
+    {
+        String  sql = getSQLText( xid );
+        return sql == null ? "(idle)" : sql;
+    }
+
+    /**
+     * A single row of the lock table.
+     */
+    public static class Lock
+    {
+        /** The ID of the transaction that holds, or waits for, the lock */
+        private final String    xid;
+        /** ROW or TABLE */
+        private final String    type;
+        /** The lock mode, for example S, X, IS or IX */
+        private final String    mode;
+        /** The name of the locked table */
+        private final String    tableName;
+        /** Identifies the locked row; "Tablelock" for table locks */
+        private final String    lockName;
+        /** GRANT or WAIT */
+        private final String    state;
+
+        /**
+         * Constructor.
+         *
+         * @param xid       the ID of the transaction that holds,
+         *                  or waits for, the lock
+         * @param type      ROW or TABLE
+         * @param mode      the lock mode
+         * @param tableName the name of the locked table
+         * @param lockName  identifies the locked row
+         * @param state     GRANT or WAIT
+         */
+        public Lock(
+            String  xid,
+            String  type,
+            String  mode,
+            String  tableName,
+            String  lockName,
+            String  state
+        )
+        {
+            this.xid = xid;
+            this.type = type;
+            this.mode = mode;
+            this.tableName = tableName;
+            this.lockName = lockName;
+            this.state = state;
+        }
+
+        /**
+         * Gets the ID of the transaction that holds,
+         * or waits for, the lock.
+         *
+         * @return the ID of the transaction
+         */
+        public String getXID()
+        {
+            return xid;
+        }
+
+        /**
+         * Gets the type of the lock, ROW or TABLE.
+         *
+         * @return the type of the lock
+         */
+        public String getType()
+        {
+            return type;
+        }
+
+        /**
+         * Gets the lock mode, for example S (shared) or X (exclusive).
+         *
+         * @return the lock mode
+         */
+        public String getMode()
+        {
+            return mode;
+        }
+
+        /**
+         * Gets the name of the locked table.
+         *
+         * @return the name of the locked table
+         */
+        public String getTableName()
+        {
+            return tableName;
+        }
+
+        /**
+         * Gets the name that identifies the locked row.
+         *
+         * @return the name that identifies the locked row
+         */
+        public String getLockName()
+        {
+            return lockName;
+        }
+
+        /**
+         * Gets the state of the lock, GRANT or WAIT.
+         *
+         * @return the state of the lock
+         */
+        public String getState()
+        {
+            return state;
+        }
+
+        /**
+         * Indicates whether the lock is being waited for.
+         *
+         * @return true if the lock is being waited for
+         */
+        public boolean isWaiting()
+        {
+            return WAIT.equals( state );
+        }
+
+        /**
+         * Indicates whether the lock is a table lock.
+         *
+         * @return true if the lock is a table lock
+         */
+        public boolean isTableLock()
+        {
+            return TABLE.equals( type );
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder   bldr    = new StringBuilder();
+            bldr.append( "xid=" ).append( xid ).append( " " )
+                .append( type ).append( " " )
+                .append( mode ).append( " " )
+                .append( tableName ).append( " " )
+                .append( lockName ).append( " " )
+                .append( state );
+            return bldr.toString();
+        }
+    }
+}
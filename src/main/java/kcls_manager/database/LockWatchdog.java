@@ -0,0 +1,250 @@
+package kcls_manager.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kcls_manager.database.StatementDiagnostics.Execution;
+import kcls_manager.main.KCLSException;
+
+/**
+ * Watches for DBServer statements that take longer than
+ * a given threshold to execute, which almost always means
+ * they are waiting for a lock held by another transaction.
+ * When such a statement is found, a snapshot of the database's
+ * lock and transaction tables is taken and logged,
+ * identifying the waiting statement, the transactions
+ * holding conflicting locks, and the lock types and modes involved.
+ * Each slow execution is reported once.
+ *
+ * Snapshots are taken on a dedicated connection,
+ * since the DBServer's connection is blocked
+ * for as long as the statement is waiting.
+ *
+ * @author jstra
+ *
+ * @see DBServer#startLockWatchdog(long, long)
+ * @see LockSnapshot
+ */
+public class LockWatchdog
+{
+    private static final String loggerName  =
+        LockWatchdog.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** Default latency threshold, in milliseconds. */
+    public static final long    DEF_THRESHOLD_MILLIS    = 2000;
+
+    /** Default interval between checks, in milliseconds. */
+    public static final long    DEF_PERIOD_MILLIS       = 500;
+
+    /** Name of the thread that watches for slow statements. */
+    private static final String threadName  = "kcls-db-lock-watchdog";
+
+    /** URL of the database. */
+    private final String        dbURL;
+    /** User name required for access to the database. */
+    private final String        dbUserName;
+    /** Password required for access to the database. */
+    private final String        dbPassword;
+
+    /** Supplies the statements currently executing. */
+    private final Supplier<List<Execution>> executing;
+
+    /** Slow executions already reported; guarded by itself. */
+    private final Set<Execution>    reported        = new HashSet<>();
+
+    /** The latency threshold, in milliseconds. */
+    private volatile long           thresholdMillis = DEF_THRESHOLD_MILLIS;
+
+    /** The most recent snapshot; null if none has been taken. */
+    private volatile LockSnapshot   lastSnapshot    = null;
+
+    /** Runs the watchdog; null if not running. */
+    private ScheduledExecutorService    executor    = null;
+
+    /**
+     * Constructor.
+     *
+     * @param dbURL         URL for database access
+     * @param dbUserName    user name for database access
+     * @param dbPassword    password for database access
+     * @param executing     supplies the statements currently executing
+     */
+    public LockWatchdog(
+        String                      dbURL,
+        String                      dbUserName,
+        String                      dbPassword,
+        Supplier<List<Execution>>   executing
+    )
+    {
+        this.dbURL = dbURL;
+        this.dbUserName = dbUserName;
+        this.dbPassword = dbPassword;
+        this.executing = executing;
+    }
+
+    /**
+     * Starts watching for slow statements.
+     * Any previous watch is cancelled.
+     *
+     * @param thresholdMillis   the latency threshold, in milliseconds
+     * @param periodMillis      the interval between checks,
+     *                          in milliseconds
+     */
+    public synchronized void start( long thresholdMillis, long periodMillis )
+    {
+        stop();
+        this.thresholdMillis = thresholdMillis;
+        executor = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread  thread  = new Thread( r, threadName );
+            thread.setDaemon( true );
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(
+            this::checkQuietly,
+            periodMillis,
+            periodMillis,
+            TimeUnit.MILLISECONDS
+        );
+        logger.info(
+            "lock watchdog started, threshold " + thresholdMillis
+            + "ms, period " + periodMillis + "ms"
+        );
+    }
+
+    /**
+     * Stops watching for slow statements, if started.
+     */
+    public synchronized void stop()
+    {
+        if ( executor != null )
+        {
+            executor.shutdown();
+            executor = null;
+            logger.info( "lock watchdog stopped" );
+        }
+    }
+
+    /**
+     * Indicates whether the watchdog is running.
+     *
+     * @return true if the watchdog is running
+     */
+    public synchronized boolean isRunning()
+    {
+        return executor != null;
+    }
+
+    /**
+     * Gets the latency threshold.
+     *
+     * @return the latency threshold, in milliseconds
+     */
+    public long getThresholdMillis()
+    {
+        return thresholdMillis;
+    }
+
+    /**
+     * Gets the most recent snapshot of the lock tables,
+     * whether taken by the watchdog or on demand.
+     *
+     * @return the most recent snapshot, if any
+     */
+    public Optional<LockSnapshot> getLastSnapshot()
+    {
+        return Optional.ofNullable( lastSnapshot );
+    }
+
+    /**
+     * Takes a snapshot of the lock and transaction tables.
+     *
+     * @return a snapshot of the lock and transaction tables
+     *
+     * @throws KCLSException if an error occurs
+     */
+    public LockSnapshot takeSnapshot() throws KCLSException
+    {
+        try ( Connection conn =
+                DriverManager.getConnection( dbURL, dbUserName, dbPassword ) )
+        {
+            lastSnapshot = LockSnapshot.take( conn );
+        }
+        catch ( SQLException exc )
+        {
+            String  message =
+                DBServer.formatSQLError( "taking lock snapshot", exc );
+            logger.log( Level.SEVERE, message, exc );
+            throw new KCLSException( message, exc );
+        }
+        return lastSnapshot;
+    }
+
+    /**
+     * Checks for statements that have been executing
+     * for longer than the threshold.
+     * If any are found that have not already been reported,
+     * a snapshot of the lock tables is taken and logged
+     * along with the slow statements.
+     *
+     * @return the number of slow statements reported
+     *
+     * @throws KCLSException if an error occurs
+     */
+    public int check() throws KCLSException
+    {
+        long            now     = System.currentTimeMillis();
+        List<Execution> current = executing.get();
+        StringBuilder   bldr    = new StringBuilder();
+        int             count   = 0;
+        synchronized ( reported )
+        {
+            reported.retainAll( current );
+            for ( Execution execution : current )
+            {
+                long    elapsed = now - execution.getStartTime();
+                if ( elapsed >= thresholdMillis && reported.add( execution ) )
+                {
+                    ++count;
+                    bldr.append( "statement executing for " )
+                        .append( elapsed ).append( "ms on thread " )
+                        .append( execution.getThreadName() ).append( ": " )
+                        .append( execution.getSQL() ).append( "\n" );
+                }
+            }
+        }
+        if ( count > 0 )
+        {
+            bldr.append( takeSnapshot().getReport() );
+            logger.warning( bldr.toString() );
+        }
+        return count;
+    }
+
+    /**
+     * Checks for slow statements, logging rather than throwing
+     * any error, so that the scheduled check is not cancelled.
+     */
+    private void checkQuietly()
+    {
+        try
+        {
+            check();
+        }
+        catch ( RuntimeException exc )
+        {
+            logger.log( Level.WARNING, "lock watchdog check failed", exc );
+        }
+    }
+}
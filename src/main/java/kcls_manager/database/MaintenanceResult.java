@@ -0,0 +1,162 @@
+package kcls_manager.database;
+
+/**
+ * The outcome of a maintenance pass over a single table:
+ * the kind of compression performed (if any),
+ * the disk footprint of the table before and after compression,
+ * and the time taken to compress the table and to refresh
+ * its optimizer statistics.
+ *
+ * @author jstra
+ *
+ * @see MaintenanceScheduler
+ */
+public class MaintenanceResult
+{
+    /** The kind of compression performed on a table. */
+    public enum Compression
+    {
+        /** The table had no free space to reclaim. */
+        NONE,
+        /** SYSCS_UTIL.SYSCS_INPLACE_COMPRESS_TABLE */
+        IN_PLACE,
+        /** SYSCS_UTIL.SYSCS_COMPRESS_TABLE */
+        FULL
+    }
+
+    /** The name of the table. */
+    private final String        tableName;
+
+    /** The kind of compression performed. */
+    private final Compression   compression;
+
+    /** The disk footprint of the table before compression, in bytes. */
+    private final long          bytesBefore;
+
+    /** The disk footprint of the table after compression, in bytes. */
+    private final long          bytesAfter;
+
+    /** The time taken to compress the table, in milliseconds. */
+    private final long          compressMillis;
+
+    /** The time taken to refresh statistics, in milliseconds. */
+    private final long          statisticsMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param tableName         the name of the table
+     * @param compression       the kind of compression performed
+     * @param bytesBefore       the disk footprint of the table
+     *                          before compression, in bytes
+     * @param bytesAfter        the disk footprint of the table
+     *                          after compression, in bytes
+     * @param compressMillis    the time taken to compress the table,
+     *                          in milliseconds
+     * @param statisticsMillis  the time taken to refresh statistics,
+     *                          in milliseconds
+     */
+    public MaintenanceResult(
+        String      tableName,
+        Compression compression,
+        long        bytesBefore,
+        long        bytesAfter,
+        long        compressMillis,
+        long        statisticsMillis
+    )
+    {
+        this.tableName = tableName;
+        this.compression = compression;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+        this.compressMillis = compressMillis;
+        this.statisticsMillis = statisticsMillis;
+    }
+
+    /**
+     * Gets the name of the table.
+     *
+     * @return the name of the table
+     */
+    public String getTableName()
+    {
+        return tableName;
+    }
+
+    /**
+     * Gets the kind of compression performed.
+     *
+     * @return the kind of compression performed
+     */
+    public Compression getCompression()
+    {
+        return compression;
+    }
+
+    /**
+     * Gets the disk footprint of the table before compression.
+     *
+     * @return the disk footprint of the table before compression, in bytes
+     */
+    public long getBytesBefore()
+    {
+        return bytesBefore;
+    }
+
+    /**
+     * Gets the disk footprint of the table after compression.
+     *
+     * @return the disk footprint of the table after compression, in bytes
+     */
+    public long getBytesAfter()
+    {
+        return bytesAfter;
+    }
+
+    /**
+     * Gets the amount of space reclaimed by compression.
+     *
+     * @return the amount of space reclaimed by compression, in bytes
+     */
+    public long getBytesReclaimed()
+    {
+        return bytesBefore - bytesAfter;
+    }
+
+    /**
+     * Gets the time taken to compress the table.
+     *
+     * @return the time taken to compress the table, in milliseconds
+     */
+    public long getCompressMillis()
+    {
+        return compressMillis;
+    }
+
+    /**
+     * Gets the time taken to refresh the optimizer statistics
+     * for the table.
+     *
+     * @return the time taken to refresh statistics, in milliseconds
+     */
+    public long getStatisticsMillis()
+    {
+        return statisticsMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "{" )
+            .append( "table=" ).append( tableName ).append( "," )
+            .append( "compression=" ).append( compression ).append( "," )
+            .append( "bytesBefore=" ).append( bytesBefore ).append( "," )
+            .append( "bytesAfter=" ).append( bytesAfter ).append( "," )
+            .append( "compressMillis=" ).append( compressMillis )
+            .append( "," )
+            .append( "statisticsMillis=" ).append( statisticsMillis )
+            .append( "}" );
+        return bldr.toString();
+    }
+}
@@ -0,0 +1,494 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kcls_manager.database.MaintenanceResult.Compression;
+import kcls_manager.main.KCLSException;
+
+/**
+ * Periodically reclaims unused space in, and refreshes
+ * the optimizer statistics for, tables that see a lot of churn
+ * (by default TITLES and COMMENTS).
+ *
+ * For each table a maintenance pass:
+ * <ol>
+ * <li>measures the disk footprint of the table and its indexes
+ *     (SYSCS_DIAG.SPACE_TABLE);</li>
+ * <li>if there are free pages, compresses the table,
+ *     either in place (SYSCS_UTIL.SYSCS_INPLACE_COMPRESS_TABLE),
+ *     or, if so configured, by rebuilding it
+ *     (SYSCS_UTIL.SYSCS_COMPRESS_TABLE);</li>
+ * <li>refreshes the statistics for all indexes on the table
+ *     (SYSCS_UTIL.SYSCS_UPDATE_STATISTICS).</li>
+ * </ol>
+ * The space reclaimed and the duration of each step are logged.
+ *
+ * Maintenance is performed on a dedicated connection,
+ * so that it never takes part in a transaction
+ * in progress on the DBServer's connection.
+ * When scheduled, a pass is skipped unless the database
+ * has been idle for a given interval.
+ *
+ * @author jstra
+ *
+ * @see DBServer#startMaintenance(long, TimeUnit, long)
+ * @see MaintenanceResult
+ */
+public class MaintenanceScheduler
+{
+    private static final String loggerName  =
+        MaintenanceScheduler.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** Tables maintained by default. */
+    public static final List<String>    DEF_TABLES  =
+        Collections.unmodifiableList(
+            Arrays.asList( TITLES_TABLE_NAME, COMMENTS_TABLE_NAME )
+        );
+
+    /** Name of the thread that runs scheduled maintenance. */
+    private static final String threadName  = "kcls-db-maintenance";
+
+    /**
+     * Maximum time to wait for a maintenance pass in progress
+     * to complete when maintenance is stopped, in milliseconds.
+     */
+    private static final long   drainMillis = 10000;
+
+    /** Gets the current schema of the maintenance connection */
+    private static final String getSchemaSQL        =
+        "VALUES CURRENT SCHEMA";
+
+    /**
+     * Gets the disk footprint of a table and its indexes:
+     * the total number of pages, the number of free pages,
+     * and the page size.
+     */
+    private static final String getSpaceSQL         =
+        "SELECT SUM( NUMALLOCATEDPAGES + NUMFREEPAGES ), "
+        + "SUM( NUMFREEPAGES ), "
+        + "MAX( PAGESIZE ) "
+        + "FROM TABLE ( SYSCS_DIAG.SPACE_TABLE( ?, ? ) ) AS T";
+
+    /** Compresses a table in place: purge, defragment and truncate */
+    private static final String inPlaceCompressSQL  =
+        "CALL SYSCS_UTIL.SYSCS_INPLACE_COMPRESS_TABLE( ?, ?, 1, 1, 1 )";
+
+    /** Compresses a table by rebuilding it and its indexes */
+    private static final String fullCompressSQL     =
+        "CALL SYSCS_UTIL.SYSCS_COMPRESS_TABLE( ?, ?, 1 )";
+
+    /** Updates the statistics for all indexes on a table */
+    private static final String updateStatisticsSQL =
+        "CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS( ?, ?, NULL )";
+
+    /** URL of the database. */
+    private final String        dbURL;
+    /** User name required for access to the database. */
+    private final String        dbUserName;
+    /** Password required for access to the database. */
+    private final String        dbPassword;
+
+    /**
+     * Supplies the time, in milliseconds since the epoch,
+     * of the most recent database activity.
+     */
+    private final LongSupplier  lastActivity;
+
+    /** The tables to maintain. */
+    private volatile List<String>   tables          = DEF_TABLES;
+
+    /** True to rebuild tables instead of compressing them in place. */
+    private volatile boolean        fullCompress    = false;
+
+    /** The results of the most recent maintenance pass. */
+    private volatile List<MaintenanceResult>    lastResults =
+        Collections.emptyList();
+
+    /** Prevents concurrent maintenance passes. */
+    private final Object    passLock    = new Object();
+
+    /** Runs scheduled maintenance; null if not scheduled. */
+    private ScheduledExecutorService    executor    = null;
+
+    /**
+     * Constructor.
+     *
+     * @param dbURL         URL for database access
+     * @param dbUserName    user name for database access
+     * @param dbPassword    password for database access
+     * @param lastActivity  supplies the time, in milliseconds
+     *                      since the epoch, of the most recent
+     *                      database activity
+     */
+    public MaintenanceScheduler(
+        String          dbURL,
+        String          dbUserName,
+        String          dbPassword,
+        LongSupplier    lastActivity
+    )
+    {
+        this.dbURL = dbURL;
+        this.dbUserName = dbUserName;
+        this.dbPassword = dbPassword;
+        this.lastActivity = lastActivity;
+    }
+
+    /**
+     * Schedules maintenance to run periodically.
+     * Each time the period elapses maintenance is performed
+     * only if there has been no database activity
+     * for at least the given idle time;
+     * an idle time of 0 performs maintenance unconditionally.
+     * Any previous schedule is cancelled.
+     *
+     * @param period        the period between maintenance attempts
+     * @param unit          the unit of the period
+     * @param idleMillis    the minimum idle time, in milliseconds
+     */
+    public synchronized void
+    start( long period, TimeUnit unit, long idleMillis )
+    {
+        stop();
+        executor = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread  thread  = new Thread( r, threadName );
+            thread.setDaemon( true );
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(
+            () -> runIfIdle( idleMillis ),
+            period,
+            period,
+            unit
+        );
+        logger.info(
+            "maintenance scheduled every " + period + " " + unit
+            + ", idle time " + idleMillis + "ms"
+        );
+    }
+
+    /**
+     * Cancels scheduled maintenance, if any.
+     * A maintenance pass in progress is allowed to complete;
+     * this method waits for it, for a limited time,
+     * so that the database is not shut down underneath it.
+     */
+    public synchronized void stop()
+    {
+        if ( executor != null )
+        {
+            executor.shutdown();
+            try
+            {
+                TimeUnit    unit    = TimeUnit.MILLISECONDS;
+                if ( !executor.awaitTermination( drainMillis, unit ) )
+                    logger.warning( "maintenance pass still in progress" );
+            }
+            catch ( InterruptedException exc )
+            {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+            logger.info( "maintenance schedule cancelled" );
+        }
+    }
+
+    /**
+     * Indicates whether maintenance is scheduled.
+     *
+     * @return true if maintenance is scheduled
+     */
+    public synchronized boolean isScheduled()
+    {
+        return executor != null;
+    }
+
+    /**
+     * Performs a maintenance pass over all configured tables.
+     *
+     * @return  the result of maintaining each table
+     *
+     * @throws KCLSException if an error occurs
+     */
+    public List<MaintenanceResult> runMaintenance() throws KCLSException
+    {
+        synchronized ( passLock )
+        {
+            return runPass();
+        }
+    }
+
+    /**
+     * Performs a maintenance pass over all configured tables.
+     * Must be called while holding the pass lock.
+     *
+     * @return  the result of maintaining each table
+     *
+     * @throws KCLSException if an error occurs
+     */
+    private List<MaintenanceResult> runPass() throws KCLSException
+    {
+        List<MaintenanceResult> results = new ArrayList<>();
+        long                    start   = System.currentTimeMillis();
+        try ( Connection conn =
+                DriverManager.getConnection( dbURL, dbUserName, dbPassword ) )
+        {
+            String  schema  = getSchema( conn );
+            for ( String table : tables )
+            {
+                MaintenanceResult   result  =
+                    maintainTable( conn, schema, table );
+                logger.info( "maintained " + result );
+                results.add( result );
+            }
+        }
+        catch ( SQLException exc )
+        {
+            String  message = "table maintenance failed";
+            logger.log( Level.SEVERE, message, exc );
+            throw new KCLSException( message, exc );
+        }
+
+        long    reclaimed   =
+            results.stream()
+                .mapToLong( MaintenanceResult::getBytesReclaimed )
+                .sum();
+        long    elapsed     = System.currentTimeMillis() - start;
+        logger.info(
+            "maintenance complete in " + elapsed + "ms; "
+            + reclaimed + " bytes reclaimed"
+        );
+        lastResults = Collections.unmodifiableList( results );
+        return lastResults;
+    }
+
+    /**
+     * Gets the results of the most recent maintenance pass.
+     *
+     * @return  the results of the most recent maintenance pass;
+     *          empty if maintenance has not yet been performed
+     */
+    public List<MaintenanceResult> getLastResults()
+    {
+        return lastResults;
+    }
+
+    /**
+     * Gets the names of the tables to maintain.
+     *
+     * @return the names of the tables to maintain
+     */
+    public List<String> getTables()
+    {
+        return tables;
+    }
+
+    /**
+     * Sets the names of the tables to maintain.
+     *
+     * @param tables    the names of the tables to maintain
+     */
+    public void setTables( List<String> tables )
+    {
+        this.tables =
+            Collections.unmodifiableList( new ArrayList<>( tables ) );
+    }
+
+    /**
+     * Indicates whether tables are rebuilt, instead of being
+     * compressed in place.
+     *
+     * @return true if tables are rebuilt
+     */
+    public boolean isFullCompress()
+    {
+        return fullCompress;
+    }
+
+    /**
+     * Determines whether tables are rebuilt, instead of being
+     * compressed in place.
+     * Rebuilding a table reclaims the most space,
+     * but holds an exclusive lock on the table for longer,
+     * and temporarily needs space for a second copy of the table.
+     *
+     * @param fullCompress  true to rebuild tables
+     */
+    public void setFullCompress( boolean fullCompress )
+    {
+        this.fullCompress = fullCompress;
+    }
+
+    /**
+     * Performs a maintenance pass if the database has been idle
+     * for at least a given time.
+     * Errors are logged but not propagated,
+     * so that subsequent scheduled passes are not suppressed.
+     *
+     * @param idleMillis    the given time, in milliseconds
+     */
+    private void runIfIdle( long idleMillis )
+    {
+        long    idle    = System.currentTimeMillis() - lastActivity.getAsLong();
+        if ( idle < idleMillis )
+        {
+            logger.fine( "maintenance deferred; idle for " + idle + "ms" );
+            return;
+        }
+        try
+        {
+            runMaintenance();
+        }
+        catch ( KCLSException exc )
+        {
+            // already logged
+        }
+    }
+
+    /**
+     * Compresses, and refreshes the statistics for, a given table.
+     *
+     * @param conn      the connection to use
+     * @param schema    the schema containing the given table
+     * @param table     the name of the given table
+     *
+     * @return the result of maintaining the given table
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private MaintenanceResult
+    maintainTable( Connection conn, String schema, String table )
+        throws SQLException
+    {
+        long[]      before          = getSpace( conn, schema, table );
+        long        bytesBefore     = before[0];
+        long        bytesAfter      = bytesBefore;
+        Compression compression     = Compression.NONE;
+        long        compressMillis  = 0;
+        if ( before[1] > 0 )
+        {
+            compression =
+                fullCompress ? Compression.FULL : Compression.IN_PLACE;
+            String  sql     =
+                fullCompress ? fullCompressSQL : inPlaceCompressSQL;
+            long    start   = System.currentTimeMillis();
+            call( conn, sql, schema, table );
+            compressMillis = System.currentTimeMillis() - start;
+            bytesAfter = getSpace( conn, schema, table )[0];
+        }
+
+        long    start               = System.currentTimeMillis();
+        call( conn, updateStatisticsSQL, schema, table );
+        long    statisticsMillis    = System.currentTimeMillis() - start;
+
+        MaintenanceResult   result  =
+            new MaintenanceResult(
+                table,
+                compression,
+                bytesBefore,
+                bytesAfter,
+                compressMillis,
+                statisticsMillis
+            );
+        return result;
+    }
+
+    /**
+     * Gets the disk footprint of a given table and its indexes.
+     *
+     * @param conn      the connection to use
+     * @param schema    the schema containing the given table
+     * @param table     the name of the given table
+     *
+     * @return  a two element array containing the total
+     *          number of bytes occupied by the table,
+     *          followed by the number of free pages
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private long[] getSpace( Connection conn, String schema, String table )
+        throws SQLException
+    {
+        long[]  space   = { 0, 0 };
+        try ( PreparedStatement statement =
+                conn.prepareStatement( getSpaceSQL ) )
+        {
+            statement.setString( 1, schema );
+            statement.setString( 2, table );
+            try ( ResultSet rSet = statement.executeQuery() )
+            {
+                if ( rSet.next() )
+                {
+                    space[0] = rSet.getLong( 1 ) * rSet.getLong( 3 );
+                    space[1] = rSet.getLong( 2 );
+                }
+            }
+        }
+        return space;
+    }
+
+    /**
+     * Calls a system procedure that takes a schema name
+     * and a table name as its first two arguments.
+     *
+     * @param conn      the connection to use
+     * @param sql       the CALL statement
+     * @param schema    the schema name
+     * @param table     the table name
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private void
+    call( Connection conn, String sql, String schema, String table )
+        throws SQLException
+    {
+        try ( CallableStatement statement = conn.prepareCall( sql ) )
+        {
+            statement.setString( 1, schema );
+            statement.setString( 2, table );
+            statement.execute();
+        }
+    }
+
+    /**
+     * Gets the current schema of a given connection.
+     *
+     * @param conn  the given connection
+     *
+     * @return the current schema of the given connection
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private String getSchema( Connection conn ) throws SQLException
+    {
+        String  schema  = null;
+        try (
+            PreparedStatement   statement   =
+                conn.prepareStatement( getSchemaSQL );
+            ResultSet           rSet        = statement.executeQuery();
+        )
+        {
+            rSet.next();
+            schema = rSet.getString( 1 );
+        }
+        return schema;
+    }
+}
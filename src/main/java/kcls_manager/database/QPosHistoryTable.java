@@ -0,0 +1,205 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.DBConstants.LISTS_ID_FIELD;
+import static kcls_manager.database.DBConstants.QPOS_FIELD;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_TABLE_NAME;
+import static kcls_manager.database.DBConstants.SAMPLE_DATE_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import kcls_manager.main.QPosSample;
+
+/**
+ * Provides database support for accessing the QPOS_HISTORY table,
+ * which records the observed hold-queue position of titles over time.
+ * This class should only be used inside the database package.
+ *
+ * @author jstra
+ *
+ * @see kcls_manager.main.ReadyDateForecaster
+ */
+public class QPosHistoryTable extends Table
+{
+    private static final String loggerName  =
+        QPosHistoryTable.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** Inserts a single sample into the QPOS_HISTORY table */
+    private static final String    insertSampleSQL   =
+        "INSERT INTO " + QPOS_HISTORY_TABLE_NAME + "("
+        + TITLES_ID_FIELD + ", "
+        + SAMPLE_DATE_FIELD + ", "
+        + QPOS_FIELD
+    + " )"
+    + "VALUES ( ?, ?, ? )";
+    private final PreparedStatement insertSamplePStatement;
+
+    /** Gets all samples for a given title, in date order */
+    private static final String    getSamplesSQL   =
+        "SELECT * FROM " + QPOS_HISTORY_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD + " = ?"
+        + " ORDER BY " + SAMPLE_DATE_FIELD;
+    private final PreparedStatement getSamplesPStatement;
+
+    /**
+     * Prefix for deleting all samples for a set of titles;
+     * must be completed with an IN list.
+     */
+    private static final String    deleteSamplesSQL   =
+        "DELETE FROM " + QPOS_HISTORY_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD + " IN ";
+
+    /** Deletes all samples for all titles in a given list */
+    private static final String    deleteListSamplesSQL   =
+        "DELETE FROM " + QPOS_HISTORY_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD + " IN "
+        + "( SELECT " + TITLES_ID_FIELD + " FROM " + TITLES_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ? )";
+    private final PreparedStatement deleteListSamplesPStatement;
+
+    /** Deletes all samples for all archived titles in a given list */
+    private static final String    deleteArchivedListSamplesSQL   =
+        "DELETE FROM " + QPOS_HISTORY_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD + " IN "
+        + "( SELECT " + TITLES_ID_FIELD + " FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ? )";
+    private final PreparedStatement deleteArchivedListSamplesPStatement;
+
+    /** The DBServer instance that owns this object. */
+    private final DBServer  dbServer;
+
+    public QPosHistoryTable( DBServer server )
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+
+        dbServer = server;
+
+        insertSamplePStatement =
+            server.getLazyPreparedStatement( insertSampleSQL, noGenKeys );
+        getSamplesPStatement =
+            server.getLazyPreparedStatement( getSamplesSQL, noGenKeys );
+        deleteListSamplesPStatement =
+            server.getLazyPreparedStatement( deleteListSamplesSQL, noGenKeys );
+        deleteArchivedListSamplesPStatement =
+            server.getLazyPreparedStatement(
+                deleteArchivedListSamplesSQL,
+                noGenKeys
+            );
+    }
+
+    /**
+     * Records a queue position sample for a given title.
+     *
+     * @param titleID   the row ID of the given title
+     * @param sample    the sample to record
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public void insertSample( int titleID, QPosSample sample )
+        throws SQLException
+    {
+        Date    sqlDate = Date.valueOf( sample.getDate() );
+        int     inx     = 1;
+        insertSamplePStatement.setInt( inx++, titleID );
+        insertSamplePStatement.setDate( inx++, sqlDate );
+        insertSamplePStatement.setInt( inx++, sample.getQPos() );
+        logger.info( "inserting qpos sample for " + titleID + ": " + sample );
+        insertSamplePStatement.executeUpdate();
+    }
+
+    /**
+     * Gets all queue position samples for a given title,
+     * in date order.
+     *
+     * @param titleID   the row ID of the given title
+     *
+     * @return  a (possibly empty) list of all samples for the given title
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public List<QPosSample> getSamples( int titleID ) throws SQLException
+    {
+        List<QPosSample>    samples = new ArrayList<>();
+        getSamplesPStatement.setInt( 1, titleID );
+        try ( ResultSet rSet = getSamplesPStatement.executeQuery() )
+        {
+            while ( rSet.next() )
+            {
+                LocalDate   date    =
+                    rSet.getDate( SAMPLE_DATE_FIELD ).toLocalDate();
+                int         qPos    = rSet.getInt( QPOS_FIELD );
+                samples.add( new QPosSample( date, qPos ) );
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Deletes all samples for a given list of titles.
+     *
+     * @param titleIDs  row IDs of the given titles
+     *
+     * @return the number of samples deleted
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteSamplesFor( List<Integer> titleIDs ) throws SQLException
+    {
+        Object[]    leading = {};
+        int         count   =
+            executeForEachChunk(
+                dbServer,
+                deleteSamplesSQL,
+                leading,
+                titleIDs
+            );
+        logger.info( count + " qpos samples deleted" );
+        return count;
+    }
+
+    /**
+     * Deletes all samples for all titles in a given list.
+     *
+     * @param listID    the row ID of the given list
+     *
+     * @return the number of samples deleted
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteSamplesForList( int listID ) throws SQLException
+    {
+        deleteListSamplesPStatement.setInt( 1, listID );
+        int     count   = deleteListSamplesPStatement.executeUpdate();
+        logger.info( count + " qpos samples deleted" );
+        return count;
+    }
+
+    /**
+     * Deletes all samples for all archived titles in a given list.
+     *
+     * @param listID    the row ID of the given list
+     *
+     * @return the number of samples deleted
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteSamplesForArchivedList( int listID )
+        throws SQLException
+    {
+        deleteArchivedListSamplesPStatement.setInt( 1, listID );
+        int     count   = deleteArchivedListSamplesPStatement.executeUpdate();
+        logger.info( count + " archived qpos samples deleted" );
+        return count;
+    }
+}
@@ -0,0 +1,304 @@
+package kcls_manager.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import kcls_manager.main.KCLSException;
+
+/**
+ * Computes the rank changes needed to put the members of a list
+ * in a given order.
+ * <p>
+ * Ranks are gap-based: a list that is renormalized
+ * is given the ranks RANK_GAP, 2 * RANK_GAP, 3 * RANK_GAP, ...
+ * so that a member can later be moved between two neighbors
+ * by giving it a rank halfway between theirs,
+ * without touching any other row.
+ * The plan keeps as many members as possible at their current ranks:
+ * those in the longest run of members whose current ranks
+ * are already increasing in the new order.
+ * Every other member is given a rank evenly spaced
+ * between its nearest unmoved neighbors.
+ * Only when there is no room left between two neighbors
+ * is the whole list renormalized.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author jstra
+ *
+ * @see DBServer#reorder(String, List)
+ */
+public class RankPlan
+{
+    private static final String loggerName  = RankPlan.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** The distance between adjacent ranks in a renormalized list. */
+    public static final int RANK_GAP    = 1024;
+
+    /** Row IDs of the members whose rank changes, mapped to new ranks. */
+    private final Map<Integer, Integer> changes;
+
+    /** True if the whole list was renormalized. */
+    private final boolean               renormalized;
+
+    /**
+     * Constructor.
+     *
+     * @param changes       the rank changes
+     * @param renormalized  true if the whole list was renormalized
+     */
+    private RankPlan( Map<Integer, Integer> changes, boolean renormalized )
+    {
+        this.changes = Collections.unmodifiableMap( changes );
+        this.renormalized = renormalized;
+    }
+
+    /**
+     * Computes the minimal set of rank changes
+     * that puts the members of a list in a given order.
+     *
+     * @param order     row IDs of all members of the list, in the new order
+     * @param ranks     row IDs of all members of the list,
+     *                  mapped to their current ranks
+     *
+     * @return the computed plan
+     *
+     * @throws KCLSException
+     *      if <em>order</em> is not a permutation of the keys
+     *      of <em>ranks</em>
+     */
+    public static RankPlan compute(
+        List<Integer> order,
+        Map<Integer, Integer> ranks
+    ) throws KCLSException
+    {
+        validate( order, ranks );
+
+        int     size    = order.size();
+        long[]  current = new long[size];
+        for ( int inx = 0 ; inx < size ; ++inx )
+            current[inx] = ranks.get( order.get( inx ) );
+
+        boolean[]   keep    = getLongestIncreasing( current );
+        long[]      target  = Arrays.copyOf( current, size );
+        boolean     fits    = true;
+        int         inx     = 0;
+        while ( fits && inx < size )
+        {
+            if ( keep[inx] )
+            {
+                ++inx;
+                continue;
+            }
+
+            int     end     = inx;
+            while ( end < size && !keep[end] )
+                ++end;
+            fits = fill( target, inx, end );
+            inx = end;
+        }
+
+        RankPlan    plan    =
+            fits ? getPlan( order, current, target, false )
+                : renormalize( order, ranks );
+        return plan;
+    }
+
+    /**
+     * Computes the rank changes that renormalize a list:
+     * that give its members, in a given order,
+     * the ranks RANK_GAP, 2 * RANK_GAP, 3 * RANK_GAP, ...
+     *
+     * @param order     row IDs of all members of the list, in order
+     * @param ranks     row IDs of all members of the list,
+     *                  mapped to their current ranks
+     *
+     * @return the computed plan
+     *
+     * @throws KCLSException
+     *      if <em>order</em> is not a permutation of the keys
+     *      of <em>ranks</em>
+     */
+    public static RankPlan renormalize(
+        List<Integer> order,
+        Map<Integer, Integer> ranks
+    ) throws KCLSException
+    {
+        validate( order, ranks );
+
+        int     size    = order.size();
+        long[]  current = new long[size];
+        long[]  target  = new long[size];
+        for ( int inx = 0 ; inx < size ; ++inx )
+        {
+            current[inx] = ranks.get( order.get( inx ) );
+            target[inx] = (long)(inx + 1) * RANK_GAP;
+        }
+        return getPlan( order, current, target, true );
+    }
+
+    /**
+     * Gets the rank changes required by this plan.
+     *
+     * @return  row IDs of the members whose rank changes,
+     *          mapped to their new ranks, in list order
+     */
+    public Map<Integer, Integer> getChanges()
+    {
+        return changes;
+    }
+
+    /**
+     * Indicates whether this plan renormalizes the whole list.
+     *
+     * @return true if this plan renormalizes the whole list
+     */
+    public boolean isRenormalized()
+    {
+        return renormalized;
+    }
+
+    /**
+     * Verifies that a given order is a permutation of the members
+     * of a list.
+     *
+     * @param order     the given order
+     * @param ranks     the members of the list, mapped to their ranks
+     *
+     * @throws KCLSException if verification fails
+     */
+    private static void
+    validate( List<Integer> order, Map<Integer, Integer> ranks )
+        throws KCLSException
+    {
+        Set<Integer>    seen    = new HashSet<>( order );
+        if ( seen.size() != order.size() || !seen.equals( ranks.keySet() ) )
+        {
+            String  message =
+                "new order does not match list members: " + order;
+            logger.severe( message );
+            throw new KCLSException( message );
+        }
+    }
+
+    /**
+     * Finds a longest strictly increasing subsequence
+     * of a given array of ranks.
+     *
+     * @param ranks the given array
+     *
+     * @return  an array that is true at the indexes of the elements
+     *          of the subsequence
+     */
+    private static boolean[] getLongestIncreasing( long[] ranks )
+    {
+        int     size    = ranks.length;
+        int[]   tails   = new int[size];
+        int[]   prev    = new int[size];
+        int     length  = 0;
+        for ( int inx = 0 ; inx < size ; ++inx )
+        {
+            int lo  = 0;
+            int hi  = length;
+            while ( lo < hi )
+            {
+                int mid = (lo + hi) >>> 1;
+                if ( ranks[tails[mid]] < ranks[inx] )
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            prev[inx] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = inx;
+            if ( lo == length )
+                ++length;
+        }
+
+        boolean[]   keep    = new boolean[size];
+        for ( int inx = length > 0 ? tails[length - 1] : -1 ;
+              inx >= 0 ;
+              inx = prev[inx]
+            )
+            keep[inx] = true;
+        return keep;
+    }
+
+    /**
+     * Assigns ranks to a run of moved members,
+     * evenly spaced between the ranks of their unmoved neighbors.
+     * A run at the start or end of the list
+     * is spaced RANK_GAP apart.
+     *
+     * @param target    the ranks of all members, in the new order
+     * @param start     the index of the first moved member
+     * @param end       the index after the last moved member
+     *
+     * @return  true if there was room for the run,
+     *          and it fits in the range of an int
+     */
+    private static boolean fill( long[] target, int start, int end )
+    {
+        int     count   = end - start;
+        boolean hasLow  = start > 0;
+        boolean hasHigh = end < target.length;
+        long    low     =
+            hasLow ? target[start - 1] : target[end] - (count + 1L) * RANK_GAP;
+        long    high    =
+            hasHigh ? target[end] : target[start - 1] + (count + 1L) * RANK_GAP;
+        long    step    = (high - low) / (count + 1);
+        boolean fits    =
+            step > 0
+            && low + step >= Integer.MIN_VALUE
+            && low + step * count <= Integer.MAX_VALUE;
+        for ( int inx = 0 ; fits && inx < count ; ++inx )
+            target[start + inx] = low + step * (inx + 1);
+        return fits;
+    }
+
+    /**
+     * Creates a plan that changes each member's rank
+     * from its current value to its target value,
+     * where the two differ.
+     *
+     * @param order         row IDs of the members, in the new order
+     * @param current       current ranks, in the new order
+     * @param target        target ranks, in the new order
+     * @param renormalized  true if the whole list is renormalized
+     *
+     * @return the plan
+     */
+    private static RankPlan getPlan(
+        List<Integer> order,
+        long[] current,
+        long[] target,
+        boolean renormalized
+    )
+    {
+        Map<Integer, Integer>   changes = new LinkedHashMap<>();
+        for ( int inx = 0 ; inx < current.length ; ++inx )
+            if ( current[inx] != target[inx] )
+                changes.put( order.get( inx ), (int)target[inx] );
+        return new RankPlan( changes, renormalized );
+    }
+
+    @Override
+    public String toString()
+    {
+        List<String>    pairs   = new ArrayList<>();
+        changes.forEach( (id, rank) -> pairs.add( id + "->" + rank ) );
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "{" )
+            .append( "renormalized=" ).append( renormalized ).append( "," )
+            .append( "changes=" ).append( pairs )
+            .append( "}" );
+        return bldr.toString();
+    }
+}
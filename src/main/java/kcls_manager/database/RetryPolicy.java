@@ -0,0 +1,217 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.DBConstants.DEADLOCK_STATE;
+import static kcls_manager.database.DBConstants.LOCK_TIMEOUT_DUMP_STATE;
+import static kcls_manager.database.DBConstants.LOCK_TIMEOUT_STATE;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import kcls_manager.main.DeadlockException;
+import kcls_manager.main.LockTimeoutException;
+
+/**
+ * Determines whether, and when, a failed transaction is retried.
+ * Only failures caused by lock contention are retried:
+ * deadlocks (SQL state 40001) and lock timeouts (40XL1, 40XL2).
+ * Derby rolls back the failed transaction in either case,
+ * so the whole unit of work can simply be executed again.
+ * <p>
+ * The delay before each retry grows exponentially
+ * from a base delay up to a maximum delay,
+ * and is jittered so that competing clients that failed together
+ * don't retry together: the actual delay is chosen at random
+ * between half the nominal delay and the nominal delay.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author jstra
+ *
+ * @see DBServer#setRetryPolicy(RetryPolicy)
+ * @see RetryStatistics
+ */
+public class RetryPolicy
+{
+    /** Default maximum number of attempts, including the first. */
+    public static final int     DEF_MAX_ATTEMPTS        = 4;
+
+    /** Default delay before the first retry, in milliseconds. */
+    public static final long    DEF_BASE_DELAY_MILLIS   = 20;
+
+    /** Default upper bound on the delay before a retry, in milliseconds. */
+    public static final long    DEF_MAX_DELAY_MILLIS    = 1000;
+
+    /** The default retry policy. */
+    public static final RetryPolicy DEFAULT =
+        new RetryPolicy(
+            DEF_MAX_ATTEMPTS,
+            DEF_BASE_DELAY_MILLIS,
+            DEF_MAX_DELAY_MILLIS
+        );
+
+    /** A retry policy that never retries. */
+    public static final RetryPolicy NONE    = new RetryPolicy( 1, 0, 0 );
+
+    /** Maximum number of attempts, including the first. */
+    private final int   maxAttempts;
+
+    /** Nominal delay before the first retry, in milliseconds. */
+    private final long  baseDelayMillis;
+
+    /** Upper bound on the nominal delay, in milliseconds. */
+    private final long  maxDelayMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param maxAttempts       maximum number of attempts,
+     *                          including the first; at least 1
+     * @param baseDelayMillis   nominal delay before the first retry,
+     *                          in milliseconds
+     * @param maxDelayMillis    upper bound on the nominal delay,
+     *                          in milliseconds
+     *
+     * @throws IllegalArgumentException if <em>maxAttempts</em>
+     *         is less than 1, or either delay is negative
+     */
+    public RetryPolicy(
+        int     maxAttempts,
+        long    baseDelayMillis,
+        long    maxDelayMillis
+    )
+    {
+        if ( maxAttempts < 1 )
+            throw new IllegalArgumentException( "maxAttempts < 1" );
+        if ( baseDelayMillis < 0 || maxDelayMillis < 0 )
+            throw new IllegalArgumentException( "negative delay" );
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Gets the maximum number of attempts, including the first.
+     *
+     * @return the maximum number of attempts
+     */
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets the nominal delay before the first retry.
+     *
+     * @return the nominal delay before the first retry, in milliseconds
+     */
+    public long getBaseDelayMillis()
+    {
+        return baseDelayMillis;
+    }
+
+    /**
+     * Gets the upper bound on the nominal delay before a retry.
+     *
+     * @return the upper bound on the nominal delay, in milliseconds
+     */
+    public long getMaxDelayMillis()
+    {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Gets the nominal delay before a retry, following a given attempt:
+     * the base delay, doubled for each attempt after the first,
+     * but no more than the maximum delay.
+     *
+     * @param attempt   the number of the failed attempt, starting at 1
+     *
+     * @return the nominal delay, in milliseconds
+     */
+    public long getNominalDelayMillis( int attempt )
+    {
+        int     shift   = Math.min( Math.max( attempt - 1, 0 ), 30 );
+        long    delay   = baseDelayMillis << shift;
+        return Math.min( delay, maxDelayMillis );
+    }
+
+    /**
+     * Gets the jittered delay before a retry, following a given attempt:
+     * a random value between half the nominal delay
+     * and the nominal delay.
+     *
+     * @param attempt   the number of the failed attempt, starting at 1
+     *
+     * @return the delay, in milliseconds
+     *
+     * @see #getNominalDelayMillis(int)
+     */
+    public long getDelayMillis( int attempt )
+    {
+        long    nominal = getNominalDelayMillis( attempt );
+        long    half    = nominal / 2;
+        long    jitter  =
+            ThreadLocalRandom.current().nextLong( nominal - half + 1 );
+        return half + jitter;
+    }
+
+    /**
+     * Indicates whether a given failed attempt should be retried:
+     * true if the attempt is not the last allowed,
+     * and the failure was caused by lock contention.
+     *
+     * @param attempt   the number of the failed attempt, starting at 1
+     * @param exc       the exception that caused the failure
+     *
+     * @return true if the failed attempt should be retried
+     */
+    public boolean shouldRetry( int attempt, Throwable exc )
+    {
+        return attempt < maxAttempts && isRetryable( exc );
+    }
+
+    /**
+     * Indicates whether a given exception, or any exception
+     * in its chain of causes, reports lock contention:
+     * a deadlock or a lock timeout.
+     *
+     * @param exc   the given exception
+     *
+     * @return true if the given exception reports lock contention
+     */
+    public static boolean isRetryable( Throwable exc )
+    {
+        boolean retryable   = false;
+        for ( Throwable next = exc ;
+              next != null && !retryable ;
+              next = next.getCause()
+            )
+        {
+            if ( next instanceof DeadlockException
+                || next instanceof LockTimeoutException )
+                retryable = true;
+            else if ( next instanceof SQLException )
+            {
+                String  state   = ((SQLException)next).getSQLState();
+                retryable =
+                    DEADLOCK_STATE.equals( state )
+                    || LOCK_TIMEOUT_STATE.equals( state )
+                    || LOCK_TIMEOUT_DUMP_STATE.equals( state );
+            }
+        }
+        return retryable;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "{" )
+            .append( "maxAttempts=" ).append( maxAttempts ).append( "," )
+            .append( "baseDelayMillis=" ).append( baseDelayMillis )
+            .append( "," )
+            .append( "maxDelayMillis=" ).append( maxDelayMillis )
+            .append( "}" );
+        return bldr.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package kcls_manager.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the outcomes of transactions executed under a RetryPolicy:
+ * how many transactions were executed, how many attempts were retried,
+ * how many transactions succeeded only after retrying,
+ * how many failed after exhausting their attempts,
+ * and the total time spent waiting between attempts.
+ *
+ * @author jstra
+ *
+ * @see RetryPolicy
+ * @see DBServer#getRetryStatistics()
+ */
+public class RetryStatistics
+{
+    /** Number of transactions executed. */
+    private final AtomicLong    transactions    = new AtomicLong();
+
+    /** Number of failed attempts that were retried. */
+    private final AtomicLong    retries         = new AtomicLong();
+
+    /** Number of transactions that succeeded after at least one retry. */
+    private final AtomicLong    recovered       = new AtomicLong();
+
+    /** Number of transactions that failed after retrying. */
+    private final AtomicLong    exhausted       = new AtomicLong();
+
+    /** Total time spent waiting between attempts, in milliseconds. */
+    private final AtomicLong    backoffMillis   = new AtomicLong();
+
+    /**
+     * Records the completion of a transaction.
+     *
+     * @param attempts  the number of attempts made
+     * @param success   true if the last attempt succeeded
+     */
+    public void recordTransaction( int attempts, boolean success )
+    {
+        transactions.incrementAndGet();
+        if ( attempts > 1 )
+        {
+            if ( success )
+                recovered.incrementAndGet();
+            else
+                exhausted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a failed attempt that is about to be retried.
+     *
+     * @param delayMillis   the time to wait before retrying,
+     *                      in milliseconds
+     */
+    public void recordRetry( long delayMillis )
+    {
+        retries.incrementAndGet();
+        backoffMillis.addAndGet( delayMillis );
+    }
+
+    /**
+     * Gets the number of transactions executed.
+     *
+     * @return the number of transactions executed
+     */
+    public long getTransactions()
+    {
+        return transactions.get();
+    }
+
+    /**
+     * Gets the number of failed attempts that were retried.
+     *
+     * @return the number of failed attempts that were retried
+     */
+    public long getRetries()
+    {
+        return retries.get();
+    }
+
+    /**
+     * Gets the number of transactions that succeeded
+     * after at least one retry.
+     *
+     * @return the number of transactions that succeeded after retrying
+     */
+    public long getRecovered()
+    {
+        return recovered.get();
+    }
+
+    /**
+     * Gets the number of transactions that were retried,
+     * but still failed.
+     *
+     * @return the number of transactions that failed after retrying
+     */
+    public long getExhausted()
+    {
+        return exhausted.get();
+    }
+
+    /**
+     * Gets the total time spent waiting between attempts.
+     *
+     * @return the total time spent waiting between attempts,
+     *         in milliseconds
+     */
+    public long getBackoffMillis()
+    {
+        return backoffMillis.get();
+    }
+
+    /**
+     * Sets all counts to 0.
+     */
+    public void reset()
+    {
+        transactions.set( 0 );
+        retries.set( 0 );
+        recovered.set( 0 );
+        exhausted.set( 0 );
+        backoffMillis.set( 0 );
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "{" )
+            .append( "transactions=" ).append( getTransactions() )
+            .append( "," )
+            .append( "retries=" ).append( getRetries() ).append( "," )
+            .append( "recovered=" ).append( getRecovered() ).append( "," )
+            .append( "exhausted=" ).append( getExhausted() ).append( "," )
+            .append( "backoffMillis=" ).append( getBackoffMillis() )
+            .append( "}" );
+        return bldr.toString();
+    }
+}
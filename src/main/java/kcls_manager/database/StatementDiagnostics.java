@@ -0,0 +1,756 @@
+package kcls_manager.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Collects Derby runtime statistics for the prepared statements
+ * used by the table classes, in order to find queries that
+ * resolve to table scans.
+ *
+ * Prepared statements obtained from DBServer are wrapped
+ * by this class. While diagnostics are enabled, runtime statistics
+ * are enabled for the connection
+ * (SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS),
+ * and after each execution of a wrapped statement the
+ * statistics for that execution
+ * (SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS())
+ * are accumulated in a StatementStatistics object for the statement.
+ * Derby produces the statistics for a query when its result set
+ * is closed; result sets are closed by this class as soon
+ * as they are exhausted.
+ * A result set that is neither exhausted nor closed
+ * is closed when its statement is next executed,
+ * or when <em>flush</em> is invoked.
+ *
+ * While diagnostics are disabled wrapped statements
+ * are simply passed through.
+ *
+ * The same wrapper is used to defer the preparation of statements:
+ * a statement obtained via <em>wrapLazy</em> is not prepared
+ * until it is first used, so that the cost of preparing
+ * the statements owned by the table classes is not paid
+ * at startup, and is never paid for statements that are not used.
+ *
+ * @author jstra
+ *
+ * @see StatementStatistics
+ * @see DBServer#setDiagnosticsEnabled(boolean)
+ */
+public class StatementDiagnostics
+{
+    private static final String loggerName  =
+        StatementDiagnostics.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /**
+     * Default minimum number of executions for a statement
+     * to be considered "hot".
+     */
+    public static final int     DEF_HOT_THRESHOLD   = 10;
+
+    /** Enables or disables runtime statistics for the connection */
+    private static final String setRuntimeStatisticsSQL =
+        "CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS( ? )";
+
+    /** Gets the runtime statistics for the most recent statement */
+    private static final String getRuntimeStatisticsSQL =
+        "VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()";
+
+    /** Format of a single line of the diagnostics report */
+    private static final String reportFormat            =
+        "%-5s %8d %10d %10d  %s%n";
+
+    /** Format of the heading of the diagnostics report */
+    private static final String headingFormat           =
+        "%-5s %8s %10s %10s  %s%n";
+
+    /** The connection for which statistics are collected. */
+    private final Connection    connection;
+
+    /** Statistics for each statement, keyed by SQL text. */
+    private final Map<String,StatementStatistics>   allStatistics   =
+        new LinkedHashMap<>();
+
+    /** Result sets that have been returned but not yet captured. */
+    private final List<ResultSetHandler>            pending         =
+        new ArrayList<>();
+
+    /** Prepared statement used to retrieve runtime statistics. */
+    private PreparedStatement   getStatisticsPStatement = null;
+
+    /** True if diagnostics are enabled. */
+    private volatile boolean    enabled                 = false;
+
+    /**
+     * The time, in milliseconds since the epoch,
+     * that a wrapped statement was last executed.
+     */
+    private volatile long       lastActivityTime        =
+        System.currentTimeMillis();
+
+    /** Statements currently executing. */
+    private final Set<Execution>    executing           =
+        ConcurrentHashMap.newKeySet();
+
+    /** The number of lazily wrapped statements prepared so far. */
+    private final AtomicInteger lazyPreparedCount       =
+        new AtomicInteger();
+
+    /**
+     * The JDBC fetch size given to lazily wrapped statements
+     * as they are prepared; 0 for the driver's default.
+     */
+    private volatile int        fetchSize               = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param connection    the connection for which statistics
+     *                      are collected
+     */
+    public StatementDiagnostics( Connection connection )
+    {
+        this.connection = connection;
+    }
+
+    /**
+     * Wraps a prepared statement so that runtime statistics
+     * are collected for it while diagnostics are enabled.
+     *
+     * @param statement the prepared statement to wrap
+     * @param sql       the SQL text of the prepared statement
+     *
+     * @return  the wrapped prepared statement
+     */
+    public PreparedStatement wrap( PreparedStatement statement, String sql )
+    {
+        InvocationHandler   handler = new StatementHandler( statement, sql );
+        Object              proxy   =
+            Proxy.newProxyInstance(
+                StatementDiagnostics.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                handler
+            );
+        return (PreparedStatement)proxy;
+    }
+
+    /**
+     * Creates a wrapped prepared statement that is not prepared
+     * until it is first used.
+     * Errors in the SQL text are therefore not reported
+     * until the first use of the statement.
+     *
+     * @param sql       the SQL text of the prepared statement
+     * @param flags     Statement.RETURN_GENERATED_KEYS or
+     *                  Statement.NO_GENERATED_KEYS
+     *
+     * @return  the wrapped prepared statement
+     *
+     * @see #wrap(PreparedStatement, String)
+     */
+    public PreparedStatement wrapLazy( String sql, int flags )
+    {
+        InvocationHandler   handler = new StatementHandler( sql, flags );
+        Object              proxy   =
+            Proxy.newProxyInstance(
+                StatementDiagnostics.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                handler
+            );
+        return (PreparedStatement)proxy;
+    }
+
+    /**
+     * Sets the JDBC fetch size given to lazily wrapped statements
+     * as they are prepared.
+     * Statements already prepared are not affected.
+     *
+     * @param fetchSize the fetch size; 0 for the driver's default
+     */
+    public void setFetchSize( int fetchSize )
+    {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Gets the JDBC fetch size given to lazily wrapped statements
+     * as they are prepared.
+     *
+     * @return the fetch size; 0 for the driver's default
+     */
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    /**
+     * Gets the number of lazily wrapped statements
+     * that have been prepared so far.
+     *
+     * @return  the number of lazily wrapped statements
+     *          that have been prepared so far
+     *
+     * @see #wrapLazy(String, int)
+     */
+    public int getLazyPreparedCount()
+    {
+        return lazyPreparedCount.get();
+    }
+
+    /**
+     * Gets the time that a wrapped statement was last executed,
+     * whether or not diagnostics are enabled.
+     * Used to determine whether the database is idle.
+     *
+     * @return  the time, in milliseconds since the epoch,
+     *          that a wrapped statement was last executed
+     */
+    public long getLastActivityTime()
+    {
+        return lastActivityTime;
+    }
+
+    /**
+     * Gets the statements currently executing,
+     * in the order in which they started executing.
+     * A statement waiting for a lock remains in this list
+     * until the lock is granted or the wait times out.
+     *
+     * @return the statements currently executing
+     */
+    public List<Execution> getExecuting()
+    {
+        List<Execution> list    = new ArrayList<>( executing );
+        list.sort( Comparator.comparingLong( Execution::getStartTime ) );
+        return list;
+    }
+
+    /**
+     * Enables or disables diagnostics.
+     *
+     * @param enable    true to enable diagnostics, false to disable
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public synchronized void setEnabled( boolean enable ) throws SQLException
+    {
+        if ( !enable )
+            flush();
+        try ( PreparedStatement statement =
+                connection.prepareStatement( setRuntimeStatisticsSQL ) )
+        {
+            statement.setInt( 1, enable ? 1 : 0 );
+            statement.execute();
+        }
+        enabled = enable;
+        logger.info( "statement diagnostics enabled: " + enable );
+    }
+
+    /**
+     * Indicates whether diagnostics are enabled.
+     *
+     * @return  true if diagnostics are enabled
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Closes all result sets that have been returned
+     * by wrapped statements, but not yet closed,
+     * and records their statistics.
+     * Note that this will invalidate any such result sets
+     * that are still in use.
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public synchronized void flush() throws SQLException
+    {
+        for ( ResultSetHandler handler : new ArrayList<>( pending ) )
+            handler.finish();
+    }
+
+    /**
+     * Discards all statistics collected so far.
+     */
+    public synchronized void reset()
+    {
+        allStatistics.clear();
+    }
+
+    /**
+     * Gets the statistics for all statements executed while
+     * diagnostics were enabled,
+     * in descending order of the number of rows visited.
+     *
+     * @return the statistics for all statements
+     */
+    public synchronized List<StatementStatistics> getStatistics()
+    {
+        List<StatementStatistics>   list    =
+            new ArrayList<>( allStatistics.values() );
+        list.sort(
+            Comparator.comparingLong( StatementStatistics::getRowsVisited )
+                .reversed()
+        );
+        return list;
+    }
+
+    /**
+     * Gets the statistics for all "hot" statements that fall back
+     * to a table scan.
+     *
+     * @param minExecutions the minimum number of executions
+     *                      for a statement to be considered hot
+     *
+     * @return  the statistics for all hot statements that fall
+     *          back to a table scan
+     *
+     * @see StatementStatistics#isTableScanFallback()
+     */
+    public List<StatementStatistics> getHotTableScans( int minExecutions )
+    {
+        List<StatementStatistics>   list    =
+            getStatistics().stream()
+                .filter( s -> s.getExecutions() >= minExecutions )
+                .filter( StatementStatistics::isTableScanFallback )
+                .collect( Collectors.toList() );
+        return list;
+    }
+
+    /**
+     * Produces a report of the statistics collected so far,
+     * using the default threshold for hot statements.
+     *
+     * @return  a report of the statistics collected so far
+     *
+     * @see #getReport(int)
+     */
+    public String getReport()
+    {
+        return getReport( DEF_HOT_THRESHOLD );
+    }
+
+    /**
+     * Produces a report of the statistics collected so far.
+     * Each statement is listed with the number of executions,
+     * rows returned and rows visited, followed by the access paths
+     * used and the SQL text.
+     * Hot statements that fall back to a table scan are flagged
+     * with "SCAN".
+     *
+     * @param minExecutions the minimum number of executions
+     *                      for a statement to be considered hot
+     *
+     * @return  a report of the statistics collected so far
+     */
+    public String getReport( int minExecutions )
+    {
+        List<StatementStatistics>   hot     =
+            getHotTableScans( minExecutions );
+        StringBuilder               bldr    = new StringBuilder();
+        bldr.append( String.format(
+            headingFormat, "", "execs", "returned", "visited", "access path"
+        ) );
+        for ( StatementStatistics stats : getStatistics() )
+        {
+            String  flag    = hot.contains( stats ) ? "SCAN" : "";
+            String  paths   = String.join( "; ", stats.getAccessPaths() );
+            bldr.append( String.format(
+                reportFormat,
+                flag,
+                stats.getExecutions(),
+                stats.getRowsReturned(),
+                stats.getRowsVisited(),
+                paths.isEmpty() ? "(none)" : paths
+            ) );
+            bldr.append( String.format(
+                headingFormat, "", "", "", "", stats.getSQL()
+            ) );
+        }
+        bldr.append( hot.size() ).append( " hot table scan(s)" );
+        return bldr.toString();
+    }
+
+    /**
+     * Releases the resources held by this object.
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    public synchronized void close() throws SQLException
+    {
+        pending.clear();
+        if ( getStatisticsPStatement != null )
+            getStatisticsPStatement.close();
+        getStatisticsPStatement = null;
+    }
+
+    /**
+     * Records the runtime statistics of the most recently
+     * completed statement.
+     *
+     * @param sql           the SQL text of the statement
+     * @param rowsReturned  the number of rows returned by, or affected
+     *                      by, the statement
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    private synchronized void capture( String sql, long rowsReturned )
+        throws SQLException
+    {
+        if ( getStatisticsPStatement == null )
+            getStatisticsPStatement =
+                connection.prepareStatement( getRuntimeStatisticsSQL );
+
+        String  plan    = null;
+        try ( ResultSet rSet = getStatisticsPStatement.executeQuery() )
+        {
+            if ( rSet.next() )
+                plan = rSet.getString( 1 );
+        }
+        if ( plan != null )
+            allStatistics
+                .computeIfAbsent( sql, StatementStatistics::new )
+                .record( plan, rowsReturned );
+    }
+
+    /**
+     * Invokes a method on the object underlying a proxy,
+     * unwrapping any exception thrown by the method.
+     *
+     * @param target    the object underlying the proxy
+     * @param method    the method to invoke
+     * @param args      the arguments to the method
+     *
+     * @return the value returned by the method
+     *
+     * @throws Throwable    the exception thrown by the method
+     */
+    private static Object invoke( Object target, Method method, Object[] args )
+        throws Throwable
+    {
+        try
+        {
+            return method.invoke( target, args );
+        }
+        catch ( InvocationTargetException exc )
+        {
+            throw exc.getCause();
+        }
+    }
+
+    /**
+     * Intercepts the execute methods of a prepared statement.
+     * If the statement was created lazily it is prepared
+     * on the first invocation of any method other than
+     * close or isClosed.
+     */
+    private class StatementHandler implements InvocationHandler
+    {
+        /** The SQL text of the prepared statement. */
+        private final String            sql;
+
+        /**
+         * Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS;
+         * used only when the statement is prepared lazily.
+         */
+        private final int               flags;
+
+        /**
+         * The underlying prepared statement;
+         * null until a lazily created statement is prepared.
+         */
+        private PreparedStatement       target;
+
+        /** True if a lazily created statement was closed before use. */
+        private boolean                 closed  = false;
+
+        /** The most recent result set returned by the statement. */
+        private ResultSetHandler        current = null;
+
+        public StatementHandler( PreparedStatement target, String sql )
+        {
+            this.target = target;
+            this.sql = sql;
+            this.flags = 0;
+        }
+
+        public StatementHandler( String sql, int flags )
+        {
+            this.target = null;
+            this.sql = sql;
+            this.flags = flags;
+        }
+
+        /**
+         * Gets the underlying prepared statement,
+         * preparing it if necessary.
+         *
+         * @return the underlying prepared statement
+         *
+         * @throws SQLException if a SQL error occurs
+         */
+        private synchronized PreparedStatement getTarget()
+            throws SQLException
+        {
+            if ( target == null )
+            {
+                if ( closed )
+                    throw new SQLException( "statement closed: " + sql );
+                target = connection.prepareStatement( sql, flags );
+                if ( fetchSize > 0 )
+                    target.setFetchSize( fetchSize );
+                lazyPreparedCount.incrementAndGet();
+            }
+            return target;
+        }
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            String  name    = method.getName();
+            if ( name.equals( "equals" ) && args.length == 1 )
+                return proxy == args[0];
+            if ( name.equals( "hashCode" ) && args == null )
+                return System.identityHashCode( proxy );
+
+            // don't prepare a lazily created statement just to close it
+            synchronized ( this )
+            {
+                if ( target == null && name.equals( "close" ) )
+                {
+                    closed = true;
+                    return null;
+                }
+                if ( target == null && name.equals( "isClosed" ) )
+                    return closed;
+            }
+
+            PreparedStatement   statement   = getTarget();
+            if ( !name.startsWith( "execute" ) )
+                return StatementDiagnostics.invoke( statement, method, args );
+
+            lastActivityTime = System.currentTimeMillis();
+            Execution   execution   = new Execution( sql, lastActivityTime );
+            executing.add( execution );
+            try
+            {
+                return invokeExecute( statement, method, args );
+            }
+            finally
+            {
+                executing.remove( execution );
+            }
+        }
+
+        /**
+         * Invokes one of the execute methods of the underlying statement,
+         * capturing its statistics if diagnostics are enabled.
+         *
+         * @param statement the underlying statement
+         * @param method    the execute method to invoke
+         * @param args      the arguments to the method
+         *
+         * @return the value returned by the method
+         *
+         * @throws Throwable    the exception thrown by the method
+         */
+        private Object invokeExecute(
+            PreparedStatement   statement,
+            Method              method,
+            Object[]            args
+        ) throws Throwable
+        {
+            String  name    = method.getName();
+            if ( !enabled || args != null )
+                return StatementDiagnostics.invoke( statement, method, args );
+
+            if ( current != null )
+                current.finish();
+            Object  result  =
+                StatementDiagnostics.invoke( statement, method, args );
+            switch ( name )
+            {
+            case "executeQuery":
+                current = new ResultSetHandler( (ResultSet)result, sql );
+                result = current.getProxy();
+                break;
+            case "executeUpdate":
+            case "executeLargeUpdate":
+                capture( sql, ((Number)result).longValue() );
+                break;
+            case "execute":
+                if ( !(Boolean)result )
+                    capture( sql, statement.getUpdateCount() );
+                break;
+            default:
+                break;
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Intercepts the next and close methods of a result set,
+     * in order to count the rows returned and capture
+     * the statistics when the result set is complete.
+     */
+    private class ResultSetHandler implements InvocationHandler
+    {
+        /** The underlying result set. */
+        private final ResultSet target;
+
+        /** The SQL text of the statement that produced the result set. */
+        private final String    sql;
+
+        /** The proxy for the underlying result set. */
+        private final ResultSet proxy;
+
+        /** The number of rows returned so far. */
+        private long            rows        = 0;
+
+        /** True if statistics have been captured for the result set. */
+        private boolean         finished    = false;
+
+        public ResultSetHandler( ResultSet target, String sql )
+        {
+            this.target = target;
+            this.sql = sql;
+            proxy = (ResultSet)Proxy.newProxyInstance(
+                StatementDiagnostics.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class },
+                this
+            );
+            synchronized ( StatementDiagnostics.this )
+            {
+                pending.add( this );
+            }
+        }
+
+        public ResultSet getProxy()
+        {
+            return proxy;
+        }
+
+        /**
+         * Closes the underlying result set,
+         * and captures its statistics.
+         *
+         * @throws SQLException if a SQL error occurs
+         */
+        public void finish() throws SQLException
+        {
+            if ( finished )
+                return;
+            finished = true;
+            synchronized ( StatementDiagnostics.this )
+            {
+                pending.remove( this );
+            }
+            target.close();
+            capture( sql, rows );
+        }
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            String  name    = method.getName();
+            Object  result  = null;
+            if ( name.equals( "equals" ) && args.length == 1 )
+                result = proxy == args[0];
+            else if ( name.equals( "hashCode" ) && args == null )
+                result = System.identityHashCode( proxy );
+            else if ( name.equals( "close" ) && args == null )
+                finish();
+            else if ( name.equals( "next" ) && args == null && !finished )
+            {
+                result = StatementDiagnostics.invoke( target, method, args );
+                if ( (Boolean)result )
+                    ++rows;
+                else
+                    finish();
+            }
+            else if ( name.equals( "next" ) && finished )
+                result = false;
+            else
+                result = StatementDiagnostics.invoke( target, method, args );
+
+            return result;
+        }
+    }
+
+    /**
+     * The execution of a prepared statement
+     * that has started, but not completed.
+     */
+    public static class Execution
+    {
+        /** The SQL text of the statement. */
+        private final String    sql;
+
+        /** The time execution started, in milliseconds since the epoch. */
+        private final long      startTime;
+
+        /** The name of the thread executing the statement. */
+        private final String    threadName;
+
+        private Execution( String sql, long startTime )
+        {
+            this.sql = sql;
+            this.startTime = startTime;
+            this.threadName = Thread.currentThread().getName();
+        }
+
+        /**
+         * Gets the SQL text of the statement.
+         *
+         * @return the SQL text of the statement
+         */
+        public String getSQL()
+        {
+            return sql;
+        }
+
+        /**
+         * Gets the time execution started.
+         *
+         * @return the time execution started,
+         *         in milliseconds since the epoch
+         */
+        public long getStartTime()
+        {
+            return startTime;
+        }
+
+        /**
+         * Gets the name of the thread executing the statement.
+         *
+         * @return the name of the thread executing the statement
+         */
+        public String getThreadName()
+        {
+            return threadName;
+        }
+    }
+}
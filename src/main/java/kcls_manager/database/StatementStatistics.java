@@ -0,0 +1,249 @@
+package kcls_manager.database;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Accumulates Derby runtime statistics for a single SQL statement
+ * over all of its executions.
+ * Each execution contributes the execution plan text
+ * returned by SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS(),
+ * from which the access paths (table scan, index scan and
+ * the index used) and the number of rows visited are extracted.
+ * Note that Derby only reports the number of rows visited
+ * for statements first executed after runtime statistics
+ * were enabled.
+ *
+ * @author jstra
+ *
+ * @see StatementDiagnostics
+ */
+public class StatementStatistics
+{
+    /**
+     * Matches a scan in an execution plan,
+     * e.g. "Index Scan ResultSet for TITLES using index TITLES_AUTHOR_IDX".
+     * Group 1 is the scan type, group 2 is the table,
+     * group 3 is the kind of index (index or constraint),
+     * group 4 is the name of the index.
+     */
+    private static final Pattern    scanPattern     =
+        Pattern.compile(
+            "(\\w+(?: \\w+)*?) Scan ResultSet for (\\w+)"
+            + "(?: using (index|constraint) (\\S+))?"
+        );
+
+    /**
+     * Matches the number of rows visited by a single scan;
+     * unlike most counters in the plan this is not cumulative
+     * over the life of the prepared statement.
+     */
+    private static final Pattern    visitedPattern  =
+        Pattern.compile( "Number of rows visited=(\\d+)" );
+
+    /** The scan type reported by Derby for a full table scan. */
+    private static final String     tableScanType   = "Table";
+
+    /**
+     * Text that appears in the description of a scan
+     * that applies a qualifier (i.e. a WHERE clause restriction)
+     * to each row it visits.
+     */
+    private static final String     qualifierText   = "Column[";
+
+    /** The text of the SQL statement. */
+    private final String    sql;
+
+    /** The number of times the statement has been executed. */
+    private long            executions      = 0;
+
+    /**
+     * The total number of rows returned by, or affected by,
+     * the statement.
+     */
+    private long            rowsReturned    = 0;
+
+    /** The total number of rows visited by all scans. */
+    private long            rowsVisited     = 0;
+
+    /** The number of executions that included a full table scan. */
+    private long            tableScans      = 0;
+
+    /**
+     * The number of executions that included a full table scan
+     * restricted by a qualifier.
+     */
+    private long            filteredTableScans  = 0;
+
+    /** All distinct access paths used by the statement. */
+    private final Set<String>   accessPaths = new TreeSet<>();
+
+    /** The execution plan of the most recent execution. */
+    private String          lastPlan        = "";
+
+    /**
+     * Constructor.
+     *
+     * @param sql   the text of the SQL statement
+     */
+    public StatementStatistics( String sql )
+    {
+        this.sql = sql;
+    }
+
+    /**
+     * Records a single execution of the statement.
+     *
+     * @param plan          the execution plan text returned by Derby
+     * @param rowsReturned  the number of rows returned by,
+     *                      or affected by, the execution
+     */
+    public synchronized void record( String plan, long rowsReturned )
+    {
+        ++executions;
+        this.rowsReturned += rowsReturned;
+        lastPlan = plan;
+
+        boolean tableScan       = false;
+        boolean filteredScan    = false;
+        Matcher matcher         = scanPattern.matcher( plan );
+        boolean found           = matcher.find();
+        while ( found )
+        {
+            String  scanType    = matcher.group( 1 );
+            String  table       = matcher.group( 2 );
+            String  path        = scanType + " scan " + table;
+            if ( matcher.group( 4 ) != null )
+                path += " using " + matcher.group( 3 )
+                    + " " + matcher.group( 4 );
+            accessPaths.add( path );
+
+            // the description of this scan extends to the next scan
+            int     start       = matcher.end();
+            found = matcher.find();
+            int     end         = found ? matcher.start() : plan.length();
+            String  scanText    = plan.substring( start, end );
+            if ( scanType.equals( tableScanType ) )
+            {
+                tableScan = true;
+                if ( scanText.contains( qualifierText ) )
+                    filteredScan = true;
+            }
+            Matcher visited     = visitedPattern.matcher( scanText );
+            if ( visited.find() )
+                rowsVisited += Long.parseLong( visited.group( 1 ) );
+        }
+        if ( tableScan )
+            ++tableScans;
+        if ( filteredScan )
+            ++filteredTableScans;
+    }
+
+    /**
+     * Indicates whether this statement falls back to a full table scan
+     * where an index could have been used,
+     * i.e. a table scan that filters the rows it visits,
+     * or that visits more rows than the statement returns.
+     *
+     * @return  true if this statement falls back to a table scan
+     */
+    public synchronized boolean isTableScanFallback()
+    {
+        boolean rcode   =
+            filteredTableScans > 0
+            || (tableScans > 0 && rowsVisited > rowsReturned);
+        return rcode;
+    }
+
+    /**
+     * Gets the text of the SQL statement.
+     *
+     * @return the text of the SQL statement
+     */
+    public String getSQL()
+    {
+        return sql;
+    }
+
+    /**
+     * Gets the number of times the statement has been executed.
+     *
+     * @return the number of times the statement has been executed
+     */
+    public synchronized long getExecutions()
+    {
+        return executions;
+    }
+
+    /**
+     * Gets the total number of rows returned by, or affected by,
+     * the statement.
+     *
+     * @return the total number of rows returned by the statement
+     */
+    public synchronized long getRowsReturned()
+    {
+        return rowsReturned;
+    }
+
+    /**
+     * Gets the total number of rows visited by all scans
+     * performed by the statement.
+     *
+     * @return the total number of rows visited by the statement
+     */
+    public synchronized long getRowsVisited()
+    {
+        return rowsVisited;
+    }
+
+    /**
+     * Gets the number of executions that included a full table scan.
+     *
+     * @return the number of executions that included a full table scan
+     */
+    public synchronized long getTableScans()
+    {
+        return tableScans;
+    }
+
+    /**
+     * Gets all distinct access paths used by the statement,
+     * e.g. "Table scan COMMENTS",
+     * or "Index scan TITLES using index TITLES_AUTHOR_IDX".
+     *
+     * @return an unmodifiable copy of all access paths
+     */
+    public synchronized Set<String> getAccessPaths()
+    {
+        return Collections.unmodifiableSet( new TreeSet<>( accessPaths ) );
+    }
+
+    /**
+     * Gets the execution plan of the most recent execution.
+     *
+     * @return the execution plan of the most recent execution
+     */
+    public synchronized String getLastPlan()
+    {
+        return lastPlan;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "{" )
+            .append( "sql=" ).append( sql ).append( "," )
+            .append( "executions=" ).append( executions ).append( "," )
+            .append( "rowsReturned=" ).append( rowsReturned ).append( "," )
+            .append( "rowsVisited=" ).append( rowsVisited ).append( "," )
+            .append( "tableScans=" ).append( tableScans ).append( "," )
+            .append( "accessPaths=" ).append( accessPaths )
+            .append( "}" );
+        return bldr.toString();
+    }
+}
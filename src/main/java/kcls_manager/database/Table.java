@@ -1,13 +1,355 @@
 package kcls_manager.database;
 
+import static kcls_manager.database.DBConstants.LISTS_ID_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_KEY_LENGTH;
+import static kcls_manager.database.DBConstants.RANK_FIELD;
+import static kcls_manager.database.DBConstants.VERSION_FIELD;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * The abstract superclass for all classes that encapsulate a table.
  * Mainly contains convenient utilities used by all such classes.
- * 
+ *
  * @author jstra
  *
  */
 public abstract class Table
 {
+    /**
+     * The maximum number of row IDs in a single IN list.
+     * Set-based operations on larger collections of rows
+     * are broken into chunks of this size.
+     */
+    public static final int MAX_IN_LIST_SIZE    = 500;
+
+    /**
+     * Formats a parenthesized list of parameter markers
+     * suitable for use in an IN clause,
+     * for example "( ?, ?, ? )".
+     *
+     * @param count the number of parameter markers; must be at least 1
+     *
+     * @return  a parenthesized list of <em>count</em> parameter markers
+     */
+    protected static String inList( int count )
+    {
+        StringBuilder   bldr    = new StringBuilder( "( ?" );
+        for ( int inx = 1 ; inx < count ; ++inx )
+            bldr.append( ", ?" );
+        bldr.append( " )" );
+        return bldr.toString();
+    }
+
+    /**
+     * Normalizes a given string for use in a natural title
+     * or natural author.
+     * Also used by the database upgrade program.
+     * 
+     * @param text  the given string; may be null
+     *
+     * @return  the normalized string;
+     *          an empty string if <em>text</em> is null
+     * 
+     * @see #normalize(String, int)
+     * @see DBConstants#NATURAL_KEY_LENGTH
+     */
+    public static String normalize( String text )
+    {
+        return normalize( text, NATURAL_KEY_LENGTH );
+    }
+
+    /**
+     * Normalizes a given string for use in a natural key:
+     * leading and trailing white space is removed,
+     * each remaining run of white space is replaced by a single space,
+     * and the result is converted to lower case.
+     * Strings that differ only in case or spacing
+     * therefore have the same natural key.
+     * Converting to lower case can lengthen a string
+     * (for example, a capital dotted I becomes two characters),
+     * so the result is truncated to a given maximum length,
+     * without splitting a surrogate pair.
+     *
+     * @param text      the given string; may be null
+     * @param maxLength the given maximum length
+     *
+     * @return  the normalized string;
+     *          an empty string if <em>text</em> is null
+     */
+    public static String normalize( String text, int maxLength )
+    {
+        String  result  = "";
+        if ( text != null )
+            result = 
+                text.trim().replaceAll( "\\s+", " " )
+                    .toLowerCase( Locale.ROOT );
+        if ( result.length() > maxLength )
+        {
+            int end = maxLength;
+            if ( Character.isHighSurrogate( result.charAt( end - 1 ) ) )
+                --end;
+            result = result.substring( 0, end );
+        }
+        return result;
+    }
+
+    /**
+     * Executes a SQL update statement once for each chunk
+     * of a given list of row IDs.
+     * The statement is obtained by appending an IN list
+     * of the appropriate size to a given SQL prefix,
+     * for example "DELETE FROM TITLES WHERE title_id IN ".
+     * Leading parameters of the statement
+     * (those that appear in the prefix) may be supplied
+     * in <em>leading</em>; the row IDs are bound after them.
+     *
+     * @param server    the DBServer used to obtain statements
+     * @param prefix    the given SQL prefix
+     * @param leading   values for leading parameters, if any
+     * @param idents    the given list of row IDs
+     *
+     * @return  the total number of rows affected
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    protected static int executeForEachChunk(
+        DBServer server,
+        String prefix,
+        Object[] leading,
+        List<Integer> idents
+    ) throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        int     total   = 0;
+        int     size    = idents.size();
+        for ( int start = 0 ; start < size ; start += MAX_IN_LIST_SIZE )
+        {
+            int                 end         =
+                Math.min( start + MAX_IN_LIST_SIZE, size );
+            List<Integer>       chunk       = idents.subList( start, end );
+            String              sql         = prefix + inList( chunk.size() );
+            PreparedStatement   statement   =
+                server.getPreparedStatement( sql, noGenKeys );
+            try
+            {
+                int inx = 1;
+                for ( Object value : leading )
+                    statement.setObject( inx++, value );
+                for ( int ident : chunk )
+                    statement.setInt( inx++, ident );
+                total += statement.executeUpdate();
+            }
+            finally
+            {
+                server.surrenderPreparedStatement( statement );
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Executes a SQL query once for each chunk
+     * of a given list of keys, such as row IDs or natural keys,
+     * and maps every row of every result set to an object.
+     * The statement is obtained by appending an IN list
+     * of the appropriate size to a given SQL prefix,
+     * for example "SELECT * FROM AUTHORS WHERE natural_author IN ".
+     *
+     * @param <T>       the type of object each row is mapped to
+     * @param server    the DBServer used to obtain statements
+     * @param prefix    the given SQL prefix
+     * @param keys      the given list of keys
+     * @param mapper    maps the current row of a result set to an object
+     *
+     * @return  the mapped rows of all result sets
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    protected static <T> List<T> queryForEachChunk(
+        DBServer server,
+        String prefix,
+        List<?> keys,
+        CursorPublisher.RowMapper<T> mapper
+    ) throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        List<T> rows    = new ArrayList<>();
+        int     size    = keys.size();
+        for ( int start = 0 ; start < size ; start += MAX_IN_LIST_SIZE )
+        {
+            int                 end         =
+                Math.min( start + MAX_IN_LIST_SIZE, size );
+            List<?>             chunk       = keys.subList( start, end );
+            String              sql         = prefix + inList( chunk.size() );
+            PreparedStatement   statement   =
+                server.getPreparedStatement( sql, noGenKeys );
+            try
+            {
+                int inx = 1;
+                for ( Object key : chunk )
+                    statement.setObject( inx++, key );
+                try ( ResultSet rSet = statement.executeQuery() )
+                {
+                    while ( rSet.next() )
+                        rows.add( mapper.map( rSet ) );
+                }
+            }
+            finally
+            {
+                server.surrenderPreparedStatement( statement );
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Gets the largest row ID in a given table.
+     * Row IDs are generated in increasing order,
+     * so any row inserted after this call has a larger row ID.
+     *
+     * @param server    the DBServer used to obtain statements
+     * @param tableName the name of the given table
+     * @param idField   the name of the row ID column of the given table
+     *
+     * @return  the largest row ID in the given table;
+     *          0 if the table is empty
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    protected static int getMaxIdent(
+        DBServer server,
+        String tableName,
+        String idField
+    ) throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        String              sql         =
+            "SELECT MAX( " + idField + " ) FROM " + tableName;
+        int                 ident       = 0;
+        PreparedStatement   statement   =
+            server.getPreparedStatement( sql, noGenKeys );
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            if ( rSet.next() )
+                ident = rSet.getInt( 1 );
+        }
+        finally
+        {
+            server.surrenderPreparedStatement( statement );
+        }
+        return ident;
+    }
+
+    /**
+     * Gets the ranks of all rows of a given table
+     * that belong to a given list, in rank order.
+     * Rows with equal ranks are ordered by row ID.
+     *
+     * @param server    the DBServer used to obtain statements
+     * @param tableName the name of the given table
+     * @param idField   the name of the row ID column of the given table
+     * @param listID    the row ID of the given list
+     *
+     * @return  the row IDs of the rows in the given list,
+     *          mapped to their ranks, in rank order
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    protected static Map<Integer, Integer> getRanks(
+        DBServer server,
+        String tableName,
+        String idField,
+        int listID
+    ) throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        String              sql         =
+            "SELECT " + idField + ", " + RANK_FIELD
+            + " FROM " + tableName
+            + " WHERE " + LISTS_ID_FIELD + " = ?"
+            + " ORDER BY " + RANK_FIELD + ", " + idField;
+        Map<Integer, Integer>   ranks   = new LinkedHashMap<>();
+        PreparedStatement   statement   =
+            server.getPreparedStatement( sql, noGenKeys );
+        try
+        {
+            statement.setInt( 1, listID );
+            try ( ResultSet rSet = statement.executeQuery() )
+            {
+                while ( rSet.next() )
+                    ranks.put( rSet.getInt( 1 ), rSet.getInt( 2 ) );
+            }
+        }
+        finally
+        {
+            server.surrenderPreparedStatement( statement );
+        }
+        return ranks;
+    }
 
+    /**
+     * Sets the ranks of a set of rows of a given table
+     * in a single batched statement.
+     * The version of each row is incremented.
+     *
+     * @param server    the DBServer used to obtain statements
+     * @param tableName the name of the given table
+     * @param idField   the name of the row ID column of the given table
+     * @param ranks     row IDs of the rows to update,
+     *                  mapped to their new ranks
+     *
+     * @return  the total number of rows affected
+     *
+     * @throws SQLException if a SQL error occurs
+     */
+    protected static int updateRanks(
+        DBServer server,
+        String tableName,
+        String idField,
+        Map<Integer, Integer> ranks
+    ) throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        if ( ranks.isEmpty() )
+            return 0;
+        
+        String              sql         =
+            "UPDATE " + tableName + " SET "
+            + RANK_FIELD + " = ?, "
+            + VERSION_FIELD + " = " + VERSION_FIELD + " + 1"
+            + " WHERE " + idField + " = ?";
+        int                 total       = 0;
+        PreparedStatement   statement   =
+            server.getPreparedStatement( sql, noGenKeys );
+        try
+        {
+            for ( Map.Entry<Integer, Integer> entry : ranks.entrySet() )
+            {
+                statement.setInt( 1, entry.getValue() );
+                statement.setInt( 2, entry.getKey() );
+                statement.addBatch();
+            }
+            for ( int count : statement.executeBatch() )
+                total += Math.max( count, 0 );
+        }
+        finally
+        {
+            server.surrenderPreparedStatement( statement );
+        }
+        return total;
+    }
 }
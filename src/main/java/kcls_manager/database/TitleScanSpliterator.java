@@ -0,0 +1,229 @@
+package kcls_manager.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kcls_manager.main.Comment;
+import kcls_manager.main.Title;
+
+/**
+ * Traverses the titles in a range of row IDs,
+ * fetching them a chunk of row IDs at a time.
+ * Each chunk is read, along with the comments and attributes
+ * of its titles,
+ * on a connection borrowed from a pool for the duration of the fetch,
+ * so that chunks traversed by different threads
+ * are read by different Derby sessions, in parallel.
+ * The range is split in half, down to the size of a chunk,
+ * to give work to the threads of a parallel stream.
+ * <p>
+ * Author and list names are resolved from maps
+ * taken when the scan starts;
+ * the titles, comments and attributes of a chunk are read
+ * with separate, auto-committed queries.
+ * The scan is therefore not a consistent snapshot of the database
+ * if the database is modified while it is in progress.
+ * <p>
+ * This class should only be used inside the database package.
+ *
+ * @author jstra
+ *
+ * @see DBServer#scanTitles()
+ * @see ConnectionPool
+ */
+public class TitleScanSpliterator implements Spliterator<Title>
+{
+    private static final String loggerName  =
+        TitleScanSpliterator.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+
+    /** The DBServer instance that owns the scan. */
+    private final DBServer              dbServer;
+
+    /** The pool from which connections are borrowed. */
+    private final ConnectionPool        pool;
+
+    /** Author names, keyed by author row ID. */
+    private final Map<Integer, String>  authorNames;
+
+    /** List names, keyed by list row ID. */
+    private final Map<Integer, String>  listNames;
+
+    /** The number of row IDs fetched at a time. */
+    private final int                   chunkSize;
+
+    /** The lowest row ID not yet fetched. */
+    private long                        nextIdent;
+
+    /** The highest row ID in the range. */
+    private final long                  lastIdent;
+
+    /** Titles fetched but not yet delivered. */
+    private final Deque<Title>          buffer  = new ArrayDeque<>();
+
+    /**
+     * Constructor.
+     *
+     * @param server        the DBServer instance that owns the scan
+     * @param pool          the pool from which connections are borrowed
+     * @param authorNames   author names, keyed by author row ID
+     * @param listNames     list names, keyed by list row ID
+     * @param fromIdent     the lowest row ID in the range
+     * @param toIdent       the highest row ID in the range
+     * @param chunkSize     the number of row IDs fetched at a time
+     */
+    public TitleScanSpliterator(
+        DBServer                server,
+        ConnectionPool          pool,
+        Map<Integer, String>    authorNames,
+        Map<Integer, String>    listNames,
+        int                     fromIdent,
+        int                     toIdent,
+        int                     chunkSize
+    )
+    {
+        this.dbServer = server;
+        this.pool = pool;
+        this.authorNames = authorNames;
+        this.listNames = listNames;
+        this.nextIdent = fromIdent;
+        this.lastIdent = toIdent;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean tryAdvance( Consumer<? super Title> action )
+    {
+        while ( buffer.isEmpty() && nextIdent <= lastIdent )
+        {
+            long    toIdent = Math.min( lastIdent, nextIdent + chunkSize - 1 );
+            buffer.addAll( fetch( (int)nextIdent, (int)toIdent ) );
+            nextIdent = toIdent + 1;
+        }
+        boolean advanced    = !buffer.isEmpty();
+        if ( advanced )
+            action.accept( buffer.poll() );
+        return advanced;
+    }
+
+    /**
+     * Splits off the lower half of the remaining range,
+     * provided it is larger than a chunk.
+     * A spliterator that has begun delivering a chunk
+     * is not split.
+     */
+    @Override
+    public Spliterator<Title> trySplit()
+    {
+        long                    remaining   = lastIdent - nextIdent + 1;
+        TitleScanSpliterator    prefix      = null;
+        if ( buffer.isEmpty() && remaining > chunkSize )
+        {
+            long    midIdent    = nextIdent + remaining / 2 - 1;
+            prefix =
+                new TitleScanSpliterator(
+                    dbServer,
+                    pool,
+                    authorNames,
+                    listNames,
+                    (int)nextIdent,
+                    (int)midIdent,
+                    chunkSize
+                );
+            nextIdent = midIdent + 1;
+        }
+        return prefix;
+    }
+
+    /**
+     * Estimates the number of titles remaining
+     * as the number of row IDs remaining;
+     * row IDs freed by deletion make this an overestimate.
+     */
+    @Override
+    public long estimateSize()
+    {
+        return lastIdent - nextIdent + 1 + buffer.size();
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+
+    /**
+     * Fetches the titles in a given range of row IDs,
+     * with their comments and attributes,
+     * on a connection borrowed from the pool.
+     *
+     * @param fromIdent the lowest row ID in the range
+     * @param toIdent   the highest row ID in the range
+     *
+     * @return the titles in the given range, in row ID order
+     *
+     * @throws KCLSException if a SQL error occurs
+     */
+    private List<Title> fetch( int fromIdent, int toIdent )
+    {
+        List<Title> titles  = null;
+        try
+        {
+            Connection  conn    = pool.acquire();
+            try
+            {
+                titles =
+                    TitlesTable.getTitleRange(
+                        conn,
+                        fromIdent,
+                        toIdent,
+                        authorNames::get,
+                        listNames::get
+                    );
+                Map<Integer, List<Comment>> comments    =
+                    CommentsTable.getCommentsForTitleRange(
+                        conn,
+                        fromIdent,
+                        toIdent
+                    );
+                AttributesTable.getAttributesForTitleRange(
+                    conn,
+                    fromIdent,
+                    toIdent,
+                    titles
+                );
+                for ( Title title : titles )
+                {
+                    int ident   = title.getIdent().getAsInt();
+                    title.setComments(
+                        comments.getOrDefault( ident, new ArrayList<>() )
+                    );
+                }
+            }
+            finally
+            {
+                pool.release( conn );
+            }
+        }
+        catch ( SQLException exc )
+        {
+            String  message =
+                DBServer.formatSQLError(
+                    "scan titles " + fromIdent + "-" + toIdent,
+                    exc
+                );
+            logger.log( Level.SEVERE, message, exc );
+            throw dbServer.translateSQLException( message, exc );
+        }
+        return titles;
+    }
+}
@@ -1,33 +1,54 @@
 package kcls_manager.database;
 
+import static kcls_manager.database.DBConstants.ARCHIVE_DATE_FIELD;
+import static kcls_manager.database.DBConstants.ATTRIBUTES_TABLE_NAME;
 import static kcls_manager.database.DBConstants.AUTHORS_ID_FIELD;
 import static kcls_manager.database.DBConstants.CHECK_DATE_FIELD;
 import static kcls_manager.database.DBConstants.CHECK_QPOS_FIELD;
 import static kcls_manager.database.DBConstants.CREATION_DATE_FIELD;
+import static kcls_manager.database.DBConstants.ITEM_ID_FIELD;
 import static kcls_manager.database.DBConstants.LISTS_ID_FIELD;
+import static kcls_manager.database.DBConstants.LIST_TYPE_FIELD;
 import static kcls_manager.database.DBConstants.MODIFICATION_DATE_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_MEDIA_FIELD;
+import static kcls_manager.database.DBConstants.NATURAL_MEDIA_LENGTH;
+import static kcls_manager.database.DBConstants.NATURAL_TITLE_FIELD;
 import static kcls_manager.database.DBConstants.RANK_FIELD;
 import static kcls_manager.database.DBConstants.RATING_FIELD;
+import static kcls_manager.database.DBConstants.READY_DATE_FIELD;
 import static kcls_manager.database.DBConstants.RECKON_DATE_FIELD;
 import static kcls_manager.database.DBConstants.RECKON_QPOS_FIELD;
 import static kcls_manager.database.DBConstants.SOURCE_FIELD;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
 import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
 import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
 import static kcls_manager.database.DBConstants.TITLE_FIELD;
 import static kcls_manager.database.DBConstants.MEDIA_TYPE_FIELD;
+import static kcls_manager.database.DBConstants.VERSION_FIELD;
+import static kcls_manager.main.Constants.TITLE_TYPE;
 
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.time.LocalDate;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.OptionalInt;
+import java.util.function.IntFunction;
 import java.util.logging.Logger;
 
+import kcls_manager.database.UpsertResult.Outcome;
 import kcls_manager.main.Author;
+import kcls_manager.main.ConcurrentUpdateException;
 import kcls_manager.main.KCLSException;
 import kcls_manager.main.KCLSList;
 import kcls_manager.main.Title;
@@ -58,12 +79,17 @@ public class TitlesTable extends Table
         + CREATION_DATE_FIELD + ", "
         + MODIFICATION_DATE_FIELD + ", "
         + RECKON_DATE_FIELD + ", "
-        + CHECK_DATE_FIELD
+        + CHECK_DATE_FIELD + ", "
+        + NATURAL_TITLE_FIELD + ", "
+        + NATURAL_MEDIA_FIELD
     + " )"
-    + "VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? )";
+    + "VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? )";
     private final PreparedStatement insertTitlePStatement;
     
-    /** Updates an existing title in the TITLES table */
+    /** 
+     * Updates an existing title in the TITLES table,
+     * provided it has not been modified since it was read.
+     */
     private final String    updateTitleSQL   = 
       "UPDATE " + TITLES_TABLE_NAME + " SET "
         + TITLE_FIELD + " = ?, "
@@ -78,16 +104,179 @@ public class TitlesTable extends Table
         + CREATION_DATE_FIELD + " = ?, "
         + MODIFICATION_DATE_FIELD + " = ?, "
         + RECKON_DATE_FIELD + " = ?, "
-        + CHECK_DATE_FIELD + " = ? "
-      + "WHERE " + TITLES_ID_FIELD + " = ? ";
+        + CHECK_DATE_FIELD + " = ?, "
+        + NATURAL_TITLE_FIELD + " = ?, "
+        + NATURAL_MEDIA_FIELD + " = ?, "
+        + VERSION_FIELD + " = " + VERSION_FIELD + " + 1 "
+      + "WHERE " + TITLES_ID_FIELD + " = ? "
+        + "AND " + VERSION_FIELD + " = ?";
     private final PreparedStatement updateTitlePStatement;
     
+    /** 
+     * Inserts a title into the TITLES table,
+     * or updates the title with the same natural key.
+     * A matching title is only updated 
+     * (and its version incremented) if its data differ;
+     * its creation date and forecast ready date are never changed.
+     * 
+     * @see DBConstants#NATURAL_TITLE_FIELD
+     */
+    private static final String mergeTitleSQL   =
+        "MERGE INTO " + TITLES_TABLE_NAME + " T"
+        + " USING SYSIBM.SYSDUMMY1"
+        + " ON T." + NATURAL_TITLE_FIELD + " = ?"
+        + " AND T." + AUTHORS_ID_FIELD + " = ?"
+        + " AND T." + NATURAL_MEDIA_FIELD + " = ?"
+        + " WHEN MATCHED AND NOT ( "
+            + "T." + TITLE_FIELD + " = ?"
+            + " AND COALESCE( T." + MEDIA_TYPE_FIELD + ", '' )"
+                + " = COALESCE( CAST( ? AS VARCHAR( 127 ) ), '' )"
+            + " AND T." + LISTS_ID_FIELD + " = ?"
+            + " AND T." + CHECK_QPOS_FIELD + " = ?"
+            + " AND T." + RECKON_QPOS_FIELD + " = ?"
+            + " AND T." + RANK_FIELD + " = ?"
+            + " AND T." + RATING_FIELD + " = ?"
+            + " AND COALESCE( T." + SOURCE_FIELD + ", '' )"
+                + " = COALESCE( CAST( ? AS VARCHAR( 127 ) ), '' )"
+            + " AND T." + RECKON_DATE_FIELD + " = ?"
+            + " AND T." + CHECK_DATE_FIELD + " = ? )"
+        + " THEN UPDATE SET "
+            + TITLE_FIELD + " = ?, "
+            + MEDIA_TYPE_FIELD + " = ?, "
+            + LISTS_ID_FIELD + " = ?, "
+            + CHECK_QPOS_FIELD + " = ?, "
+            + RECKON_QPOS_FIELD + " = ?, "
+            + RANK_FIELD + " = ?, "
+            + RATING_FIELD + " = ?, "
+            + SOURCE_FIELD + " = ?, "
+            + RECKON_DATE_FIELD + " = ?, "
+            + CHECK_DATE_FIELD + " = ?, "
+            + MODIFICATION_DATE_FIELD + " = ?, "
+            + VERSION_FIELD + " = T." + VERSION_FIELD + " + 1"
+        + " WHEN NOT MATCHED THEN INSERT ( "
+            + TITLE_FIELD + ", "
+            + AUTHORS_ID_FIELD + ", "
+            + LISTS_ID_FIELD + ", "
+            + MEDIA_TYPE_FIELD + ", "
+            + CHECK_QPOS_FIELD + ", "
+            + RECKON_QPOS_FIELD + ", "
+            + RANK_FIELD + ", "
+            + RATING_FIELD + ", "
+            + SOURCE_FIELD + ", "
+            + CREATION_DATE_FIELD + ", "
+            + MODIFICATION_DATE_FIELD + ", "
+            + RECKON_DATE_FIELD + ", "
+            + CHECK_DATE_FIELD + ", "
+            + NATURAL_TITLE_FIELD + ", "
+            + NATURAL_MEDIA_FIELD
+        + " ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? )";
+    
+    /** 
+     * Prefix for getting the titles with a set of natural titles;
+     * must be completed with an IN list.
+     */
+    private static final String getNaturalTitlesSQL =
+        "SELECT " + TITLES_ID_FIELD + ", " 
+        + NATURAL_TITLE_FIELD + ", "
+        + AUTHORS_ID_FIELD + ", "
+        + NATURAL_MEDIA_FIELD + ", "
+        + VERSION_FIELD
+        + " FROM " + TITLES_TABLE_NAME
+        + " WHERE " + NATURAL_TITLE_FIELD + " IN ";
+    
+    /** 
+     * Prefix for getting the archived titles of a set of authors,
+     * to be matched by natural key;
+     * must be completed with an IN list.
+     * The archive has no natural key columns,
+     * so the key is computed from the title and media type.
+     */
+    private static final String getArchivedAuthorsTitlesSQL =
+        "SELECT " + TITLES_ID_FIELD + ", " 
+        + TITLE_FIELD + ", "
+        + AUTHORS_ID_FIELD + ", "
+        + MEDIA_TYPE_FIELD + ", "
+        + VERSION_FIELD
+        + " FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + AUTHORS_ID_FIELD + " IN ";
+    
     /** Deletes a title from the TITLES table */
     private static final String    deleteTitleSQL   = 
         "DELETE FROM " + TITLES_TABLE_NAME
         + " WHERE " + TITLES_ID_FIELD + " = ?";
     private final PreparedStatement deleteTitlePStatement;
     
+    /** 
+     * Prefix for getting the authors of a set of titles;
+     * must be completed with an IN list.
+     */
+    private static final String    getTitlesAuthorsSQL   = 
+        "SELECT DISTINCT " + AUTHORS_ID_FIELD 
+        + " FROM " + TITLES_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD + " IN ";
+    
+    /** 
+     * Prefix for deleting a set of titles from the TITLES table;
+     * must be completed with an IN list.
+     */
+    private static final String    deleteTitlesSQL   = 
+        "DELETE FROM " + TITLES_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD + " IN ";
+    
+    /** 
+     * Moves a title to a given list,
+     * provided the title has not been modified since it was queried;
+     * executed in batches by moveTitles.
+     */
+    private static final String    moveTitleSQL   = 
+        "UPDATE " + TITLES_TABLE_NAME + " SET "
+        + LISTS_ID_FIELD + " = ?, "
+        + MODIFICATION_DATE_FIELD + " = ?, "
+        + VERSION_FIELD + " = " + VERSION_FIELD + " + 1"
+        + " WHERE " + TITLES_ID_FIELD + " = ?"
+        + " AND " + VERSION_FIELD + " = ?";
+    
+    /** Deletes all titles in a given list from the TITLES table */
+    private static final String    deleteListTitlesSQL   = 
+        "DELETE FROM " + TITLES_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement deleteListTitlesPStatement;
+    
+    /** Moves all titles in one list to another list */
+    private static final String    reassignListTitlesSQL   = 
+        "UPDATE " + TITLES_TABLE_NAME + " SET "
+        + LISTS_ID_FIELD + " = ?, "
+        + VERSION_FIELD + " = " + VERSION_FIELD + " + 1"
+        + " WHERE " + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement reassignListTitlesPStatement;
+    
+    /** Deletes all archived titles in a given list */
+    private static final String    deleteArchivedListTitlesSQL   = 
+        "DELETE FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement deleteArchivedListTitlesPStatement;
+    
+    /** Moves all archived titles in one list to another list */
+    private static final String    reassignArchivedTitlesSQL   = 
+        "UPDATE " + TITLES_ARCHIVE_TABLE_NAME + " SET "
+        + LISTS_ID_FIELD + " = ?"
+        + " WHERE " + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement reassignArchivedTitlesPStatement;
+    
+    /** 
+     * Updates the queue position and forecast ready date of a title,
+     * provided that the title has not been changed since it was read.
+     */
+    private static final String    updateForecastSQL   = 
+        "UPDATE " + TITLES_TABLE_NAME + " SET "
+        + CHECK_QPOS_FIELD + " = ?, "
+        + CHECK_DATE_FIELD + " = ?, "
+        + READY_DATE_FIELD + " = ?, "
+        + VERSION_FIELD + " = " + VERSION_FIELD + " + 1"
+        + " WHERE " + TITLES_ID_FIELD + " = ?"
+        + " AND " + VERSION_FIELD + " = ?";
+    private final PreparedStatement updateForecastPStatement;
+    
     /** Gets a title from the TITLES table given a row ID */
     private final String    getTitleSQL  =
         "SELECT * FROM " + TITLES_TABLE_NAME
@@ -105,12 +294,89 @@ public class TitlesTable extends Table
         + " WHERE " + LISTS_ID_FIELD + " = ?";
     private final PreparedStatement getTitleListPStatement;
     
+    /** 
+     * Gets all titles for a specific list, in order of forecast
+     * ready date; titles without a forecast are last.
+     */
+    private final String    getTitleListByReadyDateSQL  =
+        "SELECT * FROM " + TITLES_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ?"
+        + " ORDER BY " + READY_DATE_FIELD + " NULLS LAST";
+    private final PreparedStatement getTitleListByReadyDatePStatement;
+    
+    /**
+     * Gets the titles in a given range of row IDs, in row ID order;
+     * used by parallel scans, on a connection from the scan pool.
+     */
+    private static final String    getTitleRangeSQL    =
+        "SELECT * FROM " + TITLES_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD + " BETWEEN ? AND ?"
+        + " ORDER BY " + TITLES_ID_FIELD;
+    
+    /** Gets the lowest and highest row IDs in the TITLES table */
+    private static final String    getIdentRangeSQL    =
+        "SELECT MIN( " + TITLES_ID_FIELD + " ), MAX( " + TITLES_ID_FIELD + " )"
+        + " FROM " + TITLES_TABLE_NAME;
+    
     /** Gets all titles for a specific author */
     private final String    getAuthorTitlesSQL  =
         "SELECT * FROM " + TITLES_TABLE_NAME
         + " WHERE " + AUTHORS_ID_FIELD + " = ?";
     private final PreparedStatement getAuthorTitlesPStatement;
     
+    /** All columns of the TITLES table, in order */
+    private static final String    allColumns  =
+        TITLES_ID_FIELD + ", "
+        + TITLE_FIELD + ", "
+        + AUTHORS_ID_FIELD + ", "
+        + LISTS_ID_FIELD + ", "
+        + MEDIA_TYPE_FIELD + ", "
+        + CHECK_QPOS_FIELD + ", "
+        + RECKON_QPOS_FIELD + ", "
+        + RANK_FIELD + ", "
+        + RATING_FIELD + ", "
+        + SOURCE_FIELD + ", "
+        + CREATION_DATE_FIELD + ", "
+        + MODIFICATION_DATE_FIELD + ", "
+        + RECKON_DATE_FIELD + ", "
+        + CHECK_DATE_FIELD + ", "
+        + READY_DATE_FIELD + ", "
+        + VERSION_FIELD;
+    
+    /** 
+     * Gets the row IDs of the titles in a given list
+     * last modified before a given date, oldest first
+     */
+    private static final String    getArchiveCandidatesSQL =
+        "SELECT " + TITLES_ID_FIELD + " FROM " + TITLES_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ?"
+        + " AND " + MODIFICATION_DATE_FIELD + " < ?"
+        + " ORDER BY " + MODIFICATION_DATE_FIELD + ", " + TITLES_ID_FIELD;
+    private final PreparedStatement getArchiveCandidatesPStatement;
+    
+    /** 
+     * Prefix for copying a set of titles to the TITLES_ARCHIVE table;
+     * must be completed with an IN list.
+     */
+    private static final String    archiveTitlesSQL    =
+        "INSERT INTO " + TITLES_ARCHIVE_TABLE_NAME 
+        + " ( " + allColumns + ", " + ARCHIVE_DATE_FIELD + " )"
+        + " SELECT " + allColumns + ", CAST( ? AS DATE )"
+        + " FROM " + TITLES_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD + " IN ";
+    
+    /** Gets an archived title given a row ID */
+    private static final String    getArchivedTitleSQL =
+        "SELECT * FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + TITLES_ID_FIELD  + " = ?";
+    private final PreparedStatement getArchivedTitlePStatement;
+    
+    /** Gets all archived titles for a specific list */
+    private static final String    getArchivedTitleListSQL =
+        "SELECT * FROM " + TITLES_ARCHIVE_TABLE_NAME
+        + " WHERE " + LISTS_ID_FIELD + " = ?";
+    private final PreparedStatement getArchivedTitleListPStatement;
+    
     private final DBServer  dbServer;
 
     public TitlesTable( DBServer server )
@@ -121,19 +387,52 @@ public class TitlesTable extends Table
         dbServer = server;
         
         insertTitlePStatement = 
-            server.getPreparedStatement( insertTitleSQL, genKeys );
+            server.getLazyPreparedStatement( insertTitleSQL, genKeys );
         getTitlePStatement = 
-            server.getPreparedStatement( getTitleSQL, noGenKeys );
+            server.getLazyPreparedStatement( getTitleSQL, noGenKeys );
         getAllTitlesPStatement = 
-            server.getPreparedStatement( getAllTitlesSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAllTitlesSQL, noGenKeys );
         getTitleListPStatement =
-            server.getPreparedStatement( getTitleListSQL, noGenKeys );
+            server.getLazyPreparedStatement( getTitleListSQL, noGenKeys );
         getAuthorTitlesPStatement =
-            server.getPreparedStatement( getAuthorTitlesSQL, noGenKeys );
+            server.getLazyPreparedStatement( getAuthorTitlesSQL, noGenKeys );
         updateTitlePStatement =
-            server.getPreparedStatement( updateTitleSQL, noGenKeys );
+            server.getLazyPreparedStatement( updateTitleSQL, noGenKeys );
         deleteTitlePStatement =
-            server.getPreparedStatement( deleteTitleSQL, noGenKeys );
+            server.getLazyPreparedStatement( deleteTitleSQL, noGenKeys );
+        deleteListTitlesPStatement =
+            server.getLazyPreparedStatement( deleteListTitlesSQL, noGenKeys );
+        reassignListTitlesPStatement =
+            server.getLazyPreparedStatement( reassignListTitlesSQL, noGenKeys );
+        deleteArchivedListTitlesPStatement =
+            server.getLazyPreparedStatement( 
+                deleteArchivedListTitlesSQL, 
+                noGenKeys 
+            );
+        reassignArchivedTitlesPStatement =
+            server.getLazyPreparedStatement( 
+                reassignArchivedTitlesSQL, 
+                noGenKeys 
+            );
+        updateForecastPStatement =
+            server.getLazyPreparedStatement( updateForecastSQL, noGenKeys );
+        getArchiveCandidatesPStatement =
+            server.getLazyPreparedStatement( 
+                getArchiveCandidatesSQL, 
+                noGenKeys 
+            );
+        getArchivedTitlePStatement =
+            server.getLazyPreparedStatement( getArchivedTitleSQL, noGenKeys );
+        getArchivedTitleListPStatement =
+            server.getLazyPreparedStatement( 
+                getArchivedTitleListSQL, 
+                noGenKeys 
+            );
+        getTitleListByReadyDatePStatement =
+            server.getLazyPreparedStatement( 
+                getTitleListByReadyDateSQL, 
+                noGenKeys
+            );
     }
 
     /**
@@ -159,6 +458,7 @@ public class TitlesTable extends Table
         }
         int     ident   = rSet.getInt( 1 );
         title.setIdent( ident );
+        title.setVersion( 0 );
         dbServer.insertCommentsFor( title );
         logger.info( "title: " + name + " inserted" );
     }
@@ -166,10 +466,15 @@ public class TitlesTable extends Table
     /**
      * Updates an existing title in the TITLES table.
      * The title must first have been queried.
+     * If the update succeeds the version of the given title
+     * is incremented to match the version in the database.
      * 
      * @param title the title to update
      * @throws SQLException if a SQL error occurs
      * @throws KCLSException if title to update has no row ID
+     * @throws ConcurrentUpdateException
+     *      if the title has been modified or deleted by another client
+     *      since it was queried
      */
     public void updateTitle( Title title ) 
         throws SQLException, KCLSException
@@ -185,18 +490,214 @@ public class TitlesTable extends Table
         }
         
         int     ident   = optIdent.getAsInt();
+        int     version = title.getVersion();
         int     count   = cvtTitleToRow( title, updateTitlePStatement );
-        updateTitlePStatement.setInt( count, ident );
+        updateTitlePStatement.setInt( count++, ident );
+        updateTitlePStatement.setInt( count++, version );
         
         // update most title data
         logger.info( "updating title: " + name );
-        updateTitlePStatement.executeUpdate();
+        if ( updateTitlePStatement.executeUpdate() == 0 )
+        {
+            ConcurrentUpdateException   exc =
+                new ConcurrentUpdateException( 
+                    TITLES_TABLE_NAME, 
+                    ident, 
+                    version
+                );
+            logger.warning( exc.getMessage() );
+            throw exc;
+        }
+        title.setVersion( version + 1 );
         
         // update title comments
         dbServer.synchronizeCommentsFor( title );
         logger.info( "title: " + name + " updated" );
     }
     
+    /**
+     * Inserts or updates a set of titles in a single batched statement,
+     * matching each title to an existing row by its natural key:
+     * its normalized text, author and normalized media type.
+     * A title that matches no row is inserted, along with its comments;
+     * one that matches a row with different data updates that row,
+     * but not its comments, creation date or forecast ready date;
+     * one that matches a row with the same data changes nothing.
+     * A title that matches an archived title also changes nothing,
+     * and is reported as unchanged;
+     * otherwise re-importing an archived title would resurrect it
+     * as a duplicate.
+     * On return the row ID and version of each given title 
+     * match the database.
+     * 
+     * @param titles    the given titles
+     * 
+     * @return  the outcome for each given title, in order
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws KCLSException 
+     *      if a title has not been assigned to an existing list
+     * 
+     * @see DBConstants#NATURAL_TITLE_FIELD
+     */
+    public List<Outcome> mergeTitles( List<Title> titles )
+        throws SQLException, KCLSException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        logger.info( "merging " + titles.size() + " titles" );
+        int                     maxIdent    = 
+            getMaxIdent( dbServer, TITLES_TABLE_NAME, TITLES_ID_FIELD );
+        Map<String, Integer>    authorIDs   = new HashMap<>();
+        Map<String, Integer>    listIDs     = new HashMap<>();
+        List<Integer>           rowListIDs  = new ArrayList<>();
+        List<String>            keys        = new ArrayList<>();
+        Set<String>             natTitles   = new HashSet<>();
+        for ( Title title : titles )
+        {
+            String  list        = title.getListName();
+            int     listID      = 
+                listIDs.computeIfAbsent( list, dbServer::getListID );
+            if ( listID < 1 )
+            {
+                String   message    = "List \"" + list + "\" not found "
+                    + "for title: " + title.getTitle();
+                logger.severe( message );
+                throw new KCLSException( message );
+            }
+            int     authorID    = 
+                authorIDs.computeIfAbsent( 
+                    title.getAuthor(), 
+                    dbServer::getAuthorIDForName
+                );
+            String  natTitle    = normalize( title.getTitle() );
+            natTitles.add( natTitle );
+            rowListIDs.add( listID );
+            keys.add( 
+                getNaturalKey( 
+                    natTitle, 
+                    authorID, 
+                    normalize( title.getMediaType(), NATURAL_MEDIA_LENGTH )
+                )
+            );
+        }
+        Map<String, int[]>      archived    = 
+            getArchivedRows( new ArrayList<>( authorIDs.values() ) );
+        
+        // archived titles are left out of the batch
+        int[]                   counts      = new int[titles.size()];
+        List<Integer>           merged      = new ArrayList<>();
+        PreparedStatement       statement   =
+            dbServer.getPreparedStatement( mergeTitleSQL, noGenKeys );
+        try
+        {
+            for ( int inx = 0 ; inx < titles.size() ; ++inx )
+            {
+                if ( archived.containsKey( keys.get( inx ) ) )
+                    continue;
+                Title   title       = titles.get( inx );
+                int     authorID    = authorIDs.get( title.getAuthor() );
+                int     listID      = rowListIDs.get( inx );
+                cvtTitleToMergeRow( title, authorID, listID, statement );
+                statement.addBatch();
+                merged.add( inx );
+            }
+            if ( !merged.isEmpty() )
+            {
+                int[]   batchCounts = statement.executeBatch();
+                for ( int inx = 0 ; inx < batchCounts.length ; ++inx )
+                    counts[merged.get( inx )] = batchCounts[inx];
+            }
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        
+        // read back the row ID and version of each title
+        Map<String, int[]>      rows        = new HashMap<>();
+        queryForEachChunk( 
+            dbServer, 
+            getNaturalTitlesSQL, 
+            new ArrayList<>( natTitles ), 
+            rSet -> new AbstractMap.SimpleEntry<>(
+                getNaturalKey( 
+                    rSet.getString( NATURAL_TITLE_FIELD ),
+                    rSet.getInt( AUTHORS_ID_FIELD ),
+                    rSet.getString( NATURAL_MEDIA_FIELD )
+                ),
+                new int[] { 
+                    rSet.getInt( TITLES_ID_FIELD ),
+                    rSet.getInt( VERSION_FIELD )
+                }
+            )
+        ).forEach( e -> rows.put( e.getKey(), e.getValue() ) );
+        
+        List<Outcome>           outcomes    = new ArrayList<>();
+        Set<Integer>            seen        = new HashSet<>();
+        for ( int inx = 0 ; inx < titles.size() ; ++inx )
+        {
+            Title   title   = titles.get( inx );
+            String  key     = keys.get( inx );
+            int[]   row     = archived.getOrDefault( key, rows.get( key ) );
+            title.setIdent( row[0] );
+            title.setVersion( row[1] );
+            
+            // a title that appears twice is only inserted once
+            Outcome outcome = 
+                counts[inx] == 0 ? Outcome.UNCHANGED : Outcome.UPDATED;
+            if ( !archived.containsKey( key ) 
+                 && seen.add( row[0] ) && row[0] > maxIdent 
+               )
+            {
+                outcome = Outcome.INSERTED;
+                dbServer.insertCommentsFor( title );
+            }
+            outcomes.add( outcome );
+        }
+        logger.info( titles.size() + " titles merged" );
+        return outcomes;
+    }
+    
+    /**
+     * Gets the row ID and version of each archived title 
+     * of a set of authors, keyed by natural key.
+     * 
+     * @param authorIDs the row IDs of the authors
+     * 
+     * @return  the row ID and version of each archived title,
+     *          keyed by natural key
+     * 
+     * @throws SQLException if a SQL error occurs
+     * 
+     * @see #getNaturalKey(String, int, String)
+     */
+    private Map<String, int[]> getArchivedRows( List<Integer> authorIDs )
+        throws SQLException
+    {
+        Map<String, int[]>      rows        = new HashMap<>();
+        queryForEachChunk( 
+            dbServer, 
+            getArchivedAuthorsTitlesSQL, 
+            authorIDs, 
+            rSet -> new AbstractMap.SimpleEntry<>(
+                getNaturalKey( 
+                    normalize( rSet.getString( TITLE_FIELD ) ),
+                    rSet.getInt( AUTHORS_ID_FIELD ),
+                    normalize( 
+                        rSet.getString( MEDIA_TYPE_FIELD ), 
+                        NATURAL_MEDIA_LENGTH 
+                    )
+                ),
+                new int[] { 
+                    rSet.getInt( TITLES_ID_FIELD ),
+                    rSet.getInt( VERSION_FIELD )
+                }
+            )
+        ).forEach( e -> rows.put( e.getKey(), e.getValue() ) );
+        return rows;
+    }
+    
     /**
      * Delete a row from the TITLES table.
      * The row must have been previously read from table.
@@ -225,6 +726,391 @@ public class TitlesTable extends Table
         logger.info( "deleted title: " + title );
     }
     
+    /**
+     * Gets the row IDs of the authors of a set of titles.
+     * Titles without an author, and titles not in the TITLES table,
+     * contribute nothing.
+     * 
+     * @param idents    row IDs of the titles
+     * 
+     * @return the row IDs of the authors of the titles
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public Set<Integer> getAuthorIDs( List<Integer> idents ) 
+        throws SQLException
+    {
+        Set<Integer>    authorIDs   = new HashSet<>();
+        queryForEachChunk( 
+            dbServer, 
+            getTitlesAuthorsSQL, 
+            idents, 
+            rSet -> rSet.getInt( 1 )
+        ).stream()
+            .filter( id -> id > 0 )
+            .forEach( authorIDs::add );
+        return authorIDs;
+    }
+    
+    /**
+     * Delete a set of rows from the TITLES table.
+     * Comments associated with the titles are <em>not</em> deleted.
+     * 
+     * @param idents    row IDs of the titles to delete
+     * 
+     * @return the number of titles deleted
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteTitles( List<Integer> idents ) throws SQLException
+    {
+        Object[]    leading = {};
+        logger.info( "deleting " + idents.size() + " titles" );
+        int     count   = 
+            executeForEachChunk( dbServer, deleteTitlesSQL, leading, idents );
+        logger.info( count + " titles deleted" );
+        return count;
+    }
+    
+    /**
+     * Moves a set of titles to a given list
+     * in a single batched statement.
+     * Only the list ID, modification date and version of each title
+     * are changed.
+     * The version of each title is checked against the database;
+     * the given titles themselves are not modified.
+     * 
+     * @param titles    the titles to move; each must have a row ID
+     * @param listID    the row ID of the given list
+     * @param modDate   the new modification date of the moved titles
+     * 
+     * @return the number of titles moved
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws ConcurrentUpdateException
+     *      if any title has been modified or deleted by another client
+     *      since it was queried
+     */
+    public int 
+    moveTitles( List<Title> titles, int listID, LocalDate modDate )
+        throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        if ( titles.isEmpty() )
+            return 0;
+        
+        logger.info( "moving " + titles.size() + " titles to list " + listID );
+        Date                date        = Date.valueOf( modDate );
+        int[]               counts;
+        PreparedStatement   statement   =
+            dbServer.getPreparedStatement( moveTitleSQL, noGenKeys );
+        try
+        {
+            for ( Title title : titles )
+            {
+                statement.setInt( 1, listID );
+                statement.setDate( 2, date );
+                statement.setInt( 3, title.getIdent().getAsInt() );
+                statement.setInt( 4, title.getVersion() );
+                statement.addBatch();
+            }
+            counts = statement.executeBatch();
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        
+        int     total   = 0;
+        for ( int inx = 0 ; inx < counts.length ; ++inx )
+        {
+            if ( counts[inx] == 0 )
+            {
+                Title                       title   = titles.get( inx );
+                ConcurrentUpdateException   exc     =
+                    new ConcurrentUpdateException( 
+                        TITLES_TABLE_NAME, 
+                        title.getIdent().getAsInt(), 
+                        title.getVersion()
+                    );
+                logger.warning( exc.getMessage() );
+                throw exc;
+            }
+            total += Math.max( counts[inx], 0 );
+        }
+        logger.info( total + " titles moved" );
+        return total;
+    }
+    
+    /**
+     * Delete all titles in a given list from the TITLES table.
+     * Comments associated with the titles are <em>not</em> deleted.
+     * 
+     * @param listID    the row ID of the given list
+     * 
+     * @return the number of titles deleted
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteTitlesForList( int listID ) throws SQLException
+    {
+        deleteListTitlesPStatement.setInt( 1, listID );
+        logger.info( "deleting titles for list: " + listID );
+        int     count   = deleteListTitlesPStatement.executeUpdate();
+        logger.info( count + " titles deleted" );
+        return count;
+    }
+    
+    /**
+     * Moves all titles in one list to another list.
+     * 
+     * @param fromListID    the row ID of the list to move titles from
+     * @param toListID      the row ID of the list to move titles to
+     * 
+     * @return the number of titles moved
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int reassignTitles( int fromListID, int toListID )
+        throws SQLException
+    {
+        reassignListTitlesPStatement.setInt( 1, toListID );
+        reassignListTitlesPStatement.setInt( 2, fromListID );
+        logger.info( "moving titles from list " + fromListID 
+            + " to list " + toListID );
+        int     count   = reassignListTitlesPStatement.executeUpdate();
+        logger.info( count + " titles moved" );
+        return count;
+    }
+    
+    /**
+     * Delete all archived titles in a given list 
+     * from the TITLES_ARCHIVE table.
+     * Comments, attributes and samples associated with the titles 
+     * are <em>not</em> deleted.
+     * 
+     * @param listID    the row ID of the given list
+     * 
+     * @return the number of archived titles deleted
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int deleteArchivedTitlesForList( int listID ) throws SQLException
+    {
+        deleteArchivedListTitlesPStatement.setInt( 1, listID );
+        int     count   = deleteArchivedListTitlesPStatement.executeUpdate();
+        logger.info( count + " archived titles deleted" );
+        return count;
+    }
+    
+    /**
+     * Moves all archived titles in one list to another list.
+     * Archived titles are never updated, 
+     * so their versions are left unchanged.
+     * 
+     * @param fromListID    the row ID of the list to move titles from
+     * @param toListID      the row ID of the list to move titles to
+     * 
+     * @return the number of archived titles moved
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int reassignArchivedTitles( int fromListID, int toListID )
+        throws SQLException
+    {
+        reassignArchivedTitlesPStatement.setInt( 1, toListID );
+        reassignArchivedTitlesPStatement.setInt( 2, fromListID );
+        int     count   = reassignArchivedTitlesPStatement.executeUpdate();
+        logger.info( count + " archived titles moved" );
+        return count;
+    }
+    
+    /**
+     * Gets the ranks of all titles in a given list, in rank order.
+     * 
+     * @param listID    the row ID of the given list
+     * 
+     * @return  the row IDs of the titles in the given list,
+     *          mapped to their ranks, in rank order
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public Map<Integer, Integer> getTitleRanks( int listID ) 
+        throws SQLException
+    {
+        return getRanks( dbServer, TITLES_TABLE_NAME, TITLES_ID_FIELD, listID );
+    }
+    
+    /**
+     * Sets the ranks of a set of titles in a single batched statement.
+     * Only the rank and version of each title are changed.
+     * 
+     * @param ranks row IDs of the titles to update,
+     *              mapped to their new ranks
+     * 
+     * @return the number of titles updated
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int updateTitleRanks( Map<Integer, Integer> ranks )
+        throws SQLException
+    {
+        logger.info( "updating ranks of " + ranks.size() + " titles" );
+        int     count   = 
+            updateRanks( dbServer, TITLES_TABLE_NAME, TITLES_ID_FIELD, ranks );
+        logger.info( count + " titles updated" );
+        return count;
+    }
+    
+    /**
+     * Updates the most recent queue position 
+     * and the forecast ready date of a given title,
+     * and increments its version.
+     * 
+     * @param titleID   the row ID of the given title
+     * @param version   the version of the title when it was read
+     * @param checkQPos the most recent queue position of the title
+     * @param checkDate the date of the most recent queue position
+     * @param readyDate the forecast ready date; may be null
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws ConcurrentUpdateException
+     *      if the title has been changed or deleted
+     *      since it was read
+     */
+    public void updateForecast( 
+        int titleID, 
+        int version,
+        int checkQPos, 
+        LocalDate checkDate, 
+        LocalDate readyDate 
+    ) throws SQLException
+    {
+        int     inx     = 1;
+        updateForecastPStatement.setInt( inx++, checkQPos );
+        updateForecastPStatement.setDate( inx++, Date.valueOf( checkDate ) );
+        if ( readyDate == null )
+            updateForecastPStatement.setNull( inx++, Types.DATE );
+        else
+            updateForecastPStatement.setDate( 
+                inx++, 
+                Date.valueOf( readyDate )
+            );
+        updateForecastPStatement.setInt( inx++, titleID );
+        updateForecastPStatement.setInt( inx++, version );
+        logger.info( "updating forecast for title " + titleID 
+            + ": " + readyDate );
+        if ( updateForecastPStatement.executeUpdate() == 0 )
+        {
+            ConcurrentUpdateException   exc =
+                new ConcurrentUpdateException( 
+                    TITLES_TABLE_NAME, 
+                    titleID, 
+                    version
+                );
+            logger.warning( exc.getMessage() );
+            throw exc;
+        }
+    }
+    
+    /**
+     * Gets the row IDs of the titles in a given list
+     * that were last modified before a given date, oldest first.
+     * 
+     * @param listID    the row ID of the given list
+     * @param cutoff    the given date
+     * @param limit     the maximum number of row IDs to get
+     * 
+     * @return the row IDs of up to <em>limit</em> titles
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public List<Integer> 
+    getArchiveCandidates( int listID, LocalDate cutoff, int limit )
+        throws SQLException
+    {
+        List<Integer>   idents  = new ArrayList<>();
+        getArchiveCandidatesPStatement.setInt( 1, listID );
+        getArchiveCandidatesPStatement.setDate( 2, Date.valueOf( cutoff ) );
+        getArchiveCandidatesPStatement.setMaxRows( limit );
+        try ( ResultSet rSet = getArchiveCandidatesPStatement.executeQuery() )
+        {
+            while ( rSet.next() )
+                idents.add( rSet.getInt( 1 ) );
+        }
+        return idents;
+    }
+    
+    /**
+     * Moves a set of titles from the TITLES table
+     * to the TITLES_ARCHIVE table.
+     * Comments associated with the titles are <em>not</em> moved.
+     * 
+     * @param idents        row IDs of the titles to move
+     * @param archiveDate   the date on which the titles are archived
+     * 
+     * @return the number of titles moved
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int archiveTitles( List<Integer> idents, LocalDate archiveDate )
+        throws SQLException
+    {
+        Object[]    leading = { Date.valueOf( archiveDate ) };
+        logger.info( "archiving " + idents.size() + " titles" );
+        int         count   = 
+            executeForEachChunk( dbServer, archiveTitlesSQL, leading, idents );
+        executeForEachChunk( dbServer, deleteTitlesSQL, new Object[0], idents );
+        logger.info( count + " titles archived" );
+        return count;
+    }
+    
+    /**
+     * Gets an archived title given its row ID.
+     * Comments are <em>not</em> read.
+     * 
+     * @param ident the row ID of the archived title
+     * 
+     * @return  the archived title, or null if not found
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public Title getArchivedTitle( int ident ) throws SQLException
+    {
+        Title   title   = null;
+        getArchivedTitlePStatement.setInt( 1, ident );
+        try ( ResultSet rSet = getArchivedTitlePStatement.executeQuery() )
+        {
+            if ( rSet.next() )
+                title = cvtRowToTitle( rSet );
+        }
+        return title;
+    }
+    
+    /**
+     * Gets all archived titles associated with a given list.
+     * Comments are <em>not</em> read.
+     * 
+     * @param listID    the row ID of the given list
+     * 
+     * @return  a list of all archived titles associated with 
+     *          the given list
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public List<Title> getArchivedTitleList( int listID ) throws SQLException
+    {
+        List<Title> titles  = new ArrayList<>();
+        getArchivedTitleListPStatement.setInt( 1, listID );
+        try ( ResultSet rSet = getArchivedTitleListPStatement.executeQuery() )
+        {
+            while ( rSet.next() )
+                titles.add( cvtRowToTitle( rSet ) );
+        }
+        return titles;
+    }
+    
     /**
      * Query the title associated with a given row ID.
      * 
@@ -289,6 +1175,52 @@ public class TitlesTable extends Table
         return titles;
     }
 
+    /**
+     * Gets all titles with a given attribute value,
+     * using the index on the attribute's name and value.
+     * Comments are retrieved; attributes are not.
+     * 
+     * @param key   the name of the attribute
+     * @param value the value of the attribute:
+     *              a String, an Integer, a Long or a LocalDate
+     * 
+     * @return  all titles with the given attribute value,
+     *          in row ID order
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws KCLSException if the value is not of a supported type
+     */
+    public List<Title> getTitlesByAttribute( String key, Object value )
+        throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        String              sql         =
+            "SELECT * FROM " + TITLES_TABLE_NAME
+            + " WHERE " + TITLES_ID_FIELD + " IN ( SELECT " + ITEM_ID_FIELD
+            + " FROM " + ATTRIBUTES_TABLE_NAME
+            + " WHERE " + AttributesTable.getKeyValueCondition( "", value )
+            + " AND " + LIST_TYPE_FIELD + " = " + TITLE_TYPE + " )"
+            + " ORDER BY " + TITLES_ID_FIELD;
+        List<Title>         titles      = new ArrayList<>();
+        PreparedStatement   statement   =
+            dbServer.getPreparedStatement( sql, noGenKeys );
+        try
+        {
+            AttributesTable.bindKeyValue( statement, 1, key, value );
+            try ( ResultSet rSet = statement.executeQuery() )
+            {
+                while ( rSet.next() )
+                    titles.add( cvtRowToTitleWithComments( rSet ) );
+            }
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        return titles;
+    }
+
     /**
      * Get all rows from the TITLES table.
      * 
@@ -337,7 +1269,237 @@ public class TitlesTable extends Table
         return allTitles;
     }
     
+    /**
+     * Get all titles associated with a given list,
+     * in order of forecast ready date.
+     * Titles without a forecast are at the end of the list.
+     * 
+     * @param listName  the name of the given list
+     * 
+     * @return  a list of all titles associated with the given list
+     * 
+     * @throws SQLException if a SQL exception occurs
+     */
+    public List<Title> getTitleListByReadyDate( String listName ) 
+        throws SQLException
+    {
+        List<Title>         allTitles   = new ArrayList<>();
+        int                 listID      = dbServer.getListID( listName ); 
+        PreparedStatement   statement   = getTitleListByReadyDatePStatement;
+        if ( listID > 0 )
+        {
+            statement.setInt( 1, listID );
+            ResultSet   rSet        = statement.executeQuery();
+            while ( rSet.next() )
+            {
+                Title   title   = cvtRowToTitle( rSet );
+                dbServer.getCommentsFor( title );
+                allTitles.add( title );
+            }
+        }
+        return allTitles;
+    }
+    
+    /**
+     * Gets a publisher that streams all rows of the TITLES table.
+     * The comments of each title are retrieved as the title is delivered.
+     * 
+     * Attributes are not retrieved.
+     * 
+     * @param fetchSize the default fetch size of the publisher
+     * 
+     * @return  a publisher that streams all rows of the TITLES table
+     */
+    public CursorPublisher<Title> getAllTitlesPublisher( int fetchSize )
+    {
+        CursorPublisher<Title>  publisher   =
+            new CursorPublisher<>(
+                dbServer,
+                getAllTitlesSQL,
+                s -> {},
+                this::cvtRowToPublishedTitle,
+                fetchSize
+            );
+        return publisher;
+    }
+    
+    /**
+     * Gets a publisher that streams all titles
+     * associated with a given list.
+     * The comments of each title are retrieved as the title is delivered.
+     * If the list does not exist the publisher completes
+     * without publishing any titles.
+     * Attributes are not retrieved.
+     * 
+     * @param listName  the name of the given list
+     * @param fetchSize the default fetch size of the publisher
+     * 
+     * @return  a publisher that streams all titles 
+     *          associated with the given list
+     */
+    public CursorPublisher<Title> 
+    getTitleListPublisher( String listName, int fetchSize )
+    {
+        CursorPublisher<Title>  publisher   =
+            new CursorPublisher<>(
+                dbServer,
+                getTitleListSQL,
+                s -> s.setInt( 1, dbServer.getListID( listName ) ),
+                this::cvtRowToPublishedTitle,
+                fetchSize
+            );
+        return publisher;
+    }
+    
+    /**
+     * Converts a row of a result set to a title to be published,
+     * marking the title's attributes as not loaded.
+     * 
+     * @param rSet  the result set, positioned at the row to convert
+     * 
+     * @return  the title represented by the row
+     * 
+     * @throws SQLException if a SQL error occurs
+     * 
+     * @see kcls_manager.main.LibraryItem#isAttributesLoaded()
+     */
+    private Title cvtRowToPublishedTitle( ResultSet rSet )
+        throws SQLException
+    {
+        Title   title   = cvtRowToTitleWithComments( rSet );
+        title.setAttributesLoaded( false );
+        return title;
+    }
+    
+    private Title cvtRowToTitleWithComments( ResultSet rSet ) 
+        throws SQLException
+    {
+        Title   title   = cvtRowToTitle( rSet );
+        dbServer.getCommentsFor( title );
+        return title;
+    }
+    
+    /**
+     * Gets the lowest and highest row IDs in the TITLES table.
+     * 
+     * @return  a two-element array containing the lowest
+     *          and highest row IDs; null if the table is empty
+     * 
+     * @throws SQLException if a SQL error occurs
+     */
+    public int[] getIdentRange() throws SQLException
+    {
+        final int noGenKeys = Statement.NO_GENERATED_KEYS;
+        
+        int[]               range       = null;
+        PreparedStatement   statement   =
+            dbServer.getPreparedStatement( getIdentRangeSQL, noGenKeys );
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            // MIN and MAX are null if the table is empty
+            if ( rSet.next() && rSet.getObject( 1 ) != null )
+                range = new int[] { rSet.getInt( 1 ), rSet.getInt( 2 ) };
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        return range;
+    }
+    
+    /**
+     * Gets the titles whose row IDs fall in a given range,
+     * using a given connection rather than the DBServer's connection.
+     * Author and list names are resolved by given functions,
+     * so that no other table is read.
+     * Comments are not retrieved.
+     * 
+     * @param conn          the given connection
+     * @param fromIdent     the lowest row ID in the range
+     * @param toIdent       the highest row ID in the range
+     * @param authorNames   maps an author ID to the author's name;
+     *                      returns null if the author does not exist
+     * @param listNames     maps a list ID to the list's name;
+     *                      returns null if the list does not exist
+     * 
+     * @return  the titles in the given range, in row ID order
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws KCLSException if a title refers to a list that does not exist
+     */
+    public static List<Title> getTitleRange(
+        Connection          conn,
+        int                 fromIdent,
+        int                 toIdent,
+        IntFunction<String> authorNames,
+        IntFunction<String> listNames
+    ) throws SQLException
+    {
+        List<Title> titles  = new ArrayList<>();
+        try ( PreparedStatement statement = 
+                conn.prepareStatement( getTitleRangeSQL ) )
+        {
+            statement.setInt( 1, fromIdent );
+            statement.setInt( 2, toIdent );
+            try ( ResultSet rSet = statement.executeQuery() )
+            {
+                while ( rSet.next() )
+                    titles.add( cvtRowToTitle( rSet, authorNames, listNames ) );
+            }
+        }
+        return titles;
+    }
+    
     private Title cvtRowToTitle( ResultSet rSet ) throws SQLException
+    {
+        return cvtRowToTitle( rSet, this::getAuthorName, this::getListName );
+    }
+    
+    /**
+     * Gets the name of the author with a given ID.
+     * 
+     * @param authorID  the given ID
+     * 
+     * @return the name of the author; null if the author does not exist
+     */
+    private String getAuthorName( int authorID )
+    {
+        return dbServer.getAuthorName( authorID );
+    }
+    
+    /**
+     * Gets the name of the list with a given ID.
+     * 
+     * @param listID    the given ID
+     * 
+     * @return the name of the list; null if the list does not exist
+     */
+    private String getListName( int listID )
+    {
+        KCLSList    list    = dbServer.getList( listID );
+        return list == null ? null : list.getDialogTitle();
+    }
+    
+    /**
+     * Converts the current row of a given result set to a title.
+     * Author and list names are resolved by given functions.
+     * 
+     * @param rSet          the given result set
+     * @param authorNames   maps an author ID to the author's name;
+     *                      returns null if the author does not exist
+     * @param listNames     maps a list ID to the list's name;
+     *                      returns null if the list does not exist
+     * 
+     * @return the title in the current row
+     * 
+     * @throws SQLException if a SQL error occurs
+     * @throws KCLSException if the title's list does not exist
+     */
+    private static Title cvtRowToTitle( 
+        ResultSet           rSet,
+        IntFunction<String> authorNames,
+        IntFunction<String> listNames
+    ) throws SQLException
     {
         int         titleID     = rSet.getInt( TITLES_ID_FIELD );
         String      text        = rSet.getString( TITLE_FIELD);
@@ -353,27 +1515,32 @@ public class TitlesTable extends Table
         Date        sqlModDate  = rSet.getDate( MODIFICATION_DATE_FIELD );
         Date        sqlRecDate  = rSet.getDate( RECKON_DATE_FIELD );
         Date        sqlCheDate  = rSet.getDate( CHECK_DATE_FIELD );
+        Date        sqlRdyDate  = rSet.getDate( READY_DATE_FIELD );
+        int         version     = rSet.getInt( VERSION_FIELD );
         
         LocalDate   creDate     = sqlCreDate.toLocalDate();
         LocalDate   modDate     = sqlModDate.toLocalDate();
         LocalDate   cheDate     = sqlCheDate.toLocalDate();
         LocalDate   recDate     = sqlRecDate.toLocalDate();
+        LocalDate   rdyDate     = 
+            sqlRdyDate == null ? null : sqlRdyDate.toLocalDate();
         
-        Author      author      = dbServer.getAuthor( authorID );
-        KCLSList    list        = dbServer.getList( listID );
-        if ( list == null )
+        // titles without an author are stored with an invalid author ID
+        String      authorName  = 
+            authorID > 0 ? authorNames.apply( authorID ) : null;
+        String      listName    = listNames.apply( listID );
+        if ( listName == null )
         {
             String  message = "No list reference found for title: " + text;
             logger.severe( message );
             throw new KCLSException( message );
         }
-        String      authorName  = "";
-        if ( author != null )
-            authorName = author.getAuthor();
-        String      listName    = list.getDialogTitle();
+        if ( authorName == null )
+            authorName = "";
         
         Title   title   = new Title( creDate, text, authorName );
         title.setIdent( titleID );
+        title.setVersion( version );
         // title.setTitle
         // title.setAuthor
         title.setListName( listName );
@@ -387,6 +1554,7 @@ public class TitlesTable extends Table
         title.setModifyDate( modDate );
         title.setReckonDate( recDate );
         title.setCheckDate( cheDate );
+        title.setReadyDate( rdyDate );
         return title;
     }
     
@@ -448,7 +1616,102 @@ public class TitlesTable extends Table
         statement.setDate( inx++, modDate );
         statement.setDate( inx++, recDate );
         statement.setDate( inx++, cheDate );
+        statement.setString( inx++, normalize( name ) );
+        statement.setString( 
+            inx++, 
+            normalize( mediaType, NATURAL_MEDIA_LENGTH ) 
+        );
         
         return inx;
     }
+    
+    /**
+     * Populates the merge statement with data from a given title.
+     * 
+     * @param title     the given title
+     * @param authorID  the row ID of the title's author
+     * @param listID    the row ID of the title's list
+     * @param statement the merge statement to populate
+     *
+     * @throws SQLException if a SQL error occurs
+     * 
+     * @see #mergeTitleSQL
+     */
+    private static void cvtTitleToMergeRow( 
+        Title title, 
+        int authorID, 
+        int listID, 
+        PreparedStatement statement 
+    ) throws SQLException
+    {
+        String          name        = title.getTitle();
+        String          mediaType   = title.getMediaType();
+        java.sql.Date   creDate     = 
+            java.sql.Date.valueOf( title.getCreationDate() );
+        java.sql.Date   modDate     = 
+            java.sql.Date.valueOf( title.getModifyDate() );
+        java.sql.Date   recDate     = 
+            java.sql.Date.valueOf( title.getReckonDate() );
+        java.sql.Date   cheDate     = 
+            java.sql.Date.valueOf( title.getCheckDate() );
+        
+        int inx = 1;
+        statement.setString( inx++, normalize( name ) );
+        statement.setInt( inx++, authorID );
+        statement.setString( 
+            inx++, 
+            normalize( mediaType, NATURAL_MEDIA_LENGTH ) 
+        );
+        
+        // the data are first compared with, then copied to, a matching row
+        for ( int pass = 0 ; pass < 2 ; ++pass )
+        {
+            statement.setString( inx++, name );
+            statement.setString( inx++, mediaType );
+            statement.setInt( inx++, listID );
+            statement.setInt( inx++, title.getCheckQPos() );
+            statement.setInt( inx++, title.getReckonQPos() );
+            statement.setInt( inx++, title.getRank() );
+            statement.setInt( inx++, title.getRating() );
+            statement.setString( inx++, title.getSource() );
+            statement.setDate( inx++, recDate );
+            statement.setDate( inx++, cheDate );
+        }
+        statement.setDate( inx++, modDate );
+        
+        // a new row
+        statement.setString( inx++, name );
+        statement.setInt( inx++, authorID );
+        statement.setInt( inx++, listID );
+        statement.setString( inx++, mediaType );
+        statement.setInt( inx++, title.getCheckQPos() );
+        statement.setInt( inx++, title.getReckonQPos() );
+        statement.setInt( inx++, title.getRank() );
+        statement.setInt( inx++, title.getRating() );
+        statement.setString( inx++, title.getSource() );
+        statement.setDate( inx++, creDate );
+        statement.setDate( inx++, modDate );
+        statement.setDate( inx++, recDate );
+        statement.setDate( inx++, cheDate );
+        statement.setString( inx++, normalize( name ) );
+        statement.setString( 
+            inx++, 
+            normalize( mediaType, NATURAL_MEDIA_LENGTH ) 
+        );
+    }
+    
+    /**
+     * Formats the natural key of a title, for matching in memory.
+     * 
+     * @param natTitle  the natural title
+     * @param authorID  the row ID of the author
+     * @param natMedia  the natural media type
+     * 
+     * @return the natural key
+     */
+    private static String 
+    getNaturalKey( String natTitle, int authorID, String natMedia )
+    {
+        return natTitle + "\n" + authorID + "\n" + natMedia;
+    }
 }
@@ -0,0 +1,109 @@
+package kcls_manager.database;
+
+/**
+ * The outcome of an upsert of a collection of titles or authors:
+ * the number of items inserted as new rows,
+ * the number that replaced the data of an existing row,
+ * and the number that matched an existing row exactly.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author jstra
+ *
+ * @see DBServer#upsertTitles(java.util.Collection)
+ * @see DBServer#upsertAuthors(java.util.Collection)
+ */
+public class UpsertResult
+{
+    /**
+     * The outcome of an upsert of a single item.
+     */
+    public enum Outcome
+    {
+        /** The item did not match an existing row, and was inserted. */
+        INSERTED,
+        /** The item matched an existing row, which was updated. */
+        UPDATED,
+        /**
+         * The item matched an existing row with the same data,
+         * which was left untouched.
+         */
+        UNCHANGED
+    }
+
+    /** The number of items inserted. */
+    private final int   inserted;
+
+    /** The number of items that updated an existing row. */
+    private final int   updated;
+
+    /** The number of items that matched an existing row exactly. */
+    private final int   unchanged;
+
+    /**
+     * Constructor.
+     *
+     * @param inserted  the number of items inserted
+     * @param updated   the number of items that updated an existing row
+     * @param unchanged the number of items that matched an existing row
+     *                  exactly
+     */
+    public UpsertResult( int inserted, int updated, int unchanged )
+    {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * Gets the number of items inserted.
+     *
+     * @return the number of items inserted
+     */
+    public int getInserted()
+    {
+        return inserted;
+    }
+
+    /**
+     * Gets the number of items that updated an existing row.
+     *
+     * @return the number of items that updated an existing row
+     */
+    public int getUpdated()
+    {
+        return updated;
+    }
+
+    /**
+     * Gets the number of items that matched an existing row exactly.
+     *
+     * @return the number of items that matched an existing row exactly
+     */
+    public int getUnchanged()
+    {
+        return unchanged;
+    }
+
+    /**
+     * Gets the total number of items upserted.
+     *
+     * @return the total number of items upserted
+     */
+    public int getTotal()
+    {
+        return inserted + updated + unchanged;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "{" )
+            .append( "inserted=" ).append( inserted ).append( "," )
+            .append( "updated=" ).append( updated ).append( "," )
+            .append( "unchanged=" ).append( unchanged )
+            .append( "}" );
+        return bldr.toString();
+    }
+}
@@ -19,6 +19,7 @@ import javax.swing.JTable;
 import javax.swing.table.TableModel;
 
 import kcls_manager.database.DBServer;
+import kcls_manager.database.ListSnapshot;
 
 /**
  * Formats rows to populate a table based on a set of Author objects.
@@ -72,22 +73,19 @@ public class AuthorContentProvider extends ContentProvider
      */
     private final String        dialogTitle;
     
-    /**
-     *  The DBServer singleton.
-     *  It is presumed that the singleton has already been instantiated
-     *  with the appropriate database connection parameters.
-     */
-    private static final DBServer      dbServer    = DataManager.getDBServer();
-    
     /**
      * Constructor. Provides access to authors corresponding to
      * a given list. The list must already exist.
+     * The DBServer singleton must already have been started
+     * with the appropriate database connection parameters.
      * 
      * @param listName the name of the given list
+     * 
+     * @see DataManager#getDBServer()
      */
     public AuthorContentProvider( String listName )
     {
-        this( listName, defColumnNames );
+        this( DataManager.getDBServer(), listName, defColumnNames );
     }
     
     /**
@@ -95,15 +93,85 @@ public class AuthorContentProvider extends ContentProvider
      * a given list. The list must already exist;
      * the caller must supply the column headings
      * for displaying Author fields in a table.
+     * The DBServer singleton must already have been started
+     * with the appropriate database connection parameters.
      * 
      * @param listName      the name of the given list
      * @param columnNames   the required column headings
+     * 
+     * @see DataManager#getDBServer()
      */
     public AuthorContentProvider( String listName, String[] columnNames )
+    {
+        this( DataManager.getDBServer(), listName, columnNames );
+    }
+    
+    /**
+     * Constructor. Provides access to authors corresponding to
+     * a given list, using a given DBServer. The list must already exist.
+     * 
+     * @param dbServer  the given DBServer
+     * @param listName  the name of the given list
+     */
+    public AuthorContentProvider( DBServer dbServer, String listName )
+    {
+        this( dbServer, listName, defColumnNames );
+    }
+    
+    /**
+     * Constructor. Provides access to authors corresponding to
+     * a given list, using a given DBServer. The list must already exist;
+     * the caller must supply the column headings
+     * for displaying Author fields in a table.
+     * 
+     * @param dbServer      the given DBServer
+     * @param listName      the name of the given list
+     * @param columnNames   the required column headings
+     */
+    public AuthorContentProvider( 
+        DBServer dbServer, 
+        String listName, 
+        String[] columnNames
+    )
+    {
+        this( listName, columnNames, getAuthorsForList( dbServer, listName ) );
+    }
+    
+    /**
+     * Constructor. Provides access to authors corresponding to
+     * a given list, as recorded in a given snapshot.
+     * The database is not accessed, so a dialog can be populated
+     * before the database has finished booting.
+     * The authors are as of the time the snapshot was taken,
+     * and have no comments.
+     * 
+     * @param snapshot  the given snapshot
+     * @param listName  the name of the given list
+     * 
+     * @see kcls_manager.database.DBServer#readSnapshot(String)
+     */
+    public AuthorContentProvider( ListSnapshot snapshot, String listName )
+    {
+        this( listName, defColumnNames, snapshot.getAuthors( listName ) );
+    }
+    
+    /**
+     * Constructor. Provides access to a given collection of authors
+     * corresponding to a given list.
+     * 
+     * @param listName      the name of the given list
+     * @param columnNames   the required column headings
+     * @param authors       the given collection of authors
+     */
+    private AuthorContentProvider( 
+        String listName, 
+        String[] columnNames,
+        Collection<Author> authors
+    )
     {
         dialogTitle = inferListLabel( listName );
-        authors = new HashSet<>();
-        authors.addAll( getAuthorsForList( listName ) );
+        this.authors = new HashSet<>();
+        this.authors.addAll( authors );
         this.columnNames = columnNames;
         xlator = new AuthorContentTranslator( columnNames );
     }
@@ -128,6 +196,21 @@ public class AuthorContentProvider extends ContentProvider
      *          of all the lists of authors in the database
      */
     public static List<String> getAllListNames()
+    {
+        return getAllListNames( DataManager.getDBServer() );
+    }
+    
+    /**
+     * Returns a list containing the names
+     * of all the lists of authors in the database
+     * accessed by a given DBServer.
+     * 
+     * @param dbServer  the given DBServer
+     * 
+     * @return  a collection containing the names
+     *          of all the lists of authors in the database
+     */
+    public static List<String> getAllListNames( DBServer dbServer )
     {
         // TODO is this method necessary? Does it belong in an
         //      abstract superclass?
@@ -147,6 +230,21 @@ public class AuthorContentProvider extends ContentProvider
      * @return a collection of all Authors belonging to the given list
      */
     public static Set<Author> getAuthorsForList( String listName )
+    {
+        return getAuthorsForList( DataManager.getDBServer(), listName );
+    }
+    
+    /**
+     * Returns a collection of all Authors belonging to a given list
+     * in the database accessed by a given DBServer.
+     * 
+     * @param dbServer  the given DBServer
+     * @param listName  the name of the given list
+     * 
+     * @return a collection of all Authors belonging to the given list
+     */
+    public static Set<Author> 
+    getAuthorsForList( DBServer dbServer, String listName )
     {
         Set<Author>          list    = new HashSet<>();
         List<Author>         authors  = dbServer.getAuthorsForList( listName );
@@ -23,9 +23,26 @@ public class Comment implements Comparable<Comment>
     /** Auto-generated key to the comments table */
     private OptionalInt commentsID;
     
-    /**  Text of the comment */
+    /**
+     * Text of the comment;
+     * only a preview of the text if the full text
+     * has not been loaded.
+     * @see #textLoaded
+     */
     private String      text;
     
+    /**
+     * True if <em>text</em> is the full text of the comment;
+     * false if it is only a preview.
+     * Comments with long text are read from the database
+     * with only a preview of the text;
+     * the full text is loaded on demand.
+     */
+    private boolean     textLoaded  = true;
+    
+    /** Length of the full text of the comment. */
+    private int         textLength  = 0;
+    
     /** 
      * Key into AUTHORS or TITLES table, depending on <em>type</em>.
      * @see #type
@@ -38,6 +55,13 @@ public class Comment implements Comparable<Comment>
      */
     private int         type;
     
+    /**
+     * The version of the database row this comment was read from;
+     * used to detect conflicting updates by other clients.
+     * Not considered when comparing comments for equality.
+     */
+    private int         version     = 0;
+    
     /**
      * Constructor.
      * 
@@ -61,9 +85,12 @@ public class Comment implements Comparable<Comment>
     public Comment( Comment toCopy )
     {
         setType( toCopy.getType() );
-        setText( toCopy.getText() );
+        this.text = toCopy.text;
+        this.textLoaded = toCopy.textLoaded;
+        this.textLength = toCopy.textLength;
         setIdent( toCopy.getIdent() );
         setItemID( toCopy.getItemID() );
+        setVersion( toCopy.getVersion() );
     }
 
     /**
@@ -95,7 +122,12 @@ public class Comment implements Comparable<Comment>
 
     /**
      * Text getter.
-     * @return the text
+     * If the full text has not been loaded
+     * only a preview of the text is returned.
+     * 
+     * @return the text, or a preview of the text
+     * 
+     * @see #isTextLoaded()
      */
     public String getText()
     {
@@ -104,11 +136,54 @@ public class Comment implements Comparable<Comment>
 
     /**
      * Text setter.
+     * The given text is the full text of the comment.
+     * 
      * @param text the text to set
      */
     public void setText(String text)
     {
         this.text = text;
+        this.textLoaded = true;
+        this.textLength = text == null ? 0 : text.length();
+    }
+    
+    /**
+     * Sets a preview of the text of this comment,
+     * in place of the full text.
+     * 
+     * @param preview       the preview of the text
+     * @param textLength    the length of the full text
+     * 
+     * @see #isTextLoaded()
+     */
+    public void setPreview( String preview, int textLength )
+    {
+        this.text = preview;
+        this.textLoaded = false;
+        this.textLength = textLength;
+    }
+    
+    /**
+     * Indicates whether the full text of this comment has been loaded,
+     * or only a preview.
+     * 
+     * @return  true if the full text of this comment has been loaded;
+     *          false if only a preview has been loaded
+     */
+    public boolean isTextLoaded()
+    {
+        return textLoaded;
+    }
+    
+    /**
+     * Gets the length of the full text of this comment,
+     * whether or not the full text has been loaded.
+     * 
+     * @return the length of the full text of this comment
+     */
+    public int getTextLength()
+    {
+        return textLength;
     }
 
     /**
@@ -156,6 +231,25 @@ public class Comment implements Comparable<Comment>
         this.type = type;
     }
     
+    /**
+     * Version getter.
+     * @return the version of the database row this comment was read from
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Version setter.
+     * @param version   the version of the database row 
+     *                  this comment was read from
+     */
+    public void setVersion( int version )
+    {
+        this.version = version;
+    }
+    
     @Override
     public String toString()
     {
@@ -0,0 +1,79 @@
+package kcls_manager.main;
+
+/**
+ * Thrown when an attempt is made to update a row in the database
+ * that has been modified (or deleted) by another client
+ * since it was last read.
+ * The row is not updated;
+ * the caller should re-read the row, reapply its changes
+ * and try again.
+ *
+ * @author jstra
+ *
+ */
+public class ConcurrentUpdateException extends KCLSException
+{
+    /** Generated serial version UID. */
+    private static final long serialVersionUID = 3872941506293318417L;
+
+    /** The name of the table containing the conflicting row. */
+    private final String    tableName;
+
+    /** The row ID of the conflicting row. */
+    private final int       ident;
+
+    /** The version of the row expected by the failed update. */
+    private final int       version;
+
+    /**
+     * Constructor.
+     *
+     * @param tableName the name of the table containing the conflicting row
+     * @param ident     the row ID of the conflicting row
+     * @param version   the version of the row expected by the failed update
+     */
+    public ConcurrentUpdateException(
+        String tableName,
+        int ident,
+        int version
+    )
+    {
+        super(
+            tableName + " row " + ident + ", version " + version
+            + ", was modified or deleted by another client"
+        );
+        this.tableName = tableName;
+        this.ident = ident;
+        this.version = version;
+    }
+
+    /**
+     * Gets the name of the table containing the conflicting row.
+     *
+     * @return the name of the table containing the conflicting row
+     */
+    public String getTableName()
+    {
+        return tableName;
+    }
+
+    /**
+     * Gets the row ID of the conflicting row.
+     *
+     * @return the row ID of the conflicting row
+     */
+    public int getIdent()
+    {
+        return ident;
+    }
+
+    /**
+     * Gets the version of the row expected by the failed update.
+     *
+     * @return the version of the row expected by the failed update
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+}
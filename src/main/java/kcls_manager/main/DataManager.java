@@ -1,35 +1,169 @@
 package kcls_manager.main;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kcls_manager.database.DBConfig;
 import kcls_manager.database.DBServer;
 
 /**
  * Arbitrates access to a single instance of a DBServer.
  * 
+ * Booting the Derby engine and recovering the database
+ * can take seconds. To keep this off the critical path,
+ * an application should call <em>startDBServerAsync</em>
+ * as the very first step of launch, and then build its UI;
+ * the server is booted, and warmed up, on a background thread.
+ * Any call to <em>getDBServer</em> made while the boot
+ * is in progress blocks until the boot is complete,
+ * so callers only wait if they need data before the boot finishes.
+ * 
+ * When the DBServer singleton is first started a JVM shutdown hook
+ * is registered which calls <em>closeConnection</em>,
+ * so that the database is checkpointed and shut down cleanly
+ * even if the application exits without closing it;
+ * the next launch then does not have to recover the database
+ * from its transaction log.
+ * An explicit call to <em>closeConnection</em> leaves the hook
+ * with nothing to do.
+ * Startup tasks still running in the background
+ * are cancelled, and their session closed,
+ * before the DBServer is shut down.
+ * 
+ * Before the first DBServer is started the runtime configuration
+ * is loaded (see DBConfig) and its Derby properties are applied,
+ * so that they are in effect when the Derby engine boots.
+ * The default URL, user name and password are taken from
+ * the configuration, as are tuning settings such as
+ * fetch sizes and cache sizes.
+ * 
  * @author jstra
  *
  * @see kcls_manager.database.DBServer
  */
 public class DataManager
 {
+    private static final String loggerName  = DataManager.class.getName();
+    private static final Logger logger      = Logger.getLogger( loggerName );
+    
+    /** Name of the thread used to boot the DBServer in the background. */
+    private static final String bootThreadName  = "kcls-db-boot";
+    
+    /** 
+     * Name of the thread used to check and archive the database
+     * after a background boot.
+     */
+    private static final String startupThreadName   = "kcls-db-startup";
+    
+    /** Name of the thread that shuts down the DBServer at JVM exit. */
+    private static final String hookThreadName  = "kcls-db-shutdown";
+    
+    /**
+     * The maximum time, in milliseconds, to wait for cancelled
+     * startup tasks to finish before the DBServer is shut down.
+     * A task cannot be interrupted in the middle of a statement;
+     * if it is still running when the DBServer is shut down,
+     * its session is closed when the database is shut down.
+     */
+    private static final long   startupJoinMillis   = 5000;
+    
     /** DBServer singleton. */
     private static DBServer dbServer    = null;
     
+    /**
+     * Future that completes when a background boot of the DBServer
+     * is complete; null if no background boot has been started.
+     */
+    private static CompletableFuture<DBServer>  bootFuture  = null;
+    
+    /**
+     * Future that completes when the startup tasks that follow
+     * a background boot are complete; 
+     * null if no background boot has been started.
+     */
+    private static CompletableFuture<Void>  startupFuture   = null;
+    
+    /** 
+     * Set to cancel the startup tasks; 
+     * each task checks it before it starts.
+     */
+    private static volatile boolean startupCancelled    = false;
+    
+    /** The JVM shutdown hook; null if not yet registered. */
+    private static Thread   shutdownHook    = null;
+    
+    /** The runtime configuration; null if not yet loaded. */
+    private static DBConfig config          = null;
+    
+    /**
+     * Gets the runtime configuration, loading it if necessary.
+     * When the configuration is loaded its Derby properties
+     * are applied.
+     * 
+     * @return the runtime configuration
+     * 
+     * @throws KCLSException if the configuration cannot be loaded
+     * 
+     * @see DBConfig#load()
+     */
+    public static synchronized DBConfig getConfig()
+    {
+        if ( config == null )
+        {
+            DBConfig    loaded  = DBConfig.load();
+            loaded.applyDerbyProperties();
+            config = loaded;
+        }
+        return config;
+    }
+    
+    /**
+     * Replaces the runtime configuration, and applies its
+     * Derby properties. 
+     * Must be called before the DBServer singleton is started.
+     * 
+     * @param newConfig the new runtime configuration
+     * 
+     * @throws KCLSException if the server has already been started
+     */
+    public static synchronized void setConfig( DBConfig newConfig )
+    {
+        if ( dbServer != null || bootFuture != null )
+            throw new KCLSException( "DBServer already started" );
+        newConfig.applyDerbyProperties();
+        config = newConfig;
+    }
+    
     /**
      * Gets the singleton representing the DBServer class.
+     * If a background boot is in progress, waits for it to complete.
      * If the instance doesn't exist, it will be constructed
-     * using the default URL, user name and user password.
+     * using the URL, user name and user password
+     * from the runtime configuration.
      * 
      * @return the singleton representing the DBServer class
+     * 
+     * @see #getConfig()
      */
     public static synchronized DBServer getDBServer()
     {
         if ( dbServer == null )
-            dbServer = new DBServer();
+            dbServer = awaitBoot();
+        if ( dbServer == null )
+            dbServer = new DBServer( getConfig() );
+        installShutdownHook();
         return dbServer;
     }
     
     /**
      * Gets the singleton representing the DBServer class.
+     * If a background boot is in progress, waits for it to complete.
      * If the instance doesn't exist, it will be constructed
      * using the given URL, and the default user name and user password.
      * 
@@ -40,12 +174,16 @@ public class DataManager
     public static synchronized DBServer getDBServer( String dbURL )
     {
         if ( dbServer == null )
-            dbServer = new DBServer( dbURL );
+            dbServer = awaitBoot();
+        if ( dbServer == null )
+            dbServer = new DBServer( dbURL, "", "", getConfig() );
+        installShutdownHook();
         return dbServer;
     }
     
     /**
      * Gets the singleton representing the DBServer class.
+     * If a background boot is in progress, waits for it to complete.
      * If the instance doesn't exist, it will be constructed
      * using the given URL, user name and user password.
      * 
@@ -59,19 +197,396 @@ public class DataManager
     getDBServer( String dbURL, String dbUserName, String dbPassword )
     {
         if ( dbServer == null )
-            dbServer = new DBServer( dbURL, dbUserName, dbPassword  );
+            dbServer = awaitBoot();
+        if ( dbServer == null )
+            dbServer = 
+                new DBServer( dbURL, dbUserName, dbPassword, getConfig() );
+        installShutdownHook();
         return dbServer;
     }
     
+    /**
+     * Explicitly starts the DBServer singleton
+     * using the given URL, user name and user password.
+     * Applications should start the server once, early in <em>main</em>,
+     * before any component that uses the singleton is created;
+     * this keeps the cost of connecting to the database
+     * out of class initialization, and makes it measurable.
+     * 
+     * @param dbURL         the given URL
+     * @param dbUserName    the given user name
+     * @param dbPassword    the given user password
+     * 
+     * @return the singleton representing the DBServer class
+     * 
+     * @throws KCLSException if the server has already been started
+     * 
+     * @see #startDBServerAsync(String, String, String)
+     */
+    public static synchronized DBServer 
+    startDBServer( String dbURL, String dbUserName, String dbPassword )
+    {
+        if ( dbServer != null || bootFuture != null )
+            throw new KCLSException( "DBServer already started" );
+        dbServer = new DBServer( dbURL, dbUserName, dbPassword, getConfig() );
+        installShutdownHook();
+        return dbServer;
+    }
+    
+    /**
+     * Starts the DBServer singleton on a background thread,
+     * using the URL, user name and user password
+     * from the runtime configuration.
+     * 
+     * @return  a future that completes when the DBServer
+     *          singleton has been started and warmed up
+     * 
+     * @throws KCLSException if the server has already been started
+     * 
+     * @see #startDBServerAsync(String, String, String)
+     */
+    public static CompletableFuture<DBServer> startDBServerAsync()
+    {
+        DBConfig    cfg = getConfig();
+        return startDBServerAsync( 
+            cfg.getDBURL(), 
+            cfg.getDBUserName(), 
+            cfg.getDBPassword()
+        );
+    }
+    
+    /**
+     * Starts the DBServer singleton on a background thread,
+     * using the given URL, user name and user password.
+     * The background thread boots the Derby engine,
+     * connects to the database and warms up each table;
+     * it does not use the event dispatch thread.
+     * <em>getDBServer</em> may be called at any time;
+     * if the boot is still in progress it will block
+     * until the boot is complete.
+     * Once the boot is complete another background thread,
+     * if so configured, checks the consistency of the database
+     * and moves old titles to the archive,
+     * using a session with a connection of its own,
+     * so that neither delays the first use of the DBServer.
+     * 
+     * @param dbURL         the given URL
+     * @param dbUserName    the given user name
+     * @param dbPassword    the given user password
+     * 
+     * @return  a future that completes when the DBServer
+     *          singleton has been started and warmed up
+     * 
+     * @throws KCLSException if the server has already been started
+     * 
+     * @see DBServer#warmUp()
+     * @see DBServer#openSession()
+     */
+    public static synchronized CompletableFuture<DBServer> 
+    startDBServerAsync( String dbURL, String dbUserName, String dbPassword )
+    {
+        if ( dbServer != null || bootFuture != null )
+            throw new KCLSException( "DBServer already started" );
+        
+        DBConfig    cfg         = getConfig();
+        startupCancelled = false;
+        bootFuture = CompletableFuture.supplyAsync( () -> {
+            long        start   = System.currentTimeMillis();
+            DBServer    server  = 
+                new DBServer( dbURL, dbUserName, dbPassword, cfg );
+            server.warmUp();
+            long        elapsed = System.currentTimeMillis() - start;
+            logger.info( "background boot complete in " + elapsed + "ms" );
+            return server;
+        }, getDaemonExecutor( bootThreadName ) );
+        startupFuture = bootFuture.thenAcceptAsync( 
+            server -> runStartupTasks( server, cfg ),
+            getDaemonExecutor( startupThreadName )
+        );
+        installShutdownHook();
+        return bootFuture;
+    }
+    
+    /**
+     * Gets an executor that runs each task on a new daemon thread.
+     * 
+     * @param threadName    the name of the thread
+     * 
+     * @return an executor that runs each task on a new daemon thread
+     */
+    private static Executor getDaemonExecutor( String threadName )
+    {
+        return r -> {
+            Thread  thread  = new Thread( r, threadName );
+            thread.setDaemon( true );
+            thread.start();
+        };
+    }
+    
+    /**
+     * Checks the consistency of the database and moves old titles
+     * to the archive, as configured,
+     * using a session opened on a given DBServer.
+     * Does nothing if neither is configured.
+     * Tasks not yet started when the startup tasks are cancelled
+     * are skipped.
+     * Failure is logged, but otherwise ignored.
+     * 
+     * @param server    the given DBServer
+     * @param cfg       the runtime configuration
+     * 
+     * @see DBServer#openSession()
+     * @see #cancelStartupTasks()
+     */
+    private static void runStartupTasks( DBServer server, DBConfig cfg )
+    {
+        String  check   = cfg.getConsistencyCheck();
+        if ( check.equals( DBConfig.CONSISTENCY_OFF ) 
+             && cfg.getArchiveAgeDays() < 1 
+           )
+            return;
+        if ( startupCancelled )
+            return;
+        
+        long        start   = System.currentTimeMillis();
+        DBServer    session = null;
+        try
+        {
+            session = server.openSession();
+            checkConsistencyQuietly( session, cfg );
+            if ( !startupCancelled )
+                archiveQuietly( session );
+        }
+        catch ( KCLSException exc )
+        {
+            logger.log( Level.WARNING, "failed to open session", exc );
+        }
+        finally
+        {
+            if ( session != null )
+                session.shutdown();
+        }
+        long        elapsed = System.currentTimeMillis() - start;
+        logger.info( "startup tasks complete in " + elapsed + "ms" );
+    }
+    
+    /**
+     * Checks, and optionally repairs, the consistency of the database,
+     * as configured.
+     * Failure is logged, but otherwise ignored.
+     * 
+     * @param server    the DBServer to check
+     * @param cfg       the runtime configuration
+     * 
+     * @see DBServer#checkConsistency(boolean)
+     * @see DBConfig#getConsistencyCheck()
+     */
+    private static void 
+    checkConsistencyQuietly( DBServer server, DBConfig cfg )
+    {
+        try
+        {
+            String  check   = cfg.getConsistencyCheck();
+            if ( !check.equals( DBConfig.CONSISTENCY_OFF ) )
+                server.checkConsistency( 
+                    check.equals( DBConfig.CONSISTENCY_REPAIR ) 
+                );
+        }
+        catch ( KCLSException exc )
+        {
+            logger.log( Level.WARNING, "consistency check failed", exc );
+        }
+    }
+    
+    /**
+     * Moves old titles to the archive, as configured.
+     * Failure is logged, but otherwise ignored;
+     * the titles will be archived on a later start.
+     * 
+     * @param server    the DBServer to archive titles in
+     * 
+     * @see DBServer#archiveTitles()
+     */
+    private static void archiveQuietly( DBServer server )
+    {
+        try
+        {
+            server.archiveTitles();
+        }
+        catch ( KCLSException exc )
+        {
+            logger.log( Level.WARNING, "failed to archive titles", exc );
+        }
+    }
+    
+    /**
+     * Gets the future representing a background boot of
+     * the DBServer singleton.
+     * 
+     * @return  the future representing a background boot of
+     *          the DBServer singleton, or null if no background
+     *          boot has been started
+     * 
+     * @see #startDBServerAsync(String, String, String)
+     */
+    public static synchronized CompletableFuture<DBServer> getBootFuture()
+    {
+        return bootFuture;
+    }
+    
+    /**
+     * Gets the future representing the startup tasks
+     * that follow a background boot of the DBServer singleton.
+     * 
+     * @return  the future representing the startup tasks,
+     *          or null if no background boot has been started
+     * 
+     * @see #startDBServerAsync(String, String, String)
+     */
+    public static synchronized CompletableFuture<Void> getStartupFuture()
+    {
+        return startupFuture;
+    }
+    
+    /**
+     * Indicates whether the DBServer singleton has been started.
+     * A background boot that is still in progress
+     * counts as started.
+     * 
+     * @return true if the DBServer singleton has been started
+     */
+    public static synchronized boolean isStarted()
+    {
+        return dbServer != null || bootFuture != null;
+    }
+    
     /**
      * Shuts down the running database server, if any.
+     * If a background boot is in progress, waits for it to complete
+     * before shutting down.
+     * Startup tasks that follow the boot are cancelled,
+     * and their session closed, first.
+     * The server drains pending maintenance, checkpoints the database
+     * and shuts it down.
+     * This method is also called by the JVM shutdown hook.
+     * 
+     * @see DBServer#shutdown()
      */
     public static synchronized void closeConnection()
     {
+        if ( dbServer == null && bootFuture != null )
+        {
+            try
+            {
+                dbServer = awaitBoot();
+            }
+            catch ( KCLSException exc )
+            {
+                // the boot failed; there is nothing to shut down
+            }
+        }
+        cancelStartupTasks();
+        bootFuture = null;
         if ( dbServer != null )
         {
             dbServer.shutdown();
             dbServer = null;
         }
     }
+    
+    /**
+     * Cancels the startup tasks that follow a background boot, if any,
+     * and waits up to startupJoinMillis for them to finish,
+     * which closes their session.
+     * A task already in progress is allowed to finish.
+     * Must be called while holding the class lock.
+     * 
+     * @see #startupJoinMillis
+     */
+    private static void cancelStartupTasks()
+    {
+        if ( startupFuture == null )
+            return;
+        
+        startupCancelled = true;
+        try
+        {
+            startupFuture.get( startupJoinMillis, TimeUnit.MILLISECONDS );
+        }
+        catch ( TimeoutException exc )
+        {
+            logger.warning( 
+                "startup tasks still running after " 
+                + startupJoinMillis + "ms" 
+            );
+        }
+        catch ( InterruptedException exc )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException exc )
+        {
+            // the boot failed; there were no startup tasks
+        }
+        startupFuture = null;
+    }
+    
+    /**
+     * Registers the JVM shutdown hook, if not already registered.
+     * Must be called while holding the class lock.
+     */
+    private static void installShutdownHook()
+    {
+        if ( shutdownHook == null )
+        {
+            shutdownHook = new Thread( () -> {
+                logger.info( "JVM exit: closing database" );
+                closeConnection();
+            }, hookThreadName );
+            Runtime.getRuntime().addShutdownHook( shutdownHook );
+        }
+    }
+    
+    /**
+     * Indicates whether the JVM shutdown hook has been registered.
+     * 
+     * @return true if the JVM shutdown hook has been registered
+     */
+    public static synchronized boolean isShutdownHookInstalled()
+    {
+        return shutdownHook != null;
+    }
+    
+    /**
+     * Waits for a background boot of the DBServer, if any,
+     * to complete.
+     * If the boot failed it is forgotten, so that the
+     * DBServer may be started again.
+     * Must be called while holding the class lock.
+     * 
+     * @return  the DBServer started in the background,
+     *          or null if no background boot has been started
+     * 
+     * @throws KCLSException if the background boot failed
+     */
+    private static DBServer awaitBoot()
+    {
+        DBServer    server  = null;
+        if ( bootFuture != null )
+        {
+            try
+            {
+                server = bootFuture.join();
+            }
+            catch ( CompletionException exc )
+            {
+                bootFuture = null;
+                Throwable   cause   = exc.getCause();
+                if ( cause instanceof KCLSException )
+                    throw (KCLSException)cause;
+                throw new KCLSException( "DBServer boot failed", cause );
+            }
+        }
+        return server;
+    }
 }
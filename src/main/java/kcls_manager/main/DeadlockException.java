@@ -0,0 +1,29 @@
+package kcls_manager.main;
+
+/**
+ * Thrown when a database operation is chosen as the victim
+ * of a deadlock (Derby SQL state 40001).
+ * The operation's transaction has been rolled back,
+ * releasing its locks so that the other transaction can proceed;
+ * the caller may simply try again.
+ *
+ * @author jstra
+ *
+ * @see LockTimeoutException
+ */
+public class DeadlockException extends KCLSException
+{
+    /** Generated serial version UID. */
+    private static final long serialVersionUID = 5090142633271866157L;
+
+    /**
+     * Creates an exception with a given message and a given cause.
+     * 
+     * @param message   The given message.
+     * @param cause     The given cause.
+     */
+    public DeadlockException( String message, Throwable cause )
+    {
+        super( message, cause );
+    }
+}
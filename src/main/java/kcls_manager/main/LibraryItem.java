@@ -3,9 +3,14 @@ package kcls_manager.main;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.TreeMap;
 
 public abstract class LibraryItem
 {
@@ -17,11 +22,30 @@ public abstract class LibraryItem
      */
     private OptionalInt         ident           = OptionalInt.empty();
     
+    /**
+     * The version of the database row this item was read from;
+     * used to detect conflicting updates by other clients.
+     * Not considered when comparing items for equality.
+     */
+    private int                 version         = 0;
+    
     private int                 rank            = 0;
     private int                 rating          = 0;
     private String              source          = "";
     private String              listName        = "";
     private List<Comment>       comments        = new ArrayList<>();
+    
+    /**
+     * Extended metadata, such as format, branch or hold expiry,
+     * keyed by name. Each value is a String, a Long or a LocalDate.
+     */
+    private Map<String, Object> attributes      = new TreeMap<>();
+    
+    /**
+     * True if <em>attributes</em> holds all the attributes of this item;
+     * false if they were not read from the database with the item.
+     */
+    private boolean             attributesLoaded    = true;
     private LocalDate           creationDate    = LocalDate.now();
     private LocalDate           modifyDate      = LocalDate.now();
     
@@ -77,6 +101,29 @@ public abstract class LibraryItem
         this.ident = ident;
     }
 
+    /**
+     * Getter for the version of the database row this item
+     * was read from.
+     * 
+     * @return  the version of the database row this item was read from
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+    
+    /**
+     * Setter for the version of the database row this item
+     * was read from. Normally only invoked by the database server.
+     * 
+     * @param version   the version of the database row 
+     *                  this item was read from
+     */
+    public void setVersion( int version )
+    {
+        this.version = version;
+    }
+
     public LocalDate getCreationDate()
     {
         return creationDate;
@@ -85,11 +132,14 @@ public abstract class LibraryItem
     public void copyFrom( LibraryItem from )
     {
         setIdent( from.getIdent() );
+        setVersion( from.getVersion() );
         setRank( from.getRank() );
         setRating( from.getRating() );
         setSource( from.getSource() );
         setListName( from.getListName() );
         setComments( from.getComments() );
+        setAttributes( from.getAttributes() );
+        setAttributesLoaded( from.isAttributesLoaded() );
         setCreationDate( from.getCreationDate() );
         setModifyDate( from.getModifyDate() );
     }
@@ -189,6 +239,223 @@ public abstract class LibraryItem
         this.comments.addAll( comments );
     }
     
+    /**
+     * Gets an unmodifiable copy of all attributes of this item,
+     * in key order.
+     * Each value is a String, a Long or a LocalDate.
+     * 
+     * @return  an unmodifiable copy of all attributes of this item
+     */
+    public Map<String, Object> getAttributes()
+    {
+        return Collections.unmodifiableMap( new TreeMap<>( attributes ) );
+    }
+    
+    /**
+     * Gets the value of a given attribute, whatever its type.
+     * 
+     * @param key   the name of the given attribute
+     * 
+     * @return  the value of the given attribute;
+     *          empty if the attribute is not set
+     */
+    public Optional<Object> getAttribute( String key )
+    {
+        return Optional.ofNullable( attributes.get( key ) );
+    }
+    
+    /**
+     * Gets the value of a given string attribute.
+     * 
+     * @param key   the name of the given attribute
+     * 
+     * @return  the value of the given attribute;
+     *          empty if the attribute is not set, 
+     *          or is not a string
+     */
+    public Optional<String> getStringAttribute( String key )
+    {
+        Object  value   = attributes.get( key );
+        return value instanceof String ? 
+            Optional.of( (String)value ) : Optional.empty();
+    }
+    
+    /**
+     * Gets the value of a given integer attribute.
+     * 
+     * @param key   the name of the given attribute
+     * 
+     * @return  the value of the given attribute;
+     *          empty if the attribute is not set,
+     *          or is not an integer
+     */
+    public OptionalLong getLongAttribute( String key )
+    {
+        Object  value   = attributes.get( key );
+        return value instanceof Long ? 
+            OptionalLong.of( (Long)value ) : OptionalLong.empty();
+    }
+    
+    /**
+     * Gets the value of a given date attribute.
+     * 
+     * @param key   the name of the given attribute
+     * 
+     * @return  the value of the given attribute;
+     *          empty if the attribute is not set,
+     *          or is not a date
+     */
+    public Optional<LocalDate> getDateAttribute( String key )
+    {
+        Object  value   = attributes.get( key );
+        return value instanceof LocalDate ? 
+            Optional.of( (LocalDate)value ) : Optional.empty();
+    }
+    
+    /**
+     * Sets a given string attribute, replacing any previous value.
+     * 
+     * @param key   the name of the given attribute
+     * @param value the value of the attribute; 
+     *              null to remove the attribute
+     * 
+     * @throws NullPointerException if <em>key</em> is null
+     */
+    public void setAttribute( String key, String value )
+    {
+        putAttribute( key, value );
+    }
+    
+    /**
+     * Sets a given integer attribute, replacing any previous value.
+     * 
+     * @param key   the name of the given attribute
+     * @param value the value of the attribute
+     * 
+     * @throws NullPointerException if <em>key</em> is null
+     */
+    public void setAttribute( String key, long value )
+    {
+        putAttribute( key, value );
+    }
+    
+    /**
+     * Sets a given date attribute, replacing any previous value.
+     * 
+     * @param key   the name of the given attribute
+     * @param value the value of the attribute; 
+     *              null to remove the attribute
+     * 
+     * @throws NullPointerException if <em>key</em> is null
+     */
+    public void setAttribute( String key, LocalDate value )
+    {
+        putAttribute( key, value );
+    }
+    
+    /**
+     * Removes a given attribute.
+     * 
+     * @param key   the name of the given attribute
+     * 
+     * @return true if the attribute was set
+     */
+    public boolean removeAttribute( String key )
+    {
+        return attributes.remove( key ) != null;
+    }
+    
+    /**
+     * Replaces all attributes of this item with a given set of attributes.
+     * Modification to the given map will not change the attributes
+     * maintained for this item.
+     * Integer values are converted to Long.
+     * 
+     * @param attributes    the given set of attributes
+     * 
+     * @throws NullPointerException if a key or value is null
+     * @throws KCLSException
+     *      if a value is not a String, an Integer, a Long or a LocalDate
+     */
+    public void setAttributes( Map<String, ?> attributes )
+    {
+        Map<String, Object> newAttributes   = new TreeMap<>();
+        for ( Map.Entry<String, ?> entry : attributes.entrySet() )
+        {
+            String  key     = Objects.requireNonNull( entry.getKey() );
+            Object  value   = Objects.requireNonNull( entry.getValue() );
+            if ( value instanceof Integer )
+                value = ((Integer)value).longValue();
+            if ( !(value instanceof String)
+                && !(value instanceof Long)
+                && !(value instanceof LocalDate) )
+            {
+                String  message =
+                    "Unsupported type for attribute " + key + ": "
+                    + value.getClass().getName();
+                throw new KCLSException( message );
+            }
+            newAttributes.put( key, value );
+        }
+        this.attributes = newAttributes;
+        this.attributesLoaded = true;
+    }
+    
+    /**
+     * Removes all attributes of this item.
+     */
+    public void clearAttributes()
+    {
+        attributes.clear();
+        attributesLoaded = true;
+    }
+    
+    /**
+     * Indicates whether this item holds all of its attributes.
+     * Items streamed from the database by publishers
+     * are not read with their attributes;
+     * updating such an item leaves its stored attributes unchanged.
+     * Replacing or clearing all attributes of an item
+     * marks its attributes loaded.
+     * 
+     * @return  true if this item holds all of its attributes
+     */
+    public boolean isAttributesLoaded()
+    {
+        return attributesLoaded;
+    }
+    
+    /**
+     * Sets a property indicating whether this item
+     * holds all of its attributes.
+     * 
+     * @param loaded    true if this item holds all of its attributes
+     * 
+     * @see #isAttributesLoaded()
+     */
+    public void setAttributesLoaded( boolean loaded )
+    {
+        attributesLoaded = loaded;
+    }
+    
+    /**
+     * Sets or removes a given attribute.
+     * 
+     * @param key   the name of the given attribute
+     * @param value the value of the attribute;
+     *              null to remove the attribute
+     * 
+     * @throws NullPointerException if <em>key</em> is null
+     */
+    private void putAttribute( String key, Object value )
+    {
+        Objects.requireNonNull( key );
+        if ( value == null )
+            attributes.remove( key );
+        else
+            attributes.put( key, value );
+    }
+    
     /**
      * Get the rank for this item.
      * 
@@ -291,6 +558,7 @@ public abstract class LibraryItem
             && Objects.equals( this.getSource(), that.getSource() )
             && Objects.equals( this.getListName(), that.getListName() )
             && Utils.equals( this.comments, that.comments )
+            && Objects.equals( this.attributes, that.attributes )
             && Objects.equals( this.getCreationDate(), that.getCreationDate() )
             && Objects.equals( this.getModifyDate(), that.getModifyDate() );
         return rcode;
@@ -389,7 +657,8 @@ public abstract class LibraryItem
         .append( "listName=" ).append( listName ).append( "," )
         .append( "creDate=" ).append( creationDate ).append( "," )
         .append( "modDate=" ).append( modifyDate ).append( "," )
-        .append( "comments=" ).append( comments.toString() );
+        .append( "comments=" ).append( comments.toString() ).append( "," )
+        .append( "attributes=" ).append( attributes.toString() );
         return bldr.toString();
     }
 }
@@ -0,0 +1,28 @@
+package kcls_manager.main;
+
+/**
+ * Thrown when a database operation gives up waiting for a lock
+ * held by another transaction (Derby SQL state 40XL1 or 40XL2).
+ * The operation has been rolled back;
+ * the caller may try again once the other transaction completes.
+ *
+ * @author jstra
+ *
+ * @see DeadlockException
+ */
+public class LockTimeoutException extends KCLSException
+{
+    /** Generated serial version UID. */
+    private static final long serialVersionUID = -2467503871921586340L;
+
+    /**
+     * Creates an exception with a given message and a given cause.
+     * 
+     * @param message   The given message.
+     * @param cause     The given cause.
+     */
+    public LockTimeoutException( String message, Throwable cause )
+    {
+        super( message, cause );
+    }
+}
@@ -0,0 +1,99 @@
+package kcls_manager.main;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Encapsulates a single observation of the position of an on-hold
+ * title in the library's hold queue.
+ * Instances of this class are immutable.
+ *
+ * @author jstra
+ *
+ * @see ReadyDateForecaster
+ */
+public class QPosSample implements Comparable<QPosSample>
+{
+    /** The date on which the queue position was observed. */
+    private final LocalDate date;
+
+    /** The observed queue position. */
+    private final int       qPos;
+
+    /**
+     * Constructor.
+     *
+     * @param date  the date on which the queue position was observed
+     * @param qPos  the observed queue position
+     */
+    public QPosSample( LocalDate date, int qPos )
+    {
+        this.date = date;
+        this.qPos = qPos;
+    }
+
+    /**
+     * Gets the date on which the queue position was observed.
+     *
+     * @return the date on which the queue position was observed
+     */
+    public LocalDate getDate()
+    {
+        return date;
+    }
+
+    /**
+     * Gets the observed queue position.
+     *
+     * @return the observed queue position
+     */
+    public int getQPos()
+    {
+        return qPos;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        bldr.append( "{" )
+            .append( "date=" ).append( date ).append( "," )
+            .append( "qPos=" ).append( qPos )
+            .append( "}" );
+        return bldr.toString();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash    = Objects.hash( date, qPos );
+        return hash;
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( obj == null || !(obj instanceof QPosSample) )
+            return false;
+        if ( this == obj )
+            return true;
+        QPosSample  that    = (QPosSample)obj;
+        boolean     rcode   =
+            Objects.equals( this.date, that.date )
+            && this.qPos == that.qPos;
+        return rcode;
+    }
+
+    /**
+     * Compares this sample to a given sample for magnitude.
+     * Samples are ordered by date, then by queue position.
+     */
+    @Override
+    public int compareTo( QPosSample that )
+    {
+        int rcode   = this.date.compareTo( that.date );
+        if ( rcode == 0 )
+            rcode = Integer.compare( this.qPos, that.qPos );
+        return rcode;
+    }
+}
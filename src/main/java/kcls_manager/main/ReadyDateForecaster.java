@@ -0,0 +1,166 @@
+package kcls_manager.main;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+/**
+ * Estimates the date on which an on-hold title will be ready for pickup,
+ * given a series of observations of its position in the hold queue.
+ *
+ * The forecast is obtained by fitting a straight line
+ * (ordinary least squares) to queue position as a function of date,
+ * and extrapolating to the date on which the queue position
+ * reaches 0.
+ * Samples are accumulated incrementally as running sums,
+ * so adding a sample and recomputing the forecast takes
+ * constant time regardless of the number of samples.
+ *
+ * A forecast is available only if there are samples
+ * on at least two different dates,
+ * and the queue is advancing (i.e. queue position decreases over time).
+ *
+ * @author jstra
+ *
+ * @see QPosSample
+ */
+public class ReadyDateForecaster
+{
+    /** The number of samples accumulated. */
+    private int         count       = 0;
+
+    /**
+     * The epoch day of the first sample; sample dates are
+     * measured in days relative to this date to preserve precision.
+     */
+    private long        originDay   = 0;
+
+    /** The date of the most recent sample. */
+    private LocalDate   lastDate    = null;
+
+    /** The queue position of the most recent sample. */
+    private int         lastQPos    = 0;
+
+    /** Sum of sample days. */
+    private double      sumX        = 0;
+
+    /** Sum of sample queue positions. */
+    private double      sumY        = 0;
+
+    /** Sum of sample days times queue positions. */
+    private double      sumXY       = 0;
+
+    /** Sum of squares of sample days. */
+    private double      sumXX       = 0;
+
+    /**
+     * Adds a sample to the forecast.
+     *
+     * @param sample    the sample to add
+     */
+    public void addSample( QPosSample sample )
+    {
+        addSample( sample.getDate(), sample.getQPos() );
+    }
+
+    /**
+     * Adds a sample to the forecast.
+     *
+     * @param date  the date on which the queue position was observed
+     * @param qPos  the observed queue position
+     */
+    public void addSample( LocalDate date, int qPos )
+    {
+        if ( count == 0 )
+            originDay = date.toEpochDay();
+        if ( lastDate == null || !date.isBefore( lastDate ) )
+        {
+            lastDate = date;
+            lastQPos = qPos;
+        }
+
+        double  xVal    = date.toEpochDay() - originDay;
+        ++count;
+        sumX += xVal;
+        sumY += qPos;
+        sumXY += xVal * qPos;
+        sumXX += xVal * xVal;
+    }
+
+    /**
+     * Gets the number of samples accumulated.
+     *
+     * @return the number of samples accumulated
+     */
+    public int getSampleCount()
+    {
+        return count;
+    }
+
+    /**
+     * Gets the date of the most recent sample.
+     *
+     * @return  the date of the most recent sample,
+     *          or null if there are no samples
+     */
+    public LocalDate getLastDate()
+    {
+        return lastDate;
+    }
+
+    /**
+     * Gets the queue position of the most recent sample.
+     *
+     * @return  the queue position of the most recent sample,
+     *          or 0 if there are no samples
+     */
+    public int getLastQPos()
+    {
+        return lastQPos;
+    }
+
+    /**
+     * Gets the rate at which the queue is advancing,
+     * in positions per day.
+     *
+     * @return  the rate at which the queue is advancing;
+     *          empty if fewer than two distinct dates have been sampled
+     */
+    public OptionalDouble getRate()
+    {
+        double  denom   = count * sumXX - sumX * sumX;
+        if ( count < 2 || denom <= 0 )
+            return OptionalDouble.empty();
+        double  slope   = (count * sumXY - sumX * sumY) / denom;
+        return OptionalDouble.of( -slope );
+    }
+
+    /**
+     * Gets the forecast ready date.
+     * If the most recent sample shows a queue position of 0 or less,
+     * the date of that sample is returned.
+     * The forecast date is never earlier than the date
+     * of the most recent sample.
+     *
+     * @return  the forecast ready date;
+     *          empty if no forecast is available
+     */
+    public Optional<LocalDate> getReadyDate()
+    {
+        if ( count > 0 && lastQPos <= 0 )
+            return Optional.of( lastDate );
+
+        OptionalDouble  optRate = getRate();
+        if ( !optRate.isPresent() || optRate.getAsDouble() <= 0 )
+            return Optional.empty();
+
+        double      rate        = optRate.getAsDouble();
+        double      intercept   = (sumY + rate * sumX) / count;
+        long        readyDay    =
+            originDay + (long)Math.ceil( intercept / rate );
+        LocalDate   readyDate   = LocalDate.ofEpochDay( readyDay );
+        if ( readyDate.isBefore( lastDate ) )
+            readyDate = lastDate;
+        return Optional.of( readyDate );
+    }
+}
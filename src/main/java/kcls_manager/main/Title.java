@@ -14,6 +14,15 @@ public class Title extends LibraryItem implements Comparable<Title>
     private int         checkQPos   = 0;
     private LocalDate   reckonDate  = LocalDate.now();
     private LocalDate   checkDate   = LocalDate.now();
+    
+    /**
+     * The forecast date on which this title will be ready
+     * for pickup; null if no forecast is available.
+     * Computed by the database server from the title's
+     * queue position history, and not considered
+     * when comparing titles for equality.
+     */
+    private LocalDate   readyDate   = null;
 
     public Title()
     {
@@ -74,6 +83,7 @@ public class Title extends LibraryItem implements Comparable<Title>
         this.setReckonQPos( from.getReckonQPos() );
         this.setCheckDate( from.getCheckDate() );
         this.setReckonDate( from.getReckonDate() );
+        this.setReadyDate( from.getReadyDate() );
         this.setCreationDate( from.getCreationDate() );
         this.setModifyDate( from.getModifyDate() );
     }
@@ -118,6 +128,29 @@ public class Title extends LibraryItem implements Comparable<Title>
         this.reckonDate = reckonDate;
     }
 
+    /**
+     * Gets the forecast date on which this title will be ready
+     * for pickup.
+     * 
+     * @return  the forecast ready date, 
+     *          or null if no forecast is available
+     */
+    public LocalDate getReadyDate()
+    {
+        return readyDate;
+    }
+
+    /**
+     * Sets the forecast date on which this title will be ready
+     * for pickup. Normally only invoked by the database server.
+     * 
+     * @param readyDate the forecast ready date; may be null
+     */
+    public void setReadyDate( LocalDate readyDate )
+    {
+        this.readyDate = readyDate;
+    }
+
     public String getMediaType()
     {
         return mediaType;
@@ -16,6 +16,7 @@ import javax.swing.JTable;
 import javax.swing.table.TableModel;
 
 import kcls_manager.database.DBServer;
+import kcls_manager.database.ListSnapshot;
 
 /**
  * Formats rows to populate a table based on a set of Title objects.
@@ -68,22 +69,19 @@ public class TitleContentProvider extends ContentProvider
      */
     private final String        dialogTitle;
     
-    /**
-     *  The DBServer singleton.
-     *  It is presumed that the singleton has already been instantiated
-     *  with the appropriate database connection parameters.
-     */
-    private static final DBServer      dbServer    = DataManager.getDBServer();
-    
     /**
      * Constructor. Provides access to titles corresponding to
      * a given list. The list must already exist.
+     * The DBServer singleton must already have been started
+     * with the appropriate database connection parameters.
      * 
      * @param listName the name of the given list
+     * 
+     * @see DataManager#getDBServer()
      */
     public TitleContentProvider( String listName )
     {
-        this( listName, defColumnNames );
+        this( DataManager.getDBServer(), listName, defColumnNames );
     }
     
     /**
@@ -91,15 +89,85 @@ public class TitleContentProvider extends ContentProvider
      * a given list. The list must already exist;
      * the caller must supply the column headings
      * for displaying Title fields in a table.
+     * The DBServer singleton must already have been started
+     * with the appropriate database connection parameters.
      * 
      * @param listName      the name of the given list
      * @param columnNames   the required column headings
+     * 
+     * @see DataManager#getDBServer()
      */
     public TitleContentProvider( String listName, String[] columnNames )
+    {
+        this( DataManager.getDBServer(), listName, columnNames );
+    }
+    
+    /**
+     * Constructor. Provides access to titles corresponding to
+     * a given list, using a given DBServer. The list must already exist.
+     * 
+     * @param dbServer  the given DBServer
+     * @param listName  the name of the given list
+     */
+    public TitleContentProvider( DBServer dbServer, String listName )
+    {
+        this( dbServer, listName, defColumnNames );
+    }
+    
+    /**
+     * Constructor. Provides access to titles corresponding to
+     * a given list, using a given DBServer. The list must already exist;
+     * the caller must supply the column headings
+     * for displaying Title fields in a table.
+     * 
+     * @param dbServer      the given DBServer
+     * @param listName      the name of the given list
+     * @param columnNames   the required column headings
+     */
+    public TitleContentProvider( 
+        DBServer dbServer, 
+        String listName, 
+        String[] columnNames
+    )
+    {
+        this( listName, columnNames, getTitlesForList( dbServer, listName ) );
+    }
+    
+    /**
+     * Constructor. Provides access to titles corresponding to
+     * a given list, as recorded in a given snapshot.
+     * The database is not accessed, so a dialog can be populated
+     * before the database has finished booting.
+     * The titles are as of the time the snapshot was taken,
+     * and have no comments.
+     * 
+     * @param snapshot  the given snapshot
+     * @param listName  the name of the given list
+     * 
+     * @see kcls_manager.database.DBServer#readSnapshot(String)
+     */
+    public TitleContentProvider( ListSnapshot snapshot, String listName )
+    {
+        this( listName, defColumnNames, snapshot.getTitles( listName ) );
+    }
+    
+    /**
+     * Constructor. Provides access to a given collection of titles
+     * corresponding to a given list.
+     * 
+     * @param listName      the name of the given list
+     * @param columnNames   the required column headings
+     * @param titles        the given collection of titles
+     */
+    private TitleContentProvider( 
+        String listName, 
+        String[] columnNames,
+        Collection<Title> titles
+    )
     {
         dialogTitle = inferListLabel( listName );
-        titles = new ArrayList<>();
-        titles.addAll( getTitlesForList( listName ) );
+        this.titles = new ArrayList<>();
+        this.titles.addAll( titles );
         this.columnNames = columnNames;
         xlator = new TitleContentTranslator( columnNames );
     }
@@ -124,6 +192,21 @@ public class TitleContentProvider extends ContentProvider
      *          of all the lists in the database
      */
     public static List<String> getAllListNames()
+    {
+        return getAllListNames( DataManager.getDBServer() );
+    }
+    
+    /**
+     * Returns a list containing the names
+     * of all the lists of titles in the database
+     * accessed by a given DBServer.
+     * 
+     * @param dbServer  the given DBServer
+     * 
+     * @return  a collection containing the names
+     *          of all the lists of titles in the database
+     */
+    public static List<String> getAllListNames( DBServer dbServer )
     {
         // TODO is this method necessary? Does it belong in an
         //      abstract superclass?
@@ -135,6 +218,27 @@ public class TitleContentProvider extends ContentProvider
         return allListNames;
     }
     
+    /**
+     * Returns a list containing the names
+     * of all the lists of titles in a given snapshot.
+     * The database is not accessed.
+     * 
+     * @param snapshot  the given snapshot
+     * 
+     * @return  a collection containing the names
+     *          of all the lists of titles in the given snapshot
+     * 
+     * @see DBServer#readSnapshot(String)
+     */
+    public static List<String> getAllListNames( ListSnapshot snapshot )
+    {
+        List<String>        allListNames    = new ArrayList<>();
+        for ( KCLSList list : snapshot.getLists() )
+            if ( list.getListType() == TITLE_TYPE )
+                allListNames.add( list.getDialogTitle() );
+        return allListNames;
+    }
+    
     /**
      * Returns a collection of all titles belonging to a given list.
      * 
@@ -143,6 +247,21 @@ public class TitleContentProvider extends ContentProvider
      * @return a collection of all titles belong to the given list
      */
     public static List<Title> getTitlesForList( String listName )
+    {
+        return getTitlesForList( DataManager.getDBServer(), listName );
+    }
+    
+    /**
+     * Returns a collection of all titles belonging to a given list
+     * in the database accessed by a given DBServer.
+     * 
+     * @param dbServer  the given DBServer
+     * @param listName  the name of the given list
+     * 
+     * @return a collection of all titles belonging to the given list
+     */
+    public static List<Title> 
+    getTitlesForList( DBServer dbServer, String listName )
     {
         List<Title>         list    = new ArrayList<>();
         List<Title>         titles  = dbServer.getTitlesForList( listName );
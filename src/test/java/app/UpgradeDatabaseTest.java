@@ -0,0 +1,249 @@
+package app;
+
+import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.LISTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.PREVIEW_LENGTH;
+import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import kcls_manager.database.DBServer;
+import kcls_manager.main.Author;
+import kcls_manager.main.Comment;
+import kcls_manager.main.Title;
+
+class UpgradeDatabaseTest
+{
+    /** An in-memory database, created with the first version's schema */
+    private static final String dbURL   = "jdbc:derby:memory:upgradeTest";
+
+    /** The schema of the first version of the database */
+    private static final String[]   firstSchema =
+    {
+        "CREATE TABLE LISTS ( "
+            + "list_id int PRIMARY KEY GENERATED ALWAYS AS IDENTITY"
+            + "(START WITH 1, INCREMENT BY 1), "
+            + "list_type int, dialog_title varchar( 127 ), "
+            + "label varchar( 63 ), list_headings varchar(1023), "
+            + "creation_date date, modification_date date )",
+        "CREATE TABLE AUTHORS ( "
+            + "author_id int PRIMARY KEY GENERATED ALWAYS AS IDENTITY"
+            + "(START WITH 1, INCREMENT BY 1), "
+            + "author varchar( 255 ) NOT NULL, rating int, rank int, "
+            + "source varchar( 255 ), last_count int, current_count int, "
+            + "list_id int, creation_date date, modification_date date, "
+            + "FOREIGN KEY(list_id) REFERENCES LISTS(list_id) )",
+        "CREATE TABLE TITLES ( "
+            + "title_id int PRIMARY KEY GENERATED ALWAYS AS IDENTITY"
+            + "(START WITH 1, INCREMENT BY 1), "
+            + "title varchar( 255 ) NOT NULL, author_id int, list_id int, "
+            + "type varchar( 127 ), check_qpos int, reckon_qpos int, "
+            + "rank int, rating int, source varchar( 127 ), "
+            + "creation_date date, modification_date date, "
+            + "reckon_date date, check_date date )",
+        "CREATE TABLE COMMENTS ( "
+            + "comment_id int PRIMARY KEY GENERATED ALWAYS AS IDENTITY"
+            + "(START WITH 1, INCREMENT BY 1), "
+            + "text varchar( 1023 ), item_id int, list_type int )",
+    };
+
+    private Connection  conn;
+
+    @BeforeEach
+    void setUp() throws SQLException
+    {
+        conn = DriverManager.getConnection( dbURL + ";create=true" );
+        try ( Statement statement = conn.createStatement() )
+        {
+            for ( String sql : firstSchema )
+                statement.execute( sql );
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException
+    {
+        if ( !conn.isClosed() )
+        {
+            if ( !conn.getAutoCommit() )
+                conn.rollback();
+            conn.close();
+        }
+        SQLException    exc =
+            assertThrows(
+                SQLException.class,
+                () -> DriverManager.getConnection( dbURL + ";drop=true" )
+            );
+        assertEquals( "08006", exc.getSQLState() );
+    }
+
+    @Test
+    void testUpgrade() throws SQLException
+    {
+        String  longText    =
+            String.join( "", Collections.nCopies( 300, "x" ) );
+        String  dates       =
+            String.join( ", ", Collections.nCopies( 4, "CURRENT_DATE" ) );
+        executeSQL(
+            "INSERT INTO " + LISTS_TABLE_NAME
+            + " ( list_type, dialog_title, label, list_headings,"
+            + " creation_date, modification_date )"
+            + " VALUES ( " + TITLE_TYPE + ", 'Titles', 'T', 'Title',"
+            + " CURRENT_DATE, CURRENT_DATE ),"
+            + " ( " + AUTHOR_TYPE + ", 'Authors', 'A', 'Author',"
+            + " CURRENT_DATE, CURRENT_DATE )"
+        );
+        executeSQL(
+            "INSERT INTO " + AUTHORS_TABLE_NAME
+            + " ( author, list_id, last_count,"
+            + " creation_date, modification_date )"
+            + " VALUES ( 'Jane Doe', 2, 0, CURRENT_DATE, CURRENT_DATE ),"
+            + " ( 'jane  doe', 2, 0, CURRENT_DATE, CURRENT_DATE )"
+        );
+        executeSQL(
+            "INSERT INTO " + TITLES_TABLE_NAME
+            + " ( title, author_id, list_id, type, creation_date,"
+            + " modification_date, reckon_date, check_date )"
+            + " VALUES ( 'A Book', 1, 1, 'Book', " + dates + " ),"
+            + " ( ' a book', 1, 1, 'BOOK', " + dates + " ),"
+            + " ( 'Another Book', 2, 1, null, " + dates + " )"
+        );
+        executeSQL(
+            "INSERT INTO " + COMMENTS_TABLE_NAME
+            + " ( text, item_id, list_type )"
+            + " VALUES ( '" + longText + "', 1, " + TITLE_TYPE + " ),"
+            + " ( 'short', 1, " + AUTHOR_TYPE + " )"
+        );
+
+        conn.setAutoCommit( false );
+        assertTrue( UpgradeDatabase.upgrade( conn ) > 0 );
+        conn.commit();
+        assertEquals( 0, UpgradeDatabase.upgrade( conn ) );
+        conn.commit();
+
+        // duplicates are made distinct
+        assertEquals(
+            "jane doe\t2",
+            getString( "SELECT natural_author FROM AUTHORS"
+                + " WHERE author_id = 2" )
+        );
+        assertEquals(
+            "a book\t2",
+            getString( "SELECT natural_title FROM TITLES"
+                + " WHERE title_id = 2" )
+        );
+        SQLException    exc =
+            assertThrows(
+                SQLException.class,
+                () -> executeSQL(
+                    "INSERT INTO " + AUTHORS_TABLE_NAME
+                    + " ( author, natural_author ) VALUES ( 'x', 'jane doe' )"
+                )
+            );
+        assertEquals( "23505", exc.getSQLState() );
+        conn.rollback();
+        conn.close();
+
+        DBServer    server  = new DBServer( dbURL );
+        try
+        {
+            List<Title>     titles      = server.getAllTitles();
+            assertEquals( 3, titles.size() );
+            assertEquals( 2, server.getAuthor( 1 ).getCurrentCount() );
+            assertEquals( 1, server.getAuthorIDForName( "Jane Doe" ) );
+
+            Title           title       = server.getTitle( 1 );
+            server.getCommentsFor( title );
+            Comment         comment     = title.getComments().get( 0 );
+            assertEquals( PREVIEW_LENGTH, comment.getText().length() );
+            assertEquals( longText.length(), comment.getTextLength() );
+            server.loadCommentText( comment );
+            assertEquals( longText, comment.getText() );
+
+            Author          author      = server.getAuthor( 1 );
+            server.getCommentsFor( author );
+            assertEquals( "short", author.getComments().get( 0 ).getText() );
+            author.setRank( 10 );
+            server.updateAuthor( author );
+            assertEquals( 1, author.getVersion() );
+
+            Title           newTitle    = new Title( title );
+            newTitle.setTitle( "New Book" );
+            server.insertTitle( newTitle );
+            assertEquals( 3, server.getAuthor( 1 ).getCurrentCount() );
+        }
+        finally
+        {
+            server.shutdown();
+        }
+        conn = DriverManager.getConnection( dbURL );
+    }
+
+    @Test
+    void testDropDBState() throws SQLException
+    {
+        executeSQL(
+            "CREATE TABLE DB_STATE ( state_id int PRIMARY KEY,"
+            + " change_count bigint NOT NULL DEFAULT 0 )"
+        );
+        executeSQL( "INSERT INTO DB_STATE ( state_id ) VALUES ( 1 )" );
+        executeSQL(
+            "CREATE TRIGGER TITLES_INSERT_CHANGE AFTER INSERT ON TITLES"
+            + " FOR EACH STATEMENT"
+            + " UPDATE DB_STATE SET change_count = change_count + 1"
+        );
+
+        conn.setAutoCommit( false );
+        UpgradeDatabase.upgrade( conn );
+        conn.commit();
+        try ( ResultSet rSet =
+                conn.getMetaData().getTables(
+                    null, conn.getSchema(), "DB_STATE", null
+                )
+            )
+        {
+            assertFalse( rSet.next() );
+        }
+        assertEquals(
+            "0",
+            getString( "SELECT COUNT(*) FROM SYS.SYSTRIGGERS"
+                + " WHERE TRIGGERNAME LIKE '%_CHANGE'" )
+        );
+    }
+
+    private void executeSQL( String sql ) throws SQLException
+    {
+        try ( Statement statement = conn.createStatement() )
+        {
+            statement.executeUpdate( sql );
+        }
+    }
+
+    private String getString( String sql ) throws SQLException
+    {
+        try ( Statement statement = conn.createStatement();
+              ResultSet rSet = statement.executeQuery( sql )
+            )
+        {
+            assertTrue( rSet.next() );
+            return rSet.getString( 1 );
+        }
+    }
+}
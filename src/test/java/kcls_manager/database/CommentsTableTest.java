@@ -3,6 +3,7 @@ package kcls_manager.database;
 import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
 import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
 import static kcls_manager.database.DBConstants.LISTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.PREVIEW_LENGTH;
 import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
 import static kcls_manager.main.Constants.AUTHOR_TYPE;
 import static kcls_manager.main.Constants.TITLE_TYPE;
@@ -12,7 +13,9 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.OptionalInt;
@@ -137,6 +140,70 @@ class CommentsTableTest
         assertNull( check );
     }
     
+    @Test
+    void testLongComment()
+    {
+        StringBuilder   bldr    = new StringBuilder();
+        while ( bldr.length() < 10 * PREVIEW_LENGTH )
+            bldr.append( "a long comment " ).append( bldr.length() );
+        String          text    = bldr.toString();
+        Comment         exp     = new Comment( AUTHOR_TYPE, text );
+        exp.setItemID( defAuthorID );
+        dbServer.insertComment( exp );
+        int             ident   = exp.getIdent().getAsInt();
+        
+        // only the preview is retrieved
+        Comment act = dbServer.getComment( ident );
+        assertFalse( act.isTextLoaded() );
+        assertEquals( text.substring( 0, PREVIEW_LENGTH ), act.getText() );
+        assertEquals( text.length(), act.getTextLength() );
+        
+        // the full text is streamed on demand
+        StringWriter    writer  = new StringWriter();
+        assertTrue( 
+            dbServer.readCommentText( ident, r -> r.transferTo( writer ) )
+        );
+        assertEquals( text, writer.toString() );
+        assertFalse( dbServer.readCommentText( ident + 1, r -> fail() ) );
+        dbServer.loadCommentText( act );
+        assertTrue( act.isTextLoaded() );
+        assertEquals( exp, act );
+        
+        // updating a comment whose text is not loaded
+        // leaves the text unchanged
+        Comment preview = dbServer.getComment( ident );
+        dbServer.updateComment( preview );
+        dbServer.loadCommentText( preview );
+        assertEquals( text, preview.getText() );
+        
+        // inserting a comment whose text is not loaded 
+        // stores the full text, not the preview
+        Comment copy    = dbServer.getComment( ident );
+        dbServer.insertComment( copy );
+        Comment stored  = dbServer.getComment( copy.getIdent().getAsInt() );
+        dbServer.loadCommentText( stored );
+        assertEquals( text, stored.getText() );
+        
+        // updating a comment whose text is loaded replaces the text
+        preview.setText( "short" );
+        dbServer.updateComment( preview );
+        act = dbServer.getComment( ident );
+        assertTrue( act.isTextLoaded() );
+        assertEquals( "short", act.getText() );
+        
+        Comment orphan  = new Comment( AUTHOR_TYPE, "" );
+        orphan.setPreview( "", text.length() );
+        assertThrows( 
+            KCLSException.class, 
+            () -> dbServer.loadCommentText( orphan )
+        );
+        orphan.setItemID( defAuthorID );
+        assertThrows( 
+            KCLSException.class, 
+            () -> dbServer.insertComment( orphan )
+        );
+    }
+    
     /**
      * Exercises the deleteCommentIf process.
      * 
@@ -0,0 +1,160 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.DBConstants.DB_URL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import kcls_manager.main.KCLSException;
+
+class DBConfigTest
+{
+    /** A Derby property name that Derby itself does not use. */
+    private static final String testDerbyKey    = "derby.kcls.testProperty";
+    
+    @AfterEach
+    void tearDown()
+    {
+        System.clearProperty( testDerbyKey );
+        System.clearProperty( DBConfig.CONFIG_FILE_PROPERTY );
+        System.clearProperty( DBConfig.ENTITY_CACHE_KEY );
+    }
+
+    @Test
+    void testDefaults()
+    {
+        DBConfig    config  = new DBConfig();
+        assertEquals( DB_URL, config.getDBURL() );
+        assertEquals( "", config.getDBUserName() );
+        assertEquals( "", config.getDBPassword() );
+        assertEquals( DBConfig.DEF_FETCH_SIZE, config.getFetchSize() );
+        assertEquals( 
+            CursorPublisher.DEF_FETCH_SIZE, 
+            config.getPublisherFetchSize()
+        );
+        assertEquals( 
+            EntityCache.DEF_CAPACITY, 
+            config.getEntityCacheCapacity()
+        );
+        assertEquals( DBConfig.DEF_ARCHIVE_LIST, config.getArchiveListName() );
+        assertEquals( 0, config.getArchiveAgeDays() );
+        assertEquals( 
+            DBConfig.CONSISTENCY_OFF, 
+            config.getConsistencyCheck()
+        );
+        assertTrue( config.getDerbyPropertyNames().isEmpty() );
+    }
+
+    @Test
+    void testTypedSettings()
+    {
+        Properties  props   = new Properties();
+        props.setProperty( DBConfig.DB_URL_KEY, "jdbc:derby:other" );
+        props.setProperty( DBConfig.DB_PASSWORD_KEY, "secret" );
+        props.setProperty( DBConfig.FETCH_SIZE_KEY, " 100 " );
+        props.setProperty( DBConfig.ENTITY_CACHE_KEY, "0" );
+        props.setProperty( DBConfig.PUBLISHER_FETCH_SIZE_KEY, "-1" );
+        props.setProperty( DBConfig.ARCHIVE_AGE_KEY, "365" );
+        props.setProperty( DBConfig.CONSISTENCY_CHECK_KEY, " repair " );
+        props.setProperty( "derby.storage.pageCacheSize", "4000" );
+        DBConfig    config  = new DBConfig( props );
+        
+        // changes to the original properties have no effect
+        props.setProperty( DBConfig.FETCH_SIZE_KEY, "1" );
+        
+        assertEquals( "jdbc:derby:other", config.getDBURL() );
+        assertEquals( 100, config.getFetchSize() );
+        assertEquals( 0, config.getEntityCacheCapacity() );
+        assertEquals( 365, config.getArchiveAgeDays() );
+        assertEquals( 
+            DBConfig.CONSISTENCY_REPAIR, 
+            config.getConsistencyCheck()
+        );
+        assertThrows( KCLSException.class, config::getPublisherFetchSize );
+        
+        props.setProperty( DBConfig.CONSISTENCY_CHECK_KEY, "always" );
+        assertThrows( 
+            KCLSException.class, 
+            new DBConfig( props )::getConsistencyCheck
+        );
+        assertEquals( 
+            Set.of( "derby.storage.pageCacheSize" ),
+            config.getDerbyPropertyNames()
+        );
+        assertFalse( config.toString().contains( "secret" ) );
+    }
+
+    @Test
+    void testLoad() throws IOException
+    {
+        Path    path    = Files.createTempFile( "kcls", ".properties" );
+        try ( BufferedWriter writer = Files.newBufferedWriter( path ) )
+        {
+            writer.write( DBConfig.ENTITY_CACHE_KEY + "=10\n" );
+            writer.write( DBConfig.FETCH_SIZE_KEY + "=20\n" );
+            writer.write( testDerbyKey + "=fromFile\n" );
+        }
+        try
+        {
+            System.setProperty( 
+                DBConfig.CONFIG_FILE_PROPERTY, 
+                path.toString()
+            );
+            System.setProperty( DBConfig.ENTITY_CACHE_KEY, "30" );
+            DBConfig    config  = DBConfig.load();
+            assertEquals( 30, config.getEntityCacheCapacity() );
+            assertEquals( 20, config.getFetchSize() );
+            
+            Set<String> applied = config.applyDerbyProperties();
+            assertEquals( Set.of( testDerbyKey ), applied );
+            assertEquals( "fromFile", System.getProperty( testDerbyKey ) );
+            
+            // a property that is already set is left alone
+            System.setProperty( testDerbyKey, "fromSystem" );
+            applied = DBConfig.read( path ).applyDerbyProperties();
+            assertTrue( applied.isEmpty() );
+            assertEquals( "fromSystem", System.getProperty( testDerbyKey ) );
+        }
+        finally
+        {
+            Files.delete( path );
+        }
+        
+        // named file doesn't exist
+        assertThrows( KCLSException.class, () -> DBConfig.load() );
+    }
+    
+    @Test
+    void testDBServerConfig()
+    {
+        Properties  props   = new Properties();
+        props.setProperty( DBConfig.FETCH_SIZE_KEY, "50" );
+        props.setProperty( DBConfig.ENTITY_CACHE_KEY, "5" );
+        DBConfig    config  = new DBConfig( props );
+        DBServer    server  = 
+            new DBServer( DBConstants.TEST_DB_URL, "", "", config );
+        try
+        {
+            assertEquals( config, server.getConfig() );
+            assertEquals( 5, server.getEntityCache().getCapacity() );
+            assertTrue( server.getAllLists() != null );
+        }
+        finally
+        {
+            server.setShutdownDatabase( false );
+            server.setSnapshotOnShutdown( false );
+            server.shutdown();
+        }
+    }
+}
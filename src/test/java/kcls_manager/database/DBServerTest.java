@@ -1,14 +1,27 @@
 package kcls_manager.database;
 
+import static kcls_manager.database.DBConstants.ATTRIBUTES_TABLE_NAME;
+import static kcls_manager.database.DBConstants.AUTHORS_ID_FIELD;
 import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.COMMENTS_ARCHIVE_TABLE_NAME;
 import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.CURRENT_COUNT_FIELD;
+import static kcls_manager.database.DBConstants.ITEM_ID_FIELD;
+import static kcls_manager.database.DBConstants.LABEL_FIELD;
 import static kcls_manager.database.DBConstants.LISTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.NATURAL_TITLE_FIELD;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_TABLE_NAME;
+import static kcls_manager.database.DBConstants.RANK_FIELD;
 import static kcls_manager.database.DBConstants.TEST_DB_URL;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
+import static kcls_manager.database.DBConstants.TITLES_ID_FIELD;
 import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
 import static kcls_manager.main.Constants.AUTHOR_TYPE;
 import static kcls_manager.main.Constants.TITLE_TYPE;
 import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -17,31 +30,51 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import kcls_manager.database.ConsistencyReport.Problem;
 import kcls_manager.main.Author;
 import kcls_manager.main.Comment;
+import kcls_manager.main.ConcurrentUpdateException;
 import kcls_manager.main.DataManager;
+import kcls_manager.main.DeadlockException;
 import kcls_manager.main.KCLSException;
 import kcls_manager.main.KCLSList;
 import kcls_manager.main.LibraryItem;
+import kcls_manager.main.LockTimeoutException;
+import kcls_manager.main.QPosSample;
 import kcls_manager.main.Title;
 import kcls_manager.main.Utils;
 import test_util.AuthorFactory;
@@ -85,6 +118,10 @@ class DBServerTest
         dbServer.truncateTable( TITLES_TABLE_NAME );
         dbServer.truncateTable( LISTS_TABLE_NAME );
         dbServer.truncateTable( COMMENTS_TABLE_NAME );
+        dbServer.truncateTable( QPOS_HISTORY_TABLE_NAME );
+        dbServer.truncateTable( TITLES_ARCHIVE_TABLE_NAME );
+        dbServer.truncateTable( COMMENTS_ARCHIVE_TABLE_NAME );
+        dbServer.truncateTable( ATTRIBUTES_TABLE_NAME );
         
         insertLists( allTitleLists, TITLE_TYPE );
         insertLists( allAuthorLists, AUTHOR_TYPE );
@@ -219,6 +256,27 @@ class DBServerTest
         assertEquals( comment, temp );
     }
 
+    @Test
+    void testUpdateCommentConflict()
+    {
+        Comment comment = getUniqueComment( TITLE_TYPE );
+        dbServer.insertComment( comment );
+        int     intIdent    = comment.getIdent().getAsInt();
+        Comment client1     = dbServer.getComment( intIdent );
+        Comment client2     = dbServer.getComment( intIdent );
+        
+        client1.setText( client1.getText() + "###" );
+        dbServer.updateComment( client1 );
+        assertEquals( 1, client1.getVersion() );
+        
+        client2.setText( client2.getText() + "***" );
+        assertThrows( 
+            ConcurrentUpdateException.class, 
+            () -> dbServer.updateComment( client2 )
+        );
+        assertEquals( client1, dbServer.getComment( intIdent ) );
+    }
+
     @Test
     void testDeleteComment()
     {
@@ -532,6 +590,117 @@ class DBServerTest
         assertNull( actList );
     }
 
+    @Test
+    void testDeleteListCascade()
+    {
+        String      delListName     = allTitleLists[1];
+        String      keepListName    = allTitleLists[0];
+        List<Title> delTitles       = insertTitles( 3, 2, delListName );
+        List<Title> keepTitles      = insertTitles( 2, 2, keepListName );
+        List<Author> delAuthors     = insertAuthors( 2, 2, allAuthorLists[1] );
+        
+        KCLSList    delList         = 
+            dbServer.getList( dbServer.getListID( delListName ) );
+        dbServer.deleteList( delList );
+        assertTrue( dbServer.getListID( delListName ) < 1 );
+        assertTrue( dbServer.getTitlesForList( delListName ).isEmpty() );
+        assertListsEqual( keepTitles, dbServer.getAllTitles() );
+        for ( Title title : delTitles )
+            assertNull( dbServer.getTitle( title.getIdent().getAsInt() ) );
+        
+        // comments for deleted titles are gone; comments for 
+        // authors in other lists are not
+        List<Comment>   expComments = new ArrayList<>();
+        keepTitles.forEach( t -> expComments.addAll( t.getComments() ) );
+        delAuthors.forEach( a -> expComments.addAll( a.getComments() ) );
+        assertTrue( Utils.equals( expComments, dbServer.getAllComments() ) );
+        
+        // deleting an author list deletes its authors
+        dbServer.deleteList( dbServer.getListID( allAuthorLists[1] ) );
+        for ( Author author : delAuthors )
+            assertNull( dbServer.getAuthor( author.getIdent().getAsInt() ) );
+    }
+
+    @Test
+    void testDeleteListReassign()
+    {
+        String      fromListName    = allTitleLists[1];
+        String      toListName      = allTitleLists[2];
+        List<Title> expTitles       = insertTitles( 3, 2, toListName );
+        List<Title> movedTitles     = insertTitles( 3, 2, fromListName );
+        for ( Title title : movedTitles )
+        {
+            title.setListName( toListName );
+            expTitles.add( title );
+        }
+        
+        KCLSList    fromList        = 
+            dbServer.getList( dbServer.getListID( fromListName ) );
+        KCLSList    toList          = 
+            dbServer.getList( dbServer.getListID( toListName ) );
+        KCLSList    authorList      = 
+            dbServer.getList( dbServer.getListID( allAuthorLists[0] ) );
+        assertThrows( 
+            KCLSException.class, 
+            () -> dbServer.deleteList( fromList, authorList )
+        );
+        int         fromIdent       = dbServer.getListID( fromListName );
+        assertEquals( fromList, dbServer.getList( fromIdent ) );
+        
+        dbServer.deleteList( fromList, toList );
+        assertTrue( dbServer.getListID( fromListName ) < 1 );
+        assertListsEqual( expTitles, dbServer.getTitlesForList( toListName ) );
+    }
+
+    @Test
+    void testDeleteListArchived()
+    {
+        String      fromListName    = allTitleLists[1];
+        String      toListName      = allTitleLists[2];
+        LocalDate   cutoff          = LocalDate.of( 2010, 1, 1 );
+        List<Title> titles          = insertTitles( 2, 2, fromListName );
+        for ( Title title : titles )
+        {
+            title.setModifyDate( LocalDate.of( 2000, 1, 1 ) );
+            title.setAttribute( "format", "ebook" );
+            dbServer.updateTitle( title );
+            dbServer.recordQPos( title, LocalDate.of( 2001, 1, 1 ), 5 );
+        }
+        assertEquals( 2, dbServer.archiveTitles( fromListName, cutoff ) );
+
+        // archived titles follow their list when it is reassigned
+        dbServer.deleteList(
+            dbServer.getList( dbServer.getListID( fromListName ) ),
+            dbServer.getList( dbServer.getListID( toListName ) )
+        );
+        List<Title> expTitles       = new ArrayList<>();
+        for ( Title title : titles )
+        {
+            int     ident   = title.getIdent().getAsInt();
+            Title   moved   = dbServer.getTitle( ident, true );
+            assertEquals( toListName, moved.getListName() );
+            assertEquals(
+                "ebook",
+                moved.getStringAttribute( "format" ).orElse( null )
+            );
+            assertEquals( 2, moved.getComments().size() );
+            expTitles.add( moved );
+        }
+        assertListsEqual( expTitles, dbServer.getArchivedTitles( toListName ) );
+        assertTrue( dbServer.checkConsistency( false ).isConsistent() );
+
+        // ... and are deleted, with everything that refers to them,
+        // when it is not
+        dbServer.deleteList( dbServer.getListID( toListName ) );
+        for ( Title title : titles )
+        {
+            int     ident   = title.getIdent().getAsInt();
+            assertNull( dbServer.getTitle( ident, true ) );
+            assertTrue( dbServer.getQPosHistory( title ).isEmpty() );
+        }
+        assertTrue( dbServer.checkConsistency( false ).isConsistent() );
+    }
+
     @Test
     void testGetAllLists()
     {
@@ -645,6 +814,35 @@ class DBServerTest
         assertEquals( expAuthor, actAuthor );
     }
 
+    @Test
+    void testUpdateAuthorConflict()
+    {
+        Author      author      = getUniqueAuthor( 2 );
+        dbServer.insertAuthor( author );
+        int         intIdent    = author.getIdent().getAsInt();
+        Author      client1     = dbServer.getAuthor( intIdent );
+        Author      client2     = dbServer.getAuthor( intIdent );
+        
+        client1.setRank( client1.getRank() + 1 );
+        dbServer.updateAuthor( client1 );
+        assertEquals( author.getVersion() + 1, client1.getVersion() );
+        
+        client2.setRating( client2.getRating() + 1 );
+        ConcurrentUpdateException   exc = 
+            assertThrows( 
+                ConcurrentUpdateException.class, 
+                () -> dbServer.updateAuthor( client2 )
+            );
+        assertEquals( intIdent, exc.getIdent() );
+        assertEquals( client1, dbServer.getAuthor( intIdent ) );
+        
+        // re-read and retry
+        Author      retry       = dbServer.getAuthor( intIdent );
+        retry.setRating( retry.getRating() + 1 );
+        dbServer.updateAuthor( retry );
+        assertEquals( retry, dbServer.getAuthor( intIdent ) );
+    }
+
     @Test
     void testDeleteAuthor()
     {
@@ -723,6 +921,29 @@ class DBServerTest
         assertEquals( title, temp );
     }
 
+    @Test
+    void testInsertLongNaturalKeys()
+    {
+        // a capital dotted I is two characters in lower case
+        String  longName    = 
+            String.join( "", Collections.nCopies( 255, "\u0130" ) );
+        String  longMedia   = longName.substring( 0, 127 );
+        Author  author      = getUniqueAuthor( 0 );
+        author.setAuthor( longName );
+        dbServer.insertAuthor( author );
+        
+        Title   title       = getUniqueTitle( 0, longName );
+        title.setTitle( longName );
+        title.setMediaType( longMedia );
+        dbServer.insertTitle( title );
+        
+        int     titleID     = title.getIdent().getAsInt();
+        int     authorID    = author.getIdent().getAsInt();
+        assertEquals( title, dbServer.getTitle( titleID ) );
+        assertEquals( longName, dbServer.getAuthor( authorID ).getAuthor() );
+        assertEquals( authorID, dbServer.getAuthorIDForName( longName ) );
+    }
+
     @Test
     void testUpdateTitle()
     {
@@ -744,6 +965,585 @@ class DBServerTest
         assertEquals( title, temp );
     }
 
+    @Test
+    void testUpdateTitleConflict()
+    {
+        Title       title       = getUniqueTitle( 2, defAuthorName );
+        dbServer.insertTitle( title );
+        int         intIdent    = title.getIdent().getAsInt();
+        Title       client1     = dbServer.getTitle( intIdent );
+        Title       client2     = dbServer.getTitle( intIdent );
+        
+        client1.setTitle( client1.getTitle() + "###" );
+        dbServer.updateTitle( client1 );
+        assertEquals( title.getVersion() + 1, client1.getVersion() );
+        
+        client2.setRank( client2.getRank() + 1 );
+        assertThrows( 
+            ConcurrentUpdateException.class, 
+            () -> dbServer.updateTitle( client2 )
+        );
+        assertEquals( client1, dbServer.getTitle( intIdent ) );
+        
+        // re-read and retry
+        Title       retry       = dbServer.getTitle( intIdent );
+        retry.setRank( retry.getRank() + 1 );
+        dbServer.updateTitle( retry );
+        assertEquals( retry, dbServer.getTitle( intIdent ) );
+        
+        // a deleted title can't be updated
+        dbServer.deleteTitle( retry );
+        assertThrows( 
+            ConcurrentUpdateException.class, 
+            () -> dbServer.updateTitle( client1 )
+        );
+    }
+
+    @Test
+    void testDeleteTitleUnloadedComments()
+    {
+        Title   title   = getUniqueTitle( 5, defAuthorName );
+        dbServer.insertTitle( title );
+        
+        // comments are deleted even if they haven't been loaded
+        Title   temp    = new Title( title );
+        temp.clearComments();
+        dbServer.deleteTitle( temp );
+        assertTrue( dbServer.getAllComments().isEmpty() );
+    }
+
+    @Test
+    void testDeleteTitles()
+    {
+        List<Title> keepTitles  = insertTitles( 3, 2 );
+        List<Title> delTitles   = insertTitles( 4, 2 );
+        
+        dbServer.deleteTitles( delTitles );
+        assertListsEqual( keepTitles, dbServer.getAllTitles() );
+        
+        List<Comment>   expComments = new ArrayList<>();
+        keepTitles.forEach( t -> expComments.addAll( t.getComments() ) );
+        assertTrue( Utils.equals( expComments, dbServer.getAllComments() ) );
+        
+        // empty collection is harmless
+        dbServer.deleteTitles( new ArrayList<>() );
+        assertListsEqual( keepTitles, dbServer.getAllTitles() );
+    }
+
+    @Test
+    void testMoveTitles()
+    {
+        String      fromListName    = allTitleLists[1];
+        String      toListName      = allTitleLists[2];
+        List<Title> stayTitles      = insertTitles( 2, 2, fromListName );
+        List<Title> moveTitles      = insertTitles( 3, 2, fromListName );
+        List<Title> expTitles       = insertTitles( 1, 2, toListName );
+        
+        // prime the cache with a title that is about to move
+        Title       cached          = moveTitles.get( 0 );
+        int         movedIdent      = cached.getIdent().getAsInt();
+        dbServer.getTitle( movedIdent );
+        
+        dbServer.moveTitles( moveTitles, toListName );
+        for ( Title title : moveTitles )
+            assertEquals( toListName, title.getListName() );
+        expTitles.addAll( moveTitles );
+        assertListsEqual( expTitles, dbServer.getTitlesForList( toListName ) );
+        assertListsEqual( 
+            stayTitles, 
+            dbServer.getTitlesForList( fromListName )
+        );
+        assertEquals( moveTitles.get( 0 ), dbServer.getTitle( movedIdent ) );
+        
+        // in-memory versions match the database
+        Title       moved           = moveTitles.get( 1 );
+        moved.setRank( moved.getRank() + 1 );
+        dbServer.updateTitle( moved );
+        
+        assertThrows( 
+            KCLSException.class,
+            () -> dbServer.moveTitles( stayTitles, allAuthorLists[0] )
+        );
+        assertThrows( 
+            KCLSException.class,
+            () -> dbServer.moveTitles( stayTitles, "no such list" )
+        );
+    }
+
+    @Test
+    void testMoveTitlesConcurrentUpdate()
+    {
+        String      fromListName    = allTitleLists[1];
+        String      toListName      = allTitleLists[2];
+        List<Title> moveTitles      = insertTitles( 3, 2, fromListName );
+        
+        // another client updates one of the titles
+        Title       stale           = moveTitles.get( 1 );
+        Title       other           = new Title( stale );
+        other.setRank( other.getRank() + 1 );
+        dbServer.updateTitle( other );
+        
+        assertThrows(
+            ConcurrentUpdateException.class,
+            () -> dbServer.moveTitles( moveTitles, toListName )
+        );
+        assertTrue( dbServer.getTitlesForList( toListName ).isEmpty() );
+        for ( Title title : moveTitles )
+            assertEquals( fromListName, title.getListName() );
+        
+        // refreshed titles can be moved
+        moveTitles.set( 1, other );
+        dbServer.moveTitles( moveTitles, toListName );
+        assertListsEqual( moveTitles, dbServer.getTitlesForList( toListName ) );
+    }
+
+    @Test
+    void testUpsertTitles()
+    {
+        List<Title>     existing    = insertTitles( 3, 2 );
+        Title           unchanged   = new Title( existing.get( 0 ) );
+        Title           changed     = new Title( existing.get( 1 ) );
+        Title           added       = getUniqueTitle( 2 );
+        int             version     = existing.get( 1 ).getVersion();
+        int             ident       = existing.get( 1 ).getIdent().getAsInt();
+        
+        // differences of case and spacing don't change the natural key
+        changed.setTitle( " " + changed.getTitle().toUpperCase() + "  " );
+        changed.setRank( 99 );
+        List<Title>     titles      = 
+            Arrays.asList( unchanged, changed, added );
+        UpsertResult    result      = dbServer.upsertTitles( titles );
+        assertEquals( 1, result.getInserted() );
+        assertEquals( 1, result.getUpdated() );
+        assertEquals( 1, result.getUnchanged() );
+        assertEquals( existing.get( 0 ).getVersion(), unchanged.getVersion() );
+        assertEquals( ident, changed.getIdent().getAsInt() );
+        assertEquals( version + 1, changed.getVersion() );
+        
+        Title           dbChanged   = dbServer.getTitle( ident );
+        assertEquals( changed.getTitle(), dbChanged.getTitle() );
+        assertEquals( 99, dbChanged.getRank() );
+        assertEquals( 2, dbChanged.getComments().size() );
+        assertEquals( 
+            added, 
+            dbServer.getTitle( added.getIdent().getAsInt() ) 
+        );
+        
+        // importing the same titles again changes nothing
+        result = dbServer.upsertTitles( titles );
+        assertEquals( 0, result.getInserted() );
+        assertEquals( 0, result.getUpdated() );
+        assertEquals( 3, result.getUnchanged() );
+        assertEquals( 4, dbServer.getTitlesForList( defTitleList ).size() );
+        
+        // the same text with a different media type is a different title
+        Title           other       = getUniqueTitle( 0 );
+        other.setTitle( added.getTitle() );
+        other.setMediaType( "not " + added.getMediaType() );
+        result = dbServer.upsertTitles( Arrays.asList( other ) );
+        assertEquals( 1, result.getInserted() );
+        
+        Title           noList      = getUniqueTitle( 0 );
+        noList.setListName( "no such list" );
+        assertThrows( 
+            KCLSException.class, 
+            () -> dbServer.upsertTitles( Arrays.asList( noList ) )
+        );
+    }
+
+    @Test
+    void testUpsertArchivedTitles()
+    {
+        List<Title>     titles      = insertTitles( 2, 2 );
+        Title           archived    = titles.get( 0 );
+        int             ident       = archived.getIdent().getAsInt();
+        archived.setModifyDate( LocalDate.of( 2000, 1, 1 ) );
+        dbServer.updateTitle( archived );
+        dbServer.archiveTitles( defTitleList, LocalDate.of( 2010, 1, 1 ) );
+        Title           expTitle    = dbServer.getTitle( ident, true );
+
+        // re-importing an archived title does not resurrect it
+        Title           imported    = new Title( archived );
+        imported.setTitle( archived.getTitle().toUpperCase() );
+        imported.setRank( 99 );
+        UpsertResult    result      =
+            dbServer.upsertTitles(
+                Arrays.asList( imported, new Title( titles.get( 1 ) ) )
+            );
+        assertEquals( 0, result.getInserted() );
+        assertEquals( 0, result.getUpdated() );
+        assertEquals( 2, result.getUnchanged() );
+        assertEquals( ident, imported.getIdent().getAsInt() );
+        assertNull( dbServer.getTitle( ident ) );
+        assertEquals( expTitle, dbServer.getTitle( ident, true ) );
+        assertEquals( 1, dbServer.getTitlesForList( defTitleList ).size() );
+    }
+
+    @Test
+    void testUpsertManyTitles()
+    {
+        // more than two batches, with one title repeated
+        int             count       = 2 * Table.MAX_IN_LIST_SIZE + 1;
+        List<Title>     titles      = new ArrayList<>();
+        for ( int inx = 0 ; inx < count ; ++inx )
+            titles.add( getUniqueTitle( 0 ) );
+        titles.add( new Title( titles.get( 0 ) ) );
+        
+        UpsertResult    result      = dbServer.upsertTitles( titles );
+        assertEquals( count, result.getInserted() );
+        assertEquals( 1, result.getUnchanged() );
+        assertEquals( 
+            titles.get( 0 ).getIdent(), 
+            titles.get( count ).getIdent()
+        );
+        
+        result = dbServer.upsertTitles( titles );
+        assertEquals( count + 1, result.getUnchanged() );
+        assertEquals( 
+            count, 
+            dbServer.getTitlesForList( defTitleList ).size()
+        );
+    }
+
+    @Test
+    void testUpsertAuthors()
+    {
+        int             defIdent    = 
+            dbServer.getAuthorIDForName( defAuthorName );
+        Author          unchanged   = 
+            new Author( dbServer.getAuthor( defIdent ) );
+        Author          existing    = getUniqueAuthor( 2 );
+        dbServer.insertAuthor( existing );
+        int             ident       = existing.getIdent().getAsInt();
+        Author          changed     = new Author( existing );
+        Author          added       = getUniqueAuthor( 1 );
+        
+        changed.setAuthor( changed.getAuthor().toLowerCase() );
+        changed.setRating( existing.getRating() + 1 );
+        List<Author>    authors     = 
+            Arrays.asList( unchanged, changed, added );
+        UpsertResult    result      = dbServer.upsertAuthors( authors );
+        assertEquals( 1, result.getInserted() );
+        assertEquals( 1, result.getUpdated() );
+        assertEquals( 1, result.getUnchanged() );
+        assertEquals( ident, changed.getIdent().getAsInt() );
+        assertEquals( existing.getVersion() + 1, changed.getVersion() );
+        
+        Author          dbChanged   = dbServer.getAuthor( ident );
+        assertEquals( changed.getAuthor(), dbChanged.getAuthor() );
+        assertEquals( changed.getRating(), dbChanged.getRating() );
+        assertEquals( 2, dbChanged.getComments().size() );
+        assertEquals( 
+            added, 
+            dbServer.getAuthor( added.getIdent().getAsInt() ) 
+        );
+        
+        // importing the same authors again changes nothing
+        result = dbServer.upsertAuthors( authors );
+        assertEquals( 3, result.getUnchanged() );
+        assertEquals( 3, dbServer.getAllAuthors().size() );
+        
+        Author          noList      = getUniqueAuthor( 0 );
+        noList.setListName( "no such list" );
+        assertThrows( 
+            KCLSException.class, 
+            () -> dbServer.upsertAuthors( Arrays.asList( noList ) )
+        );
+    }
+
+    @Test
+    void testArchiveTitles()
+    {
+        String          listName    = allTitleLists[3];
+        LocalDate       old         = LocalDate.of( 2000, 1, 1 );
+        LocalDate       cutoff      = LocalDate.of( 2010, 1, 1 );
+        List<Title>     titles      = insertTitles( 3, 2, listName );
+        Title           recent      = titles.get( 2 );
+        recent.setModifyDate( LocalDate.now() );
+        dbServer.updateTitle( recent );
+        List<Title>     oldTitles   = new ArrayList<>();
+        for ( Title title : titles.subList( 0, 2 ) )
+        {
+            title.setModifyDate( old );
+            dbServer.updateTitle( title );
+            oldTitles.add( dbServer.getTitle( title.getIdent().getAsInt() ) );
+        }
+        Author          author      = 
+            dbServer.getAuthor( dbServer.getAuthorIDForName( defAuthorName ) );
+        int             count       = author.getCurrentCount();
+        
+        // archiving is not configured by default
+        assertEquals( 0, dbServer.archiveTitles() );
+        
+        assertEquals( 2, dbServer.archiveTitles( listName, cutoff ) );
+        assertEquals( 0, dbServer.archiveTitles( listName, cutoff ) );
+        assertListsEqual( 
+            Arrays.asList( recent ), 
+            dbServer.getTitlesForList( listName )
+        );
+        assertListsEqual( 
+            oldTitles, 
+            dbServer.getArchivedTitles( listName )
+        );
+        List<Title>     expAll      = new ArrayList<>( oldTitles );
+        expAll.add( recent );
+        assertListsEqual( expAll, dbServer.getTitlesForList( listName, true ) );
+        
+        Title           archived    = oldTitles.get( 0 );
+        int             ident       = archived.getIdent().getAsInt();
+        assertNull( dbServer.getTitle( ident ) );
+        assertEquals( archived, dbServer.getTitle( ident, true ) );
+        for ( Comment comment : archived.getComments() )
+            assertNull( dbServer.getComment( comment.getIdent().getAsInt() ) );
+        
+        // archived titles still count toward their author
+        author = 
+            dbServer.getAuthor( dbServer.getAuthorIDForName( defAuthorName ) );
+        assertEquals( count, author.getCurrentCount() );
+        
+        assertThrows( 
+            ConcurrentUpdateException.class,
+            () -> dbServer.updateTitle( archived )
+        );
+        assertThrows( 
+            KCLSException.class,
+            () -> dbServer.archiveTitles( allAuthorLists[0], cutoff )
+        );
+    }
+
+    @Test
+    void testCheckConsistency()
+    {
+        ConsistencyReport   report  = dbServer.checkConsistency( false );
+        assertTrue( report.isConsistent() );
+        
+        List<Title>     titles      = insertTitles( 3, 2 );
+        int             deleted     = titles.get( 0 ).getIdent().getAsInt();
+        int             orphan      = titles.get( 1 ).getIdent().getAsInt();
+        dbServer.recordQPos( titles.get( 0 ), LocalDate.of( 2021, 6, 1 ), 5 );
+        for ( Title title : titles.subList( 0, 2 ) )
+        {
+            title.setAttribute( "format", "ebook" );
+            dbServer.updateTitle( title );
+        }
+        Author          author      = getUniqueAuthor( 0 );
+        author.setAttribute( "genre", "mystery" );
+        dbServer.insertAuthor( author );
+        Title           dangling    = getUniqueTitle( 0, author.getAuthor() );
+        dbServer.insertTitle( dangling );
+        int             danglingID  = dangling.getIdent().getAsInt();
+        
+        // corrupt the database behind the DBServer's back
+        executeSQL( 
+            "DELETE FROM " + TITLES_TABLE_NAME 
+            + " WHERE " + TITLES_ID_FIELD + " = " + deleted
+        );
+        executeSQL( 
+            "UPDATE " + TITLES_TABLE_NAME + " SET list_id = -5"
+            + " WHERE " + TITLES_ID_FIELD + " = " + orphan
+        );
+        executeSQL(
+            "DELETE FROM " + AUTHORS_TABLE_NAME
+            + " WHERE author_id = " + author.getIdent().getAsInt()
+        );
+        Title           archived    = titles.get( 2 );
+        archived.setModifyDate( LocalDate.of( 2000, 1, 1 ) );
+        dbServer.updateTitle( archived );
+        dbServer.archiveTitles( defTitleList, LocalDate.of( 2010, 1, 1 ) );
+        executeSQL(
+            "UPDATE " + TITLES_ARCHIVE_TABLE_NAME + " SET list_id = -5"
+            + " WHERE " + TITLES_ID_FIELD + " = "
+            + archived.getIdent().getAsInt()
+        );
+
+        report = dbServer.checkConsistency( false );
+        assertFalse( report.isConsistent() );
+        assertEquals( 0, report.getFound( Problem.ORPHAN_AUTHORS ) );
+        assertEquals( 1, report.getFound( Problem.ORPHAN_TITLES ) );
+        assertEquals( 1, report.getFound( Problem.DANGLING_AUTHOR_IDS ) );
+        assertEquals( 2, report.getFound( Problem.ORPHAN_COMMENTS ) );
+        assertEquals( 1, report.getFound( Problem.ORPHAN_QPOS_SAMPLES ) );
+        assertEquals( 1, report.getFound( Problem.ORPHAN_ARCHIVED_TITLES ) );
+        assertEquals( 0, report.getFound( Problem.ORPHAN_ARCHIVED_COMMENTS ) );
+        assertEquals( 2, report.getFound( Problem.ORPHAN_ATTRIBUTES ) );
+        assertEquals( 8, report.getTotalFound() );
+        assertEquals( 0, report.getTotalRepaired() );
+        assertEquals( 
+            Arrays.asList( orphan ), 
+            report.getSamples( Problem.ORPHAN_TITLES )
+        );
+        assertEquals( 
+            Arrays.asList( danglingID ), 
+            report.getSamples( Problem.DANGLING_AUTHOR_IDS )
+        );
+        assertEquals( 
+            2,
+            report.getSamples( Problem.ORPHAN_ATTRIBUTES ).size()
+        );
+        
+        // a scan changes nothing
+        assertEquals( 
+            report.getTotalFound(), 
+            dbServer.checkConsistency( false ).getTotalFound()
+        );
+        
+        // deleting the orphaned title orphans its comments
+        report = dbServer.checkConsistency( true );
+        assertEquals( 1, report.getRepaired( Problem.ORPHAN_TITLES ) );
+        assertEquals( 1, report.getRepaired( Problem.DANGLING_AUTHOR_IDS ) );
+        assertEquals( 4, report.getRepaired( Problem.ORPHAN_COMMENTS ) );
+        assertEquals( 1, report.getRepaired( Problem.ORPHAN_QPOS_SAMPLES ) );
+        assertEquals(
+            1,
+            report.getRepaired( Problem.ORPHAN_ARCHIVED_TITLES )
+        );
+        assertEquals(
+            2,
+            report.getRepaired( Problem.ORPHAN_ARCHIVED_COMMENTS )
+        );
+        assertEquals( 3, report.getRepaired( Problem.ORPHAN_ATTRIBUTES ) );
+        assertTrue( dbServer.checkConsistency( false ).isConsistent() );
+        
+        assertNull( dbServer.getTitle( orphan ) );
+        assertNull( dbServer.getTitle( archived.getIdent().getAsInt(), true ) );
+        assertTrue( dbServer.getTitle( danglingID ) != null );
+    }
+
+    @Test
+    void testRepairDanglingAuthorsSameKey()
+    {
+        // the same title by two authors, and by no author at all
+        Author          authorA     = getUniqueAuthor( 0 );
+        Author          authorB     = getUniqueAuthor( 0 );
+        dbServer.insertAuthor( authorA );
+        dbServer.insertAuthor( authorB );
+        Title           titleA      = getUniqueTitle( 0, authorA.getAuthor() );
+        Title           titleB      = new Title( titleA );
+        titleB.setAuthor( authorB.getAuthor() );
+        Title           noAuthor    = getUniqueTitle( 0 );
+        noAuthor.setMediaType( titleA.getMediaType() );
+        dbServer.insertTitle( titleA );
+        dbServer.insertTitle( titleB );
+        dbServer.insertTitle( noAuthor );
+        executeSQL(
+            "UPDATE " + TITLES_TABLE_NAME + " SET author_id = -1, "
+            + NATURAL_TITLE_FIELD + " = '"
+            + Table.normalize( titleA.getTitle() ) + "'"
+            + " WHERE " + TITLES_ID_FIELD + " = "
+            + noAuthor.getIdent().getAsInt()
+        );
+        executeSQL(
+            "DELETE FROM " + AUTHORS_TABLE_NAME + " WHERE author_id IN ( "
+            + authorA.getIdent().getAsInt() + ", "
+            + authorB.getIdent().getAsInt() + " )"
+        );
+
+        // clearing both authors must not violate the natural key
+        ConsistencyReport   report  = dbServer.checkConsistency( true );
+        assertEquals( 2, report.getFound( Problem.DANGLING_AUTHOR_IDS ) );
+        assertEquals( 2, report.getRepaired( Problem.DANGLING_AUTHOR_IDS ) );
+        assertTrue( dbServer.checkConsistency( false ).isConsistent() );
+        for ( Title title : Arrays.asList( titleA, titleB, noAuthor ) )
+        {
+            int     ident   = title.getIdent().getAsInt();
+            assertTrue( dbServer.getTitle( ident ) != null );
+        }
+    }
+
+    @Test
+    void testRecordQPos()
+    {
+        LocalDate   origin  = LocalDate.of( 2021, 6, 1 );
+        Title       title   = insertTitles( 1, 2 ).get( 0 );
+        int         ident   = title.getIdent().getAsInt();
+        assertNull( title.getReadyDate() );
+        
+        // one sample: no forecast
+        dbServer.recordQPos( title, origin, 20 );
+        assertNull( title.getReadyDate() );
+        assertEquals( 20, title.getCheckQPos() );
+        assertEquals( origin, title.getCheckDate() );
+        
+        // samples out of order; check fields come from the latest
+        dbServer.recordQPos( title, origin.plusDays( 10 ), 10 );
+        dbServer.recordQPos( title, origin.plusDays( 5 ), 15 );
+        assertEquals( origin.plusDays( 20 ), title.getReadyDate() );
+        assertEquals( 10, title.getCheckQPos() );
+        assertEquals( origin.plusDays( 10 ), title.getCheckDate() );
+        
+        Title       dbTitle = dbServer.getTitle( ident );
+        assertEquals( title, dbTitle );
+        assertEquals( title.getReadyDate(), dbTitle.getReadyDate() );
+        
+        List<QPosSample>    expHistory  = Arrays.asList(
+            new QPosSample( origin, 20 ),
+            new QPosSample( origin.plusDays( 5 ), 15 ),
+            new QPosSample( origin.plusDays( 10 ), 10 )
+        );
+        assertEquals( expHistory, dbServer.getQPosHistory( title ) );
+        
+        // in-memory version matches the database
+        title.setRank( title.getRank() + 1 );
+        dbServer.updateTitle( title );
+        dbTitle = dbServer.getTitle( ident );
+        assertEquals( title.getReadyDate(), dbTitle.getReadyDate() );
+        
+        dbServer.deleteTitle( title );
+        assertTrue( dbServer.getQPosHistory( title ).isEmpty() );
+        
+        assertThrows( 
+            KCLSException.class,
+            () -> dbServer.recordQPos( new Title( "new" ), origin, 1 )
+        );
+    }
+
+    @Test
+    void testRecordQPosConcurrentUpdate()
+    {
+        LocalDate   origin  = LocalDate.of( 2021, 6, 1 );
+        Title       title   = insertTitles( 1, 0 ).get( 0 );
+        Title       stale   = new Title( title );
+        title.setRank( title.getRank() + 1 );
+        dbServer.updateTitle( title );
+        
+        // the sample is rolled back with the failed forecast update
+        assertThrows( 
+            ConcurrentUpdateException.class,
+            () -> dbServer.recordQPos( stale, origin, 20 )
+        );
+        assertTrue( dbServer.getQPosHistory( title ).isEmpty() );
+        Title       dbTitle = 
+            dbServer.getTitle( title.getIdent().getAsInt() );
+        assertEquals( title.getVersion(), dbTitle.getVersion() );
+        assertEquals( title.getCheckQPos(), dbTitle.getCheckQPos() );
+        
+        dbServer.recordQPos( title, origin, 20 );
+        assertEquals( 1, dbServer.getQPosHistory( title ).size() );
+    }
+
+    @Test
+    void testGetTitlesForListByReadyDate()
+    {
+        LocalDate   origin  = LocalDate.of( 2021, 6, 1 );
+        List<Title> titles  = insertTitles( 3, 0 );
+        Title       noDate  = titles.get( 0 );
+        Title       late    = titles.get( 1 );
+        Title       early   = titles.get( 2 );
+        dbServer.recordQPos( late, origin, 40 );
+        dbServer.recordQPos( late, origin.plusDays( 1 ), 39 );
+        dbServer.recordQPos( early, origin, 4 );
+        dbServer.recordQPos( early, origin.plusDays( 1 ), 3 );
+        
+        List<Title> expList = Arrays.asList( early, late, noDate );
+        List<Title> actList = 
+            dbServer.getTitlesForListByReadyDate( defTitleList );
+        assertEquals( expList, actList );
+        
+        // deleting the list deletes the history
+        dbServer.deleteList( dbServer.getListID( defTitleList ) );
+        assertTrue( dbServer.getQPosHistory( early ).isEmpty() );
+    }
+
     @Test
     void testDeleteTitle()
     {
@@ -776,6 +1576,88 @@ class DBServerTest
         }
     }
 
+    @Test
+    void testEntityCache()
+    {
+        EntityCache cache       = dbServer.getEntityCache();
+        List<Title> expTitles   = insertTitles( 1, 3 );
+        Title       expTitle    = expTitles.get( 0 );
+        int         intIdent    = expTitle.getIdent().getAsInt();
+
+        long        hits        = cache.getHits();
+        Title       actTitle    = dbServer.getTitle( intIdent );
+        assertEquals( expTitle, actTitle );
+        assertEquals( hits + 1, cache.getHits() );
+
+        // updates must be visible through the cache
+        actTitle.setRank( actTitle.getRank() + 1 );
+        dbServer.updateTitle( actTitle );
+        assertEquals( actTitle, dbServer.getTitle( intIdent ) );
+
+        // comment changes must be visible through the cache
+        Comment     comment     = getUniqueComment( TITLE_TYPE );
+        comment.setItemID( intIdent );
+        dbServer.insertComment( comment );
+        actTitle.addComment( comment );
+        assertEquals( actTitle, dbServer.getTitle( intIdent ) );
+
+        dbServer.deleteTitle( actTitle );
+        assertNull( dbServer.getTitle( intIdent ) );
+    }
+
+    @Test
+    void testEntityCacheAuthorCounts()
+    {
+        EntityCache cache       = dbServer.getEntityCache();
+        Author      authorA     = getUniqueAuthor( 0 );
+        Author      authorB     = getUniqueAuthor( 0 );
+        dbServer.insertAuthor( authorA );
+        dbServer.insertAuthor( authorB );
+        int         identA      = authorA.getIdent().getAsInt();
+        int         identB      = authorB.getIdent().getAsInt();
+        int         countA      = getCurrentCount( identA );
+        int         countB      = getCurrentCount( identB );
+
+        // only the author of an inserted title is evicted
+        Title       title       = getUniqueTitle( 0, authorA.getAuthor() );
+        dbServer.insertTitle( title );
+        assertNull( cache.getAuthor( identA ) );
+        assertTrue( cache.getAuthor( identB ) != null );
+        assertEquals( countA + 1, getCurrentCount( identA ) );
+
+        // an update that keeps the author evicts no author
+        title.setRank( title.getRank() + 1 );
+        dbServer.updateTitle( title );
+        assertTrue( cache.getAuthor( identA ) != null );
+        assertTrue( cache.getAuthor( identB ) != null );
+
+        // a change of author evicts the old author and the new
+        title.setAuthor( authorB.getAuthor() );
+        dbServer.updateTitle( title );
+        assertEquals( countA, getCurrentCount( identA ) );
+        assertEquals( countB + 1, getCurrentCount( identB ) );
+
+        dbServer.deleteTitle( title );
+        assertTrue( cache.getAuthor( identA ) != null );
+        assertNull( cache.getAuthor( identB ) );
+        assertEquals( countB, getCurrentCount( identB ) );
+
+        // the same holds for bulk deletes and upserts
+        List<Title> titles      =
+            Arrays.asList(
+                getUniqueTitle( 0, authorA.getAuthor() ),
+                getUniqueTitle( 0, authorA.getAuthor() )
+            );
+        dbServer.upsertTitles( titles );
+        assertNull( cache.getAuthor( identA ) );
+        assertTrue( cache.getAuthor( identB ) != null );
+        assertEquals( countA + 2, getCurrentCount( identA ) );
+        dbServer.deleteTitles( titles );
+        assertNull( cache.getAuthor( identA ) );
+        assertTrue( cache.getAuthor( identB ) != null );
+        assertEquals( countA, getCurrentCount( identA ) );
+    }
+
     @Test
     void testGetAllTitles()
     {
@@ -788,23 +1670,262 @@ class DBServerTest
     }
 
     @Test
-    void testGetTitlesForAuthor()
+    void testScanTitles()
     {
-        int                     authorCount     = 3;
-        int                     commentCount    = 5;
-        int                     titleCount      = 5;
-        List<Author>            allAuthors      = 
-            insertAuthors( authorCount, commentCount );
-        Map<String,List<Title>> authorMap       = new HashMap<>();
-        for ( Author author : allAuthors )
+        assertEquals( 0, dbServer.scanTitles().count() );
+
+        List<Title> expTitles   = insertTitles( 20, 2 );
+        expTitles.addAll( insertTitles( 20, 0 ) );
+        List<Title> actTitles   =
+            dbServer.scanTitles().collect( Collectors.toList() );
+        assertListsEqual( expTitles, actTitles );
+
+        // titles are delivered in row ID order
+        for ( int inx = 1 ; inx < actTitles.size() ; ++inx )
+            assertTrue(
+                actTitles.get( inx - 1 ).getIdent().getAsInt()
+                < actTitles.get( inx ).getIdent().getAsInt()
+            );
+    }
+
+    @Test
+    void testTitleScanSpliterator()
+    {
+        final int   chunkSize   = 4;
+
+        List<Title>             expTitles   = insertTitles( 30, 1 );
+        Map<Integer, String>    authorNames = new HashMap<>();
+        for ( Author author : dbServer.getAllAuthors() )
+            authorNames.put(
+                author.getIdent().getAsInt(),
+                author.getAuthor()
+            );
+        Map<Integer, String>    listNames   = new HashMap<>();
+        for ( KCLSList list : dbServer.getAllLists() )
+            listNames.put( list.getIdent().getAsInt(), list.getDialogTitle() );
+        int     fromIdent   = expTitles.get( 0 ).getIdent().getAsInt();
+        int     toIdent     =
+            expTitles.get( expTitles.size() - 1 ).getIdent().getAsInt();
+
+        try ( ConnectionPool pool = 
+                new ConnectionPool( TEST_DB_URL, "", "", 2 ) )
         {
-            String      authorName  = author.getAuthor();
-            List<Title> titles      = new ArrayList<>();
-            
-            for ( int inx = 0 ; inx < titleCount ; ++inx )
-            {
-                Title   title   = getUniqueTitle( 0 );
-                title.setAuthor( authorName );
+            TitleScanSpliterator    spliterator =
+                new TitleScanSpliterator(
+                    dbServer,
+                    pool,
+                    authorNames,
+                    listNames,
+                    fromIdent,
+                    toIdent,
+                    chunkSize
+                );
+            assertEquals( expTitles.size(), spliterator.estimateSize() );
+            Spliterator<Title>      prefix      = spliterator.trySplit();
+            assertEquals(
+                expTitles.size(),
+                prefix.estimateSize() + spliterator.estimateSize()
+            );
+            List<Title>             actTitles   = new ArrayList<>();
+            prefix.forEachRemaining( actTitles::add );
+            spliterator.forEachRemaining( actTitles::add );
+            assertListsEqual( expTitles, actTitles );
+            assertTrue( pool.getSize() <= pool.getMaxSize() );
+
+            // a range no larger than a chunk is not split
+            Spliterator<Title>      small       =
+                new TitleScanSpliterator(
+                    dbServer,
+                    pool,
+                    authorNames,
+                    listNames,
+                    fromIdent,
+                    fromIdent + chunkSize - 1,
+                    chunkSize
+                );
+            assertNull( small.trySplit() );
+
+            // the parallel stream sees every title exactly once
+            long    count   =
+                StreamSupport.stream(
+                    new TitleScanSpliterator(
+                        dbServer,
+                        pool,
+                        authorNames,
+                        listNames,
+                        fromIdent,
+                        toIdent,
+                        chunkSize
+                    ),
+                    true
+                ).map( t -> t.getIdent().getAsInt() ).distinct().count();
+            assertEquals( expTitles.size(), count );
+        }
+    }
+
+    @Test
+    void testAttributes()
+    {
+        LocalDate   date    = LocalDate.of( 2021, 3, 15 );
+        List<Title> titles  = insertTitles( 5, 1 );
+        Title       title   = titles.get( 0 );
+        title.setAttribute( "format", "ebook" );
+        title.setAttribute( "pages", 320 );
+        title.setAttribute( "acquired", date );
+        dbServer.updateTitle( title );
+
+        Title   other   = titles.get( 1 );
+        other.setAttribute( "format", "audio" );
+        other.setAttribute( "pages", 320 );
+        dbServer.updateAttributes( Arrays.asList( other ) );
+
+        // attributes are retrieved with the titles that own them
+        assertListsEqual( titles, dbServer.getTitlesForList( defTitleList ) );
+        assertListsEqual( titles, dbServer.getAllTitles() );
+        assertListsEqual(
+            titles,
+            dbServer.scanTitles().collect( Collectors.toList() )
+        );
+        Title   actTitle    =
+            dbServer.getTitle( title.getIdent().getAsInt() );
+        assertEquals( "ebook", actTitle.getStringAttribute( "format" ).get() );
+        assertEquals( 320, actTitle.getLongAttribute( "pages" ).getAsLong() );
+        assertEquals( date, actTitle.getDateAttribute( "acquired" ).get() );
+
+        // look-up by key and value, for each type of value
+        assertListsEqual(
+            Arrays.asList( title ),
+            dbServer.getTitlesByAttribute( "format", "ebook" )
+        );
+        assertListsEqual(
+            Arrays.asList( title, other ),
+            dbServer.getTitlesByAttribute( "pages", 320 )
+        );
+        assertListsEqual(
+            Arrays.asList( title ),
+            dbServer.getTitlesByAttribute( "acquired", date )
+        );
+        assertTrue( dbServer.getTitlesByAttribute( "format", "x" ).isEmpty() );
+        assertThrows( KCLSException.class, () ->
+            dbServer.getTitlesByAttribute( "format", 1.5 )
+        );
+
+        // updating a title replaces its attributes
+        title.removeAttribute( "pages" );
+        title.setAttribute( "format", "print" );
+        dbServer.updateTitle( title );
+        assertListsEqual(
+            Arrays.asList( other ),
+            dbServer.getTitlesByAttribute( "pages", 320 )
+        );
+        assertListsEqual(
+            Arrays.asList( title ),
+            dbServer.getTitlesByAttribute( "format", "print" )
+        );
+
+        // deleting a title deletes its attributes
+        dbServer.deleteTitle( other );
+        assertTrue( dbServer.getTitlesByAttribute( "pages", 320 ).isEmpty() );
+        String              sql         =
+            "SELECT * FROM " + ATTRIBUTES_TABLE_NAME
+            + " WHERE " + ITEM_ID_FIELD + " = "
+            + other.getIdent().getAsInt();
+        PreparedStatement   statement   =
+            dbServer.getPreparedStatement( sql, Statement.NO_GENERATED_KEYS );
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            assertFalse( rSet.next() );
+        }
+        catch ( SQLException exc )
+        {
+            fail( exc );
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+
+        // authors
+        Author  author  = getUniqueAuthor( 0 );
+        author.setAttribute( "born", date );
+        dbServer.insertAuthor( author );
+        assertEquals(
+            date,
+            dbServer.getAllAuthors().stream()
+                .filter( a -> a.equals( author ) )
+                .findFirst()
+                .get()
+                .getDateAttribute( "born" )
+                .get()
+        );
+    }
+
+    @Test
+    void testAttributesNotLoaded()
+    {
+        List<Title> titles  = insertTitles( 3, 0 );
+        Title       title   = titles.get( 0 );
+        OptionalInt ident   = title.getIdent();
+        title.setAttribute( "format", "ebook" );
+        dbServer.updateTitle( title );
+        
+        // published titles are not read with their attributes;
+        // updating one leaves its stored attributes unchanged
+        CollectingSubscriber<Title> subscriber  = 
+            new CollectingSubscriber<>( 10, Integer.MAX_VALUE );
+        dbServer.publishTitlesForList( defTitleList ).subscribe( subscriber );
+        Title   published   = subscriber.items.stream()
+            .filter( t -> t.getIdent().equals( ident ) )
+            .findFirst()
+            .get();
+        assertFalse( published.isAttributesLoaded() );
+        assertTrue( published.getAttributes().isEmpty() );
+        published.setRating( title.getRating() + 1 );
+        dbServer.updateTitle( published );
+        Title   actTitle    = dbServer.getTitle( ident.getAsInt() );
+        assertEquals( "ebook", actTitle.getStringAttribute( "format" ).get() );
+        assertThrows( 
+            KCLSException.class, 
+            () -> dbServer.updateAttributes( Arrays.asList( published ) )
+        );
+        
+        // authors with new titles are read with their attributes
+        Author  author  = getUniqueAuthor( 0 );
+        author.setAttribute( "born", 1950 );
+        dbServer.insertAuthor( author );
+        Title   newTitle    = getUniqueTitle( 0 );
+        newTitle.setAuthor( author.getAuthor() );
+        dbServer.insertTitle( newTitle );
+        Author  changed = dbServer.getAuthorsWithNewTitles().stream()
+            .filter( a -> a.getIdent().equals( author.getIdent() ) )
+            .findFirst()
+            .get();
+        assertEquals( 1950, changed.getLongAttribute( "born" ).getAsLong() );
+        changed.setLastCount( changed.getCurrentCount() );
+        dbServer.updateAuthor( changed );
+        Author  actAuthor   = 
+            dbServer.getAuthor( author.getIdent().getAsInt() );
+        assertEquals( 1950, actAuthor.getLongAttribute( "born" ).getAsLong() );
+    }
+
+    @Test
+    void testGetTitlesForAuthor()
+    {
+        int                     authorCount     = 3;
+        int                     commentCount    = 5;
+        int                     titleCount      = 5;
+        List<Author>            allAuthors      = 
+            insertAuthors( authorCount, commentCount );
+        Map<String,List<Title>> authorMap       = new HashMap<>();
+        for ( Author author : allAuthors )
+        {
+            String      authorName  = author.getAuthor();
+            List<Title> titles      = new ArrayList<>();
+            
+            for ( int inx = 0 ; inx < titleCount ; ++inx )
+            {
+                Title   title   = getUniqueTitle( 0 );
+                title.setAuthor( authorName );
                 dbServer.insertTitle( title );
                 titles.add( title );
             }
@@ -820,6 +1941,126 @@ class DBServerTest
         }
     }
 
+    @Test
+    void testAuthorCounts()
+    {
+        // the default author should not take part in the test
+        Author          defAuthor   = dbServer.getAuthor( 
+            dbServer.getAuthorIDForName( defAuthorName ) 
+        );
+        defAuthor.setLastCount( defAuthor.getCurrentCount() );
+        dbServer.updateAuthor( defAuthor );
+        
+        List<Author>    authors = insertAuthors( 2, 0 );
+        Author          authorA = authors.get( 0 );
+        Author          authorB = authors.get( 1 );
+        int             identA  = authorA.getIdent().getAsInt();
+        int             identB  = authorB.getIdent().getAsInt();
+        for ( Author author : authors )
+        {
+            assertEquals( 0, author.getCurrentCount() );
+            author.setLastCount( 0 );
+            dbServer.updateAuthor( author );
+        }
+        assertTrue( getChangedAuthorIDs().isEmpty() );
+        
+        List<Title>     titles  = new ArrayList<>();
+        for ( int inx = 0 ; inx < 2 ; ++inx )
+        {
+            Title   title   = getUniqueTitle( 0 );
+            title.setAuthor( authorA.getAuthor() );
+            dbServer.insertTitle( title );
+            titles.add( title );
+        }
+        assertEquals( 2, dbServer.getAuthor( identA ).getCurrentCount() );
+        assertEquals( Arrays.asList( identA ), getChangedAuthorIDs() );
+        
+        // stale in-memory count does not overwrite the database
+        dbServer.updateAuthor( authorA );
+        assertEquals( 2, authorA.getCurrentCount() );
+        
+        Title           title   = titles.get( 0 );
+        title.setAuthor( authorB.getAuthor() );
+        dbServer.updateTitle( title );
+        assertEquals( 1, dbServer.getAuthor( identA ).getCurrentCount() );
+        assertEquals( 1, dbServer.getAuthor( identB ).getCurrentCount() );
+        
+        dbServer.deleteTitle( title );
+        assertEquals( 0, dbServer.getAuthor( identB ).getCurrentCount() );
+        
+        String              sql         = 
+            "UPDATE AUTHORS SET current_count = 99";
+        PreparedStatement   statement   = 
+            dbServer.getPreparedStatement( sql, Statement.NO_GENERATED_KEYS );
+        try
+        {
+            statement.executeUpdate();
+        }
+        catch ( Exception exc )
+        {
+            fail( exc );
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+        
+        assertEquals( 3, dbServer.rebuildAuthorCounts() );
+        assertEquals( 1, dbServer.getAuthor( identA ).getCurrentCount() );
+        assertEquals( 0, dbServer.getAuthor( identB ).getCurrentCount() );
+    }
+
+    @Test
+    void testDiagnostics()
+    {
+        StatementDiagnostics    diagnostics = dbServer.getDiagnostics();
+        List<Title>             titles      = insertTitles( 3, 2 );
+        int                     ident       = 
+            titles.get( 0 ).getIdent().getAsInt();
+        assertFalse( diagnostics.isEnabled() );
+        dbServer.getTitlesForList( defTitleList );
+        assertTrue( diagnostics.getStatistics().isEmpty() );
+        
+        dbServer.setDiagnosticsEnabled( true );
+        assertTrue( diagnostics.isEnabled() );
+        for ( int inx = 0 ; inx < 2 ; ++inx )
+        {
+            assertListsEqual( 
+                titles,
+                dbServer.getTitlesForList( defTitleList ) 
+            );
+            dbServer.getEntityCache().clear();
+            assertEquals( titles.get( 0 ), dbServer.getTitle( ident ) );
+        }
+        
+        String                      report  = 
+            dbServer.getDiagnosticsReport();
+        List<StatementStatistics>   stats   = diagnostics.getStatistics();
+        assertFalse( stats.isEmpty() );
+        assertTrue( report.contains( TITLES_TABLE_NAME ) );
+        
+        // titles are queried by ID via the primary key
+        StatementStatistics byID    = stats.stream()
+            .filter( s -> s.getSQL().contains( "WHERE title_id = ?" ) )
+            .findFirst()
+            .get();
+        assertEquals( 2, byID.getExecutions() );
+        assertEquals( 2, byID.getRowsReturned() );
+        assertFalse( byID.isTableScanFallback() );
+        
+        // comments are queried by item ID via a table scan
+        List<StatementStatistics>   hot     = 
+            diagnostics.getHotTableScans( 2 );
+        assertTrue( 
+            hot.stream().anyMatch( s -> s.getSQL().contains( "COMMENTS" ) )
+        );
+        
+        dbServer.setDiagnosticsEnabled( false );
+        diagnostics.reset();
+        dbServer.getTitlesForList( defTitleList );
+        assertTrue( diagnostics.getStatistics().isEmpty() );
+    }
+
     @Test
     void testGetTitlesForList()
     {
@@ -881,6 +2122,96 @@ class DBServerTest
         DataManager.closeConnection();
     }
 
+    @Test
+    void testChangeListener()
+    {
+        List<DBChangeEvent> events      = new ArrayList<>();
+        DBChangeListener    listener    = events::add;
+        dbServer.addChangeListener( listener );
+        
+        Title   title   = getUniqueTitle( 2 );
+        dbServer.insertTitle( title );
+        int     ident   = title.getIdent().getAsInt();
+        title.setRank( title.getRank() + 1 );
+        dbServer.updateTitle( title );
+        dbServer.deleteTitle( title );
+        
+        DBChangeEvent.Action[]  expActions  =
+        {
+            DBChangeEvent.Action.INSERTED,
+            DBChangeEvent.Action.UPDATED,
+            DBChangeEvent.Action.DELETED
+        };
+        assertEquals( expActions.length, events.size() );
+        for ( int inx = 0 ; inx < expActions.length ; ++inx )
+        {
+            DBChangeEvent   event   = events.get( inx );
+            assertEquals( expActions[inx], event.getAction() );
+            assertEquals( DBChangeEvent.Entity.TITLE, event.getEntity() );
+            assertEquals( ident, event.getIdent() );
+            assertEquals( defTitleList, event.getListName() );
+        }
+        
+        // removed listener is no longer notified
+        dbServer.removeChangeListener( listener );
+        dbServer.insertTitle( getUniqueTitle( 0 ) );
+        assertEquals( expActions.length, events.size() );
+    }
+
+    @Test
+    void testChangeExecutor()
+    {
+        List<Runnable>      tasks   = new ArrayList<>();
+        List<DBChangeEvent> events  = new ArrayList<>();
+        dbServer.setChangeExecutor( tasks::add );
+        dbServer.addChangeListener( events::add );
+        
+        KCLSList    list    = new KCLSList( TITLE_TYPE, "Executor List" );
+        dbServer.insertList( list );
+        assertEquals( 1, tasks.size() );
+        assertTrue( events.isEmpty() );
+        
+        tasks.forEach( Runnable::run );
+        assertEquals( 1, events.size() );
+        DBChangeEvent   event   = events.get( 0 );
+        assertEquals( DBChangeEvent.Entity.LIST, event.getEntity() );
+        assertEquals( list.getIdent().getAsInt(), event.getIdent() );
+        
+        assertThrows( NullPointerException.class, () ->
+            dbServer.setChangeExecutor( null ) );
+    }
+
+    @Test
+    void testOpenSession()
+    {
+        Title               title   = insertTitles( 1, 0 ).get( 0 );
+        int                 ident   = title.getIdent().getAsInt();
+        List<DBChangeEvent> events  = new ArrayList<>();
+        dbServer.addChangeListener( events::add );
+        assertEquals( title, dbServer.getTitle( ident ) );
+
+        DBServer            session = dbServer.openSession();
+        try
+        {
+            Title   copy    = session.getTitle( ident );
+            copy.setRank( copy.getRank() + 1 );
+            session.updateTitle( copy );
+        }
+        finally
+        {
+            session.shutdown();
+        }
+
+        // the server sees the change, not a stale cached title,
+        // and the database is still running
+        Title               actual  = dbServer.getTitle( ident );
+        assertEquals( title.getRank() + 1, actual.getRank() );
+        assertEquals( 1, events.size() );
+        DBChangeEvent       event   = events.get( 0 );
+        assertEquals( DBChangeEvent.Action.UPDATED, event.getAction() );
+        assertEquals( ident, event.getIdent() );
+    }
+
     @Test
     void testDumpTable()
     {
@@ -904,6 +2235,843 @@ class DBServerTest
             assertContainsListName( list, lines );
     }
     
+    @Test
+    void testPublishTitlesForList()
+    {
+        List<Title>                 expTitles   = insertTitles( 10, 2 );
+        CursorPublisher<Title>      publisher   = 
+            dbServer.publishTitlesForList( defTitleList );
+        CollectingSubscriber<Title> subscriber  = 
+            new CollectingSubscriber<>( 3, Integer.MAX_VALUE );
+        publisher.subscribe( subscriber, 4 );
+        
+        assertTrue( subscriber.completed );
+        assertNull( subscriber.error );
+        assertEquals( 0, publisher.getOpenCount() );
+        assertEquals( expTitles.size(), subscriber.items.size() );
+        for ( Title title : subscriber.items )
+        {
+            assertEquals( defTitleList, title.getListName() );
+            assertEquals( 2, title.getComments().size() );
+        }
+        
+        // each subscriber gets its own cursor
+        CollectingSubscriber<Title> second      = 
+            new CollectingSubscriber<>( 1, Integer.MAX_VALUE );
+        publisher.subscribe( second );
+        assertEquals( expTitles.size(), second.items.size() );
+        
+        CollectingSubscriber<Title> none        = 
+            new CollectingSubscriber<>( 1, Integer.MAX_VALUE );
+        dbServer.publishTitlesForList( "no such list" ).subscribe( none );
+        assertTrue( none.completed );
+        assertTrue( none.items.isEmpty() );
+    }
+    
+    @Test
+    void testPublishCancel()
+    {
+        insertTitles( 10, 0 );
+        CursorPublisher<Title>      publisher   = dbServer.publishAllTitles();
+        CollectingSubscriber<Title> subscriber  = 
+            new CollectingSubscriber<>( 2, 5 );
+        publisher.subscribe( subscriber );
+        
+        assertEquals( 5, subscriber.items.size() );
+        assertFalse( subscriber.completed );
+        assertNull( subscriber.error );
+        assertEquals( 0, publisher.getOpenCount() );
+        
+        // a subscription that is cancelled before its first request
+        // never opens a cursor
+        CollectingSubscriber<Title> idle        = 
+            new CollectingSubscriber<>( 0, 0 );
+        publisher.subscribe( idle );
+        idle.subscription.cancel();
+        idle.subscription.request( 1 );
+        assertTrue( idle.items.isEmpty() );
+        assertEquals( 0, publisher.getOpenCount() );
+        
+        // a partially consumed cursor is held open until cancelled
+        CollectingSubscriber<Title> paused      = 
+            new CollectingSubscriber<>( 0, Integer.MAX_VALUE );
+        publisher.subscribe( paused );
+        paused.subscription.request( 1 );
+        assertEquals( 1, paused.items.size() );
+        assertEquals( 1, publisher.getOpenCount() );
+        paused.subscription.cancel();
+        assertEquals( 0, publisher.getOpenCount() );
+    }
+    
+    @Test
+    void testPublishBadRequest()
+    {
+        insertTitles( 2, 0 );
+        CollectingSubscriber<Title> subscriber  = 
+            new CollectingSubscriber<>( 0, Integer.MAX_VALUE );
+        dbServer.publishAllTitles().subscribe( subscriber );
+        subscriber.subscription.request( 0 );
+        assertTrue( subscriber.error instanceof IllegalArgumentException );
+        assertFalse( subscriber.completed );
+        
+        Class<IllegalArgumentException> excClass    = 
+            IllegalArgumentException.class;
+        assertThrows( excClass, () -> 
+            dbServer.publishAllTitles().subscribe( subscriber, 0 )
+        );
+    }
+    
+    @Test
+    void testPublishAuthorsAndComments()
+    {
+        insertAuthors( 4, 1 );
+        insertAuthors( 3, 0, allAuthorLists[1] );
+        
+        CollectingSubscriber<Author>    all     = 
+            new CollectingSubscriber<>( 2, Integer.MAX_VALUE );
+        dbServer.publishAllAuthors().subscribe( all );
+        assertTrue( all.completed );
+        assertEquals( dbServer.getAllAuthors().size(), all.items.size() );
+        
+        CollectingSubscriber<Author>    forList = 
+            new CollectingSubscriber<>( 2, Integer.MAX_VALUE );
+        String                          listName    = allAuthorLists[1];
+        dbServer.publishAuthorsForList( listName ).subscribe( forList );
+        assertTrue( forList.completed );
+        assertEquals( 3, forList.items.size() );
+        
+        CollectingSubscriber<Comment>   comments    = 
+            new CollectingSubscriber<>( 1, Integer.MAX_VALUE );
+        dbServer.publishAllComments().subscribe( comments );
+        assertTrue( comments.completed );
+        assertEquals( 
+            dbServer.getAllComments().size(), 
+            comments.items.size()
+        );
+    }
+    
+    @Test
+    void testTranslateSQLException()
+    {
+        String  message = "test";
+        assertTrue( 
+            dbServer.translateSQLException( 
+                message, new SQLException( message, "40XL1" )
+            ) instanceof LockTimeoutException
+        );
+        assertTrue( 
+            dbServer.translateSQLException( 
+                message, new SQLException( message, "40001" )
+            ) instanceof DeadlockException
+        );
+        KCLSException   exc = 
+            dbServer.translateSQLException( 
+                message, new SQLException( message, "23505" )
+            );
+        assertEquals( KCLSException.class, exc.getClass() );
+    }
+    
+    @Test
+    void testLockWatchdog() throws Exception
+    {
+        Title           title       = insertTitles( 1, 0 ).get( 0 );
+        int             ident       = title.getIdent().getAsInt();
+        LockWatchdog    watchdog    = dbServer.getLockWatchdog();
+        String          lockSQL     =
+            "UPDATE " + TITLES_TABLE_NAME 
+            + " SET " + RANK_FIELD + " = " + RANK_FIELD
+            + " WHERE " + TITLES_ID_FIELD + " = ?";
+        try ( Connection conn = DriverManager.getConnection( TEST_DB_URL ) )
+        {
+            // hold an exclusive lock on the title's row
+            conn.setAutoCommit( false );
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( lockSQL ) )
+            {
+                statement.setInt( 1, ident );
+                statement.executeUpdate();
+            }
+            
+            dbServer.startLockWatchdog( 200, 50 );
+            title.setRank( 5 );
+            CompletableFuture<Void> update  =
+                CompletableFuture.runAsync( () -> 
+                    dbServer.updateTitle( title ) 
+                );
+            try
+            {
+                verifyWaiting( watchdog, update );
+            }
+            finally
+            {
+                // the update proceeds once the lock is released
+                conn.rollback();
+            }
+            update.get( 10, TimeUnit.SECONDS );
+        }
+        finally
+        {
+            dbServer.stopLockWatchdog();
+        }
+        assertFalse( watchdog.isRunning() );
+        assertEquals( 5, dbServer.getTitle( ident ).getRank() );
+    }
+    
+    /**
+     * Waits for a given watchdog to capture a snapshot of the lock tables
+     * while a given update is waiting for a lock on a row of the
+     * TITLES table, then verifies the snapshot.
+     * 
+     * @param watchdog  the given watchdog
+     * @param update    the given update
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void 
+    verifyWaiting( LockWatchdog watchdog, CompletableFuture<Void> update )
+        throws InterruptedException
+    {
+        LockSnapshot    snapshot    = null;
+        long            deadline    = System.currentTimeMillis() + 5000;
+        while ( snapshot == null && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 50 );
+            snapshot = 
+                watchdog.getLastSnapshot()
+                    .filter( s -> !s.getWaiting().isEmpty() )
+                    .orElse( null );
+        }
+        assertTrue( snapshot != null );
+        LockSnapshot.Lock   waiting     = snapshot.getWaiting().get( 0 );
+        assertTrue( 
+            waiting.getTableName().equalsIgnoreCase( TITLES_TABLE_NAME )
+        );
+        List<LockSnapshot.Lock> blockers    = 
+            snapshot.getBlockers( waiting );
+        assertFalse( blockers.isEmpty() );
+        assertEquals( "X", blockers.get( 0 ).getMode() );
+        String  waitingSQL  = snapshot.getSQLText( waiting.getXID() );
+        assertTrue( waitingSQL.startsWith( "UPDATE" ) );
+        assertFalse( update.isDone() );
+    }
+    
+    @Test
+    void testLockTimeout() throws Exception
+    {
+        Title           title       = insertTitles( 1, 0 ).get( 0 );
+        int             ident       = title.getIdent().getAsInt();
+        String          lockSQL     =
+            "UPDATE " + TITLES_TABLE_NAME 
+            + " SET " + RANK_FIELD + " = " + RANK_FIELD
+            + " WHERE " + TITLES_ID_FIELD + " = ?";
+        String          timeoutSQL  =
+            "CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY( "
+            + "'derby.locks.waitTimeout', ? )";
+        int             version     = title.getVersion();
+        RetryStatistics stats       = dbServer.getRetryStatistics();
+        dbServer.setRetryPolicy( new RetryPolicy( 2, 1, 1 ) );
+        stats.reset();
+        try ( Connection conn = DriverManager.getConnection( TEST_DB_URL ) )
+        {
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( timeoutSQL ) )
+            {
+                statement.setString( 1, "1" );
+                statement.execute();
+            }
+            conn.setAutoCommit( false );
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( lockSQL ) )
+            {
+                statement.setInt( 1, ident );
+                statement.executeUpdate();
+                Class<LockTimeoutException> excClass    = 
+                    LockTimeoutException.class;
+                assertThrows( excClass, () -> dbServer.updateTitle( title ) );
+            }
+            finally
+            {
+                conn.rollback();
+                conn.setAutoCommit( true );
+                try ( PreparedStatement statement = 
+                        conn.prepareStatement( timeoutSQL ) )
+                {
+                    statement.setString( 1, null );
+                    statement.execute();
+                }
+                dbServer.setRetryPolicy( RetryPolicy.DEFAULT );
+            }
+        }
+        assertTrue( dbServer.getLockWatchdog().getLastSnapshot().isPresent() );
+        assertEquals( 1, stats.getRetries() );
+        assertEquals( 1, stats.getExhausted() );
+        assertEquals( 0, stats.getRecovered() );
+        assertEquals( version, title.getVersion() );
+    }
+    
+    @Test
+    void testRetryRecovers() throws Exception
+    {
+        Title           title       = insertTitles( 1, 0 ).get( 0 );
+        int             ident       = title.getIdent().getAsInt();
+        int             version     = title.getVersion();
+        String          lockSQL     =
+            "UPDATE " + TITLES_TABLE_NAME 
+            + " SET " + RANK_FIELD + " = " + RANK_FIELD
+            + " WHERE " + TITLES_ID_FIELD + " = ?";
+        String          timeoutSQL  =
+            "CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY( "
+            + "'derby.locks.waitTimeout', ? )";
+        RetryStatistics stats       = dbServer.getRetryStatistics();
+        dbServer.setRetryPolicy( new RetryPolicy( 5, 100, 1000 ) );
+        stats.reset();
+        
+        // new comment must be inserted once, however many attempts
+        title.addComment( getUniqueComment( TITLE_TYPE ) );
+        try ( Connection conn = DriverManager.getConnection( TEST_DB_URL ) )
+        {
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( timeoutSQL ) )
+            {
+                statement.setString( 1, "1" );
+                statement.execute();
+            }
+            conn.setAutoCommit( false );
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( lockSQL ) )
+            {
+                statement.setInt( 1, ident );
+                statement.executeUpdate();
+                CompletableFuture<Void> release = 
+                    CompletableFuture.runAsync( () -> {
+                        TestUtils.pause( 1500 );
+                        try
+                        {
+                            conn.rollback();
+                        }
+                        catch ( SQLException exc )
+                        {
+                            throw new KCLSException( "release", exc );
+                        }
+                    });
+                dbServer.updateTitle( title );
+                release.get( 10, TimeUnit.SECONDS );
+            }
+            finally
+            {
+                conn.rollback();
+                conn.setAutoCommit( true );
+                try ( PreparedStatement statement = 
+                        conn.prepareStatement( timeoutSQL ) )
+                {
+                    statement.setString( 1, null );
+                    statement.execute();
+                }
+                dbServer.setRetryPolicy( RetryPolicy.DEFAULT );
+            }
+        }
+        assertTrue( stats.getRetries() > 0 );
+        assertEquals( 1, stats.getRecovered() );
+        assertEquals( 0, stats.getExhausted() );
+        assertEquals( version + 1, title.getVersion() );
+        
+        Title           dbTitle     = dbServer.getTitle( ident );
+        assertEquals( title.getVersion(), dbTitle.getVersion() );
+        assertEquals( 1, dbTitle.getNumComments() );
+        assertEquals( title, dbTitle );
+    }
+    
+    @Test
+    void testReorder()
+    {
+        String          listName    = allTitleLists[1];
+        insertTitles( 6, 0, listName );
+        List<Integer>   order       = 
+            getRankOrder( dbServer.getTitlesForList( listName ) );
+        
+        // move the last title to the top
+        order.add( 0, order.remove( order.size() - 1 ) );
+        dbServer.reorder( listName, order );
+        List<Title>     titles      = dbServer.getTitlesForList( listName );
+        assertEquals( order, getRankOrder( titles ) );
+        
+        // after renormalization a single move changes a single rank
+        RankPlan        plan        = dbServer.renormalizeRanks( listName );
+        assertTrue( plan.isRenormalized() );
+        titles = dbServer.getTitlesForList( listName );
+        assertEquals( order, getRankOrder( titles ) );
+        for ( Title title : titles )
+            assertEquals( 0, title.getRank() % RankPlan.RANK_GAP );
+        
+        int             moved       = order.remove( 1 );
+        Title           stale       = dbServer.getTitle( moved );
+        order.add( 4, moved );
+        plan = dbServer.reorder( listName, order );
+        assertFalse( plan.isRenormalized() );
+        assertEquals( 1, plan.getChanges().size() );
+        assertTrue( plan.getChanges().containsKey( moved ) );
+        assertEquals( 
+            order, 
+            getRankOrder( dbServer.getTitlesForList( listName ) )
+        );
+        
+        // reordered rows have new versions
+        Title           dbMoved     = dbServer.getTitle( moved );
+        assertEquals( 
+            (int)plan.getChanges().get( moved ), 
+            dbMoved.getRank() 
+        );
+        assertEquals( stale.getVersion() + 1, dbMoved.getVersion() );
+        assertThrows( 
+            ConcurrentUpdateException.class,
+            () -> dbServer.updateTitle( stale )
+        );
+        
+        // no change
+        plan = dbServer.reorder( listName, order );
+        assertTrue( plan.getChanges().isEmpty() );
+        
+        // authors
+        insertAuthors( 4, 0, defAuthorList );
+        List<Integer>   authorOrder = 
+            getRankOrder( dbServer.getAuthorsForList( defAuthorList ) );
+        Collections.reverse( authorOrder );
+        dbServer.reorder( defAuthorList, authorOrder );
+        assertEquals(
+            authorOrder,
+            getRankOrder( dbServer.getAuthorsForList( defAuthorList ) )
+        );
+        
+        List<Integer>   partial     = order.subList( 1, order.size() );
+        assertThrows( 
+            KCLSException.class,
+            () -> dbServer.reorder( listName, partial )
+        );
+        assertEquals( 
+            order, 
+            getRankOrder( dbServer.getTitlesForList( listName ) )
+        );
+        assertThrows( 
+            KCLSException.class,
+            () -> dbServer.reorder( "no such list", order )
+        );
+    }
+    
+    @Test
+    void testListResultCache()
+    {
+        ListResultCache cache       = dbServer.getListResultCache();
+        String          otherList   = allTitleLists[1];
+        List<Title>     titles      = insertTitles( 3, 1 );
+        insertTitles( 2, 1, otherList );
+        List<Title>     first       = dbServer.getTitlesForList( defTitleList );
+        dbServer.getTitlesForList( otherList );
+        
+        // unchanged list doesn't touch the database
+        long            hits        = cache.getHits();
+        long            activity    = 
+            dbServer.getDiagnostics().getLastActivityTime();
+        TestUtils.pause( 5 );
+        List<Title>     second      = dbServer.getTitlesForList( defTitleList );
+        assertEquals( hits + 1, cache.getHits() );
+        assertEquals( 
+            activity, 
+            dbServer.getDiagnostics().getLastActivityTime()
+        );
+        assertListsEqual( first, second );
+        
+        // results are defensive copies
+        second.get( 0 ).setTitle( "not in the database" );
+        second.clear();
+        assertListsEqual( first, dbServer.getTitlesForList( defTitleList ) );
+        
+        // moving a title out of the list invalidates it
+        Title           moved       = titles.get( 0 );
+        moved.setListName( otherList );
+        dbServer.updateTitle( moved );
+        List<Title>     expected    = new ArrayList<>( titles );
+        expected.remove( moved );
+        hits = cache.getHits();
+        assertListsEqual( expected, dbServer.getTitlesForList( defTitleList ) );
+        assertEquals( 3, dbServer.getTitlesForList( otherList ).size() );
+        assertEquals( hits, cache.getHits() );
+        
+        // a title mutation invalidates author lists (counts change)
+        dbServer.getAuthorsForList( defAuthorList );
+        hits = cache.getHits();
+        dbServer.getAuthorsForList( defAuthorList );
+        assertEquals( hits + 1, cache.getHits() );
+        dbServer.deleteTitle( titles.get( 1 ) );
+        dbServer.getAuthorsForList( defAuthorList );
+        assertEquals( hits + 1, cache.getHits() );
+    }
+    
+    @Test
+    void testGetShutdownURL()
+    {
+        assertEquals( 
+            "jdbc:derby:a/b;shutdown=true", 
+            DBServer.getShutdownURL( "jdbc:derby:a/b" )
+        );
+        assertEquals( 
+            "jdbc:derby:a/b;shutdown=true", 
+            DBServer.getShutdownURL( "jdbc:derby:a/b;create=true" )
+        );
+    }
+    
+    @Test
+    void testCheckpoint()
+    {
+        assertTrue( dbServer.isShutdownDatabase() );
+        insertTitles( 2, 1 );
+        dbServer.checkpoint();
+        dbServer.setShutdownDatabase( false );
+        assertFalse( dbServer.isShutdownDatabase() );
+    }
+    
+    @Test
+    void testRetryPolicy()
+    {
+        RetryPolicy     policy  = new RetryPolicy( 3, 10, 25 );
+        assertEquals( 10, policy.getNominalDelayMillis( 1 ) );
+        assertEquals( 20, policy.getNominalDelayMillis( 2 ) );
+        assertEquals( 25, policy.getNominalDelayMillis( 3 ) );
+        for ( int inx = 0 ; inx < 20 ; ++inx )
+        {
+            long    delay   = policy.getDelayMillis( 2 );
+            assertTrue( delay >= 10 && delay <= 20 );
+        }
+        
+        SQLException    timeout = new SQLException( "timeout", "40XL1" );
+        SQLException    other   = new SQLException( "other", "23505" );
+        assertTrue( RetryPolicy.isRetryable( timeout ) );
+        assertTrue( RetryPolicy.isRetryable( new SQLException( "", "40001" ) ) );
+        assertTrue( 
+            RetryPolicy.isRetryable( new KCLSException( "wrap", timeout ) )
+        );
+        assertTrue( 
+            RetryPolicy.isRetryable( new DeadlockException( "dead", null ) )
+        );
+        assertFalse( RetryPolicy.isRetryable( other ) );
+        assertFalse( RetryPolicy.isRetryable( null ) );
+        assertTrue( policy.shouldRetry( 2, timeout ) );
+        assertFalse( policy.shouldRetry( 3, timeout ) );
+        assertFalse( policy.shouldRetry( 1, other ) );
+        assertThrows( 
+            IllegalArgumentException.class, 
+            () -> new RetryPolicy( 0, 1, 1 )
+        );
+    }
+    
+    @Test
+    void testSnapshot()
+    {
+        List<Title>     titles      = insertTitles( 3, 1 );
+        long            stamp       = dbServer.getStateStamp();
+        ListSnapshot    snapshot    = dbServer.createSnapshot();
+        assertEquals( stamp, snapshot.getStateStamp() );
+        assertTrue( dbServer.isSnapshotCurrent( snapshot ) );
+        
+        String          listName    = titles.get( 0 ).getListName();
+        List<String>    expNames    = 
+            titles.stream()
+                .map( Title::getTitle )
+                .collect( Collectors.toList() );
+        List<String>    actNames    = 
+            snapshot.getTitles( listName ).stream()
+                .map( Title::getTitle )
+                .collect( Collectors.toList() );
+        assertTrue( actNames.containsAll( expNames ) );
+        
+        // any change invalidates the snapshot
+        dbServer.deleteTitle( titles.get( 0 ) );
+        assertNotEquals( stamp, dbServer.getStateStamp() );
+        assertFalse( dbServer.isSnapshotCurrent( snapshot ) );
+        
+        // write, then read without the database
+        dbServer.writeSnapshot();
+        Optional<ListSnapshot>  fromFile    = 
+            DBServer.readSnapshot( TEST_DB_URL );
+        assertTrue( fromFile.isPresent() );
+        assertTrue( dbServer.isSnapshotCurrent( fromFile.get() ) );
+        assertEquals( 
+            snapshot.getTitles( listName ).size() - 1, 
+            fromFile.get().getTitles( listName ).size()
+        );
+    }
+    
+    @Test
+    void testStateStamp()
+    {
+        List<Title>     titles      = insertTitles( 3, 0 );
+        Author          author      = insertAuthors( 1, 0 ).get( 0 );
+        int             authorID    = author.getIdent().getAsInt();
+        String          idents      = 
+            titles.stream()
+                .map( t -> String.valueOf( t.getIdent().getAsInt() ) )
+                .collect( Collectors.joining( ", " ) );
+        long            stamp       = dbServer.getStateStamp();
+        assertEquals( stamp, dbServer.getStateStamp() );
+        
+        // changes made outside the DBServer are detected
+        executeSQL( 
+            "DELETE FROM " + TITLES_TABLE_NAME
+            + " WHERE " + TITLES_ID_FIELD + " IN ( " + idents + " )"
+        );
+        assertNotEquals( stamp, dbServer.getStateStamp() );
+        
+        // so are changes to a current count alone,
+        // and repairing the count restores the stamp
+        stamp = dbServer.getStateStamp();
+        executeSQL(
+            "UPDATE " + AUTHORS_TABLE_NAME
+            + " SET " + CURRENT_COUNT_FIELD + " = " 
+            + CURRENT_COUNT_FIELD + " + 5"
+            + " WHERE " + AUTHORS_ID_FIELD + " = " + authorID
+        );
+        assertNotEquals( stamp, dbServer.getStateStamp() );
+        dbServer.rebuildAuthorCounts();
+        assertEquals( stamp, dbServer.getStateStamp() );
+        
+        author.setRank( author.getRank() + 1 );
+        dbServer.updateAuthor( author );
+        assertNotEquals( stamp, dbServer.getStateStamp() );
+        
+        stamp = dbServer.getStateStamp();
+        executeSQL(
+            "UPDATE " + LISTS_TABLE_NAME
+            + " SET " + LABEL_FIELD + " = " + LABEL_FIELD + " || 'x'"
+        );
+        assertNotEquals( stamp, dbServer.getStateStamp() );
+    }
+    
+    @Test
+    void testWritersDoNotBlock() throws Exception
+    {
+        Title           locked      = insertTitles( 1, 0 ).get( 0 );
+        Title           title       = insertTitles( 1, 0 ).get( 0 );
+        String          lockSQL     =
+            "UPDATE " + TITLES_TABLE_NAME 
+            + " SET " + RANK_FIELD + " = " + RANK_FIELD
+            + " WHERE " + TITLES_ID_FIELD + " = ?";
+        String          timeoutSQL  =
+            "CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY( "
+            + "'derby.locks.waitTimeout', ? )";
+        dbServer.setRetryPolicy( new RetryPolicy( 1, 1, 1 ) );
+        try ( Connection conn = DriverManager.getConnection( TEST_DB_URL ) )
+        {
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( timeoutSQL ) )
+            {
+                statement.setString( 1, "1" );
+                statement.execute();
+            }
+            conn.setAutoCommit( false );
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( lockSQL ) )
+            {
+                // an open transaction that changed one title
+                // must not block a change to another
+                statement.setInt( 1, locked.getIdent().getAsInt() );
+                statement.executeUpdate();
+                title.setRank( title.getRank() + 1 );
+                dbServer.updateTitle( title );
+            }
+            finally
+            {
+                conn.rollback();
+                conn.setAutoCommit( true );
+                try ( PreparedStatement statement = 
+                        conn.prepareStatement( timeoutSQL ) )
+                {
+                    statement.setString( 1, null );
+                    statement.execute();
+                }
+                dbServer.setRetryPolicy( RetryPolicy.DEFAULT );
+            }
+        }
+        assertEquals( 
+            title.getRank(), 
+            dbServer.getTitle( title.getIdent().getAsInt() ).getRank()
+        );
+    }
+    
+    @Test
+    void testTransactionsAreConfined() throws Exception
+    {
+        Title           locked      = insertTitles( 1, 0 ).get( 0 );
+        Title           title       = insertTitles( 1, 0 ).get( 0 );
+        String          lockSQL     =
+            "UPDATE " + TITLES_TABLE_NAME 
+            + " SET " + RANK_FIELD + " = " + RANK_FIELD
+            + " WHERE " + TITLES_ID_FIELD + " = ?";
+        String          timeoutSQL  =
+            "CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY( "
+            + "'derby.locks.waitTimeout', ? )";
+        dbServer.setRetryPolicy( new RetryPolicy( 1, 1, 1 ) );
+        try ( Connection conn = DriverManager.getConnection( TEST_DB_URL ) )
+        {
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( timeoutSQL ) )
+            {
+                statement.setString( 1, "1" );
+                statement.execute();
+            }
+            conn.setAutoCommit( false );
+            try ( PreparedStatement statement = 
+                    conn.prepareStatement( lockSQL ) )
+            {
+                statement.setInt( 1, locked.getIdent().getAsInt() );
+                statement.executeUpdate();
+                
+                // a transaction on another thread times out
+                // and is rolled back...
+                CompletableFuture<Void> other   =
+                    CompletableFuture.runAsync( 
+                        () -> dbServer.updateTitle( locked ) 
+                    );
+                TestUtils.pause( 300 );
+                
+                // ...which must not roll back this thread's change
+                title.setRank( title.getRank() + 1 );
+                dbServer.updateTitle( title );
+                ExecutionException  exc = 
+                    assertThrows( 
+                        ExecutionException.class,
+                        () -> other.get( 10, TimeUnit.SECONDS )
+                    );
+                assertTrue( exc.getCause() instanceof LockTimeoutException );
+            }
+            finally
+            {
+                conn.rollback();
+                conn.setAutoCommit( true );
+                try ( PreparedStatement statement = 
+                        conn.prepareStatement( timeoutSQL ) )
+                {
+                    statement.setString( 1, null );
+                    statement.execute();
+                }
+                dbServer.setRetryPolicy( RetryPolicy.DEFAULT );
+            }
+        }
+        assertEquals( 
+            title.getRank(), 
+            dbServer.getTitle( title.getIdent().getAsInt() ).getRank()
+        );
+    }
+    
+    @Test
+    void testGetSnapshotPath()
+    {
+        String  suffix  = DBConstants.SNAPSHOT_SUFFIX;
+        assertEquals( 
+            Optional.of( Paths.get( "a/kclsDB" + suffix ) ),
+            DBServer.getSnapshotPath( "jdbc:derby:a/kclsDB;create=true" )
+        );
+        assertEquals( 
+            Optional.of( Paths.get( "a/kclsDB" + suffix ) ),
+            DBServer.getSnapshotPath( "jdbc:derby:directory:a/kclsDB" )
+        );
+        assertFalse( 
+            DBServer.getSnapshotPath( "jdbc:derby:memory:kclsDB" ).isPresent()
+        );
+        assertFalse( 
+            DBServer.getSnapshotPath( "jdbc:other:kclsDB" ).isPresent()
+        );
+        assertFalse( 
+            DBServer.readSnapshot( "jdbc:derby:memory:x" ).isPresent()
+        );
+    }
+    
+    @Test
+    void testRunMaintenance()
+    {
+        // create some free space to reclaim
+        List<Title>             titles      = insertTitles( 50, 3 );
+        dbServer.deleteTitles( titles );
+        
+        MaintenanceScheduler    scheduler   = 
+            dbServer.getMaintenanceScheduler();
+        List<MaintenanceResult> results     = dbServer.runMaintenance();
+        assertEquals( scheduler.getTables().size(), results.size() );
+        assertEquals( results, scheduler.getLastResults() );
+        for ( MaintenanceResult result : results )
+        {
+            String  tableName   = result.getTableName();
+            assertTrue( scheduler.getTables().contains( tableName ) );
+            assertTrue( result.getBytesBefore() > 0 );
+            assertTrue( result.getBytesReclaimed() >= 0 );
+        }
+        
+        scheduler.setFullCompress( true );
+        assertTrue( scheduler.isFullCompress() );
+        scheduler.setTables( Arrays.asList( TITLES_TABLE_NAME ) );
+        results = dbServer.runMaintenance();
+        assertEquals( 1, results.size() );
+        scheduler.setTables( MaintenanceScheduler.DEF_TABLES );
+        scheduler.setFullCompress( false );
+    }
+    
+    @Test
+    void testStartMaintenance() throws InterruptedException
+    {
+        MaintenanceScheduler    scheduler   = 
+            dbServer.getMaintenanceScheduler();
+        
+        // never idle long enough
+        dbServer.startMaintenance( 10, TimeUnit.MILLISECONDS, 60000 );
+        assertTrue( scheduler.isScheduled() );
+        Thread.sleep( 200 );
+        assertTrue( scheduler.getLastResults().isEmpty() );
+        
+        // unconditional
+        dbServer.startMaintenance( 10, TimeUnit.MILLISECONDS, 0 );
+        long    timeout = System.currentTimeMillis() + 30000;
+        while ( scheduler.getLastResults().isEmpty() 
+                && System.currentTimeMillis() < timeout )
+            Thread.sleep( 10 );
+        assertFalse( scheduler.getLastResults().isEmpty() );
+        dbServer.stopMaintenance();
+        assertFalse( scheduler.isScheduled() );
+    }
+    
+    @Test
+    public void testLazyPreparedStatement() throws SQLException
+    {
+        StatementDiagnostics    diagnostics = dbServer.getDiagnostics();
+        String                  sql         = 
+            "SELECT * from " + LISTS_TABLE_NAME;
+        int                     noGenKeys   = Statement.NO_GENERATED_KEYS;
+        
+        // statement isn't prepared until first use
+        int                 prepared    = diagnostics.getLazyPreparedCount();
+        PreparedStatement   statement   = 
+            dbServer.getLazyPreparedStatement( sql, noGenKeys );
+        assertEquals( prepared, diagnostics.getLazyPreparedCount() );
+        try ( ResultSet rSet = statement.executeQuery() )
+        {
+            assertTrue( rSet.next() );
+        }
+        assertEquals( prepared + 1, diagnostics.getLazyPreparedCount() );
+        dbServer.surrenderPreparedStatement( statement );
+        
+        // invalid SQL isn't detected until first use
+        PreparedStatement   invalid     = 
+            dbServer.getLazyPreparedStatement( "invalid sql", noGenKeys );
+        assertThrows( SQLException.class, () -> invalid.executeQuery() );
+        dbServer.surrenderPreparedStatement( invalid );
+        
+        // statement closed before use is never prepared
+        prepared = diagnostics.getLazyPreparedCount();
+        PreparedStatement   unused      = 
+            dbServer.getLazyPreparedStatement( sql, noGenKeys );
+        dbServer.surrenderPreparedStatement( unused );
+        assertTrue( unused.isClosed() );
+        assertThrows( SQLException.class, () -> unused.executeQuery() );
+        assertEquals( prepared, diagnostics.getLazyPreparedCount() );
+    }
+    
     /**
      * Exercise paths that throw exceptions
      */
@@ -1014,6 +3182,22 @@ class DBServerTest
      * 
      * @see kcls_manager.main.Utils#equals(Collection,Collection)
      */
+    /**
+     * Gets the row IDs of all authors 
+     * whose current count differs from their last count.
+     * 
+     * @return  the row IDs of all authors 
+     *          whose current count differs from their last count
+     */
+    private List<Integer> getChangedAuthorIDs()
+    {
+        List<Integer>   idents  = dbServer.getAuthorsWithNewTitles()
+            .stream()
+            .map( a -> a.getIdent().getAsInt() )
+            .collect( Collectors.toList() );
+        return idents;
+    }
+    
     private void assertCollectionsEqual( 
         Collection<Comment> expColl,
         Collection<Comment> actColl 
@@ -1028,6 +3212,43 @@ class DBServerTest
         }
     }
     
+    /**
+     * Executes a given SQL update directly,
+     * bypassing the DBServer's caches.
+     * 
+     * @param sql   the given SQL update
+     */
+    private void executeSQL( String sql )
+    {
+        PreparedStatement   statement   = 
+            dbServer.getPreparedStatement( sql, Statement.NO_GENERATED_KEYS );
+        try
+        {
+            statement.executeUpdate();
+        }
+        catch ( Exception exc )
+        {
+            fail( exc );
+        }
+        finally
+        {
+            dbServer.surrenderPreparedStatement( statement );
+        }
+    }
+    
+    /**
+     * Gets the current count of the author with a given row ID,
+     * via the DBServer.
+     * 
+     * @param ident the given row ID
+     * 
+     * @return the current count of the author with the given row ID
+     */
+    private int getCurrentCount( int ident )
+    {
+        return dbServer.getAuthor( ident ).getCurrentCount();
+    }
+    
     private Author getUniqueAuthor( int numComments )
     {
         Author  author  = authorFactory.getUniqueAuthor( numComments );
@@ -1066,17 +3287,53 @@ class DBServerTest
      * @return  a list of titles added to the Titles table
      */
     private List<Title> insertTitles( int titleCount, int commentCount )
+    {
+        return insertTitles( titleCount, commentCount, defTitleList );
+    }
+    
+    /**
+     * Create a list of titles in a given list, 
+     * adding each title to the Titles table, and return the list.
+     * 
+     * @param titleCount    the number of titles to create and insert
+     * @param commentCount  the number of comments generated for each title
+     * @param listName      the name of the list to add the titles to
+     * @return  a list of titles added to the Titles table
+     */
+    private List<Title> 
+    insertTitles( int titleCount, int commentCount, String listName )
     {
         List<Title> titles  = new ArrayList<>();
         for ( int inx = 0 ; inx < titleCount ; ++inx )
         {
             Title   title   = getUniqueTitle( commentCount );
+            title.setListName( listName );
             dbServer.insertTitle( title );
             titles.add( title );
         }
         return titles;
     }
     
+    /**
+     * Gets the row IDs of a given list of items, in rank order.
+     * Items with equal ranks are ordered by row ID.
+     * 
+     * @param items the given list of items
+     * @return  the row IDs of the given items, in rank order
+     */
+    private static List<Integer> 
+    getRankOrder( List<? extends LibraryItem> items )
+    {
+        List<Integer>   order   = items.stream()
+            .sorted( Comparator
+                .comparingInt( LibraryItem::getRank )
+                .thenComparingInt( i -> i.getIdent().getAsInt() )
+            )
+            .map( i -> i.getIdent().getAsInt() )
+            .collect( Collectors.toList() );
+        return order;
+    }
+    
     /**
      * Create a list of authors, adding each author to the Authors table,
      * and return the list.
@@ -1086,14 +3343,92 @@ class DBServerTest
      * @return  a list of authors added to the Authors table
      */
     private List<Author> insertAuthors( int authorCount, int commentCount )
+    {
+        return insertAuthors( authorCount, commentCount, defAuthorList );
+    }
+    
+    /**
+     * Create a list of authors in a given list,
+     * adding each author to the Authors table, and return the list.
+     * 
+     * @param authorCount   the number of authors to create and insert
+     * @param commentCount  the number of comments generated for each author
+     * @param listName      the name of the list to add the authors to
+     * @return  a list of authors added to the Authors table
+     */
+    private List<Author> 
+    insertAuthors( int authorCount, int commentCount, String listName )
     {
         List<Author> authors  = new ArrayList<>();
         for ( int inx = 0 ; inx < authorCount ; ++inx )
         {
             Author   author   = getUniqueAuthor( commentCount );
+            author.setListName( listName );
             dbServer.insertAuthor( author );
             authors.add( author );
         }
         return authors;
     }
+    
+    /**
+     * A subscriber that collects the items it receives.
+     * It requests a fixed number of items at a time,
+     * and cancels its subscription after receiving a given number of items.
+     * 
+     * @param <T>   the type of item received
+     */
+    private static class CollectingSubscriber<T> 
+        implements Flow.Subscriber<T>
+    {
+        private final int       batchSize;
+        private final int       cancelAfter;
+        private final List<T>   items       = new ArrayList<>();
+        private Flow.Subscription   subscription;
+        private boolean             completed   = false;
+        private Throwable           error       = null;
+        
+        /**
+         * Constructor.
+         * 
+         * @param batchSize     the number of items to request at a time;
+         *                      if 0 the subscriber never requests items
+         * @param cancelAfter   the number of items to receive
+         *                      before cancelling the subscription
+         */
+        public CollectingSubscriber( int batchSize, int cancelAfter )
+        {
+            this.batchSize = batchSize;
+            this.cancelAfter = cancelAfter;
+        }
+        
+        @Override
+        public void onSubscribe( Flow.Subscription subscription )
+        {
+            this.subscription = subscription;
+            if ( batchSize > 0 )
+                subscription.request( batchSize );
+        }
+
+        @Override
+        public void onNext( T item )
+        {
+            items.add( item );
+            if ( items.size() == cancelAfter )
+                subscription.cancel();
+            else if ( batchSize > 0 && items.size() % batchSize == 0 )
+                subscription.request( batchSize );
+        }
+
+        @Override
+        public void onError( Throwable throwable )
+        {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package kcls_manager.database;
+
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import kcls_manager.main.Author;
+import kcls_manager.main.Comment;
+import kcls_manager.main.Title;
+import test_util.AuthorFactory;
+import test_util.TitleFactory;
+
+class EntityCacheTest
+{
+    private TitleFactory    titleFactory;
+    private AuthorFactory   authorFactory;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        titleFactory = new TitleFactory();
+        authorFactory = new AuthorFactory();
+    }
+
+    @Test
+    void testEntityCache()
+    {
+        EntityCache cache   = new EntityCache();
+        assertEquals( EntityCache.DEF_CAPACITY, cache.getCapacity() );
+        assertEquals( 0, cache.size() );
+        assertEquals( 0, cache.getHitRate() );
+
+        assertThrows( IllegalArgumentException.class, () ->
+            new EntityCache( -1 ) );
+    }
+
+    @Test
+    void testPutGetTitle()
+    {
+        EntityCache cache   = new EntityCache();
+        Title       title   = getUniqueTitle( 10, 3 );
+        cache.put( title );
+
+        Title       actTitle    = cache.getTitle( 10 );
+        assertEquals( title, actTitle );
+        assertNotSame( title, actTitle );
+        assertNull( cache.getAuthor( 10 ) );
+        assertNull( cache.getTitle( 11 ) );
+
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 2, cache.getMisses() );
+        assertEquals( 1 / 3., cache.getHitRate(), .0001 );
+    }
+
+    @Test
+    void testPutGetAuthor()
+    {
+        EntityCache cache   = new EntityCache();
+        Author      author  = getUniqueAuthor( 10, 3 );
+        cache.put( author );
+
+        Author      actAuthor   = cache.getAuthor( 10 );
+        assertEquals( author, actAuthor );
+        assertNotSame( author, actAuthor );
+        assertNull( cache.getTitle( 10 ) );
+    }
+
+    @Test
+    void testDefensiveCopies()
+    {
+        EntityCache cache   = new EntityCache();
+        Title       title   = getUniqueTitle( 10, 3 );
+        cache.put( title );
+        Title       expTitle    = cache.getTitle( 10 );
+
+        // modifying the original doesn't modify the cache
+        title.setRank( title.getRank() + 1 );
+        title.getComments().get( 0 ).setText( "###" );
+        assertEquals( expTitle, cache.getTitle( 10 ) );
+
+        // modifying a retrieved copy doesn't modify the cache
+        Title       actTitle    = cache.getTitle( 10 );
+        actTitle.setTitle( "###" );
+        Comment     comment     = actTitle.getComments().get( 1 );
+        comment.setText( "###" );
+        assertEquals( expTitle, cache.getTitle( 10 ) );
+    }
+
+    @Test
+    void testPutNoIdent()
+    {
+        EntityCache cache   = new EntityCache();
+        cache.put( titleFactory.getUniqueTitle( 0 ) );
+        assertEquals( 0, cache.size() );
+    }
+
+    @Test
+    void testLRUEviction()
+    {
+        EntityCache cache   = new EntityCache( 3 );
+        for ( int inx = 1 ; inx <= 3 ; ++inx )
+            cache.put( getUniqueTitle( inx, 0 ) );
+
+        // touch title 1; title 2 is now least-recently used
+        assertNotNull( cache.getTitle( 1 ) );
+        cache.put( getUniqueTitle( 4, 0 ) );
+
+        assertEquals( 3, cache.size() );
+        assertEquals( 1, cache.getEvictions() );
+        assertNull( cache.getTitle( 2 ) );
+        assertNotNull( cache.getTitle( 1 ) );
+        assertNotNull( cache.getTitle( 3 ) );
+        assertNotNull( cache.getTitle( 4 ) );
+    }
+
+    @Test
+    void testZeroCapacity()
+    {
+        EntityCache cache   = new EntityCache( 0 );
+        cache.put( getUniqueTitle( 1, 0 ) );
+        assertEquals( 0, cache.size() );
+        assertNull( cache.getTitle( 1 ) );
+    }
+
+    @Test
+    void testRemove()
+    {
+        EntityCache cache   = new EntityCache();
+        Title       title   = getUniqueTitle( 1, 0 );
+        Author      author  = getUniqueAuthor( 1, 0 );
+        cache.put( title );
+        cache.put( author );
+
+        cache.remove( title );
+        assertNull( cache.getTitle( 1 ) );
+        assertNotNull( cache.getAuthor( 1 ) );
+
+        cache.remove( AUTHOR_TYPE, 1 );
+        assertNull( cache.getAuthor( 1 ) );
+        assertEquals( 0, cache.size() );
+    }
+
+    @Test
+    void testRemoveAllClear()
+    {
+        EntityCache cache   = new EntityCache();
+        for ( int inx = 1 ; inx <= 3 ; ++inx )
+        {
+            cache.put( getUniqueTitle( inx, 0 ) );
+            cache.put( getUniqueAuthor( inx, 0 ) );
+        }
+        assertEquals( 6, cache.size() );
+
+        cache.removeAll( TITLE_TYPE );
+        assertEquals( 3, cache.size() );
+        assertNull( cache.getTitle( 1 ) );
+        assertNotNull( cache.getAuthor( 1 ) );
+
+        cache.clear();
+        assertEquals( 0, cache.size() );
+    }
+
+    private Title getUniqueTitle( int ident, int numComments )
+    {
+        Title   title   = titleFactory.getUniqueTitle( numComments );
+        title.setIdent( ident );
+        return title;
+    }
+
+    private Author getUniqueAuthor( int ident, int numComments )
+    {
+        Author  author  = authorFactory.getUniqueAuthor( numComments );
+        author.setIdent( ident );
+        return author;
+    }
+}
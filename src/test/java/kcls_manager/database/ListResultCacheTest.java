@@ -0,0 +1,191 @@
+package kcls_manager.database;
+
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import kcls_manager.main.Author;
+import kcls_manager.main.Title;
+import test_util.AuthorFactory;
+import test_util.TitleFactory;
+
+class ListResultCacheTest
+{
+    private static final String listA   = "List A";
+    private static final String listB   = "List B";
+    private static final String shape   = "rank";
+    
+    private TitleFactory    titleFactory;
+    private AuthorFactory   authorFactory;
+    private int             nextIdent;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        titleFactory = new TitleFactory();
+        authorFactory = new AuthorFactory();
+        nextIdent = 1;
+    }
+
+    @Test
+    void testListResultCache()
+    {
+        ListResultCache cache   = new ListResultCache();
+        long            budget  = ListResultCache.DEF_BUDGET_BYTES;
+        assertEquals( budget, cache.getBudgetBytes() );
+        assertThrows( IllegalArgumentException.class, () ->
+            new ListResultCache( -1 ) );
+        
+        Optional<List<Title>>   result  = cache.get( TITLE_TYPE, shape, listA );
+        assertFalse( result.isPresent() );
+        assertEquals( 1, cache.getMisses() );
+    }
+
+    @Test
+    void testPutGet()
+    {
+        ListResultCache cache   = new ListResultCache();
+        List<Title>     titles  = getTitles( 3, listA );
+        cache.put( TITLE_TYPE, shape, listA, titles, cache.getStamp() );
+        assertEquals( 1, cache.size() );
+        assertTrue( cache.getTotalBytes() > 0 );
+        
+        List<Title>     actual  = 
+            cache.<Title>get( TITLE_TYPE, shape, listA ).get();
+        assertEquals( titles, actual );
+        assertNotSame( titles.get( 0 ), actual.get( 0 ) );
+        assertEquals( 1, cache.getHits() );
+        
+        // callers can't corrupt the cache
+        actual.get( 0 ).setTitle( "changed" );
+        titles.get( 1 ).setTitle( "also changed" );
+        actual  = cache.<Title>get( TITLE_TYPE, shape, listA ).get();
+        assertFalse( actual.get( 0 ).getTitle().equals( "changed" ) );
+        assertFalse( actual.get( 1 ).getTitle().equals( "also changed" ) );
+        
+        // different shape, type or list
+        assertFalse( cache.get( TITLE_TYPE, "other", listA ).isPresent() );
+        assertFalse( cache.get( AUTHOR_TYPE, shape, listA ).isPresent() );
+        assertFalse( cache.get( TITLE_TYPE, shape, listB ).isPresent() );
+    }
+
+    @Test
+    void testInvalidate()
+    {
+        ListResultCache cache   = new ListResultCache();
+        List<Title>     titlesA = getTitles( 3, listA );
+        List<Title>     titlesB = getTitles( 3, listB );
+        List<Author>    authors = getAuthors( 2, listA );
+        long            stamp   = cache.getStamp();
+        cache.put( TITLE_TYPE, shape, listA, titlesA, stamp );
+        cache.put( TITLE_TYPE, shape, listB, titlesB, stamp );
+        cache.put( AUTHOR_TYPE, shape, listA, authors, stamp );
+        
+        // a list change affects only that list
+        long            version = cache.getListVersion( TITLE_TYPE, listA );
+        cache.invalidateList( TITLE_TYPE, listA );
+        assertTrue( cache.getListVersion( TITLE_TYPE, listA ) > version );
+        assertFalse( cache.get( TITLE_TYPE, shape, listA ).isPresent() );
+        assertTrue( cache.get( TITLE_TYPE, shape, listB ).isPresent() );
+        assertTrue( cache.get( AUTHOR_TYPE, shape, listA ).isPresent() );
+        
+        // an item change affects the lists containing the item
+        int             ident   = titlesB.get( 1 ).getIdent().getAsInt();
+        cache.invalidateItem( AUTHOR_TYPE, ident );
+        assertTrue( cache.get( TITLE_TYPE, shape, listB ).isPresent() );
+        cache.invalidateItem( titlesB.get( 1 ) );
+        assertFalse( cache.get( TITLE_TYPE, shape, listB ).isPresent() );
+        
+        // a type change affects all lists of the type
+        cache.put( TITLE_TYPE, shape, listB, titlesB, cache.getStamp() );
+        cache.invalidateType( AUTHOR_TYPE );
+        assertFalse( cache.get( AUTHOR_TYPE, shape, listA ).isPresent() );
+        assertTrue( cache.get( TITLE_TYPE, shape, listB ).isPresent() );
+        
+        cache.clear();
+        assertEquals( 0, cache.size() );
+        assertEquals( 0, cache.getTotalBytes() );
+        assertFalse( cache.get( TITLE_TYPE, shape, listB ).isPresent() );
+    }
+
+    @Test
+    void testStaleStamp()
+    {
+        ListResultCache cache   = new ListResultCache();
+        List<Title>     titles  = getTitles( 3, listA );
+        
+        // the list changes while the query is in progress
+        long            stamp   = cache.getStamp();
+        cache.invalidateList( TITLE_TYPE, listA );
+        cache.put( TITLE_TYPE, shape, listA, titles, stamp );
+        assertEquals( 0, cache.size() );
+        
+        // a change to another list doesn't matter
+        stamp = cache.getStamp();
+        cache.invalidateList( TITLE_TYPE, listB );
+        cache.put( TITLE_TYPE, shape, listA, titles, stamp );
+        assertTrue( cache.get( TITLE_TYPE, shape, listA ).isPresent() );
+    }
+
+    @Test
+    void testBudget()
+    {
+        List<Title>     titlesA = getTitles( 10, listA );
+        List<Title>     titlesB = getTitles( 10, listB );
+        long            bytes   = ListResultCache.estimateSize( titlesA );
+        ListResultCache cache   = new ListResultCache( bytes + bytes / 2 );
+        cache.put( TITLE_TYPE, shape, listA, titlesA, cache.getStamp() );
+        cache.put( TITLE_TYPE, shape, listB, titlesB, cache.getStamp() );
+        assertEquals( 1, cache.size() );
+        assertEquals( 1, cache.getEvictions() );
+        assertTrue( cache.getTotalBytes() <= cache.getBudgetBytes() );
+        assertFalse( cache.get( TITLE_TYPE, shape, listA ).isPresent() );
+        assertTrue( cache.get( TITLE_TYPE, shape, listB ).isPresent() );
+        
+        // too big to cache at all
+        ListResultCache small   = new ListResultCache( bytes / 2 );
+        small.put( TITLE_TYPE, shape, listA, titlesA, small.getStamp() );
+        assertEquals( 0, small.size() );
+        
+        ListResultCache none    = new ListResultCache( 0 );
+        none.put( TITLE_TYPE, shape, listA, titlesA, none.getStamp() );
+        assertEquals( 0, none.size() );
+    }
+    
+    private List<Title> getTitles( int count, String listName )
+    {
+        List<Title> titles  = new ArrayList<>();
+        for ( int inx = 0 ; inx < count ; ++inx )
+        {
+            Title   title   = titleFactory.getUniqueTitle( 1 );
+            title.setIdent( nextIdent++ );
+            title.setListName( listName );
+            titles.add( title );
+        }
+        return titles;
+    }
+    
+    private List<Author> getAuthors( int count, String listName )
+    {
+        List<Author>    authors = new ArrayList<>();
+        for ( int inx = 0 ; inx < count ; ++inx )
+        {
+            Author  author  = authorFactory.getUniqueAuthor( 1 );
+            author.setIdent( nextIdent++ );
+            author.setListName( listName );
+            authors.add( author );
+        }
+        return authors;
+    }
+}
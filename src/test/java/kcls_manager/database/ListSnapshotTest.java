@@ -0,0 +1,130 @@
+package kcls_manager.database;
+
+import static kcls_manager.main.Constants.AUTHOR_TYPE;
+import static kcls_manager.main.Constants.TITLE_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import kcls_manager.main.Author;
+import kcls_manager.main.KCLSList;
+import kcls_manager.main.Title;
+
+class ListSnapshotTest
+{
+    private static final String titleListName   = "Title List";
+    private static final String authorListName  = "Author List";
+    private static final long   stateStamp     = 42;
+
+    @Test
+    void testRoundTrip() throws IOException
+    {
+        ListSnapshot    expSnapshot = getSnapshot();
+        ListSnapshot    actSnapshot = roundTrip( expSnapshot );
+        assertEquals( stateStamp, actSnapshot.getStateStamp() );
+        assertEquals( 2, actSnapshot.getLists().size() );
+
+        KCLSList    actList = actSnapshot.getLists().get( 0 );
+        assertEquals( TITLE_TYPE, actList.getListType() );
+        assertEquals( titleListName, actList.getDialogTitle() );
+        assertEquals( 7, actList.getIdent().getAsInt() );
+
+        List<Title> expTitles   = expSnapshot.getTitles( titleListName );
+        List<Title> actTitles   = actSnapshot.getTitles( titleListName );
+        assertEquals( expTitles.size(), actTitles.size() );
+        for ( int inx = 0 ; inx < expTitles.size() ; ++inx )
+        {
+            Title   expTitle    = expTitles.get( inx );
+            Title   actTitle    = actTitles.get( inx );
+            assertEquals( expTitle.getIdent(), actTitle.getIdent() );
+            assertEquals( expTitle.getTitle(), actTitle.getTitle() );
+            assertEquals( expTitle.getAuthor(), actTitle.getAuthor() );
+            assertEquals( expTitle.getRank(), actTitle.getRank() );
+            assertEquals( expTitle.getCheckQPos(), actTitle.getCheckQPos() );
+            assertEquals( expTitle.getCheckDate(), actTitle.getCheckDate() );
+            assertEquals( expTitle.getReadyDate(), actTitle.getReadyDate() );
+            assertEquals( titleListName, actTitle.getListName() );
+        }
+        assertNull( actTitles.get( 1 ).getReadyDate() );
+
+        List<Author>    actAuthors  = actSnapshot.getAuthors( authorListName );
+        assertEquals( 1, actAuthors.size() );
+        Author          actAuthor   = actAuthors.get( 0 );
+        assertEquals( "Author, Anne", actAuthor.getAuthor() );
+        assertEquals( 3, actAuthor.getCurrentCount() );
+        assertFalse( actAuthor.getIdent().isPresent() );
+
+        assertTrue( actSnapshot.getTitles( "no such list" ).isEmpty() );
+    }
+
+    @Test
+    void testWriteFile() throws IOException
+    {
+        Path    path    = Files.createTempFile( "kcls", ".snapshot" );
+        try
+        {
+            getSnapshot().write( path );
+            ListSnapshot    snapshot    = ListSnapshot.read( path );
+            assertEquals( stateStamp, snapshot.getStateStamp() );
+            assertEquals( 2, snapshot.getTitles( titleListName ).size() );
+        }
+        finally
+        {
+            Files.deleteIfExists( path );
+        }
+    }
+
+    @Test
+    void testInvalid()
+    {
+        byte[]  bytes   = { 1, 2, 3, 4, 5, 6, 7, 8 };
+        assertThrows( IOException.class, () ->
+            ListSnapshot.read( new ByteArrayInputStream( bytes ) ) );
+    }
+
+    private static ListSnapshot roundTrip( ListSnapshot snapshot )
+        throws IOException
+    {
+        ByteArrayOutputStream   outStream   = new ByteArrayOutputStream();
+        snapshot.write( outStream );
+        byte[]                  bytes       = outStream.toByteArray();
+        return ListSnapshot.read( new ByteArrayInputStream( bytes ) );
+    }
+
+    private static ListSnapshot getSnapshot()
+    {
+        LocalDate   date        = LocalDate.of( 2021, 6, 1 );
+        KCLSList    titleList   = new KCLSList( TITLE_TYPE, titleListName );
+        titleList.setIdent( 7 );
+        Title       titleA      = new Title( date, "Title A", "Author, Anne" );
+        titleA.setIdent( 1 );
+        titleA.setRank( 3 );
+        titleA.setCheckQPos( 12 );
+        titleA.setCheckDate( date.plusDays( 1 ) );
+        titleA.setReadyDate( date.plusDays( 30 ) );
+        Title       titleB      = new Title( date, "Title B", "Author, Anne" );
+        titleB.setIdent( 2 );
+
+        KCLSList    authorList  = new KCLSList( AUTHOR_TYPE, authorListName );
+        Author      author      = new Author( "Author, Anne" );
+        author.setCurrentCount( 3 );
+
+        ListSnapshot    snapshot    = new ListSnapshot( stateStamp );
+        snapshot.addTitleList( titleList, Arrays.asList( titleA, titleB ) );
+        snapshot.addAuthorList( authorList, Arrays.asList( author ) );
+        return snapshot;
+    }
+}
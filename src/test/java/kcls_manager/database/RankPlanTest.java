@@ -0,0 +1,183 @@
+package kcls_manager.database;
+
+import static kcls_manager.database.RankPlan.RANK_GAP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import kcls_manager.main.KCLSException;
+
+class RankPlanTest
+{
+    @Test
+    void testMoveToTop()
+    {
+        Map<Integer, Integer>   ranks   = getRanks( 5, RANK_GAP );
+        List<Integer>           order   = Arrays.asList( 5, 1, 2, 3, 4 );
+        RankPlan                plan    = RankPlan.compute( order, ranks );
+        assertFalse( plan.isRenormalized() );
+        assertEquals( 1, plan.getChanges().size() );
+        assertEquals( 0, (int)plan.getChanges().get( 5 ) );
+        assertOrder( order, ranks, plan );
+    }
+
+    @Test
+    void testMoveToMiddle()
+    {
+        Map<Integer, Integer>   ranks   = getRanks( 5, RANK_GAP );
+        List<Integer>           order   = Arrays.asList( 1, 2, 5, 3, 4 );
+        RankPlan                plan    = RankPlan.compute( order, ranks );
+        assertFalse( plan.isRenormalized() );
+        assertEquals( 1, plan.getChanges().size() );
+        int                     rank    = plan.getChanges().get( 5 );
+        assertEquals( 2 * RANK_GAP + RANK_GAP / 2, rank );
+        assertOrder( order, ranks, plan );
+    }
+
+    @Test
+    void testNoChange()
+    {
+        Map<Integer, Integer>   ranks   = getRanks( 5, 1 );
+        List<Integer>           order   = new ArrayList<>( ranks.keySet() );
+        RankPlan                plan    = RankPlan.compute( order, ranks );
+        assertFalse( plan.isRenormalized() );
+        assertTrue( plan.getChanges().isEmpty() );
+    }
+
+    @Test
+    void testReverse()
+    {
+        Map<Integer, Integer>   ranks   = getRanks( 8, RANK_GAP );
+        List<Integer>           order   = new ArrayList<>( ranks.keySet() );
+        Collections.reverse( order );
+        RankPlan                plan    = RankPlan.compute( order, ranks );
+        assertFalse( plan.isRenormalized() );
+        assertEquals( 7, plan.getChanges().size() );
+        assertOrder( order, ranks, plan );
+    }
+
+    @Test
+    void testGapExhausted()
+    {
+        Map<Integer, Integer>   ranks   = getRanks( 4, 1 );
+        List<Integer>           order   = Arrays.asList( 1, 4, 2, 3 );
+        RankPlan                plan    = RankPlan.compute( order, ranks );
+        assertTrue( plan.isRenormalized() );
+        assertOrder( order, ranks, plan );
+
+        // after renormalization the same kind of move fits
+        apply( ranks, plan );
+        order = Arrays.asList( 1, 3, 4, 2 );
+        plan = RankPlan.compute( order, ranks );
+        assertFalse( plan.isRenormalized() );
+        assertEquals( 1, plan.getChanges().size() );
+        assertOrder( order, ranks, plan );
+    }
+
+    @Test
+    void testRepeatedMoves()
+    {
+        // halving the gap between two neighbors eventually
+        // exhausts it, at which point the list is renormalized
+        Map<Integer, Integer>   ranks   = getRanks( 3, RANK_GAP );
+        List<Integer>           order   = Arrays.asList( 1, 2, 3 );
+        int                     renorms = 0;
+        for ( int inx = 0 ; inx < 30 ; ++inx )
+        {
+            order =
+                Arrays.asList( order.get( 0 ), order.get( 2 ), order.get( 1 ) );
+            RankPlan    plan    = RankPlan.compute( order, ranks );
+            if ( plan.isRenormalized() )
+                ++renorms;
+            else
+                assertEquals( 1, plan.getChanges().size() );
+            assertOrder( order, ranks, plan );
+            apply( ranks, plan );
+        }
+        assertTrue( renorms > 0 );
+        assertTrue( renorms < 5 );
+    }
+
+    @Test
+    void testRenormalize()
+    {
+        Map<Integer, Integer>   ranks   = new LinkedHashMap<>();
+        ranks.put( 7, -3 );
+        ranks.put( 2, 5 );
+        ranks.put( 9, 5 );
+        List<Integer>           order   = new ArrayList<>( ranks.keySet() );
+        RankPlan                plan    = RankPlan.renormalize( order, ranks );
+        assertTrue( plan.isRenormalized() );
+        assertEquals( RANK_GAP, (int)plan.getChanges().get( 7 ) );
+        assertEquals( 2 * RANK_GAP, (int)plan.getChanges().get( 2 ) );
+        assertEquals( 3 * RANK_GAP, (int)plan.getChanges().get( 9 ) );
+
+        apply( ranks, plan );
+        plan = RankPlan.renormalize( order, ranks );
+        assertTrue( plan.getChanges().isEmpty() );
+    }
+
+    @Test
+    void testInvalidOrder()
+    {
+        Map<Integer, Integer>   ranks   = getRanks( 3, RANK_GAP );
+        assertThrows( KCLSException.class, () ->
+            RankPlan.compute( Arrays.asList( 1, 2 ), ranks ) );
+        assertThrows( KCLSException.class, () ->
+            RankPlan.compute( Arrays.asList( 1, 2, 2 ), ranks ) );
+        assertThrows( KCLSException.class, () ->
+            RankPlan.compute( Arrays.asList( 1, 2, 3, 4 ), ranks ) );
+        assertThrows( KCLSException.class, () ->
+            RankPlan.renormalize( Arrays.asList( 1, 2, 4 ), ranks ) );
+    }
+
+    /**
+     * Creates the ranks of a list of members with row IDs 1 through
+     * <em>count</em>, spaced a given distance apart.
+     */
+    private static Map<Integer, Integer> getRanks( int count, int gap )
+    {
+        Map<Integer, Integer>   ranks   = new LinkedHashMap<>();
+        for ( int inx = 1 ; inx <= count ; ++inx )
+            ranks.put( inx, inx * gap );
+        return ranks;
+    }
+
+    /**
+     * Applies the changes in a given plan to a set of ranks.
+     */
+    private static void apply( Map<Integer, Integer> ranks, RankPlan plan )
+    {
+        ranks.putAll( plan.getChanges() );
+    }
+
+    /**
+     * Verifies that applying a given plan to a set of ranks
+     * puts the members in a given order.
+     */
+    private static void assertOrder(
+        List<Integer> order,
+        Map<Integer, Integer> ranks,
+        RankPlan plan
+    )
+    {
+        Map<Integer, Integer>   applied = new LinkedHashMap<>( ranks );
+        apply( applied, plan );
+        for ( int inx = 1 ; inx < order.size() ; ++inx )
+        {
+            int prev    = applied.get( order.get( inx - 1 ) );
+            int next    = applied.get( order.get( inx ) );
+            assertTrue( prev < next, order + ": " + applied );
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package kcls_manager.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class StatementStatisticsTest
+{
+    private static final String tableScanSQL    =
+        "SELECT * FROM COMMENTS WHERE item_id = ?";
+    private static final String tableScanPlan   =
+        "Statement Execution Plan Text: \n"
+        + "Table Scan ResultSet for COMMENTS at read committed isolation "
+        + "level using instantaneous share row locking chosen by the "
+        + "optimizer\n"
+        + "Number of opens = 1\n"
+        + "Rows seen = 2\n"
+        + "scan information:\n"
+        + "\tNumber of rows qualified=2\n"
+        + "\tNumber of rows visited=20\n"
+        + "\tScan type=heap\n";
+
+    private static final String indexScanSQL    =
+        "SELECT * FROM TITLES WHERE author_id = ?";
+    private static final String indexScanPlan   =
+        "Statement Execution Plan Text: \n"
+        + "Index Row to Base Row ResultSet for TITLES:\n"
+        + "\tIndex Scan ResultSet for TITLES using index TITLES_AUTHOR_IDX "
+        + "at read committed isolation level using instantaneous share "
+        + "row locking chosen by the optimizer\n"
+        + "\tscan information:\n"
+        + "\t\tNumber of rows visited=3\n"
+        + "\t\tScan type=btree\n";
+
+    /**
+     * Plan of a table scan for a statement that was executed
+     * before runtime statistics were enabled; Derby omits
+     * the number of rows visited, but includes the qualifiers.
+     */
+    private static final String filteredScanPlan    =
+        "Statement Execution Plan Text: \n"
+        + "Table Scan ResultSet for COMMENTS at read committed isolation "
+        + "level using instantaneous share row locking chosen by the "
+        + "optimizer\n"
+        + "Number of opens = 11\n"
+        + "Rows seen = 22\n"
+        + "scan information:\n"
+        + "\tqualifiers:\n"
+        + "\t\tColumn[0][0] Id: 2\n"
+        + "\t\tOperator: =\n";
+
+    @Test
+    void testTableScan()
+    {
+        StatementStatistics stats   = new StatementStatistics( tableScanSQL );
+        stats.record( tableScanPlan, 2 );
+        stats.record( tableScanPlan, 2 );
+        assertEquals( tableScanSQL, stats.getSQL() );
+        assertEquals( 2, stats.getExecutions() );
+        assertEquals( 4, stats.getRowsReturned() );
+        assertEquals( 40, stats.getRowsVisited() );
+        assertEquals( 2, stats.getTableScans() );
+        assertEquals( tableScanPlan, stats.getLastPlan() );
+        assertEquals(
+            Set.of( "Table scan COMMENTS" ),
+            stats.getAccessPaths()
+        );
+        assertTrue( stats.isTableScanFallback() );
+    }
+
+    @Test
+    void testIndexScan()
+    {
+        StatementStatistics stats   = new StatementStatistics( indexScanSQL );
+        stats.record( indexScanPlan, 2 );
+        assertEquals( 3, stats.getRowsVisited() );
+        assertEquals( 0, stats.getTableScans() );
+        assertEquals(
+            Set.of( "Index scan TITLES using index TITLES_AUTHOR_IDX" ),
+            stats.getAccessPaths()
+        );
+        assertFalse( stats.isTableScanFallback() );
+    }
+
+    @Test
+    void testFullTableScan()
+    {
+        // a table scan that returns every row visited is not a fallback
+        StatementStatistics stats   = new StatementStatistics( tableScanSQL );
+        stats.record( tableScanPlan, 20 );
+        assertEquals( 1, stats.getTableScans() );
+        assertFalse( stats.isTableScanFallback() );
+    }
+
+    @Test
+    void testFilteredScan()
+    {
+        StatementStatistics stats   = new StatementStatistics( tableScanSQL );
+        stats.record( filteredScanPlan, 2 );
+        assertEquals( 0, stats.getRowsVisited() );
+        assertEquals( 1, stats.getTableScans() );
+        assertTrue( stats.isTableScanFallback() );
+    }
+}
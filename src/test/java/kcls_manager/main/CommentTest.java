@@ -84,6 +84,29 @@ class CommentTest
         assertEquals( text, comment.getText() );
     }
 
+    @Test
+    void testSetPreview()
+    {
+        String  text    = "this is a comment";
+        Comment comment = new Comment( AUTHOR_TYPE, text );
+        assertTrue( comment.isTextLoaded() );
+        assertEquals( text.length(), comment.getTextLength() );
+        
+        String  preview = "this is";
+        comment.setPreview( preview, 1000 );
+        assertFalse( comment.isTextLoaded() );
+        assertEquals( preview, comment.getText() );
+        assertEquals( 1000, comment.getTextLength() );
+        
+        Comment copy    = new Comment( comment );
+        assertFalse( copy.isTextLoaded() );
+        assertEquals( 1000, copy.getTextLength() );
+        
+        comment.setText( text );
+        assertTrue( comment.isTextLoaded() );
+        assertEquals( text.length(), comment.getTextLength() );
+    }
+
     @Test
     void testSetItemIDInt()
     {
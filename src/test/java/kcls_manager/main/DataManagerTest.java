@@ -1,12 +1,25 @@
 package kcls_manager.main;
 
+import static kcls_manager.database.DBConstants.TEST_DB_PATH;
 import static kcls_manager.database.DBConstants.TEST_DB_URL;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import kcls_manager.database.DBConfig;
 import kcls_manager.database.DBServer;
 
 class DataManagerTest
@@ -54,6 +67,96 @@ class DataManagerTest
         assertEquals( dbServerA, dbServerB );
     }
 
+    @Test
+    void testStartDBServer()
+    {
+        assertFalse( DataManager.isStarted() );
+        DBServer    dbServerA   = 
+            DataManager.startDBServer( TEST_DB_URL, "", "" );
+        assertTrue( DataManager.isStarted() );
+        assertEquals( dbServerA, DataManager.getDBServer() );
+        assertThrows( KCLSException.class, () ->
+            DataManager.startDBServer( TEST_DB_URL, "", "" ) );
+    }
+
+    @Test
+    void testStartDBServerAsync()
+    {
+        CompletableFuture<DBServer> boot    = 
+            DataManager.startDBServerAsync( TEST_DB_URL, "", "" );
+        assertTrue( DataManager.isStarted() );
+        assertEquals( boot, DataManager.getBootFuture() );
+        assertThrows( KCLSException.class, () ->
+            DataManager.startDBServer( TEST_DB_URL, "", "" ) );
+        
+        // getDBServer waits for the boot to complete
+        DBServer    dbServer    = DataManager.getDBServer();
+        assertTrue( boot.isDone() );
+        assertEquals( boot.join(), dbServer );
+        assertNotNull( dbServer.getAllLists() );
+    }
+
+    @Test
+    void testConfig()
+    {
+        DBConfig    config  = DataManager.getConfig();
+        assertNotNull( config );
+        assertEquals( config, DataManager.getConfig() );
+        
+        DataManager.setConfig( new DBConfig() );
+        assertNotEquals( config, DataManager.getConfig() );
+        DataManager.getDBServer( TEST_DB_URL );
+        assertEquals( 
+            DataManager.getConfig(), 
+            DataManager.getDBServer().getConfig()
+        );
+        assertThrows( KCLSException.class, () ->
+            DataManager.setConfig( config ) );
+    }
+
+    @Test
+    void testStartDBServerAsyncFails()
+    {
+        DataManager.startDBServerAsync( "jdbc:derby:noSuchDB", "", "" );
+        assertThrows( KCLSException.class, () -> DataManager.getDBServer() );
+        
+        // failed boot is forgotten
+        assertFalse( DataManager.isStarted() );
+        assertNull( DataManager.getBootFuture() );
+    }
+
+    @Test
+    void testCloseConnectionAsync()
+    {
+        DataManager.startDBServerAsync( TEST_DB_URL, "", "" );
+        DataManager.closeConnection();
+        assertFalse( DataManager.isStarted() );
+    }
+
+    @Test
+    void testCloseConnectionStartupTasks()
+    {
+        Properties  props   = new Properties();
+        props.setProperty( 
+            DBConfig.CONSISTENCY_CHECK_KEY, 
+            DBConfig.CONSISTENCY_SCAN
+        );
+        DataManager.setConfig( new DBConfig( props ) );
+        DataManager.startDBServerAsync( TEST_DB_URL, "", "" );
+        CompletableFuture<Void> startup = DataManager.getStartupFuture();
+        assertNotNull( startup );
+        
+        // startup tasks are cancelled or complete before shutdown
+        DataManager.closeConnection();
+        assertTrue( startup.isDone() );
+        assertNull( DataManager.getStartupFuture() );
+        assertFalse( DataManager.isStarted() );
+        
+        // the database can be booted again
+        DBServer    dbServer = DataManager.getDBServer( TEST_DB_URL );
+        assertNotNull( dbServer.getAllLists() );
+    }
+
     @Test
     void testCloseConnection()
     {
@@ -62,7 +165,17 @@ class DataManagerTest
         
         DBServer    dbServer = DataManager.getDBServer( TEST_DB_URL );
         assertNotNull( dbServer );
+        assertTrue( DataManager.isShutdownHookInstalled() );
+        
+        // Derby deletes the lock file when the database is shut down
+        Path        lockFile    = Paths.get( TEST_DB_PATH, "db.lck" );
+        assertTrue( Files.exists( lockFile ) );
         DataManager.closeConnection();
+        assertFalse( Files.exists( lockFile ) );
+        
+        // the database can be booted again
+        dbServer = DataManager.getDBServer( TEST_DB_URL );
+        assertNotNull( dbServer.getAllLists() );
     }
 
 }
@@ -4,12 +4,15 @@ import static kcls_manager.main.Constants.TITLE_TYPE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.OptionalInt;
 
 import org.junit.jupiter.api.AfterEach;
@@ -144,6 +147,61 @@ class LibraryItemTest
         assertEquals( defModifyDate, defTester.getModifyDate() );
     }
     
+    @Test
+    void testAttributes()
+    {
+        LocalDate   date    = LocalDate.of( 2020, 1, 31 );
+        assertTrue( defTester.getAttributes().isEmpty() );
+        defTester.setAttribute( "format", "ebook" );
+        defTester.setAttribute( "pages", 250 );
+        defTester.setAttribute( "acquired", date );
+        assertEquals( "ebook", defTester.getStringAttribute( "format" ).get() );
+        assertEquals( 250, defTester.getLongAttribute( "pages" ).getAsLong() );
+        assertEquals( date, defTester.getDateAttribute( "acquired" ).get() );
+        assertEquals( 3, defTester.getAttributes().size() );
+
+        // wrong type or missing key
+        assertFalse( defTester.getLongAttribute( "format" ).isPresent() );
+        assertFalse( defTester.getStringAttribute( "missing" ).isPresent() );
+
+        // copies and equality
+        Tester  copy    = new Tester();
+        copy.copyFrom( defTester );
+        assertEquals( defTester.getAttributes(), copy.getAttributes() );
+        assertEquals( defTester, copy );
+        copy.setAttribute( "format", "print" );
+        assertNotEquals( defTester, copy );
+
+        // removal
+        defTester.setAttribute( "format", (String)null );
+        assertFalse( defTester.getAttribute( "format" ).isPresent() );
+        assertTrue( defTester.removeAttribute( "pages" ) );
+        assertFalse( defTester.removeAttribute( "pages" ) );
+
+        // bulk set
+        Map<String, Object> map = new HashMap<>();
+        map.put( "count", Integer.valueOf( 7 ) );
+        defTester.setAttributes( map );
+        assertEquals( 7, defTester.getLongAttribute( "count" ).getAsLong() );
+        assertEquals( 1, defTester.getAttributes().size() );
+        map.put( "ratio", 0.5 );
+        assertThrows(
+            KCLSException.class,
+            () -> defTester.setAttributes( map )
+        );
+        defTester.clearAttributes();
+        assertTrue( defTester.getAttributes().isEmpty() );
+        
+        // loaded state
+        assertTrue( defTester.isAttributesLoaded() );
+        defTester.setAttributesLoaded( false );
+        copy.copyFrom( defTester );
+        assertFalse( copy.isAttributesLoaded() );
+        map.remove( "ratio" );
+        defTester.setAttributes( map );
+        assertTrue( defTester.isAttributesLoaded() );
+    }
+
     @Test
     void testSetGetListName()
     {
@@ -0,0 +1,86 @@
+package kcls_manager.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+import org.junit.jupiter.api.Test;
+
+class ReadyDateForecasterTest
+{
+    private static final LocalDate  origin  = LocalDate.of( 2021, 6, 1 );
+
+    @Test
+    void testEmpty()
+    {
+        ReadyDateForecaster forecaster  = new ReadyDateForecaster();
+        assertEquals( 0, forecaster.getSampleCount() );
+        assertNull( forecaster.getLastDate() );
+        assertFalse( forecaster.getRate().isPresent() );
+        assertFalse( forecaster.getReadyDate().isPresent() );
+    }
+
+    @Test
+    void testLinear()
+    {
+        ReadyDateForecaster forecaster  = new ReadyDateForecaster();
+        forecaster.addSample( origin, 20 );
+        forecaster.addSample( new QPosSample( origin.plusDays( 5 ), 15 ) );
+        forecaster.addSample( origin.plusDays( 10 ), 10 );
+        assertEquals( 3, forecaster.getSampleCount() );
+        assertEquals( origin.plusDays( 10 ), forecaster.getLastDate() );
+        assertEquals( 10, forecaster.getLastQPos() );
+
+        OptionalDouble      rate        = forecaster.getRate();
+        assertEquals( 1.0, rate.getAsDouble(), .0001 );
+        Optional<LocalDate> readyDate   = forecaster.getReadyDate();
+        assertEquals( origin.plusDays( 20 ), readyDate.get() );
+    }
+
+    @Test
+    void testOneDate()
+    {
+        ReadyDateForecaster forecaster  = new ReadyDateForecaster();
+        forecaster.addSample( origin, 20 );
+        assertFalse( forecaster.getReadyDate().isPresent() );
+        forecaster.addSample( origin, 18 );
+        assertFalse( forecaster.getReadyDate().isPresent() );
+    }
+
+    @Test
+    void testNotAdvancing()
+    {
+        ReadyDateForecaster forecaster  = new ReadyDateForecaster();
+        forecaster.addSample( origin, 5 );
+        forecaster.addSample( origin.plusDays( 5 ), 5 );
+        assertFalse( forecaster.getReadyDate().isPresent() );
+        forecaster.addSample( origin.plusDays( 10 ), 7 );
+        assertFalse( forecaster.getReadyDate().isPresent() );
+    }
+
+    @Test
+    void testReady()
+    {
+        ReadyDateForecaster forecaster  = new ReadyDateForecaster();
+        LocalDate           lastDate    = origin.plusDays( 3 );
+        forecaster.addSample( origin, 5 );
+        forecaster.addSample( lastDate, 0 );
+        assertEquals( lastDate, forecaster.getReadyDate().get() );
+    }
+
+    @Test
+    void testClamp()
+    {
+        // regression line reaches 0 on day 9, before the last sample
+        ReadyDateForecaster forecaster  = new ReadyDateForecaster();
+        LocalDate           lastDate    = origin.plusDays( 10 );
+        forecaster.addSample( origin, 100 );
+        forecaster.addSample( origin.plusDays( 5 ), 1 );
+        forecaster.addSample( lastDate, 1 );
+        assertEquals( lastDate, forecaster.getReadyDate().get() );
+    }
+}
@@ -28,6 +28,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import kcls_manager.database.DBServer;
+import kcls_manager.database.ListSnapshot;
 import test_util.TestUtils;
 import test_util.TitleFactory;
 
@@ -191,6 +192,30 @@ class TitleContentProviderTest
         assertCollectionEquals( expNames, actNames );
     }
 
+    @Test
+    void testGetAllListNamesSnapshot()
+    {
+        ListSnapshot    snapshot    = 
+            TestUtils.getDBServer().createSnapshot();
+        List<String>    actNames    = 
+            TitleContentProvider.getAllListNames( snapshot );
+        List<String>    expNames    = Arrays.asList( titleListNames );
+        assertCollectionEquals( expNames, actNames );
+        
+        for ( String listName : actNames )
+        {
+            TitleContentProvider    provider    =
+                new TitleContentProvider( snapshot, listName );
+            List<String>    actTitles   = new ArrayList<>();
+            List<String>    expTitles   = new ArrayList<>();
+            for ( Title title : provider.getTitles() )
+                actTitles.add( title.getTitle() );
+            for ( Title title : listsMap.get( listName ) )
+                expTitles.add( title.getTitle() );
+            assertCollectionEquals( expTitles, actTitles );
+        }
+    }
+
     @Test
     void testGetTitlesForList()
     {
@@ -1,9 +1,13 @@
 package test_util;
 
+import static kcls_manager.database.DBConstants.ATTRIBUTES_TABLE_NAME;
 import static kcls_manager.database.DBConstants.AUTHORS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.COMMENTS_ARCHIVE_TABLE_NAME;
 import static kcls_manager.database.DBConstants.COMMENTS_TABLE_NAME;
 import static kcls_manager.database.DBConstants.LISTS_TABLE_NAME;
+import static kcls_manager.database.DBConstants.QPOS_HISTORY_TABLE_NAME;
 import static kcls_manager.database.DBConstants.TEST_DB_URL;
+import static kcls_manager.database.DBConstants.TITLES_ARCHIVE_TABLE_NAME;
 import static kcls_manager.database.DBConstants.TITLES_TABLE_NAME;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -132,7 +136,11 @@ public class TestUtils
             AUTHORS_TABLE_NAME,
             TITLES_TABLE_NAME,
             LISTS_TABLE_NAME,
-            COMMENTS_TABLE_NAME
+            COMMENTS_TABLE_NAME,
+            QPOS_HISTORY_TABLE_NAME,
+            ATTRIBUTES_TABLE_NAME,
+            TITLES_ARCHIVE_TABLE_NAME,
+            COMMENTS_ARCHIVE_TABLE_NAME
         };
         for ( String table : allTables )
             dbServer.truncateTable( table );